@@ -0,0 +1,69 @@
+package fi.fmi.avi.archiver.file;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Average time of parsing a single IWXXM bulletin into a DOM document with a new {@code DocumentBuilder} per document, compared to a
+ * {@link DocumentBuilderPool}. The difference between the two is the per-bulletin saving of pooling.
+ *
+ * <p>
+ * Run with {@code mvn -P jmh test-compile exec:exec -Djmh.includes=DocumentBuilderPoolBenchmark}.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DocumentBuilderPoolBenchmark {
+    @Param({"taf.xml", "metar-iwxxm-2025-2.xml"})
+    private String resourceName;
+
+    private DocumentBuilderFactory documentBuilderFactory;
+    private DocumentBuilderPool documentBuilderPool;
+    private String documentContent;
+
+    private static String readResource(final String name) {
+        try (InputStream inputStream = requireNonNull(DocumentBuilderPoolBenchmark.class.getResourceAsStream(name), name)) {
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (final IOException e) {
+            throw new IllegalStateException("Unable to read " + name, e);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws ParserConfigurationException {
+        // Configured as in FileParser
+        documentBuilderFactory = DocumentBuilderFactory.newInstance();
+        documentBuilderFactory.setNamespaceAware(true);
+        documentBuilderFactory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+        documentBuilderPool = new DocumentBuilderPool(documentBuilderFactory, 1, new SimpleMeterRegistry());
+        documentContent = readResource(resourceName);
+    }
+
+    @Benchmark
+    public Document newDocumentBuilder() throws ParserConfigurationException, IOException, SAXException {
+        return documentBuilderFactory.newDocumentBuilder().parse(new InputSource(new StringReader(documentContent)));
+    }
+
+    @Benchmark
+    public Document pooledDocumentBuilder() throws ParserConfigurationException, IOException, SAXException {
+        return documentBuilderPool.parse(new InputSource(new StringReader(documentContent)));
+    }
+}
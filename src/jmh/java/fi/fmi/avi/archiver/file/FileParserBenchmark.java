@@ -0,0 +1,137 @@
+package fi.fmi.avi.archiver.file;
+
+import fi.fmi.avi.archiver.DefaultProcessingServiceContext;
+import fi.fmi.avi.archiver.config.AviMessageConverterConfig;
+import fi.fmi.avi.archiver.config.model.FileConfig;
+import fi.fmi.avi.archiver.logging.model.NoOpLoggingContext;
+import fi.fmi.avi.converter.AviMessageConverter;
+import fi.fmi.avi.model.GenericAviationWeatherMessage;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Throughput of {@link FileParser#parse(String, FileMetadata, fi.fmi.avi.archiver.ProcessingServiceContext)} over representative file corpora.
+ *
+ * <p>
+ * Run with {@code mvn -P jmh test-compile exec:exec}. The {@code gc} profiler is enabled by the profile to report allocation rate along with
+ * throughput.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileParserBenchmark {
+    /**
+     * Number of copies of bulletin members in the {@link Corpus#LARGE_IWXXM_COLLECT} corpus.
+     */
+    private static final int LARGE_COLLECT_MEMBER_COPIES = 50;
+    private static final String COLLECT_MEMBER_START = "<collect:meteorologicalInformation>";
+    private static final String COLLECT_MEMBER_END = "</collect:meteorologicalInformation>";
+
+    @Param
+    private Corpus corpus;
+
+    private AnnotationConfigApplicationContext applicationContext;
+    private FileParser fileParser;
+    private FileMetadata fileMetadata;
+    private String fileContent;
+
+    private static String readResource(final String name) {
+        try (InputStream inputStream = requireNonNull(FileParserBenchmark.class.getResourceAsStream(name), name)) {
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (final IOException e) {
+            throw new IllegalStateException("Unable to read " + name, e);
+        }
+    }
+
+    private static String multiplyCollectMembers(final String bulletin, final int copies) {
+        final int membersStart = bulletin.indexOf(COLLECT_MEMBER_START);
+        final int membersEnd = bulletin.lastIndexOf(COLLECT_MEMBER_END) + COLLECT_MEMBER_END.length();
+        if (membersStart < 0 || membersEnd < membersStart) {
+            throw new IllegalStateException("No bulletin members found");
+        }
+        final String members = bulletin.substring(membersStart, membersEnd);
+        return bulletin.substring(0, membersStart) + members.repeat(copies) + bulletin.substring(membersEnd);
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        applicationContext = new AnnotationConfigApplicationContext(AviMessageConverterConfig.class);
+        fileParser = new FileParser(applicationContext.getBean(AviMessageConverter.class));
+        fileMetadata = FileMetadata.builder()//
+                .setFileReference(FileReference.create("benchmark", corpus.getResourceName()))//
+                .setFileModified(Instant.now())//
+                .setFileConfig(FileConfig.builder()//
+                        .setFormat(corpus.getFormat())//
+                        .setFormatId(corpus.getFormat().ordinal())//
+                        .setNameTimeZone(ZoneId.of("Z"))//
+                        .setPattern(Pattern.compile(".*"))//
+                        .build())//
+                .build();
+        fileContent = corpus.load();
+        if (fileParser.parse(fileContent, fileMetadata, newContext()).isEmpty()) {
+            throw new IllegalStateException("Corpus " + corpus + " yields no messages");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fileParser.close();
+        applicationContext.close();
+    }
+
+    private static DefaultProcessingServiceContext newContext() {
+        return new DefaultProcessingServiceContext(NoOpLoggingContext.getInstance());
+    }
+
+    @Benchmark
+    public List<InputAviationMessage> parse() {
+        return fileParser.parse(fileContent, fileMetadata, newContext());
+    }
+
+    public enum Corpus {
+        TAC_METAR("metar-tac.txt", GenericAviationWeatherMessage.Format.TAC),
+        TAC_GTS_BULLETINS("taf-tac-two-bulletins.bul", GenericAviationWeatherMessage.Format.TAC),
+        IWXXM_SINGLE("taf.xml", GenericAviationWeatherMessage.Format.IWXXM),
+        LARGE_IWXXM_COLLECT("taf-bulletin.xml", GenericAviationWeatherMessage.Format.IWXXM) {
+            @Override
+            String load() {
+                return multiplyCollectMembers(super.load(), LARGE_COLLECT_MEMBER_COPIES);
+            }
+        };
+
+        private final String resourceName;
+        private final GenericAviationWeatherMessage.Format format;
+
+        Corpus(final String resourceName, final GenericAviationWeatherMessage.Format format) {
+            this.resourceName = resourceName;
+            this.format = format;
+        }
+
+        public String getResourceName() {
+            return resourceName;
+        }
+
+        public GenericAviationWeatherMessage.Format getFormat() {
+            return format;
+        }
+
+        String load() {
+            return readResource(resourceName);
+        }
+    }
+}
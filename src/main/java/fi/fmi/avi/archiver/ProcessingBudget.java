@@ -0,0 +1,131 @@
+package fi.fmi.avi.archiver;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import fi.fmi.avi.archiver.file.FileProcessingIdentifier;
+
+/**
+ * Budget of work in flight, measured in bytes of input files and number of messages within them.
+ *
+ * <p>
+ * Work is reserved for each file processing by {@link #reserveBytes(FileProcessingIdentifier, long) bytes} when file processing starts, and by
+ * {@link #reserveMessages(FileProcessingIdentifier, int) message count} once the file is parsed. All work reserved for a file processing is released
+ * with {@link #release(FileProcessingIdentifier)} when file processing finishes. Reservations never block nor fail; instead the budget is
+ * {@link #isExhausted() exhausted} while reserved work exceeds either limit, and input readers are expected to pause until it is not.
+ * </p>
+ */
+public class ProcessingBudget {
+    /**
+     * Limit value denoting no limit.
+     */
+    public static final long UNLIMITED = 0;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProcessingBudget.class);
+
+    private final long maxBytes;
+    private final long maxMessages;
+    private final ConcurrentMap<FileProcessingIdentifier, Reservation> reservations = new ConcurrentHashMap<>();
+    private final AtomicLong bytesInUse = new AtomicLong();
+    private final AtomicLong messagesInUse = new AtomicLong();
+
+    /**
+     * Construct a new budget.
+     *
+     * @param maxBytes    maximum bytes of input files in flight, or {@link #UNLIMITED}
+     * @param maxMessages maximum number of messages in flight, or {@link #UNLIMITED}
+     */
+    public ProcessingBudget(final long maxBytes, final long maxMessages) {
+        checkArgument(maxBytes >= 0, "maxBytes must not be negative; was: %s", maxBytes);
+        checkArgument(maxMessages >= 0, "maxMessages must not be negative; was: %s", maxMessages);
+        this.maxBytes = maxBytes;
+        this.maxMessages = maxMessages;
+    }
+
+    private static boolean exceeds(final long inUse, final long max) {
+        return max != UNLIMITED && inUse >= max;
+    }
+
+    /**
+     * Reserve bytes for provided file processing.
+     *
+     * @param processingId file processing identifier
+     * @param bytes        size of input file in bytes
+     */
+    public void reserveBytes(final FileProcessingIdentifier processingId, final long bytes) {
+        requireNonNull(processingId, "processingId");
+        checkArgument(bytes >= 0, "bytes must not be negative; was: %s", bytes);
+        reservations.computeIfAbsent(processingId, id -> new Reservation()).bytes.addAndGet(bytes);
+        bytesInUse.addAndGet(bytes);
+    }
+
+    /**
+     * Reserve messages for provided file processing.
+     *
+     * @param processingId file processing identifier
+     * @param messages     number of messages in input file
+     */
+    public void reserveMessages(final FileProcessingIdentifier processingId, final int messages) {
+        requireNonNull(processingId, "processingId");
+        checkArgument(messages >= 0, "messages must not be negative; was: %s", messages);
+        reservations.computeIfAbsent(processingId, id -> new Reservation()).messages.addAndGet(messages);
+        messagesInUse.addAndGet(messages);
+    }
+
+    /**
+     * Release all work reserved for provided file processing.
+     *
+     * @param processingId file processing identifier
+     */
+    public void release(final FileProcessingIdentifier processingId) {
+        requireNonNull(processingId, "processingId");
+        final Reservation reservation = reservations.remove(processingId);
+        if (reservation == null) {
+            LOGGER.debug("Attempted to release budget of <{}>, but nothing is reserved.", processingId);
+            return;
+        }
+        bytesInUse.addAndGet(-reservation.bytes.get());
+        messagesInUse.addAndGet(-reservation.messages.get());
+    }
+
+    /**
+     * Return whether reserved work has reached or exceeded either limit.
+     *
+     * @return {@code true} if budget is exhausted, otherwise {@code false}
+     */
+    public boolean isExhausted() {
+        return exceeds(bytesInUse.get(), maxBytes) || exceeds(messagesInUse.get(), maxMessages);
+    }
+
+    public long getBytesInUse() {
+        return bytesInUse.get();
+    }
+
+    public long getMessagesInUse() {
+        return messagesInUse.get();
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public long getMaxMessages() {
+        return maxMessages;
+    }
+
+    public int getFileCount() {
+        return reservations.size();
+    }
+
+    private static final class Reservation {
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicLong messages = new AtomicLong();
+    }
+}
@@ -6,10 +6,23 @@ import java.time.Duration;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
 
+import com.google.common.collect.BiMap;
+
+import fi.fmi.avi.archiver.ProcessingBudget;
 import fi.fmi.avi.archiver.ProcessingState;
+import fi.fmi.avi.archiver.database.RecentMessageCache;
+import fi.fmi.avi.archiver.metrics.ExecutorMetrics;
+import fi.fmi.avi.archiver.metrics.IngestLatencyMetrics;
+import fi.fmi.avi.archiver.metrics.ProcessingPhaseMetrics;
 import fi.fmi.avi.archiver.spring.context.CompoundLifecycle;
 import fi.fmi.avi.archiver.spring.context.GracefulShutdownManager;
+import fi.fmi.avi.archiver.spring.endpoint.IngestLatencyEndpoint;
+import fi.fmi.avi.model.MessageType;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 
 @Configuration
 public class ArchiverConfig {
@@ -40,4 +53,63 @@ public class ArchiverConfig {
         return new ProcessingState(clock());
     }
 
+    @Bean
+    ProcessingBudget processingBudget(@Value("${processing-flow.backpressure.max-bytes:0}") final DataSize maxBytes,
+            @Value("${processing-flow.backpressure.max-messages:0}") final long maxMessages) {
+        return new ProcessingBudget(maxBytes.toBytes(), maxMessages);
+    }
+
+    @Bean
+    MeterBinder processingBudgetMetrics(final ProcessingBudget processingBudget) {
+        return registry -> {
+            Gauge.builder("archiver.backpressure.bytes", processingBudget, ProcessingBudget::getBytesInUse)//
+                    .description("Bytes of input files in flight")//
+                    .baseUnit("bytes")//
+                    .register(registry);
+            Gauge.builder("archiver.backpressure.bytes.max", processingBudget, ProcessingBudget::getMaxBytes)//
+                    .description("Maximum bytes of input files in flight, or 0 if unlimited")//
+                    .baseUnit("bytes")//
+                    .register(registry);
+            Gauge.builder("archiver.backpressure.messages", processingBudget, ProcessingBudget::getMessagesInUse)//
+                    .description("Number of messages in flight")//
+                    .register(registry);
+            Gauge.builder("archiver.backpressure.messages.max", processingBudget, ProcessingBudget::getMaxMessages)//
+                    .description("Maximum number of messages in flight, or 0 if unlimited")//
+                    .register(registry);
+            Gauge.builder("archiver.backpressure.files", processingBudget, ProcessingBudget::getFileCount)//
+                    .description("Number of files in flight")//
+                    .register(registry);
+            Gauge.builder("archiver.backpressure.exhausted", processingBudget, budget -> budget.isExhausted() ? 1 : 0)//
+                    .description("1 if input is paused due to exhausted processing budget, otherwise 0")//
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    ProcessingPhaseMetrics processingPhaseMetrics(final MeterRegistry meterRegistry) {
+        return new ProcessingPhaseMetrics(meterRegistry);
+    }
+
+    @Bean
+    ExecutorMetrics executorMetrics(final MeterRegistry meterRegistry) {
+        return new ExecutorMetrics(meterRegistry);
+    }
+
+    @Bean
+    IngestLatencyMetrics ingestLatencyMetrics(final MeterRegistry meterRegistry, final BiMap<MessageType, Integer> messageTypeIds,
+            final BiMap<String, Integer> messageRouteIds, @Value("${processing-flow.ingest-latency.window:PT5M}") final Duration window) {
+        return new IngestLatencyMetrics(meterRegistry, clock(), messageTypeIds, messageRouteIds, window);
+    }
+
+    @Bean
+    IngestLatencyEndpoint ingestLatencyEndpoint(final IngestLatencyMetrics ingestLatencyMetrics) {
+        return new IngestLatencyEndpoint(ingestLatencyMetrics);
+    }
+
+    @Bean
+    RecentMessageCache recentMessageCache(@Value("${processing-flow.recent-messages.messages-per-type:0}") final int messagesPerType,
+            @Value("${processing-flow.recent-messages.window:PT0S}") final Duration window) {
+        return new RecentMessageCache(clock(), messagesPerType, window);
+    }
+
 }
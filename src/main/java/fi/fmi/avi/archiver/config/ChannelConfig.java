@@ -1,17 +1,19 @@
 package fi.fmi.avi.archiver.config;
 
 import fi.fmi.avi.archiver.AviationMessageArchiver;
+import fi.fmi.avi.archiver.config.util.PhaseExecutorFactory;
+import fi.fmi.avi.archiver.metrics.ExecutorMetrics;
 import fi.fmi.avi.archiver.spring.healthcontributor.BlockingExecutorHealthContributor;
-import fi.fmi.avi.archiver.spring.integration.util.MonitorableCallerBlocksPolicy;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.BeanFactory;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.integration.channel.ChannelUtils;
 import org.springframework.integration.channel.PublishSubscribeChannel;
 import org.springframework.messaging.MessageChannel;
-import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.ErrorHandler;
 
 import java.time.Clock;
-import java.util.concurrent.*;
+import java.util.concurrent.ExecutorService;
 
 import static java.util.Objects.requireNonNull;
 
@@ -20,118 +22,130 @@ public class ChannelConfig {
 
     private final Clock clock;
     private final BlockingExecutorHealthContributor executorHealthContributor;
-    private final int executorQueueSize;
+    private final ExecutorMetrics executorMetrics;
+    private final ExecutorConfig executorConfig;
+    private final BeanFactory beanFactory;
 
-    ChannelConfig(final Clock clock, final BlockingExecutorHealthContributor executorHealthContributor,
-                  @Value("${executor.queue-size}") final int executorQueueSize) {
+    ChannelConfig(final Clock clock, final BlockingExecutorHealthContributor executorHealthContributor, final ExecutorMetrics executorMetrics,
+                  final ExecutorConfig executorConfig, final BeanFactory beanFactory) {
         this.clock = requireNonNull(clock, "clock");
         this.executorHealthContributor = requireNonNull(executorHealthContributor, "executorHealthContributor");
-        this.executorQueueSize = executorQueueSize;
+        this.executorMetrics = requireNonNull(executorMetrics, "executorMetrics");
+        this.executorConfig = requireNonNull(executorConfig, "executorConfig");
+        this.beanFactory = requireNonNull(beanFactory, "beanFactory");
+    }
+
+    @Bean
+    PhaseExecutorFactory phaseExecutorFactory() {
+        // Resolve error handler lazily, as it may not be available while channels are being created
+        final ErrorHandler errorHandler = throwable -> ChannelUtils.getErrorHandler(beanFactory).handleError(throwable);
+        return new PhaseExecutorFactory(clock, executorHealthContributor, executorMetrics, executorConfig, aviationMessageArchiverThreadGroup(),
+                errorHandler);
     }
 
     @Bean
     ExecutorService processingExecutor() {
-        return newBlockingSingleThreadExecutor("Processing-");
+        return newBlockingExecutor(ExecutorConfig.PROCESSING, "Processing-");
     }
 
     @Bean
     MessageChannel processingChannel() {
-        return new PublishSubscribeChannel(processingExecutor());
+        return newChannel(processingExecutor());
     }
 
     @Bean
     ExecutorService archiveExecutor() {
-        return newBlockingSingleThreadExecutor("Archive-");
+        return newBlockingExecutor(ExecutorConfig.ARCHIVE, "Archive-");
     }
 
     @Bean
     MessageChannel archiveChannel() {
-        return new PublishSubscribeChannel(archiveExecutor());
+        return newChannel(archiveExecutor());
     }
 
     @Bean
     ExecutorService successExecutor() {
-        return newBlockingSingleThreadExecutor("Success-");
+        return newBlockingExecutor(ExecutorConfig.SUCCESS, "Success-");
     }
 
     @Bean
     MessageChannel successChannel() {
-        return new PublishSubscribeChannel(successExecutor());
+        return newChannel(successExecutor());
     }
 
     @Bean
     ExecutorService failExecutor() {
-        return newBlockingSingleThreadExecutor("Fail-");
+        return newBlockingExecutor(ExecutorConfig.FAIL, "Fail-");
     }
 
     @Bean
     MessageChannel failChannel() {
-        return new PublishSubscribeChannel(failExecutor());
+        return newChannel(failExecutor());
     }
 
     @Bean
     ExecutorService parserExecutor() {
-        return newBlockingSingleThreadExecutor("Parser-");
+        return newBlockingExecutor(ExecutorConfig.PARSER, "Parser-");
     }
 
     @Bean
     MessageChannel parserChannel() {
-        return new PublishSubscribeChannel(parserExecutor());
+        return newChannel(parserExecutor());
     }
 
     @Bean
     ExecutorService populatorExecutor() {
-        return newBlockingSingleThreadExecutor("Populator-");
+        return newBlockingExecutor(ExecutorConfig.POPULATOR, "Populator-");
     }
 
     @Bean
     MessageChannel populatorChannel() {
-        return new PublishSubscribeChannel(populatorExecutor());
+        return newChannel(populatorExecutor());
     }
 
     @Bean
     ExecutorService databaseExecutor() {
-        return newBlockingSingleThreadExecutor("Database-");
+        return newBlockingExecutor(ExecutorConfig.DATABASE, "Database-");
     }
 
     @Bean
     MessageChannel databaseChannel() {
-        return new PublishSubscribeChannel(databaseExecutor());
+        return newChannel(databaseExecutor());
     }
 
     @Bean
     ExecutorService postActionExecutor() {
-        return newBlockingSingleThreadExecutor("PostAction-");
+        return newBlockingExecutor(ExecutorConfig.POST_ACTION, "PostAction-");
     }
 
     @Bean
     MessageChannel postActionChannel() {
-        return new PublishSubscribeChannel(postActionExecutor());
+        return newChannel(postActionExecutor());
     }
 
     @Bean
     ExecutorService finishExecutor() {
-        return newBlockingSingleThreadExecutor("Finish-");
+        return newBlockingExecutor(ExecutorConfig.FINISH, "Finish-");
     }
 
     @Bean
     MessageChannel finishChannel() {
-        return new PublishSubscribeChannel(finishExecutor());
+        return newChannel(finishExecutor());
     }
 
     @Bean
     ExecutorService errorMessageExecutor() {
-        return newBlockingSingleThreadExecutor("Error-");
+        return newBlockingExecutor(ExecutorConfig.ERROR, "Error-");
     }
 
     @Bean
     MessageChannel errorMessageChannel() {
-        return new PublishSubscribeChannel(errorMessageExecutor());
+        return newChannel(errorMessageExecutor());
     }
 
     @Bean
     ExecutorService errorLoggingExecutor() {
-        return Executors.newCachedThreadPool(newThreadFactory("Error-Log-"));
+        return phaseExecutorFactory().newUnboundedExecutor("Error-Log-");
     }
 
     @Bean
@@ -144,18 +158,12 @@ public class ChannelConfig {
         return new ThreadGroup(AviationMessageArchiver.class.getSimpleName());
     }
 
-    private ExecutorService newBlockingSingleThreadExecutor(final String threadNamePrefix) {
-        final BlockingQueue<Runnable> queue = new ArrayBlockingQueue<>(executorQueueSize);
-        final MonitorableCallerBlocksPolicy callerBlocksPolicy = new MonitorableCallerBlocksPolicy(clock, Long.MAX_VALUE);
-        executorHealthContributor.registerPolicy(threadNamePrefix + "executor", callerBlocksPolicy);
-        return new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, queue,
-                newThreadFactory(threadNamePrefix), callerBlocksPolicy);
+    private MessageChannel newChannel(final ExecutorService executor) {
+        return phaseExecutorFactory().newChannel(executor);
     }
 
-    private CustomizableThreadFactory newThreadFactory(final String threadNamePrefix) {
-        final CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(threadNamePrefix);
-        threadFactory.setThreadGroup(aviationMessageArchiverThreadGroup());
-        return threadFactory;
+    private ExecutorService newBlockingExecutor(final String phaseExecutorName, final String threadNamePrefix) {
+        return phaseExecutorFactory().newBlockingExecutor(threadNamePrefix, executorConfig.getThreads(phaseExecutorName), executorConfig.getQueueSize());
     }
 
 }
@@ -5,14 +5,20 @@ import static fi.fmi.avi.archiver.spring.retry.ArchiverRetryContexts.DATABASE_OP
 import static fi.fmi.avi.archiver.spring.retry.ArchiverRetryContexts.LOGGING_CONTEXT;
 import static fi.fmi.avi.archiver.spring.retry.ArchiverRetryContexts.RETRY_COUNT_LOGNAME;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.time.Clock;
 import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nullable;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.dao.EmptyResultDataAccessException;
@@ -24,27 +30,122 @@ import org.springframework.retry.backoff.ExponentialBackOffPolicy;
 import org.springframework.retry.listener.RetryListenerSupport;
 import org.springframework.retry.support.RetryTemplate;
 import org.springframework.retry.support.RetryTemplateBuilder;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import fi.fmi.avi.archiver.ProcessingBudget;
+import fi.fmi.avi.archiver.database.AsyncDatabaseWriter;
+import fi.fmi.avi.archiver.database.CachingStationIdResolver;
 import fi.fmi.avi.archiver.database.DatabaseAccess;
 import fi.fmi.avi.archiver.database.DatabaseService;
+import fi.fmi.avi.archiver.database.JournalingDatabaseWriter;
+import fi.fmi.avi.archiver.database.MessageDeduplicator;
+import fi.fmi.avi.archiver.database.MessageJournal;
+import fi.fmi.avi.archiver.database.PreloadedStationIdResolver;
+import fi.fmi.avi.archiver.database.RecentMessageCache;
+import fi.fmi.avi.archiver.database.StationIdResolver;
+import fi.fmi.avi.archiver.metrics.IngestLatencyMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
 
 @Configuration
 public class DataSourceConfig {
     @Bean
     DatabaseAccess databaseAccess(final NamedParameterJdbcTemplate jdbcTemplate, final Clock clock, final RetryTemplate databaseAccessRetryTemplate,
-            @Value("${datasource.schema}") final String schema) {
-        return new DatabaseAccess(jdbcTemplate, clock, databaseAccessRetryTemplate, schema);
+            final TransactionTemplate transactionTemplate, @Value("${datasource.schema}") final String schema) {
+        return new DatabaseAccess(jdbcTemplate, clock, databaseAccessRetryTemplate, transactionTemplate, schema);
+    }
+
+    @Bean
+    DatabaseService databaseService(final DatabaseAccess databaseAccess, final IngestLatencyMetrics ingestLatencyMetrics,
+            final ProcessingBudget processingBudget, //
+            @Value("${datasource.single-statement-insert:false}") final boolean singleStatementInsert, //
+            @Value("${datasource.batch-insert:false}") final boolean batchInsert, //
+            @Value("${datasource.transaction-per-file:false}") final boolean transactionPerFile, //
+            @Value("${datasource.bulk-load.backlog-threshold:0}") final long bulkLoadThreshold) {
+        return new DatabaseService(databaseAccess, ingestLatencyMetrics, processingBudget, singleStatementInsert, batchInsert, transactionPerFile,
+                bulkLoadThreshold);
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "datasource.retry.mode", havingValue = "parked")
+    AsyncDatabaseWriter asyncDatabaseWriter(final DatabaseService databaseService, final DatabaseAccess databaseAccess,
+            final MeterRegistry meterRegistry, //
+            @Value("${datasource.retry.initial-interval:PT0.5S}") final Duration initialInterval, //
+            @Value("${datasource.retry.multiplier:2}") final int multiplier, //
+            @Value("${datasource.retry.max-interval:PT1M}") final Duration maxInterval, //
+            @Value("${datasource.retry.timeout:PT0S}") final Duration timeout, //
+            @Value("${datasource.retry.parked.concurrency:4}") final int concurrency, //
+            @Value("${datasource.retry.parked.capacity:1000}") final int capacity, //
+            @Value("${datasource.retry.parked.probe-interval:PT5S}") final Duration probeInterval) {
+        return new AsyncDatabaseWriter(databaseService, databaseAccess, meterRegistry, concurrency, capacity, initialInterval, multiplier, maxInterval,
+                timeout, probeInterval);
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "datasource.retry.mode", havingValue = "journal")
+    MessageJournal messageJournal(final MeterRegistry meterRegistry, //
+            @Value("${datasource.retry.journal.directory}") final Path directory, //
+            @Value("${datasource.retry.journal.segment-size:64MB}") final DataSize segmentSize) throws IOException {
+        return new MessageJournal(directory, segmentSize.toBytes(), meterRegistry);
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "datasource.retry.mode", havingValue = "journal")
+    JournalingDatabaseWriter journalingDatabaseWriter(final DatabaseService databaseService, final DatabaseAccess databaseAccess,
+            final MessageJournal messageJournal, final MessageDeduplicator messageDeduplicator, final RecentMessageCache recentMessageCache, //
+            @Value("${datasource.retry.journal.replay-batch-size:1000}") final int replayBatchSize, //
+            @Value("${datasource.retry.journal.replay-interval:PT5S}") final Duration replayInterval) {
+        return new JournalingDatabaseWriter(databaseService, databaseAccess, messageJournal, messageDeduplicator, recentMessageCache, replayBatchSize,
+                replayInterval);
+    }
+
+    @Bean
+    MessageDeduplicator messageDeduplicator(final DatabaseAccess databaseAccess, final MeterRegistry meterRegistry, //
+            @Value("${datasource.deduplication.policy:disabled}") final MessageDeduplicator.Policy policy, //
+            @Value("${datasource.deduplication.recent-window:PT1H}") final Duration recentWindow, //
+            @Value("${datasource.deduplication.maximum-size:100000}") final long maximumSize, //
+            @Value("${datasource.deduplication.history-window:P1D}") final Duration historyWindow, //
+            @Value("${datasource.deduplication.expected-insertions:1000000}") final long expectedInsertions) {
+        return new MessageDeduplicator(databaseAccess, meterRegistry, policy, recentWindow, maximumSize, historyWindow, expectedInsertions);
     }
 
     @Bean
-    DatabaseService databaseService(final DatabaseAccess databaseAccess) {
-        return new DatabaseService(databaseAccess);
+    StationIdResolver stationIdResolver(final DatabaseAccess databaseAccess, final MeterRegistry meterRegistry,
+            final ScheduledExecutorService stationIdRefreshExecutor, //
+            @Value("${datasource.station-resolution.mode:query}") final StationResolutionMode mode, //
+            @Value("${datasource.station-resolution.cache.time-to-live:PT1H}") final Duration cacheTimeToLive, //
+            @Value("${datasource.station-resolution.cache.refresh-interval:PT10M}") final Duration cacheRefreshInterval, //
+            @Value("${datasource.station-resolution.cache.maximum-size:10000}") final long cacheMaximumSize, //
+            @Value("${datasource.station-resolution.preload.reload-interval:PT10M}") final Duration preloadReloadInterval) {
+        return switch (mode) {
+            case QUERY -> databaseAccess::queryStationId;
+            case CACHE -> new CachingStationIdResolver(databaseAccess, meterRegistry, stationIdRefreshExecutor, cacheTimeToLive, cacheRefreshInterval,
+                    cacheMaximumSize);
+            case PRELOAD -> {
+                final PreloadedStationIdResolver resolver = new PreloadedStationIdResolver(databaseAccess, meterRegistry);
+                stationIdRefreshExecutor.scheduleWithFixedDelay(resolver::reload, 0, preloadReloadInterval.toMillis(), TimeUnit.MILLISECONDS);
+                yield resolver;
+            }
+        };
+    }
+
+    @Bean(destroyMethod = "shutdownNow")
+    ScheduledExecutorService stationIdRefreshExecutor() {
+        return Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()//
+                .setNameFormat("station-id-refresh-%d")//
+                .setDaemon(true)//
+                .build());
     }
 
     /**
      * Retry logic for database operations.
      * <p>
-     * Database operations are retried in blocking manner. When a database operation fails and enters the retrying logic,
+     * Database operations are retried in blocking manner. In {@link RetryMode#PARKED parked} retry mode, inserting messages is not retried by this
+     * template, but by {@link AsyncDatabaseWriter} without blocking. In {@link RetryMode#JOURNAL journal} retry mode, inserting messages is not retried,
+     * but messages failed to be inserted are journaled by {@link JournalingDatabaseWriter}. Other database operations are retried by this template in
+     * all modes. When a database operation fails and enters the retrying logic,
      * no further operations will be attempted until the retry succeeds or timeouts. The retry logic is not applied
      * for {@link NonTransientDataAccessException}s because they are known to not succeed on future attempts. Retrying
      * applies for query timeouts, connectivity issues and similar recoverable errors. The blocking approach is preferable
@@ -78,6 +179,36 @@ public class DataSourceConfig {
         return retryTemplateBuilder.build();
     }
 
+    enum RetryMode {
+        /**
+         * Retry failed database operations in blocking manner, in the thread executing the operation.
+         */
+        BLOCKING,
+        /**
+         * Park messages of files failed to be inserted, and retry inserting them asynchronously without blocking the database phase executor.
+         */
+        PARKED,
+        /**
+         * Write messages of files failed to be inserted into a local journal, and insert them from the journal once the database is available.
+         */
+        JOURNAL
+    }
+
+    enum StationResolutionMode {
+        /**
+         * Query station id from the database for each message.
+         */
+        QUERY,
+        /**
+         * Cache station ids queried from the database.
+         */
+        CACHE,
+        /**
+         * Load all stations from the database periodically, and query only stations missing from the latest snapshot.
+         */
+        PRELOAD
+    }
+
     private static final class RetryLogger extends RetryListenerSupport {
         // When making changes to this class, check if equivalent changes are also needed in
         // fi.fmi.avi.archiver.spring.retry.RetryAdviceFactory.RetryLogger
@@ -0,0 +1,298 @@
+package fi.fmi.avi.archiver.config;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import fi.fmi.avi.archiver.logging.model.ProcessingPhase;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.ConstructorBinding;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import javax.annotation.Nullable;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Configuration of executors controlling each phase in file processing.
+ */
+@ConfigurationProperties(prefix = "executor")
+public class ExecutorConfig {
+    public static final String PROCESSING = "processing";
+    public static final String PARSER = "parser";
+    public static final String POPULATOR = "populator";
+    public static final String DATABASE = "database";
+    public static final String POST_ACTION = "post-action";
+    public static final String ARCHIVE = "archive";
+    public static final String SUCCESS = "success";
+    public static final String FAIL = "fail";
+    public static final String FINISH = "finish";
+    public static final String ERROR = "error";
+
+    private static final Set<String> PHASE_EXECUTOR_NAMES = ImmutableSet.of(
+            PROCESSING, PARSER, POPULATOR, DATABASE, POST_ACTION, ARCHIVE, SUCCESS, FAIL, FINISH, ERROR);
+    private static final Set<String> LANE_EXECUTOR_NAMES = ImmutableSet.of(
+            PROCESSING, PARSER, POPULATOR, DATABASE, POST_ACTION, ARCHIVE);
+
+    private final Mode mode;
+    private final Fusion fusion;
+    private final int queueSize;
+    private final int threads;
+    private final Map<String, PhaseConfig> phases;
+    private final Map<String, LaneConfig> lanes;
+    private final PriorityConfig priority;
+
+    @ConstructorBinding
+    ExecutorConfig(@DefaultValue("platform") final Mode mode, @DefaultValue("none") final Fusion fusion, final int queueSize,
+                   @DefaultValue("1") final int threads, @Nullable final Map<String, PhaseConfig> phases, @Nullable final Map<String, LaneConfig> lanes,
+                   @DefaultValue final PriorityConfig priority) {
+        this.mode = requireNonNull(mode, "mode");
+        this.fusion = requireNonNull(fusion, "fusion");
+        this.priority = requireNonNull(priority, "priority");
+        checkState(!priority.agingInterval().isNegative(), "Invalid configuration: executor.priority.aging-interval must not be negative; was <%s>",
+                priority.agingInterval());
+        checkState(queueSize > 0, "Invalid configuration: executor.queue-size must be positive; was <%s>", queueSize);
+        checkState(threads > 0, "Invalid configuration: executor.threads must be positive; was <%s>", threads);
+        this.queueSize = queueSize;
+        this.threads = threads;
+        this.phases = phases == null ? ImmutableMap.of() : ImmutableMap.copyOf(phases);
+        this.phases.forEach((name, phaseConfig) -> {
+            checkState(PHASE_EXECUTOR_NAMES.contains(name), "Invalid configuration: unknown executor phase <%s>; expected one of %s",
+                    name, PHASE_EXECUTOR_NAMES);
+            checkState(phaseConfig.threads() == null || phaseConfig.threads() > 0,
+                    "Invalid configuration: executor.phases.%s.threads must be positive; was <%s>", name, phaseConfig.threads());
+        });
+        this.lanes = lanes == null ? ImmutableMap.of() : ImmutableMap.copyOf(lanes);
+        this.lanes.forEach((productId, laneConfig) -> {
+            checkState(laneConfig.queueSize() == null || laneConfig.queueSize() > 0,
+                    "Invalid configuration: executor.lanes.%s.queue-size must be positive; was <%s>", productId, laneConfig.queueSize());
+            checkState(laneConfig.threads() == null || laneConfig.threads() > 0,
+                    "Invalid configuration: executor.lanes.%s.threads must be positive; was <%s>", productId, laneConfig.threads());
+            laneConfig.getPhases().forEach((name, phaseConfig) -> {
+                checkState(LANE_EXECUTOR_NAMES.contains(name), "Invalid configuration: unknown executor.lanes.%s phase <%s>; expected one of %s",
+                        productId, name, LANE_EXECUTOR_NAMES);
+                checkState(phaseConfig.threads() == null || phaseConfig.threads() > 0,
+                        "Invalid configuration: executor.lanes.%s.phases.%s.threads must be positive; was <%s>", productId, name, phaseConfig.threads());
+            });
+        });
+    }
+
+    /**
+     * Return the execution mode of phase executors.
+     *
+     * @return execution mode
+     */
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Return the fusion of processing phases in the shared archival flow.
+     *
+     * @return phase fusion
+     */
+    public Fusion getFusion() {
+        return fusion;
+    }
+
+    /**
+     * Return the priority scheduling configuration of phase executors.
+     *
+     * @return priority scheduling configuration
+     */
+    public PriorityConfig getPriority() {
+        return priority;
+    }
+
+    /**
+     * Return the capacity of each phase executor's task queue.
+     *
+     * @return task queue capacity
+     */
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    /**
+     * Return the number of worker threads of the named phase executor.
+     * If not explicitly configured for the phase, the default {@code executor.threads} is returned.
+     *
+     * @param phaseExecutorName name of phase executor, e.g. {@link #PARSER}
+     * @return number of worker threads
+     */
+    public int getThreads(final String phaseExecutorName) {
+        requireNonNull(phaseExecutorName, "phaseExecutorName");
+        checkArgument(PHASE_EXECUTOR_NAMES.contains(phaseExecutorName), "Unknown phase executor: %s", phaseExecutorName);
+        final PhaseConfig phaseConfig = phases.get(phaseExecutorName);
+        return phaseConfig == null || phaseConfig.threads() == null ? threads : phaseConfig.threads();
+    }
+
+    /**
+     * Return identifiers of products having a dedicated processing lane.
+     *
+     * @return product identifiers having a lane
+     */
+    public Set<String> getLaneProductIds() {
+        return lanes.keySet();
+    }
+
+    /**
+     * Return the capacity of each executor's task queue in the processing lane of specified product.
+     * If not explicitly configured for the lane, the default {@code executor.queue-size} is returned.
+     *
+     * @param productId product identifier
+     * @return task queue capacity
+     */
+    public int getLaneQueueSize(final String productId) {
+        final LaneConfig laneConfig = getLaneConfig(productId);
+        return laneConfig.queueSize() == null ? queueSize : laneConfig.queueSize();
+    }
+
+    /**
+     * Return the number of worker threads of the named phase executor in the processing lane of specified product.
+     * If not explicitly configured for the lane phase, the lane default {@code executor.lanes.<product>.threads} is returned, and if neither is
+     * configured, the value returned by {@link #getThreads(String)}.
+     *
+     * @param productId         product identifier
+     * @param phaseExecutorName name of phase executor, e.g. {@link #PARSER}
+     * @return number of worker threads
+     */
+    public int getLaneThreads(final String productId, final String phaseExecutorName) {
+        requireNonNull(phaseExecutorName, "phaseExecutorName");
+        checkArgument(LANE_EXECUTOR_NAMES.contains(phaseExecutorName), "Unknown lane executor: %s", phaseExecutorName);
+        final LaneConfig laneConfig = getLaneConfig(productId);
+        final PhaseConfig phaseConfig = laneConfig.getPhases().get(phaseExecutorName);
+        if (phaseConfig != null && phaseConfig.threads() != null) {
+            return phaseConfig.threads();
+        }
+        return laneConfig.threads() == null ? getThreads(phaseExecutorName) : laneConfig.threads();
+    }
+
+    /**
+     * Return the fusion of processing phases in the processing lane of specified product.
+     * If not explicitly configured for the lane, the default {@code executor.fusion} is returned.
+     *
+     * @param productId product identifier
+     * @return phase fusion
+     */
+    public Fusion getLaneFusion(final String productId) {
+        final LaneConfig laneConfig = getLaneConfig(productId);
+        return laneConfig.fusion() == null ? fusion : laneConfig.fusion();
+    }
+
+    private LaneConfig getLaneConfig(final String productId) {
+        requireNonNull(productId, "productId");
+        final LaneConfig laneConfig = lanes.get(productId);
+        checkArgument(laneConfig != null, "No lane configured for product: %s", productId);
+        return laneConfig;
+    }
+
+    /**
+     * Execution mode of phase executors.
+     */
+    public enum Mode {
+        /**
+         * Tasks are executed on a fixed pool of platform threads, and pending tasks are held in a bounded queue.
+         */
+        PLATFORM,
+        /**
+         * Each task is executed on a new virtual thread. Concurrency and pending tasks are bounded by semaphores.
+         */
+        VIRTUAL
+    }
+
+    /**
+     * Fusion of consecutive processing phases into a single task.
+     *
+     * <p>
+     * Fused phases are executed one after another on the executor of the first phase, without handing the file over to executors of the subsequent
+     * phases. This avoids thread handoffs, which may dominate processing time of small files. Phase-specific logging and error handling remain unchanged.
+     * </p>
+     */
+    public enum Fusion {
+        /**
+         * Each phase is executed on its own executor.
+         */
+        NONE(ImmutableSet.of()),
+        /**
+         * Phases from {@link ProcessingPhase#READ} to {@link ProcessingPhase#POPULATE} are executed as a single task on the {@link #PROCESSING} executor.
+         */
+        READ_TO_POPULATE(ImmutableSet.of(ProcessingPhase.PARSE, ProcessingPhase.POPULATE)),
+        /**
+         * Phases from {@link ProcessingPhase#READ} to {@link ProcessingPhase#STORE} are executed as a single task on the {@link #PROCESSING} executor.
+         */
+        READ_TO_STORE(ImmutableSet.of(ProcessingPhase.PARSE, ProcessingPhase.POPULATE, ProcessingPhase.STORE));
+
+        private final Set<ProcessingPhase> fusedPhases;
+
+        Fusion(final Set<ProcessingPhase> fusedPhases) {
+            this.fusedPhases = fusedPhases;
+        }
+
+        /**
+         * Return whether provided phase is fused with the previous phase.
+         *
+         * @param phase processing phase
+         * @return {@code true} if phase is executed in the same task as the previous phase, otherwise {@code false}
+         */
+        public boolean isFused(final ProcessingPhase phase) {
+            return fusedPhases.contains(phase);
+        }
+    }
+
+    /**
+     * Priority scheduling configuration of phase executors.
+     *
+     * <p>
+     * When enabled, each phase executor takes tasks from its queue in order of file priority, instead of arrival order. Priority of a file is resolved
+     * from {@link fi.fmi.avi.archiver.config.model.AviationProduct#getPriority() product} and
+     * {@link fi.fmi.avi.archiver.config.model.FileConfig#getPriority() file configuration} priorities, and data type designators T1T2 in file name
+     * or GTS bulletin headings.
+     * </p>
+     *
+     * @param enabled         whether priority scheduling is enabled
+     * @param agingInterval   waiting time that compensates one step of priority, preventing starvation of low-priority files
+     * @param dataDesignators priority adjustments by data type designators T1T2, e.g. {@code WS} for SIGMET
+     */
+    public record PriorityConfig(boolean enabled, @DefaultValue("PT10S") Duration agingInterval, @Nullable Map<String, Integer> dataDesignators) {
+        /**
+         * Return priority adjustments by data type designators T1T2.
+         *
+         * @return priority adjustments by data type designators
+         */
+        public Map<String, Integer> getDataDesignators() {
+            return dataDesignators == null ? ImmutableMap.of() : ImmutableMap.copyOf(dataDesignators);
+        }
+    }
+
+    /**
+     * Phase-specific executor configuration.
+     *
+     * @param threads number of worker threads, or {@code null} to use the default
+     */
+    public record PhaseConfig(@Nullable Integer threads) {
+    }
+
+    /**
+     * Configuration of a dedicated processing lane of a product.
+     *
+     * <p>
+     * A lane has its own executors for phases from file reading to archival, isolating the product from others. The number of threads in lane phases
+     * determine the share of CPU (parser, populator) and database (database) capacity dedicated to the product.
+     * </p>
+     *
+     * @param queueSize task queue capacity of each lane executor, or {@code null} to use the default
+     * @param threads   number of worker threads of each lane executor, or {@code null} to use the default
+     * @param fusion    fusion of processing phases in the lane, or {@code null} to use the default
+     * @param phases    phase-specific lane executor configuration
+     */
+    public record LaneConfig(@Nullable Integer queueSize, @Nullable Integer threads, @Nullable Fusion fusion,
+                             @Nullable Map<String, PhaseConfig> phases) {
+        Map<String, PhaseConfig> getPhases() {
+            return phases == null ? ImmutableMap.of() : phases;
+        }
+    }
+}
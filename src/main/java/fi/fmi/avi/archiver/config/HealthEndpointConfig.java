@@ -1,10 +1,14 @@
 package fi.fmi.avi.archiver.config;
 
 import fi.fmi.avi.archiver.config.model.AviationProduct;
+import fi.fmi.avi.archiver.database.JournalingDatabaseWriter;
+import fi.fmi.avi.archiver.database.MessageJournal;
 import fi.fmi.avi.archiver.spring.healthcontributor.BlockingExecutorHealthContributor;
 import fi.fmi.avi.archiver.spring.healthcontributor.DirectoryPermissionHealthContributor;
+import fi.fmi.avi.archiver.spring.healthcontributor.MessageJournalHealthIndicator;
 import fi.fmi.avi.archiver.spring.healthcontributor.SwimRabbitMQConnectionHealthContributor;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -28,6 +32,13 @@ public class HealthEndpointConfig {
         return new BlockingExecutorHealthContributor(blockingExecutorTimeout);
     }
 
+    @Bean
+    @ConditionalOnProperty(name = "datasource.retry.mode", havingValue = "journal")
+    MessageJournalHealthIndicator messageJournalHealthIndicator(final MessageJournal messageJournal,
+                                                                final JournalingDatabaseWriter journalingDatabaseWriter) {
+        return new MessageJournalHealthIndicator(messageJournal, journalingDatabaseWriter);
+    }
+
     @Bean
     SwimRabbitMQConnectionHealthContributor swimRabbitMQConnectionHealthContributor() {
         return new SwimRabbitMQConnectionHealthContributor();
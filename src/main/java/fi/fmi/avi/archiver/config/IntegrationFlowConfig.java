@@ -2,19 +2,30 @@ package fi.fmi.avi.archiver.config;
 
 import com.google.common.collect.ImmutableList;
 import fi.fmi.avi.archiver.DefaultProcessingServiceContext;
+import fi.fmi.avi.archiver.ProcessingBudget;
 import fi.fmi.avi.archiver.ProcessingServiceContext;
 import fi.fmi.avi.archiver.ProcessingState;
 import fi.fmi.avi.archiver.config.model.AviationProduct;
 import fi.fmi.avi.archiver.config.model.FileConfig;
+import fi.fmi.avi.archiver.config.util.PhaseExecutorFactory;
 import fi.fmi.avi.archiver.config.util.SpringProcessingServiceContextHelper;
+import fi.fmi.avi.archiver.database.AsyncDatabaseWriter;
 import fi.fmi.avi.archiver.database.DatabaseService;
+import fi.fmi.avi.archiver.database.JournalingDatabaseWriter;
+import fi.fmi.avi.archiver.database.MessageDeduplicator;
+import fi.fmi.avi.archiver.database.RecentMessageCache;
+import fi.fmi.avi.archiver.file.ByteFileToStringTransformer;
 import fi.fmi.avi.archiver.file.FileMetadata;
+import fi.fmi.avi.archiver.file.FilePriorityResolver;
 import fi.fmi.avi.archiver.file.FileProcessingIdentifier;
 import fi.fmi.avi.archiver.file.FileReference;
 import fi.fmi.avi.archiver.file.InputAviationMessage;
 import fi.fmi.avi.archiver.logging.GenericStructuredLoggable;
 import fi.fmi.avi.archiver.logging.model.*;
 import fi.fmi.avi.archiver.logging.slf4j.SLF4JLoggables;
+import fi.fmi.avi.archiver.metrics.FileProcessingTimer;
+import fi.fmi.avi.archiver.metrics.ProcessingPhaseMetrics;
+import fi.fmi.avi.archiver.message.InputAndArchiveAviationMessage;
 import fi.fmi.avi.archiver.message.processor.populator.MessagePopulationService;
 import fi.fmi.avi.archiver.message.processor.postaction.PostActionService;
 import fi.fmi.avi.archiver.spring.context.CompoundLifecycle;
@@ -22,6 +33,7 @@ import fi.fmi.avi.archiver.spring.integration.dsl.ServiceActivators;
 import fi.fmi.avi.archiver.spring.integration.file.filters.AcceptUnchangedFileListFilter;
 import fi.fmi.avi.archiver.spring.integration.file.filters.AnyAcceptFileListFilter;
 import fi.fmi.avi.archiver.spring.integration.file.filters.ProcessingFileListFilter;
+import fi.fmi.avi.archiver.spring.integration.util.PausingReceiveMessageAdvice;
 import fi.fmi.avi.archiver.spring.messaging.MessageHeaderReference;
 import fi.fmi.avi.archiver.spring.retry.RetryAdviceFactory;
 import org.aopalliance.aop.Advice;
@@ -31,9 +43,12 @@ import org.slf4j.MDC;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.integration.IntegrationMessageHeaderAccessor;
 import org.springframework.integration.channel.PublishSubscribeChannel;
 import org.springframework.integration.core.GenericSelector;
 import org.springframework.integration.dsl.IntegrationFlow;
+import org.springframework.integration.dsl.HeaderEnricherSpec;
+import org.springframework.integration.dsl.IntegrationFlowBuilder;
 import org.springframework.integration.dsl.IntegrationFlows;
 import org.springframework.integration.dsl.Pollers;
 import org.springframework.integration.dsl.context.IntegrationFlowContext;
@@ -44,6 +59,7 @@ import org.springframework.integration.file.FileWritingMessageHandler;
 import org.springframework.integration.file.filters.ChainFileListFilter;
 import org.springframework.integration.file.filters.RegexPatternFileListFilter;
 import org.springframework.integration.file.support.FileExistsMode;
+import org.springframework.integration.file.transformer.AbstractFilePayloadTransformer;
 import org.springframework.integration.file.transformer.FileToStringTransformer;
 import org.springframework.integration.handler.GenericHandler;
 import org.springframework.integration.handler.advice.ExpressionEvaluatingRequestHandlerAdvice;
@@ -61,15 +77,18 @@ import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static fi.fmi.avi.archiver.config.util.SpringProcessingServiceContextHelper.*;
+import static com.google.common.base.Preconditions.checkState;
 import static fi.fmi.avi.archiver.logging.GenericStructuredLoggable.loggable;
 import static java.util.Objects.requireNonNull;
 
@@ -81,6 +100,7 @@ public class IntegrationFlowConfig {
             FileProcessingIdentifier.class);
     public static final MessageHeaderReference<String> FILENAME = MessageHeaderReference.of(FileHeaders.FILENAME, String.class);
     public static final MessageHeaderReference<File> ORIGINAL_FILE = MessageHeaderReference.of(FileHeaders.ORIGINAL_FILE, File.class);
+    public static final MessageHeaderReference<FileProcessingTimer> PROCESSING_TIMER = MessageHeaderReference.simpleNameOf(FileProcessingTimer.class);
 
     private static final Logger LOGGER = LoggerFactory.getLogger(IntegrationFlowConfig.class);
     private static final String PROCESSING_ERRORS_LOGGABLE = "processingErrors";
@@ -99,13 +119,20 @@ public class IntegrationFlowConfig {
     }
 
     private static GenericHandler<?> loggingEnvCleaner() {
-        return ServiceActivators.execute(IntegrationFlowConfig::unsetLoggingEnv);
+        return (payload, headers) -> {
+            PROCESSING_TIMER.getOptional(headers)//
+                    .ifPresent(FileProcessingTimer::exit);
+            unsetLoggingEnv();
+            return payload;
+        };
     }
 
     private static void setLoggingEnv(final MessageHeaders headers, final ProcessingPhase processingPhase) {
         PROCESSING_IDENTIFIER.getOptional(headers)//
                 .ifPresent(SLF4JLoggables::putMDC);
         SLF4JLoggables.putMDC(processingPhase);
+        PROCESSING_TIMER.getOptional(headers)//
+                .ifPresent(timer -> timer.enter(processingPhase));
     }
 
     private static void unsetLoggingEnv() {
@@ -113,69 +140,45 @@ public class IntegrationFlowConfig {
     }
 
     @Bean
-    IntegrationFlow archivalFlow(
-            final FileToStringTransformer fileToStringTransformer, final RequestHandlerRetryAdvice fileReadingRetryAdvice,
+    ArchivalFlowFactory archivalFlowFactory(
+            final AbstractFilePayloadTransformer<String> fileToStringTransformer, final RequestHandlerRetryAdvice fileReadingRetryAdvice,
             final ParserConfig.FileParserIntegrationService fileParserIntegrationService,
             final MessagePopulationService messagePopulationService,
-            final DatabaseService databaseService, final PostActionService postActionService,
-            final MessageChannel processingChannel, final MessageChannel parserChannel, final MessageChannel populatorChannel,
-            final MessageChannel databaseChannel, final MessageChannel postActionChannel, final MessageChannel archiveChannel,
+            final MessageDeduplicator messageDeduplicator, final DatabaseService databaseService,
+            final Optional<AsyncDatabaseWriter> asyncDatabaseWriter, final Optional<JournalingDatabaseWriter> journalingDatabaseWriter,
+            @Value("${datasource.retry.mode:blocking}") final DataSourceConfig.RetryMode retryMode, final RecentMessageCache recentMessageCache,
+            final PostActionService postActionService,
+            final ProcessingBudget processingBudget, final FilePriorityResolver filePriorityResolver, final ExecutorConfig executorConfig,
             final MessageChannel successChannel, final MessageChannel failChannel) {
-        return IntegrationFlows.from(processingChannel)
-                .handle(loggingEnvSetter(ProcessingPhase.READ))
-                .transform(fileToStringTransformer, spec -> spec.advice(fileReadingRetryAdvice))
-                .handle(loggingEnvCleaner())
-                .channel(parserChannel)
-                .handle(loggingEnvSetter(ProcessingPhase.PARSE))
-                .<String>filter(content -> content != null && !content.isEmpty(), discards -> discards.discardChannel(failChannel))
-                .handle(fileParserIntegrationService::parse)
-                .handle(peekLoggingContext(this::loggingActionsAfterParse))
-                .<List<InputAviationMessage>>filter(messages -> !messages.isEmpty(), discards -> discards.discardChannel(failChannel))
-                .handle(loggingEnvCleaner())
-                .channel(populatorChannel)
-                .handle(loggingEnvSetter(ProcessingPhase.POPULATE))
-                .handle(mapPayloadWithProcessingServiceContext(messagePopulationService::populateMessages))
-                .handle(loggingEnvCleaner())
-                .channel(databaseChannel)
-                .handle(loggingEnvSetter(ProcessingPhase.STORE))
-                .handle(mapPayloadWithProcessingServiceContext(databaseService::insertMessages))
-                .handle(loggingEnvCleaner())
-                .channel(postActionChannel)
-                .handle(loggingEnvSetter(ProcessingPhase.POST_ACTIONS))//
-                .handle(peekPayloadAndLoggingContext(postActionService::runPostActions))//
-                .handle(loggingEnvCleaner())//
-                .channel(archiveChannel)
-                .route(Message.class, message -> getProcessingServiceContext(message.getHeaders()).isProcessingErrors(), spec -> spec//
-                        .channelMapping(false, successChannel)//
-                        .channelMapping(true, failChannel))
-                .get();
+        return new ArchivalFlowFactory(fileToStringTransformer, fileReadingRetryAdvice, fileParserIntegrationService, messagePopulationService,
+                messageDeduplicator, databaseService, retryMode == DataSourceConfig.RetryMode.PARKED ? asyncDatabaseWriter.orElseThrow() : null,
+                retryMode == DataSourceConfig.RetryMode.JOURNAL ? journalingDatabaseWriter.orElseThrow() : null, recentMessageCache, postActionService,
+                processingBudget, filePriorityResolver, executorConfig.getPriority().enabled(), successChannel, failChannel);
     }
 
-    private void loggingActionsAfterParse(final LoggingContext loggingContext) {
-        loggingContext.initStatistics();
-        logFileContentOverview(loggingContext);
+    @Bean
+    FilePriorityResolver filePriorityResolver(final Map<String, AviationProduct> aviationProducts, final ExecutorConfig executorConfig) {
+        return new FilePriorityResolver(aviationProducts, executorConfig.getPriority().getDataDesignators());
     }
 
-    private void logFileContentOverview(final LoggingContext loggingContext) {
-        if (LOGGER.isInfoEnabled()) {
-            final List<BulletinLogReference> bulletins = loggingContext.getAllBulletins();
-            if (bulletins.size() == 1 && bulletins.getFirst().getHeading().isEmpty()) {
-                loggingContext.enterBulletin(0);
-                LOGGER.info("Messages in <{}>: {}", loggingContext, loggingContext.getBulletinMessages());
-                loggingContext.leaveBulletin();
-            } else {
-                LOGGER.info("Bulletins in <{}>: {}", loggingContext, bulletins);
-            }
-        }
+    @Bean
+    IntegrationFlow archivalFlow(
+            final ArchivalFlowFactory archivalFlowFactory, final ExecutorConfig executorConfig,
+            final MessageChannel processingChannel, final MessageChannel parserChannel, final MessageChannel populatorChannel,
+            final MessageChannel databaseChannel, final MessageChannel postActionChannel, final MessageChannel archiveChannel) {
+        return archivalFlowFactory.create(new ArchivalFlowChannels(
+                processingChannel, parserChannel, populatorChannel, databaseChannel, postActionChannel, archiveChannel), executorConfig.getFusion());
     }
 
     @Bean
-    IntegrationFlow finishFlow(final ProcessingState processingState, final MessageChannel finishChannel) {
+    IntegrationFlow finishFlow(final ProcessingState processingState, final ProcessingBudget processingBudget, final MessageChannel finishChannel) {
         return IntegrationFlows.from(finishChannel)//
                 .handle(loggingEnvSetter(ProcessingPhase.FINISH))//
                 .handle(ServiceActivators.peekHeaderIfExists(FILE_REFERENCE, processingState::finish))//
+                .handle(ServiceActivators.peekHeaderIfExists(PROCESSING_IDENTIFIER, processingBudget::release))//
                 .handle(this::logFinish)//
                 .handle(loggingEnvCleaner())//
+                .handle(ServiceActivators.peekHeaderIfExists(PROCESSING_TIMER, FileProcessingTimer::record))//
                 .nullChannel();
     }
 
@@ -217,7 +220,12 @@ public class IntegrationFlowConfig {
     }
 
     @Bean
-    FileToStringTransformer fileToStringTransformer(@Value("${file-handler.charset}") final String charset) {
+    AbstractFilePayloadTransformer<String> fileToStringTransformer(
+            @Value("${file-handler.charset}") final String charset,
+            @Value("${file-handler.byte-reading.enabled:false}") final boolean byteReadingEnabled) {
+        if (byteReadingEnabled) {
+            return new ByteFileToStringTransformer(Charset.forName(charset));
+        }
         final FileToStringTransformer transformer = new FileToStringTransformer();
         transformer.setCharset(charset);
         return transformer;
@@ -310,16 +318,158 @@ public class IntegrationFlowConfig {
         };
     }
 
+    /**
+     * Channels of each phase in the archival flow, from file reading to routing the file for archival.
+     */
+    record ArchivalFlowChannels(MessageChannel processing, MessageChannel parser, MessageChannel populator, MessageChannel database,
+                                MessageChannel postAction, MessageChannel archive) {
+        ArchivalFlowChannels {
+            requireNonNull(processing, "processing");
+            requireNonNull(parser, "parser");
+            requireNonNull(populator, "populator");
+            requireNonNull(database, "database");
+            requireNonNull(postAction, "postAction");
+            requireNonNull(archive, "archive");
+        }
+    }
+
+    static class ArchivalFlowFactory {
+        private final AbstractFilePayloadTransformer<String> fileToStringTransformer;
+        private final RequestHandlerRetryAdvice fileReadingRetryAdvice;
+        private final ParserConfig.FileParserIntegrationService fileParserIntegrationService;
+        private final MessagePopulationService messagePopulationService;
+        private final MessageDeduplicator messageDeduplicator;
+        private final DatabaseService databaseService;
+        @Nullable
+        private final AsyncDatabaseWriter asyncDatabaseWriter;
+        @Nullable
+        private final JournalingDatabaseWriter journalingDatabaseWriter;
+        private final RecentMessageCache recentMessageCache;
+        private final PostActionService postActionService;
+        private final ProcessingBudget processingBudget;
+        private final FilePriorityResolver filePriorityResolver;
+        private final boolean priorityEnabled;
+        private final MessageChannel successChannel;
+        private final MessageChannel failChannel;
+
+        ArchivalFlowFactory(
+                final AbstractFilePayloadTransformer<String> fileToStringTransformer, final RequestHandlerRetryAdvice fileReadingRetryAdvice,
+                final ParserConfig.FileParserIntegrationService fileParserIntegrationService,
+                final MessagePopulationService messagePopulationService, final MessageDeduplicator messageDeduplicator,
+                final DatabaseService databaseService, @Nullable final AsyncDatabaseWriter asyncDatabaseWriter,
+                @Nullable final JournalingDatabaseWriter journalingDatabaseWriter, final RecentMessageCache recentMessageCache,
+                final PostActionService postActionService,
+                final ProcessingBudget processingBudget, final FilePriorityResolver filePriorityResolver, final boolean priorityEnabled,
+                final MessageChannel successChannel, final MessageChannel failChannel) {
+            this.fileToStringTransformer = requireNonNull(fileToStringTransformer, "fileToStringTransformer");
+            this.fileReadingRetryAdvice = requireNonNull(fileReadingRetryAdvice, "fileReadingRetryAdvice");
+            this.fileParserIntegrationService = requireNonNull(fileParserIntegrationService, "fileParserIntegrationService");
+            this.messagePopulationService = requireNonNull(messagePopulationService, "messagePopulationService");
+            this.messageDeduplicator = requireNonNull(messageDeduplicator, "messageDeduplicator");
+            this.databaseService = requireNonNull(databaseService, "databaseService");
+            this.asyncDatabaseWriter = asyncDatabaseWriter;
+            this.journalingDatabaseWriter = journalingDatabaseWriter;
+            this.recentMessageCache = requireNonNull(recentMessageCache, "recentMessageCache");
+            this.postActionService = requireNonNull(postActionService, "postActionService");
+            this.processingBudget = requireNonNull(processingBudget, "processingBudget");
+            this.filePriorityResolver = requireNonNull(filePriorityResolver, "filePriorityResolver");
+            this.priorityEnabled = priorityEnabled;
+            this.successChannel = requireNonNull(successChannel, "successChannel");
+            this.failChannel = requireNonNull(failChannel, "failChannel");
+        }
+
+        private static void loggingActionsAfterParse(final LoggingContext loggingContext) {
+            loggingContext.initStatistics();
+            logFileContentOverview(loggingContext);
+        }
+
+        private static void logFileContentOverview(final LoggingContext loggingContext) {
+            if (LOGGER.isInfoEnabled()) {
+                final List<BulletinLogReference> bulletins = loggingContext.getAllBulletins();
+                if (bulletins.size() == 1 && bulletins.getFirst().getHeading().isEmpty()) {
+                    loggingContext.enterBulletin(0);
+                    LOGGER.info("Messages in <{}>: {}", loggingContext, loggingContext.getBulletinMessages());
+                    loggingContext.leaveBulletin();
+                } else {
+                    LOGGER.info("Bulletins in <{}>: {}", loggingContext, bulletins);
+                }
+            }
+        }
+
+        /**
+         * Enter the next processing phase. Unless the phase is fused with the previous one, the message is handed over to the channel of the next phase.
+         * Fused phases are executed as a single task, and the logging environment is switched to the next phase without clearing it in between.
+         */
+        private static IntegrationFlowBuilder enterPhase(final IntegrationFlowBuilder builder, final ProcessingPhase phase, final MessageChannel channel,
+                                                         final boolean fused) {
+            if (!fused) {
+                builder.handle(loggingEnvCleaner())
+                        .channel(channel);
+            }
+            return builder.handle(loggingEnvSetter(phase));
+        }
+
+        private void enrichParsedFilePriority(final HeaderEnricherSpec spec) {
+            if (priorityEnabled) {
+                spec.<List<InputAviationMessage>>headerFunction(IntegrationMessageHeaderAccessor.PRIORITY,
+                        message -> filePriorityResolver.resolve(FILE_METADATA.getNonNull(message.getHeaders()), message.getPayload()), true);
+            }
+        }
+
+        IntegrationFlow create(final ArchivalFlowChannels channels, final ExecutorConfig.Fusion fusion) {
+            requireNonNull(channels, "channels");
+            requireNonNull(fusion, "fusion");
+            final IntegrationFlowBuilder builder = IntegrationFlows.from(channels.processing())
+                    .handle(loggingEnvSetter(ProcessingPhase.READ))
+                    .transform(fileToStringTransformer, spec -> spec.advice(fileReadingRetryAdvice));
+            enterPhase(builder, ProcessingPhase.PARSE, channels.parser(), fusion.isFused(ProcessingPhase.PARSE))
+                    .<String>filter(content -> content != null && !content.isEmpty(), discards -> discards.discardChannel(failChannel))
+                    .handle(fileParserIntegrationService::parse)
+                    .handle(ServiceActivators.<List<InputAviationMessage>, FileProcessingIdentifier>peekPayloadAndHeaderIfExists(PROCESSING_IDENTIFIER,
+                            (messages, processingId) -> processingBudget.reserveMessages(processingId, messages.size())))
+                    .handle(peekLoggingContext(ArchivalFlowFactory::loggingActionsAfterParse))
+                    .<List<InputAviationMessage>>filter(messages -> !messages.isEmpty(), discards -> discards.discardChannel(failChannel))
+                    .enrichHeaders(this::enrichParsedFilePriority);
+            enterPhase(builder, ProcessingPhase.POPULATE, channels.populator(), fusion.isFused(ProcessingPhase.POPULATE))
+                    .handle(mapPayloadWithProcessingServiceContext(messagePopulationService::populateMessages));
+            enterPhase(builder, ProcessingPhase.STORE, channels.database(), fusion.isFused(ProcessingPhase.STORE))
+                    .handle(mapPayloadWithProcessingServiceContext(messageDeduplicator::deduplicateMessages));
+            if (asyncDatabaseWriter != null) {
+                // Reply is sent once the write completes, releasing the database phase executor meanwhile
+                builder.handle(mapPayloadWithProcessingServiceContext(asyncDatabaseWriter::write), spec -> spec.async(true));
+            } else if (journalingDatabaseWriter != null) {
+                builder.handle(mapPayloadWithProcessingServiceContext(journalingDatabaseWriter::insertMessages));
+            } else {
+                builder.handle(mapPayloadWithProcessingServiceContext(databaseService::insertMessages));
+            }
+            builder.<List<InputAndArchiveAviationMessage>>handle((messages, headers) -> {
+                messageDeduplicator.recordStoredMessages(messages);
+                recentMessageCache.recordStoredMessages(messages);
+                return messages;
+            });
+            enterPhase(builder, ProcessingPhase.POST_ACTIONS, channels.postAction(), false)//
+                    .handle(peekPayloadAndLoggingContext(postActionService::runPostActions))//
+                    .handle(loggingEnvCleaner())//
+                    .channel(channels.archive())
+                    .route(Message.class, message -> getProcessingServiceContext(message.getHeaders()).isProcessingErrors(), spec -> spec//
+                            .channelMapping(false, successChannel)//
+                            .channelMapping(true, failChannel));
+            return builder.get();
+        }
+    }
+
     @Component
     static class ProductFlowsInitializer {
         private static final String PRODUCT_KEY = AviationProduct.class.getSimpleName();
 
         private final Set<IntegrationFlowContext.IntegrationFlowRegistration> registrations = new HashSet<>();
+        private final List<ExecutorService> laneExecutors = new ArrayList<>();
 
         private final IntegrationFlowContext context;
         private final Map<String, AviationProduct> aviationProducts;
         private final CompoundLifecycle inputReadersLifecycle;
         private final ProcessingState processingState;
+        private final ProcessingBudget processingBudget;
         private final List<Advice> archiveAdviceChain;
         private final List<Advice> failAdviceChain;
         private final FileNameGenerator fileProcessingIdAppender;
@@ -331,18 +481,27 @@ public class IntegrationFlowConfig {
         private final MessageChannel successChannel;
         private final MessageChannel failChannel;
         private final MessageChannel finishChannel;
+        private final ArchivalFlowFactory archivalFlowFactory;
+        private final PhaseExecutorFactory phaseExecutorFactory;
+        private final ExecutorConfig executorConfig;
+        private final FilePriorityResolver filePriorityResolver;
+        private final ProcessingPhaseMetrics processingPhaseMetrics;
 
         ProductFlowsInitializer(
                 final IntegrationFlowContext context, final Map<String, AviationProduct> aviationProducts,
-                final CompoundLifecycle inputReadersLifecycle, final ProcessingState processingState, final List<Advice> archiveAdviceChain,
+                final CompoundLifecycle inputReadersLifecycle, final ProcessingState processingState, final ProcessingBudget processingBudget,
+                final List<Advice> archiveAdviceChain,
                 final List<Advice> failAdviceChain, final FileNameGenerator fileProcessingIdAppender,
                 @SuppressWarnings("rawtypes") final GenericTransformer<Message, File> headerToFileTransformer,
                 @Value("${polling.delay}") final Duration pollingDelay, final MessageChannel processingChannel, final MessageChannel errorMessageChannel,
-                final MessageChannel successChannel, final MessageChannel failChannel, final MessageChannel finishChannel) {
+                final MessageChannel successChannel, final MessageChannel failChannel, final MessageChannel finishChannel,
+                final ArchivalFlowFactory archivalFlowFactory, final PhaseExecutorFactory phaseExecutorFactory, final ExecutorConfig executorConfig,
+                final FilePriorityResolver filePriorityResolver, final ProcessingPhaseMetrics processingPhaseMetrics) {
             this.context = requireNonNull(context, "context");
             this.aviationProducts = requireNonNull(aviationProducts, "aviationProducts");
             this.inputReadersLifecycle = requireNonNull(inputReadersLifecycle, "inputReadersLifecycle");
             this.processingState = requireNonNull(processingState, "processingState");
+            this.processingBudget = requireNonNull(processingBudget, "processingBudget");
             this.archiveAdviceChain = requireNonNull(archiveAdviceChain, "archiveAdviceChain");
             this.failAdviceChain = requireNonNull(failAdviceChain, "failAdviceChain");
             this.fileProcessingIdAppender = requireNonNull(fileProcessingIdAppender, "fileProcessingIdAppender");
@@ -353,6 +512,11 @@ public class IntegrationFlowConfig {
             this.successChannel = requireNonNull(successChannel, "successChannel");
             this.failChannel = requireNonNull(failChannel, "failChannel");
             this.finishChannel = requireNonNull(finishChannel, "finishChannel");
+            this.archivalFlowFactory = requireNonNull(archivalFlowFactory, "archivalFlowFactory");
+            this.phaseExecutorFactory = requireNonNull(phaseExecutorFactory, "phaseExecutorFactory");
+            this.executorConfig = requireNonNull(executorConfig, "executorConfig");
+            this.filePriorityResolver = requireNonNull(filePriorityResolver, "filePriorityResolver");
+            this.processingPhaseMetrics = requireNonNull(processingPhaseMetrics, "processingPhaseMetrics");
         }
 
         private static FileMetadata createFileMetadata(final Message<?> message, final FileConfig fileConfig) {
@@ -377,7 +541,16 @@ public class IntegrationFlowConfig {
 
         @PostConstruct
         void initializeProductFlows() {
+            final Set<String> productIds = aviationProducts.values().stream()//
+                    .map(AviationProduct::getId)//
+                    .collect(Collectors.toSet());
+            executorConfig.getLaneProductIds().forEach(productId -> checkState(productIds.contains(productId),
+                    "Invalid configuration: executor.lanes contains unknown product <%s>", productId));
+
             aviationProducts.values().forEach(product -> {
+                final MessageChannel productProcessingChannel = executorConfig.getLaneProductIds().contains(product.getId())
+                        ? initializeLane(product.getId())
+                        : processingChannel;
                 final FileReadingMessageSource sourceReader = createMessageSource(product);
                 inputReadersLifecycle.add(sourceReader);
 
@@ -385,9 +558,12 @@ public class IntegrationFlowConfig {
                 // filters for the same source directory
                 final PublishSubscribeChannel inputChannel = new PublishSubscribeChannel();
 
-                // Initialize source directory polling. Uses poller bean
+                // Initialize source directory polling. Polling is skipped while processing budget is exhausted.
+                final PausingReceiveMessageAdvice backpressureAdvice = new PausingReceiveMessageAdvice(product.getId(), processingBudget::isExhausted);
                 registerIntegrationFlow(
-                        IntegrationFlows.from(sourceReader, adapterSpec -> adapterSpec.poller(Pollers.fixedDelay(pollingDelay).maxMessagesPerPoll(-1)))
+                        IntegrationFlows.from(sourceReader, adapterSpec -> adapterSpec.poller(Pollers.fixedDelay(pollingDelay)//
+                                        .maxMessagesPerPoll(-1)//
+                                        .advice(backpressureAdvice)))
                                 .channel(inputChannel)//
                                 .get());
 
@@ -402,11 +578,16 @@ public class IntegrationFlowConfig {
                                         .headerFunction(FILE_REFERENCE.getName(),
                                                 message -> FileReference.create(product.getId(), FILENAME.getNonNull(message.getHeaders())))
                                         .headerFunction(PROCESSING_IDENTIFIER.getName(), message -> FileProcessingIdentifier.newInstance())//
+                                        .headerFunction(PROCESSING_TIMER.getName(),
+                                                message -> processingPhaseMetrics.newFileTimer(product.getId(), fileConfig.getFormat()))//
                                         .headerFunction(SpringProcessingServiceContextHelper.HEADER.getName(), message -> createProcessingServiceContext()))//
                                 .handle(loggingEnvSetter(ProcessingPhase.START))//
                                 .handle((payload, headers) -> {
                                     final FileReference file = FILE_REFERENCE.getNonNull(headers);
                                     processingState.start(file);
+                                    processingBudget.reserveBytes(PROCESSING_IDENTIFIER.getNonNull(headers), ORIGINAL_FILE.getOptional(headers)//
+                                            .map(File::length)//
+                                            .orElse(0L));
                                     final LoggingContext loggingContext = getProcessingServiceContext(headers).getLoggingContext();
                                     loggingContext.enterFile(file);
                                     LOGGER.info("Start processing <{}>", loggingContext);
@@ -414,16 +595,17 @@ public class IntegrationFlowConfig {
                                 })//
                                 .enrichHeaders(spec -> spec//
                                         .headerFunction(FILE_METADATA.getName(), message -> createFileMetadata(message, fileConfig)))//
+                                .enrichHeaders(this::enrichFilePriority)//
                                 .handle(loggingEnvCleaner())//
-                                .channel(processingChannel)//
+                                .channel(productProcessingChannel)//
                                 .get()//
                         ));
 
                 @SuppressWarnings("rawtypes") final GenericSelector<Message> productFilter = m -> Objects.equals(m.getHeaders().get(PRODUCT_KEY), product);
 
                 registerIntegrationFlow(IntegrationFlows.from(successChannel)//
-                        .handle(loggingEnvSetter(ProcessingPhase.SUCCESS))//
                         .filter(Message.class, productFilter)//
+                        .handle(loggingEnvSetter(ProcessingPhase.SUCCESS))//
                         .transform(Message.class, headerToFileTransformer)//
                         .handle(createArchiveHandler(product.getArchiveDir()))//
                         .handle(peekLoggingContext(loggingContext -> LOGGER.debug("Moved <{}> to '{}'.", loggingContext, product.getArchiveDir())))//
@@ -432,8 +614,8 @@ public class IntegrationFlowConfig {
                         .get());
 
                 registerIntegrationFlow(IntegrationFlows.from(failChannel)//
-                        .handle(loggingEnvSetter(ProcessingPhase.FAIL))//
                         .filter(Message.class, productFilter)//
+                        .handle(loggingEnvSetter(ProcessingPhase.FAIL))//
                         .transform(Message.class, headerToFileTransformer)//
                         .handle(createFailHandler(product.getFailDir()))//
                         .handle(peekLoggingContext(loggingContext -> LOGGER.debug("Moved <{}> to '{}'.", loggingContext, product.getFailDir())))//
@@ -443,6 +625,40 @@ public class IntegrationFlowConfig {
             });
         }
 
+        private void enrichFilePriority(final HeaderEnricherSpec spec) {
+            if (executorConfig.getPriority().enabled()) {
+                spec.headerFunction(IntegrationMessageHeaderAccessor.PRIORITY,
+                        message -> filePriorityResolver.resolve(FILE_METADATA.getNonNull(message.getHeaders())));
+            }
+        }
+
+        /**
+         * Initialize a dedicated processing lane for the product.
+         * The lane has its own executors for phases from file reading to archival, isolating the product from other products.
+         *
+         * @param productId product identifier
+         * @return processing channel of the lane
+         */
+        private MessageChannel initializeLane(final String productId) {
+            final ArchivalFlowChannels channels = new ArchivalFlowChannels(
+                    newLaneChannel(productId, ExecutorConfig.PROCESSING, "Processing-"),
+                    newLaneChannel(productId, ExecutorConfig.PARSER, "Parser-"),
+                    newLaneChannel(productId, ExecutorConfig.POPULATOR, "Populator-"),
+                    newLaneChannel(productId, ExecutorConfig.DATABASE, "Database-"),
+                    newLaneChannel(productId, ExecutorConfig.POST_ACTION, "PostAction-"),
+                    newLaneChannel(productId, ExecutorConfig.ARCHIVE, "Archive-"));
+            registerIntegrationFlow(archivalFlowFactory.create(channels, executorConfig.getLaneFusion(productId)));
+            LOGGER.info("Initialized dedicated processing lane for product <{}>.", productId);
+            return channels.processing();
+        }
+
+        private MessageChannel newLaneChannel(final String productId, final String phaseExecutorName, final String threadNamePrefix) {
+            final ExecutorService executor = phaseExecutorFactory.newBlockingExecutor(productId + "-" + threadNamePrefix,
+                    executorConfig.getLaneThreads(productId, phaseExecutorName), executorConfig.getLaneQueueSize(productId));
+            laneExecutors.add(executor);
+            return phaseExecutorFactory.newChannel(executor);
+        }
+
         private ProcessingServiceContext createProcessingServiceContext() {
             final LoggingContext loggingContext = LoggingContext.asSynchronized(
                     new LoggingContextImpl(FileProcessingStatistics.asSynchronized(new FileProcessingStatisticsImpl())));
@@ -452,6 +668,7 @@ public class IntegrationFlowConfig {
         @PreDestroy
         void dispose() {
             registrations.forEach(registration -> context.remove(registration.getId()));
+            laneExecutors.forEach(ExecutorService::shutdown);
         }
 
         private void registerIntegrationFlow(final IntegrationFlow integrationFlow) {
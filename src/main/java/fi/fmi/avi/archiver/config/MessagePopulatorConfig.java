@@ -3,7 +3,7 @@ package fi.fmi.avi.archiver.config;
 import fi.fmi.avi.archiver.config.model.MessagePopulatorFactory;
 import fi.fmi.avi.archiver.config.model.MessagePopulatorInstanceSpec;
 import fi.fmi.avi.archiver.config.util.MessageProcessorsHelper;
-import fi.fmi.avi.archiver.database.DatabaseAccess;
+import fi.fmi.avi.archiver.database.StationIdResolver;
 import fi.fmi.avi.archiver.message.processor.conditional.ConditionPropertyReader;
 import fi.fmi.avi.archiver.message.processor.conditional.ConditionPropertyReaderFactory;
 import fi.fmi.avi.archiver.message.processor.conditional.ConditionPropertyReaderRegistry;
@@ -29,13 +29,13 @@ public class MessagePopulatorConfig {
     List<MessagePopulator> messagePopulators(
             final List<MessagePopulatorFactory<? extends MessagePopulator>> messagePopulatorFactories,
             final List<MessagePopulatorInstanceSpec> messagePopulatorSpecs,
-            final DatabaseAccess databaseAccess,
+            final StationIdResolver stationIdResolver,
             final MessageProcessorsHelper messageProcessorsHelper) {
         return Stream.concat(
                         messageProcessorsHelper.createMessageProcessors(
                                 messagePopulatorFactories, messagePopulatorSpecs,
                                 ConditionalMessagePopulator::new),
-                        Stream.of(new StationIdPopulator(databaseAccess)))
+                        Stream.of(new StationIdPopulator(stationIdResolver)))
                 .toList();
     }
 
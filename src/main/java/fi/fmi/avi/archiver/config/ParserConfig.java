@@ -6,9 +6,12 @@ import fi.fmi.avi.archiver.file.FileMetadata;
 import fi.fmi.avi.archiver.file.FileParser;
 import fi.fmi.avi.archiver.file.InputAviationMessage;
 import fi.fmi.avi.converter.AviMessageConverter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.messaging.MessageHeaders;
+import org.springframework.util.unit.DataSize;
 
 import java.util.List;
 
@@ -19,8 +22,13 @@ import static java.util.Objects.requireNonNull;
 public class ParserConfig {
 
     @Bean
-    FileParser fileParser(final AviMessageConverter aviMessageConverter) {
-        return new FileParser(aviMessageConverter);
+    FileParser fileParser(final AviMessageConverter aviMessageConverter, final MeterRegistry meterRegistry,
+                          @Value("${parser.bulletin-parallelism:1}") final int bulletinParallelism,
+                          @Value("${parser.document-builder-pool-size:16}") final int documentBuilderPoolSize,
+                          @Value("${parser.collect-streaming.enabled:false}") final boolean collectStreamingEnabled,
+                          @Value("${parser.collect-streaming.min-size:1MB}") final DataSize collectStreamingMinSize) {
+        return new FileParser(aviMessageConverter, bulletinParallelism, documentBuilderPoolSize,
+                collectStreamingEnabled ? collectStreamingMinSize.toBytes() : Long.MAX_VALUE, meterRegistry);
     }
 
     @Bean
@@ -5,6 +5,8 @@ import fi.fmi.avi.archiver.config.factory.postaction.DefaultRetryParamsFactory;
 import fi.fmi.avi.archiver.config.factory.postaction.RetryingPostActionFactories;
 import fi.fmi.avi.archiver.config.factory.postaction.SwimRabbitMQPublisherFactory;
 import fi.fmi.avi.archiver.config.model.PostActionFactory;
+import fi.fmi.avi.archiver.metrics.ExecutorMetrics;
+import fi.fmi.avi.archiver.metrics.IngestLatencyMetrics;
 import fi.fmi.avi.archiver.message.processor.postaction.ResultLogger;
 import fi.fmi.avi.archiver.message.processor.postaction.SwimRabbitMQPublisher;
 import fi.fmi.avi.archiver.spring.healthcontributor.SwimRabbitMQConnectionHealthContributor;
@@ -32,8 +34,9 @@ public class PostActionFactoryConfig extends AbstractPostActionFactoryConfig {
     }
 
     @Bean
-    RetryingPostActionFactories.RetryParamsFactory retryParamsFactory() {
-        return new DefaultRetryParamsFactory();
+    RetryingPostActionFactories.RetryParamsFactory retryParamsFactory(final ExecutorConfig executorConfig, final Clock clock,
+                                                                      final ExecutorMetrics executorMetrics) {
+        return new DefaultRetryParamsFactory(executorConfig.getMode(), clock, executorMetrics);
     }
 
     @Bean
@@ -43,7 +46,8 @@ public class PostActionFactoryConfig extends AbstractPostActionFactoryConfig {
             final SwimRabbitMQConnectionHealthContributor swimRabbitMQConnectionHealthContributor,
             final Clock clock,
             final Map<GenericAviationWeatherMessage.Format, Integer> messageFormatIds,
-            final BiMap<MessageType, Integer> messageTypeIds
+            final BiMap<MessageType, Integer> messageTypeIds,
+            final IngestLatencyMetrics ingestLatencyMetrics
     ) {
         return decorateAutoCloseable(new SwimRabbitMQPublisherFactory(
                 objectFactoryConfigFactory,
@@ -51,7 +55,8 @@ public class PostActionFactoryConfig extends AbstractPostActionFactoryConfig {
                 swimRabbitMQConnectionHealthContributor,
                 clock,
                 messageFormatIds.get(GenericAviationWeatherMessage.Format.IWXXM),
-                messageTypeIds
+                messageTypeIds,
+                ingestLatencyMetrics
         ));
     }
 }
@@ -1,6 +1,10 @@
 package fi.fmi.avi.archiver.config.factory.postaction;
 
+import fi.fmi.avi.archiver.config.ExecutorConfig;
+import fi.fmi.avi.archiver.metrics.ExecutorMetrics;
 import fi.fmi.avi.archiver.message.processor.postaction.AbstractRetryingPostAction;
+import fi.fmi.avi.archiver.spring.integration.util.SemaphoreBoundedExecutorService;
+import io.micrometer.core.instrument.Counter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.retry.RetryCallback;
@@ -11,11 +15,14 @@ import org.springframework.retry.support.RetryTemplate;
 import org.springframework.retry.support.RetryTemplateBuilder;
 
 import javax.annotation.Nullable;
+import java.time.Clock;
 import java.time.Duration;
 import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 import static fi.fmi.avi.archiver.logging.GenericStructuredLoggable.loggableValue;
 import static fi.fmi.avi.archiver.spring.retry.ArchiverRetryContexts.*;
@@ -25,6 +32,33 @@ public class DefaultRetryParamsFactory implements RetryingPostActionFactories.Re
     private static final Logger LOGGER = LoggerFactory.getLogger(DefaultRetryParamsFactory.class);
     private static final String WORKER_THREAD_SUFFIX = "-Worker";
 
+    private final ExecutorConfig.Mode executorMode;
+    private final Clock clock;
+    private final ExecutorMetrics executorMetrics;
+
+    /**
+     * Construct a factory creating action executors in the provided mode.
+     *
+     * <p>
+     * In {@link ExecutorConfig.Mode#VIRTUAL virtual} mode each action task runs on a virtual thread, one at a time per action. Pending tasks are bounded
+     * by a semaphore instead of a queue, and tasks are started in submission order.
+     * </p>
+     *
+     * <p>
+     * Metrics of each action executor, and a counter of action tasks skipped due to a full queue, are registered in {@code executorMetrics} under the
+     * action name.
+     * </p>
+     *
+     * @param executorMode    executor mode
+     * @param clock           clock
+     * @param executorMetrics executor metrics
+     */
+    public DefaultRetryParamsFactory(final ExecutorConfig.Mode executorMode, final Clock clock, final ExecutorMetrics executorMetrics) {
+        this.executorMode = requireNonNull(executorMode, "executorMode");
+        this.clock = requireNonNull(clock, "clock");
+        this.executorMetrics = requireNonNull(executorMetrics, "executorMetrics");
+    }
+
     private static RetryTemplate retryTemplate(final RetryingPostActionFactories.RetryConfig retryConfig, final String actionName,
                                                final List<Class<? extends Throwable>> retryOn) {
         final ExponentialBackOffPolicy backOffPolicy = new ExponentialBackOffPolicy();
@@ -48,7 +82,8 @@ public class DefaultRetryParamsFactory implements RetryingPostActionFactories.Re
         return retryTemplateBuilder.build();
     }
 
-    private static ThreadPoolExecutor actionExecutor(final int actionQueueCapacity, final String actionName) {
+    private static ThreadPoolExecutor platformActionExecutor(final int actionQueueCapacity, final String actionName,
+                                                             final Consumer<Runnable> skippedActionHandler) {
         final String workerThreadName = actionName + WORKER_THREAD_SUFFIX;
         return new ThreadPoolExecutor(
                 1, 1,
@@ -59,17 +94,36 @@ public class DefaultRetryParamsFactory implements RetryingPostActionFactories.Re
                     thread.setDaemon(true);
                     return thread;
                 },
-                (runnable, exec) -> {
-                    if (runnable instanceof final AbstractRetryingPostAction<?>.RetryingRunnable retryingRunnable) {
-                        LOGGER.error("{} queue full; skipping action for <{}>",
-                                loggableValue(RETRY_ACTION, actionName), retryingRunnable.getLoggingContext());
-                    } else {
-                        LOGGER.error("{} queue full; skipping action task", loggableValue(RETRY_ACTION, actionName));
-                    }
-                }
+                (runnable, exec) -> skippedActionHandler.accept(runnable)
         );
     }
 
+    private static void logSkippedAction(final Runnable runnable, final String actionName) {
+        if (runnable instanceof final AbstractRetryingPostAction<?>.RetryingRunnable retryingRunnable) {
+            LOGGER.error("{} queue full; skipping action for <{}>",
+                    loggableValue(RETRY_ACTION, actionName), retryingRunnable.getLoggingContext());
+        } else {
+            LOGGER.error("{} queue full; skipping action task", loggableValue(RETRY_ACTION, actionName));
+        }
+    }
+
+    private ExecutorService actionExecutor(final int actionQueueCapacity, final String actionName) {
+        final Counter skippedActions = executorMetrics.droppedTasksCounter(actionName);
+        final Consumer<Runnable> skippedActionHandler = runnable -> {
+            skippedActions.increment();
+            logSkippedAction(runnable, actionName);
+        };
+        final ExecutorService executor = switch (executorMode) {
+            case PLATFORM -> platformActionExecutor(actionQueueCapacity, actionName, skippedActionHandler);
+            case VIRTUAL -> new SemaphoreBoundedExecutorService(
+                    Thread.ofVirtual().name(actionName + WORKER_THREAD_SUFFIX + "-", 1).factory(),
+                    clock, 1, actionQueueCapacity,
+                    skippedActionHandler);
+        };
+        executorMetrics.bind(actionName, executor);
+        return executor;
+    }
+
     @Override
     public AbstractRetryingPostAction.RetryParams retryParams(
             final RetryingPostActionFactories.RetryConfig config, final String actionName, final Duration actionTimeout,
@@ -9,6 +9,7 @@ import com.rabbitmq.client.amqp.impl.AmqpEnvironmentBuilder;
 import fi.fmi.avi.archiver.config.model.PostActionFactory;
 import fi.fmi.avi.archiver.message.processor.postaction.AbstractRetryingPostAction;
 import fi.fmi.avi.archiver.message.processor.postaction.SwimRabbitMQPublisher;
+import fi.fmi.avi.archiver.metrics.IngestLatencyMetrics;
 import fi.fmi.avi.archiver.spring.healthcontributor.RabbitMQConnectionHealthIndicator;
 import fi.fmi.avi.archiver.spring.healthcontributor.RabbitMQPublisherHealthIndicator;
 import fi.fmi.avi.archiver.spring.healthcontributor.SwimRabbitMQConnectionHealthContributor;
@@ -80,6 +81,7 @@ public class SwimRabbitMQPublisherFactory
     private final int iwxxmFormatId;
     private final BiMap<MessageType, Integer> messageTypeIds;
     private final Map<Integer, SwimRabbitMQPublisher.StaticApplicationProperties> staticAppPropsByTypeId;
+    private final IngestLatencyMetrics ingestLatencyMetrics;
 
     public SwimRabbitMQPublisherFactory(
             final ObjectFactoryConfigFactory configFactory,
@@ -87,13 +89,15 @@ public class SwimRabbitMQPublisherFactory
             final SwimRabbitMQConnectionHealthContributor healthContributorRegistry,
             final Clock clock,
             final int iwxxmFormatId,
-            final BiMap<MessageType, Integer> messageTypeIds) {
+            final BiMap<MessageType, Integer> messageTypeIds,
+            final IngestLatencyMetrics ingestLatencyMetrics) {
         super(configFactory);
         this.retryParamsFactory = requireNonNull(retryParamsFactory, "retryParamsFactory");
         this.healthContributorRegistry = requireNonNull(healthContributorRegistry, "healthContributorRegistry");
         this.clock = requireNonNull(clock, "clock");
         this.iwxxmFormatId = iwxxmFormatId;
         this.messageTypeIds = requireNonNull(messageTypeIds, "messageTypeIds");
+        this.ingestLatencyMetrics = requireNonNull(ingestLatencyMetrics, "ingestLatencyMetrics");
 
         this.staticAppPropsByTypeId = APPLICATION_PROPERTY_DESCRIPTORS.stream()
                 .filter(applicationProperties -> messageTypeIds.containsKey(applicationProperties.type()))
@@ -311,7 +315,7 @@ public class SwimRabbitMQPublisherFactory
             final AbstractRetryingPostAction.RetryParams retryParams, final String instanceId, final Publisher publisher,
             final Consumer<Publisher.Context> publisherHealthIndicator, final SwimRabbitMQPublisher.MessageConfig messageConfig) {
         return new SwimRabbitMQPublisher(retryParams, instanceId, publisher, publisherHealthIndicator, clock, iwxxmFormatId,
-                staticAppPropsByTypeId, messageConfig);
+                staticAppPropsByTypeId, messageConfig, ingestLatencyMetrics);
     }
 
     private <T extends AutoCloseable> T registerCloseable(final T closeableResource) {
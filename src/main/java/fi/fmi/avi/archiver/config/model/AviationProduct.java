@@ -106,10 +106,21 @@ public abstract class AviationProduct {
      */
     public abstract List<FileConfig> getFileConfigs();
 
+    /**
+     * Return the scheduling priority of files of this product.
+     * Files of higher priority are processed ahead of files of lower priority, when phase executor priority scheduling is enabled.
+     * The priority of each file is adjusted by {@link FileConfig#getPriority() file configuration priority}.
+     * Defaults to {@code 0}.
+     *
+     * @return scheduling priority of files of this product
+     */
+    public abstract int getPriority();
+
     public abstract Builder toBuilder();
 
     public static class Builder extends AviationProduct_Builder {
         Builder() {
+            setPriority(0);
         }
 
         @Override
@@ -59,10 +59,25 @@ public abstract class FileConfig {
      */
     public abstract int getFormatId();
 
+    /**
+     * Return the scheduling priority adjustment of files matching this configuration.
+     * This value is added to {@link AviationProduct#getPriority() product priority}.
+     * Defaults to {@code 0}.
+     *
+     * <p>
+     * Additionally, if {@link #getPattern() pattern} specifies a named group {@code T1T2}, the priority is adjusted by priority configured for the
+     * data type designators matched by the group.
+     * </p>
+     *
+     * @return scheduling priority adjustment
+     */
+    public abstract int getPriority();
+
     public abstract Builder toBuilder();
 
     public static class Builder extends FileConfig_Builder {
         Builder() {
+            setPriority(0);
         }
 
         @Override
@@ -0,0 +1,135 @@
+package fi.fmi.avi.archiver.config.util;
+
+import fi.fmi.avi.archiver.config.ExecutorConfig;
+import fi.fmi.avi.archiver.metrics.ExecutorMetrics;
+import fi.fmi.avi.archiver.spring.healthcontributor.BlockingExecutorHealthContributor;
+import fi.fmi.avi.archiver.spring.integration.util.AgingPriorityBlockingQueue;
+import fi.fmi.avi.archiver.spring.integration.util.MonitorableCallerBlocksPolicy;
+import fi.fmi.avi.archiver.spring.integration.util.PrioritizingTaskExecutor;
+import fi.fmi.avi.archiver.spring.integration.util.SemaphoreBoundedExecutorService;
+import org.springframework.integration.channel.PublishSubscribeChannel;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.ErrorHandler;
+
+import java.time.Clock;
+import java.util.concurrent.*;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Factory of executors for file processing phases.
+ *
+ * <p>
+ * Created executors are bounded: when an executor is saturated, the caller submitting a task is blocked until the executor is able to accept it.
+ * Each bounded executor reports its health to the provided {@link BlockingExecutorHealthContributor}, and its queue and blocking metrics to the provided
+ * {@link ExecutorMetrics}.
+ * </p>
+ *
+ * <p>
+ * When {@link ExecutorConfig#getPriority() priority scheduling} is enabled, bounded executors queue tasks in an {@link AgingPriorityBlockingQueue},
+ * and {@link #newChannel(ExecutorService) channels} expose the priority of messages to them.
+ * </p>
+ */
+public class PhaseExecutorFactory {
+
+    private final Clock clock;
+    private final BlockingExecutorHealthContributor executorHealthContributor;
+    private final ExecutorMetrics executorMetrics;
+    private final ExecutorConfig.Mode mode;
+    private final ExecutorConfig.PriorityConfig priorityConfig;
+    private final ThreadGroup threadGroup;
+    private final ErrorHandler errorHandler;
+
+    public PhaseExecutorFactory(final Clock clock, final BlockingExecutorHealthContributor executorHealthContributor, final ExecutorMetrics executorMetrics,
+                                final ExecutorConfig executorConfig, final ThreadGroup threadGroup, final ErrorHandler errorHandler) {
+        this.clock = requireNonNull(clock, "clock");
+        this.executorHealthContributor = requireNonNull(executorHealthContributor, "executorHealthContributor");
+        this.executorMetrics = requireNonNull(executorMetrics, "executorMetrics");
+        requireNonNull(executorConfig, "executorConfig");
+        this.mode = executorConfig.getMode();
+        this.priorityConfig = executorConfig.getPriority();
+        this.threadGroup = requireNonNull(threadGroup, "threadGroup");
+        this.errorHandler = requireNonNull(errorHandler, "errorHandler");
+    }
+
+    /**
+     * Create a new bounded executor, blocking the caller while saturated.
+     * Health and metrics of the executor are registered under name {@code threadNamePrefix + "executor"}.
+     *
+     * @param threadNamePrefix prefix of worker thread names
+     * @param threads          number of concurrently executed tasks
+     * @param queueSize        number of tasks waiting for execution
+     * @return new executor
+     */
+    public ExecutorService newBlockingExecutor(final String threadNamePrefix, final int threads, final int queueSize) {
+        requireNonNull(threadNamePrefix, "threadNamePrefix");
+        checkArgument(threads > 0, "threads must be positive; was: %s", threads);
+        checkArgument(queueSize > 0, "queueSize must be positive; was: %s", queueSize);
+        final String healthContributorName = threadNamePrefix + "executor";
+        if (priorityConfig.enabled()) {
+            final BlockingQueue<Runnable> queue = new AgingPriorityBlockingQueue<>(queueSize, PrioritizingTaskExecutor::getPriority,
+                    priorityConfig.agingInterval());
+            return newThreadPoolExecutor(threadNamePrefix, threads, queue, healthContributorName);
+        }
+        if (mode == ExecutorConfig.Mode.VIRTUAL) {
+            final SemaphoreBoundedExecutorService executor = new SemaphoreBoundedExecutorService(
+                    newVirtualThreadFactory(threadNamePrefix), clock, threads, queueSize);
+            executorHealthContributor.registerMonitor(healthContributorName, executor);
+            executorMetrics.bind(healthContributorName, executor);
+            return executor;
+        }
+        return newThreadPoolExecutor(threadNamePrefix, threads, new ArrayBlockingQueue<>(queueSize), healthContributorName);
+    }
+
+    private ExecutorService newThreadPoolExecutor(final String threadNamePrefix, final int threads, final BlockingQueue<Runnable> queue,
+                                                  final String healthContributorName) {
+        final MonitorableCallerBlocksPolicy callerBlocksPolicy = new MonitorableCallerBlocksPolicy(clock, Long.MAX_VALUE);
+        executorHealthContributor.registerPolicy(healthContributorName, callerBlocksPolicy);
+        final ThreadFactory threadFactory = mode == ExecutorConfig.Mode.VIRTUAL
+                ? newVirtualThreadFactory(threadNamePrefix)
+                : newThreadFactory(threadNamePrefix);
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.SECONDS, queue, threadFactory, callerBlocksPolicy);
+        executorMetrics.bind(healthContributorName, executor, callerBlocksPolicy);
+        return executor;
+    }
+
+    /**
+     * Create a new channel dispatching messages to its subscribers on provided executor.
+     *
+     * @param executor executor
+     * @return new channel
+     */
+    public MessageChannel newChannel(final ExecutorService executor) {
+        requireNonNull(executor, "executor");
+        if (priorityConfig.enabled()) {
+            return new PublishSubscribeChannel(new PrioritizingTaskExecutor(executor, errorHandler));
+        }
+        return new PublishSubscribeChannel(executor);
+    }
+
+    /**
+     * Create a new unbounded executor, that never blocks the caller.
+     *
+     * @param threadNamePrefix prefix of worker thread names
+     * @return new executor
+     */
+    public ExecutorService newUnboundedExecutor(final String threadNamePrefix) {
+        requireNonNull(threadNamePrefix, "threadNamePrefix");
+        if (mode == ExecutorConfig.Mode.VIRTUAL) {
+            return Executors.newThreadPerTaskExecutor(newVirtualThreadFactory(threadNamePrefix));
+        }
+        return Executors.newCachedThreadPool(newThreadFactory(threadNamePrefix));
+    }
+
+    private ThreadFactory newThreadFactory(final String threadNamePrefix) {
+        final CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(threadNamePrefix);
+        threadFactory.setThreadGroup(threadGroup);
+        return threadFactory;
+    }
+
+    private static ThreadFactory newVirtualThreadFactory(final String threadNamePrefix) {
+        return Thread.ofVirtual().name(threadNamePrefix, 1).factory();
+    }
+}
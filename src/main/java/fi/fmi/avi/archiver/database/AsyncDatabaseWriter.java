@@ -0,0 +1,398 @@
+package fi.fmi.avi.archiver.database;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import fi.fmi.avi.archiver.ProcessingServiceContext;
+import fi.fmi.avi.archiver.message.InputAndArchiveAviationMessage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Writes messages of files to the database asynchronously, parking writes that fail due to the database being unavailable instead of blocking the
+ * calling thread while retrying.
+ *
+ * <p>
+ * Each file is written in a single transaction by {@link DatabaseService#attemptInsertMessages(List, ProcessingServiceContext, boolean)}, keeping the
+ * order of messages within the file. While the database is available, at most the configured number of writes are attempted concurrently. A write
+ * failing with a {@link DatabaseService#isRetryable(Throwable) retryable} error is parked, and attempted again after an exponentially increasing delay.
+ * Writes requested while the database is considered unavailable are parked as well. While the database is considered unavailable, the database is
+ * probed periodically, and as soon as a probe or any write attempt succeeds, all parked writes are resumed in order of arrival without waiting for their
+ * delay to expire, again attempting at most the configured number of writes concurrently. Each file is written independently of others, so files may
+ * be stored in a different order than they arrived. If a retry timeout is configured, the attempt after the timeout has elapsed is the last one,
+ * recording messages as failed if it fails.
+ * </p>
+ *
+ * <p>
+ * At most {@code capacity} writes may be pending at a time; {@link #write(List, ProcessingServiceContext)} blocks the caller until a pending write
+ * completes when the capacity is reached. The MDC of the calling thread is applied while attempting a write.
+ * </p>
+ *
+ * <p>
+ * Metrics:
+ * </p>
+ * <ul>
+ *     <li>{@code archiver.database.writer.parked}: number of parked writes waiting to be retried</li>
+ *     <li>{@code archiver.database.writer.active}: number of writes being attempted or waiting for a free writer</li>
+ *     <li>{@code archiver.database.writer.retries}: number of parked retries</li>
+ *     <li>{@code archiver.database.writer.available}: {@code 1} if the database is considered available, otherwise {@code 0}</li>
+ * </ul>
+ */
+public class AsyncDatabaseWriter implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncDatabaseWriter.class);
+
+    private final DatabaseService databaseService;
+    private final DatabaseAccess databaseAccess;
+    private final Duration initialInterval;
+    private final double multiplier;
+    private final Duration maxInterval;
+    private final Duration timeout;
+    private final Semaphore capacityPermits;
+    private final ExecutorService writeExecutor;
+    private final ScheduledExecutorService probeExecutor;
+    private final Thread resumingThread;
+    private final AtomicInteger activeWrites = new AtomicInteger();
+    private final Counter retries;
+    private volatile boolean available = true;
+    private volatile boolean closed;
+
+    // Guarded by this
+    private final TreeSet<PendingWrite> parkedWrites = new TreeSet<>(Comparator.comparingLong(PendingWrite::sequence));
+    private long nextSequence;
+
+    /**
+     * Construct a new instance.
+     *
+     * @param databaseService database service
+     * @param databaseAccess  database access, for probing database availability
+     * @param meterRegistry   meter registry
+     * @param concurrency     maximum number of concurrent write attempts while the database is available
+     * @param capacity        maximum number of pending writes, including parked writes
+     * @param initialInterval delay after the first failed attempt
+     * @param multiplier      multiplier of delay on subsequent failed attempts
+     * @param maxInterval     maximum delay between attempts
+     * @param timeout         time after which a write is attempted the last time, or zero to retry infinitely
+     * @param probeInterval   interval of probing database availability while the database is unavailable
+     */
+    public AsyncDatabaseWriter(final DatabaseService databaseService, final DatabaseAccess databaseAccess, final MeterRegistry meterRegistry,
+            final int concurrency, final int capacity, final Duration initialInterval, final double multiplier, final Duration maxInterval,
+            final Duration timeout, final Duration probeInterval) {
+        this.databaseService = requireNonNull(databaseService, "databaseService");
+        this.databaseAccess = requireNonNull(databaseAccess, "databaseAccess");
+        requireNonNull(meterRegistry, "meterRegistry");
+        this.initialInterval = requireNonNull(initialInterval, "initialInterval");
+        this.maxInterval = requireNonNull(maxInterval, "maxInterval");
+        this.timeout = requireNonNull(timeout, "timeout");
+        requireNonNull(probeInterval, "probeInterval");
+        checkArgument(concurrency > 0, "concurrency must be positive; was: %s", concurrency);
+        checkArgument(capacity > 0, "capacity must be positive; was: %s", capacity);
+        checkArgument(initialInterval.isPositive(), "initialInterval must be positive; was: %s", initialInterval);
+        checkArgument(multiplier >= 1, "multiplier must be at least 1; was: %s", multiplier);
+        checkArgument(maxInterval.compareTo(initialInterval) >= 0, "maxInterval (%s) must not be shorter than initialInterval (%s)", maxInterval,
+                initialInterval);
+        checkArgument(!timeout.isNegative(), "timeout must not be negative; was: %s", timeout);
+        checkArgument(probeInterval.isPositive(), "probeInterval must be positive; was: %s", probeInterval);
+        this.multiplier = multiplier;
+        this.capacityPermits = new Semaphore(capacity, true);
+
+        this.writeExecutor = Executors.newFixedThreadPool(concurrency, new ThreadFactoryBuilder()//
+                .setNameFormat("Database-Writer-%d")//
+                .setDaemon(true)//
+                .build());
+        this.probeExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()//
+                .setNameFormat("Database-Writer-Probe-%d")//
+                .setDaemon(true)//
+                .build());
+        this.resumingThread = new ThreadFactoryBuilder()//
+                .setNameFormat("Database-Writer-Parked-%d")//
+                .setDaemon(true)//
+                .build()//
+                .newThread(this::resumeParkedWrites);
+
+        Gauge.builder("archiver.database.writer.parked", this, AsyncDatabaseWriter::getParkedWriteCount)//
+                .description("Number of parked database writes waiting to be retried")//
+                .register(meterRegistry);
+        Gauge.builder("archiver.database.writer.active", activeWrites, AtomicInteger::get)//
+                .description("Number of database writes being attempted or waiting for a free writer")//
+                .register(meterRegistry);
+        Gauge.builder("archiver.database.writer.available", this, writer -> writer.available ? 1 : 0)//
+                .description("Whether the database is considered available")//
+                .register(meterRegistry);
+        this.retries = Counter.builder("archiver.database.writer.retries")//
+                .description("Number of parked database write retries")//
+                .register(meterRegistry);
+
+        resumingThread.start();
+        probeExecutor.scheduleWithFixedDelay(this::probe, probeInterval.toNanos(), probeInterval.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    private static void setMdc(@Nullable final Map<String, String> mdcContext) {
+        if (mdcContext == null) {
+            MDC.clear();
+        } else {
+            MDC.setContextMap(mdcContext);
+        }
+    }
+
+    /**
+     * Write provided messages of a file to the database asynchronously. If the maximum number of writes are pending, blocks until a pending write
+     * completes.
+     *
+     * @param messages messages of a file
+     * @param context  processing context
+     * @return future completing with messages with updated archival status once the messages are written, or exceptionally if writing fails
+     */
+    public CompletableFuture<List<InputAndArchiveAviationMessage>> write(final List<InputAndArchiveAviationMessage> messages,
+            final ProcessingServiceContext context) {
+        requireNonNull(messages, "messages");
+        requireNonNull(context, "context");
+        if (closed) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Database writer is closed"));
+        }
+        try {
+            capacityPermits.acquire();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        }
+        final PendingWrite write;
+        synchronized (this) {
+            write = new PendingWrite(messages, context, MDC.getCopyOfContextMap(), nextSequence++, System.nanoTime());
+            write.future.whenComplete((result, exception) -> capacityPermits.release());
+            if (closed) {
+                write.future.completeExceptionally(new IllegalStateException("Database writer is closed"));
+            } else if (available) {
+                submit(write);
+            } else {
+                LOGGER.debug("Database is unavailable; parking write of <{}>.", context.getLoggingContext());
+                park(write, initialInterval.toNanos());
+            }
+        }
+        return write.future;
+    }
+
+    /**
+     * Return whether the database is considered available.
+     *
+     * @return {@code true} if the latest write attempt or probe succeeded, otherwise {@code false}
+     */
+    public boolean isAvailable() {
+        return available;
+    }
+
+    /**
+     * Return the number of parked writes waiting to be retried.
+     *
+     * @return number of parked writes
+     */
+    public synchronized int getParkedWriteCount() {
+        return parkedWrites.size();
+    }
+
+    private void submit(final PendingWrite write) {
+        activeWrites.incrementAndGet();
+        try {
+            writeExecutor.execute(write);
+        } catch (final RejectedExecutionException e) {
+            activeWrites.decrementAndGet();
+            write.future.completeExceptionally(e);
+        }
+    }
+
+    // Guarded by this
+    private void park(final PendingWrite write, final long delayNanos) {
+        write.releaseAtNanos = System.nanoTime() + delayNanos;
+        parkedWrites.add(write);
+        notifyAll();
+    }
+
+    private void writeDirectly(final PendingWrite write) {
+        try {
+            if (!attempt(write)) {
+                synchronized (this) {
+                    available = false;
+                    if (closed) {
+                        write.future.completeExceptionally(new IllegalStateException("Database writer is closed"));
+                    } else {
+                        park(write, write.nextDelayNanos());
+                    }
+                }
+            }
+        } finally {
+            activeWrites.decrementAndGet();
+        }
+    }
+
+    /**
+     * Attempt a write once.
+     *
+     * @return {@code true} if the write is completed, or {@code false} if it failed with a retryable error and should be retried
+     */
+    private boolean attempt(final PendingWrite write) {
+        @Nullable final Map<String, String> previousMdcContext = MDC.getCopyOfContextMap();
+        setMdc(write.mdcContext);
+        try {
+            final boolean lastAttempt = !timeout.isZero() && System.nanoTime() - write.firstAttemptNanos >= timeout.toNanos();
+            final List<InputAndArchiveAviationMessage> result = databaseService.attemptInsertMessages(write.messages, write.context, lastAttempt);
+            if (!available) {
+                resume();
+            }
+            write.future.complete(result);
+            return true;
+        } catch (final RuntimeException e) {
+            if (DatabaseService.isRetryable(e) && !closed) {
+                retries.increment();
+                LOGGER.warn("Database write of <{}> failed on attempt {}; parking it. Cause: {}", write.context.getLoggingContext(), write.attempts + 1,
+                        e.toString());
+                return false;
+            }
+            write.future.completeExceptionally(e);
+            return true;
+        } catch (final Error e) {
+            write.future.completeExceptionally(e);
+            throw e;
+        } finally {
+            setMdc(previousMdcContext);
+        }
+    }
+
+    /**
+     * Submit parked writes to the write executor in order of arrival, either all of them once the database is considered available again, or each one
+     * once its retry delay expires.
+     */
+    private void resumeParkedWrites() {
+        try {
+            synchronized (this) {
+                while (!closed) {
+                    final long nextReleaseNanos = submitReleasedParkedWrites();
+                    if (nextReleaseNanos == Long.MAX_VALUE) {
+                        wait();
+                    } else {
+                        // Woken up early by a succeeded probe or write, a newly parked write or close
+                        TimeUnit.NANOSECONDS.timedWait(this, nextReleaseNanos);
+                    }
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Submit parked writes that may be attempted now.
+     *
+     * @return nanoseconds until the retry delay of the next remaining parked write expires, or {@link Long#MAX_VALUE} if no writes remain parked
+     */
+    // Guarded by this
+    private long submitReleasedParkedWrites() {
+        final long nowNanos = System.nanoTime();
+        long nextReleaseNanos = Long.MAX_VALUE;
+        for (final Iterator<PendingWrite> iterator = parkedWrites.iterator(); iterator.hasNext(); ) {
+            final PendingWrite write = iterator.next();
+            final long remainingNanos = write.releaseAtNanos - nowNanos;
+            if (available || remainingNanos <= 0) {
+                iterator.remove();
+                submit(write);
+            } else {
+                nextReleaseNanos = Math.min(nextReleaseNanos, remainingNanos);
+            }
+        }
+        return nextReleaseNanos;
+    }
+
+    private void probe() {
+        if (!available && databaseAccess.isAvailable()) {
+            resume();
+        }
+    }
+
+    private synchronized void resume() {
+        if (available) {
+            return;
+        }
+        LOGGER.info("Database is available again; resuming {} parked writes.", parkedWrites.size());
+        available = true;
+        notifyAll();
+    }
+
+    /**
+     * Stop writing. Parked writes and writes not yet started are completed exceptionally.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        resumingThread.interrupt();
+        probeExecutor.shutdownNow();
+        final IllegalStateException closedException = new IllegalStateException("Database writer is closed");
+        for (final Runnable notStarted : writeExecutor.shutdownNow()) {
+            ((PendingWrite) notStarted).future.completeExceptionally(closedException);
+        }
+        synchronized (this) {
+            for (final PendingWrite write : parkedWrites) {
+                write.future.completeExceptionally(closedException);
+            }
+            parkedWrites.clear();
+            notifyAll();
+        }
+    }
+
+    private final class PendingWrite implements Runnable {
+        private final List<InputAndArchiveAviationMessage> messages;
+        private final ProcessingServiceContext context;
+        @Nullable
+        private final Map<String, String> mdcContext;
+        private final long sequence;
+        private final long firstAttemptNanos;
+        private final CompletableFuture<List<InputAndArchiveAviationMessage>> future = new CompletableFuture<>();
+        private int attempts;
+        // Guarded by AsyncDatabaseWriter.this
+        private long releaseAtNanos;
+
+        PendingWrite(final List<InputAndArchiveAviationMessage> messages, final ProcessingServiceContext context,
+                @Nullable final Map<String, String> mdcContext, final long sequence, final long firstAttemptNanos) {
+            this.messages = messages;
+            this.context = context;
+            this.mdcContext = mdcContext;
+            this.sequence = sequence;
+            this.firstAttemptNanos = firstAttemptNanos;
+        }
+
+        long sequence() {
+            return sequence;
+        }
+
+        @Override
+        public void run() {
+            writeDirectly(this);
+        }
+
+        long nextDelayNanos() {
+            final double delay = initialInterval.toNanos() * Math.pow(multiplier, attempts++);
+            return Math.min((long) Math.min(delay, Long.MAX_VALUE), maxInterval.toNanos());
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package fi.fmi.avi.archiver.database;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import fi.fmi.avi.archiver.logging.model.NoOpLoggingContext;
+import fi.fmi.avi.archiver.logging.model.ReadableLoggingContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+
+/**
+ * Station id resolver caching results of {@link DatabaseAccess#findStationId(String, ReadableLoggingContext)}.
+ *
+ * <p>
+ * Both known and unknown ICAO codes are cached for the configured time to live, and the number of cached codes is bounded. Entries older than the
+ * refresh interval are reloaded asynchronously on access, while the old value is returned until reloading completes. If reloading fails, the old
+ * value is retained. Lookup errors are not cached; resolving a code fails with an empty result like the underlying query.
+ * </p>
+ *
+ * <p>
+ * Cache statistics are registered as {@code cache.*} metrics with cache name {@value #CACHE_NAME}, along with {@code archiver.station.cache.hit.ratio}
+ * and {@code archiver.station.cache.refresh.failures}.
+ * </p>
+ */
+public class CachingStationIdResolver implements StationIdResolver {
+    public static final String CACHE_NAME = "station-ids";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CachingStationIdResolver.class);
+
+    private final DatabaseAccess databaseAccess;
+    private final LoadingCache<String, Optional<Integer>> cache;
+    private final Counter refreshFailures;
+
+    /**
+     * Construct a new instance.
+     *
+     * @param databaseAccess  database access
+     * @param meterRegistry   meter registry
+     * @param refreshExecutor executor of asynchronous refresh
+     * @param timeToLive      time to retain a cached entry
+     * @param refreshInterval time after which a cached entry is refreshed on access; must be shorter than {@code timeToLive}
+     * @param maximumSize     maximum number of cached entries
+     */
+    public CachingStationIdResolver(final DatabaseAccess databaseAccess, final MeterRegistry meterRegistry, final Executor refreshExecutor,
+            final Duration timeToLive, final Duration refreshInterval, final long maximumSize) {
+        this(databaseAccess, meterRegistry, refreshExecutor, timeToLive, refreshInterval, maximumSize, Ticker.systemTicker());
+    }
+
+    @VisibleForTesting
+    CachingStationIdResolver(final DatabaseAccess databaseAccess, final MeterRegistry meterRegistry, final Executor refreshExecutor,
+            final Duration timeToLive, final Duration refreshInterval, final long maximumSize, final Ticker ticker) {
+        this.databaseAccess = requireNonNull(databaseAccess, "databaseAccess");
+        requireNonNull(meterRegistry, "meterRegistry");
+        requireNonNull(refreshExecutor, "refreshExecutor");
+        requireNonNull(timeToLive, "timeToLive");
+        requireNonNull(refreshInterval, "refreshInterval");
+        requireNonNull(ticker, "ticker");
+        checkArgument(refreshInterval.isPositive(), "refreshInterval must be positive; was: %s", refreshInterval);
+        checkArgument(refreshInterval.compareTo(timeToLive) < 0, "refreshInterval (%s) must be shorter than timeToLive (%s)", refreshInterval, timeToLive);
+        checkArgument(maximumSize > 0, "maximumSize must be positive; was: %s", maximumSize);
+
+        this.refreshFailures = Counter.builder("archiver.station.cache.refresh.failures")//
+                .description("Number of failed station id cache refreshes")//
+                .register(meterRegistry);
+        this.cache = CacheBuilder.newBuilder()//
+                .maximumSize(maximumSize)//
+                .expireAfterWrite(timeToLive)//
+                .refreshAfterWrite(refreshInterval)//
+                .ticker(ticker)//
+                .recordStats()//
+                .build(CacheLoader.asyncReloading(new StationIdLoader(), refreshExecutor));
+        GuavaCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        Gauge.builder("archiver.station.cache.hit.ratio", cache, c -> c.stats().hitRate())//
+                .description("Ratio of station id cache requests that were hits")//
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Optional<Integer> resolveStationId(final String stationIcaoCode, final ReadableLoggingContext loggingContext) {
+        requireNonNull(stationIcaoCode, "stationIcaoCode");
+        requireNonNull(loggingContext, "loggingContext");
+        try {
+            return cache.get(stationIcaoCode, () -> databaseAccess.findStationId(stationIcaoCode, loggingContext));
+        } catch (final ExecutionException | UncheckedExecutionException e) {
+            LOGGER.debug("Unable to resolve station id of '{}' <{}>: {}", stationIcaoCode, loggingContext, e.getCause().toString());
+            return Optional.empty();
+        }
+    }
+
+    private final class StationIdLoader extends CacheLoader<String, Optional<Integer>> {
+        @Override
+        public Optional<Integer> load(final String stationIcaoCode) {
+            return databaseAccess.findStationId(stationIcaoCode, NoOpLoggingContext.getInstance());
+        }
+
+        @Override
+        public Optional<Integer> reload(final String stationIcaoCode, final Optional<Integer> oldValue) {
+            try {
+                return load(stationIcaoCode);
+            } catch (final RuntimeException e) {
+                refreshFailures.increment();
+                LOGGER.warn("Unable to refresh station id of '{}'; retaining cached value: {}", stationIcaoCode, e.toString());
+                throw e;
+            }
+        }
+    }
+}
@@ -2,27 +2,49 @@ package fi.fmi.avi.archiver.database;
 
 import static java.util.Objects.requireNonNull;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.Types;
 import java.time.Clock;
 import java.time.Instant;
 import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 import javax.annotation.Nullable;
 
+import org.postgresql.PGConnection;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterUtils;
+import org.springframework.jdbc.core.namedparam.ParsedSql;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
 import org.springframework.retry.RetryContext;
 import org.springframework.retry.support.RetryTemplate;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
 
 import fi.fmi.avi.archiver.logging.model.ReadableLoggingContext;
 import fi.fmi.avi.archiver.message.ArchiveAviationMessage;
 import fi.fmi.avi.archiver.message.ArchiveAviationMessageIWXXMDetails;
+import fi.fmi.avi.archiver.message.ProcessingResult;
 import fi.fmi.avi.archiver.spring.retry.ArchiverRetryContexts;
 
 /**
@@ -30,20 +52,44 @@ import fi.fmi.avi.archiver.spring.retry.ArchiverRetryContexts;
  */
 public class DatabaseAccess {
     private static final Logger LOGGER = LoggerFactory.getLogger(DatabaseAccess.class);
+    private static final List<String> COMMON_COLUMNS = ImmutableList.of("type_id", "route_id", "message", "flag", "messir_heading", "version", "format_id",
+            "message_time", "valid_from", "valid_to", "created", "file_modified");
+    private static final List<String> MESSAGE_COLUMNS = ImmutableList.<String> builder()//
+            .add("station_id")//
+            .addAll(COMMON_COLUMNS)//
+            .build();
+    private static final List<String> REJECTED_MESSAGE_COLUMNS = ImmutableList.<String> builder()//
+            .add("icao_code", "reject_reason")//
+            .addAll(COMMON_COLUMNS)//
+            .build();
 
     private final Clock clock;
     private final NamedParameterJdbcTemplate jdbcTemplate;
     private final RetryTemplate retryTemplate;
+    private final TransactionOperations transactionOperations;
     private final SimpleJdbcInsert insertAviationMessage;
     private final SimpleJdbcInsert insertRejectedAviationMessage;
     private final SimpleJdbcInsert insertIwxxmDetails;
     private final SimpleJdbcInsert insertRejectedIwxxmDetails;
+    private final ParsedSql batchInsertAviationMessage;
+    private final ParsedSql batchInsertRejectedAviationMessage;
+    private final PostgreSQLCopyInsert copyAviationMessage;
+    private final PostgreSQLCopyInsert copyRejectedAviationMessage;
+    private final PostgreSQLCteInsert cteInsertAviationMessage;
+    private final PostgreSQLCteInsert cteInsertRejectedAviationMessage;
     private final String stationIdQuery;
+    private final String stationIdsQuery;
+    private final String messageCountQuery;
+    private final String rejectedMessageCountQuery;
+    @Nullable
+    private volatile Boolean postgreSQL;
 
-    public DatabaseAccess(final NamedParameterJdbcTemplate jdbcTemplate, final Clock clock, final RetryTemplate retryTemplate, final String schema) {
+    public DatabaseAccess(final NamedParameterJdbcTemplate jdbcTemplate, final Clock clock, final RetryTemplate retryTemplate,
+            final TransactionOperations transactionOperations, final String schema) {
         this.clock = requireNonNull(clock, "clock");
         this.jdbcTemplate = requireNonNull(jdbcTemplate, "jdbcTemplate");
         this.retryTemplate = requireNonNull(retryTemplate, "retryTemplate");
+        this.transactionOperations = requireNonNull(transactionOperations, "transactionOperations");
         requireNonNull(schema, "schema");
 
         this.insertAviationMessage = new SimpleJdbcInsert(jdbcTemplate.getJdbcTemplate())//
@@ -61,7 +107,24 @@ public class DatabaseAccess {
         this.insertRejectedIwxxmDetails = new SimpleJdbcInsert(jdbcTemplate.getJdbcTemplate())//
                 .withSchemaName(schema)//
                 .withTableName("avidb_rejected_message_iwxxm_details");
+        this.batchInsertAviationMessage = parseInsertStatement(schema, "avidb_messages", MESSAGE_COLUMNS);
+        this.batchInsertRejectedAviationMessage = parseInsertStatement(schema, "avidb_rejected_messages", REJECTED_MESSAGE_COLUMNS);
+        this.copyAviationMessage = new PostgreSQLCopyInsert(schema, "avidb_messages", "message_id", MESSAGE_COLUMNS);
+        this.copyRejectedAviationMessage = new PostgreSQLCopyInsert(schema, "avidb_rejected_messages", "rejected_message_id", REJECTED_MESSAGE_COLUMNS);
+        this.cteInsertAviationMessage = new PostgreSQLCteInsert(schema, "avidb_messages", "avidb_message_iwxxm_details", "message_id", MESSAGE_COLUMNS);
+        this.cteInsertRejectedAviationMessage = new PostgreSQLCteInsert(schema, "avidb_rejected_messages", "avidb_rejected_message_iwxxm_details",
+                "rejected_message_id", REJECTED_MESSAGE_COLUMNS);
         this.stationIdQuery = "select station_id from " + schema + ".avidb_stations where icao_code = :icao_code";
+        this.stationIdsQuery = "select icao_code, station_id from " + schema + ".avidb_stations";
+        this.messageCountQuery = "select count(*) from " + schema + ".avidb_messages"
+                + " where station_id = :station_id and type_id = :type_id and message_time = :message_time and message = :message";
+        this.rejectedMessageCountQuery = "select count(*) from " + schema + ".avidb_rejected_messages"
+                + " where icao_code = :icao_code and type_id = :type_id and message_time = :message_time and message = :message";
+    }
+
+    private static ParsedSql parseInsertStatement(final String schema, final String table, final List<String> columns) {
+        return NamedParameterUtils.parseSqlStatement("insert into " + schema + "." + table + " (" + String.join(", ", columns) + ") values ("
+                + columns.stream().map(column -> ":" + column).collect(Collectors.joining(", ")) + ")");
     }
 
     private static void addTimestampWithTimezone(final MapSqlParameterSource parameters, final String name, @Nullable final Instant timestamp) {
@@ -86,14 +149,8 @@ public class DatabaseAccess {
     public Number insertAviationMessage(final ArchiveAviationMessage archiveAviationMessage, final ReadableLoggingContext loggingContext) {
         requireNonNull(archiveAviationMessage, "archiveAviationMessage");
         requireNonNull(loggingContext, "loggingContext");
-        final MapSqlParameterSource parameters = new MapSqlParameterSource();
-        parameters.addValue("station_id", archiveAviationMessage.getStationId()//
-                .orElseThrow(() -> new IllegalArgumentException(String.format("Message <%s> is missing stationId.", loggingContext))));
-        addCommonParameters(parameters, archiveAviationMessage);
-        final Number id = retryTemplate.execute(context -> {
-            initRetryContext(context, "insert message", loggingContext);
-            return insertAviationMessage.executeAndReturnKey(parameters);
-        });
+        final MapSqlParameterSource parameters = aviationMessageParameters(archiveAviationMessage, loggingContext);
+        final Number id = executeWithRetry("insert message", loggingContext, () -> insertAviationMessage.executeAndReturnKey(parameters));
         LOGGER.debug("Inserted message <{}> id:{}.", loggingContext, id);
         if (archiveAviationMessage.getIWXXMDetails().isEmpty()) {
             LOGGER.debug("Message id:{} contains no IWXXM details.", id);
@@ -116,13 +173,9 @@ public class DatabaseAccess {
     public Number insertRejectedAviationMessage(final ArchiveAviationMessage archiveAviationMessage, final ReadableLoggingContext loggingContext) {
         requireNonNull(archiveAviationMessage, "archiveAviationMessage");
         requireNonNull(loggingContext, "loggingContext");
-        final MapSqlParameterSource parameters = new MapSqlParameterSource();
-        parameters.addValue("icao_code", archiveAviationMessage.getStationIcaoCode()).addValue("reject_reason", archiveAviationMessage.getProcessingResult().getCode());
-        addCommonParameters(parameters, archiveAviationMessage);
-        final Number id = retryTemplate.execute(context -> {
-            initRetryContext(context, "insert rejected message", loggingContext);
-            return insertRejectedAviationMessage.executeAndReturnKey(parameters);
-        });
+        final MapSqlParameterSource parameters = rejectedAviationMessageParameters(archiveAviationMessage);
+        final Number id = executeWithRetry("insert rejected message", loggingContext,
+                () -> insertRejectedAviationMessage.executeAndReturnKey(parameters));
         LOGGER.debug("Inserted rejected message <{}> id:{}; reject reason: {}({})", loggingContext, id, archiveAviationMessage.getProcessingResult().getCode(),
                 archiveAviationMessage.getProcessingResult());
         if (archiveAviationMessage.getIWXXMDetails().isEmpty()) {
@@ -133,28 +186,286 @@ public class DatabaseAccess {
         return id;
     }
 
-    private void insertIwxxmDetails(final Number messageId, final ArchiveAviationMessageIWXXMDetails iwxxmDetails, final ReadableLoggingContext loggingContext) {
-        final MapSqlParameterSource parameters = new MapSqlParameterSource();
-        parameters.addValue("message_id", messageId).addValue("collect_identifier", iwxxmDetails.getCollectIdentifier().orElse(null)).addValue("iwxxm_version", iwxxmDetails.getXMLNamespace().orElse(null));
-        retryTemplate.execute(context -> {
-            initRetryContext(context, "insert IWXXM details id:" + messageId, loggingContext);
-            return insertIwxxmDetails.execute(parameters);
+    /**
+     * Insert aviation messages into the main message table and rejected aviation messages into the rejected messages table, along with their IWXXM
+     * details, using JDBC batches. All messages are inserted in a single transaction; either all or none of them are stored.
+     *
+     * @param archiveAviationMessages
+     *         aviation messages to archive
+     * @param rejectedAviationMessages
+     *         aviation messages to archive in the rejected messages table
+     * @param loggingContext
+     *         logging context
+     */
+    public void insertAviationMessages(final List<ArchiveAviationMessage> archiveAviationMessages, final List<ArchiveAviationMessage> rejectedAviationMessages,
+            final ReadableLoggingContext loggingContext) {
+        requireNonNull(archiveAviationMessages, "archiveAviationMessages");
+        requireNonNull(rejectedAviationMessages, "rejectedAviationMessages");
+        requireNonNull(loggingContext, "loggingContext");
+        final List<MapSqlParameterSource> parameters = archiveAviationMessages.stream()//
+                .map(message -> aviationMessageParameters(message, loggingContext))//
+                .collect(Collectors.toList());
+        final List<MapSqlParameterSource> rejectedParameters = rejectedAviationMessages.stream()//
+                .map(this::rejectedAviationMessageParameters)//
+                .collect(Collectors.toList());
+        executeInTransaction("insert message batch", loggingContext, status -> {
+            final List<Number> ids = batchInsertAndReturnKeys(batchInsertAviationMessage, "message_id", parameters);
+            batchInsertIwxxmDetails(insertIwxxmDetails, "message_id", ids, archiveAviationMessages);
+            final List<Number> rejectedIds = batchInsertAndReturnKeys(batchInsertRejectedAviationMessage, "rejected_message_id", rejectedParameters);
+            batchInsertIwxxmDetails(insertRejectedIwxxmDetails, "rejected_message_id", rejectedIds, rejectedAviationMessages);
+            return null;
         });
+        LOGGER.debug("Inserted batch of {} messages and {} rejected messages <{}>.", parameters.size(), rejectedParameters.size(), loggingContext);
+    }
+
+    /**
+     * Insert aviation messages into the main message table and rejected aviation messages into the rejected messages table, along with their IWXXM
+     * details, using PostgreSQL {@code COPY} for bulk loading. All messages are inserted in a single transaction; either all or none of them are
+     * stored. On databases other than PostgreSQL, this method is equivalent to
+     * {@link #insertAviationMessages(List, List, ReadableLoggingContext)}.
+     *
+     * @param archiveAviationMessages
+     *         aviation messages to archive
+     * @param rejectedAviationMessages
+     *         aviation messages to archive in the rejected messages table
+     * @param loggingContext
+     *         logging context
+     */
+    public void bulkInsertAviationMessages(final List<ArchiveAviationMessage> archiveAviationMessages,
+            final List<ArchiveAviationMessage> rejectedAviationMessages, final ReadableLoggingContext loggingContext) {
+        requireNonNull(archiveAviationMessages, "archiveAviationMessages");
+        requireNonNull(rejectedAviationMessages, "rejectedAviationMessages");
+        requireNonNull(loggingContext, "loggingContext");
+        if (!isPostgreSQL()) {
+            insertAviationMessages(archiveAviationMessages, rejectedAviationMessages, loggingContext);
+            return;
+        }
+        final List<MapSqlParameterSource> parameters = archiveAviationMessages.stream()//
+                .map(message -> aviationMessageParameters(message, loggingContext))//
+                .collect(Collectors.toList());
+        final List<MapSqlParameterSource> rejectedParameters = rejectedAviationMessages.stream()//
+                .map(this::rejectedAviationMessageParameters)//
+                .collect(Collectors.toList());
+        executeInTransaction("bulk insert messages", loggingContext, status -> {
+            final List<Number> ids = jdbcTemplate.getJdbcTemplate()
+                    .execute((ConnectionCallback<List<Number>>) connection -> copyAviationMessage.insert(connection, parameters));
+            batchInsertIwxxmDetails(insertIwxxmDetails, "message_id", ids, archiveAviationMessages);
+            final List<Number> rejectedIds = jdbcTemplate.getJdbcTemplate()
+                    .execute((ConnectionCallback<List<Number>>) connection -> copyRejectedAviationMessage.insert(connection, rejectedParameters));
+            batchInsertIwxxmDetails(insertRejectedIwxxmDetails, "rejected_message_id", rejectedIds, rejectedAviationMessages);
+            return null;
+        });
+        LOGGER.debug("Bulk inserted {} messages and {} rejected messages <{}>.", parameters.size(), rejectedParameters.size(), loggingContext);
+    }
+
+    /**
+     * Insert aviation messages into the main message table and rejected aviation messages into the rejected messages table, along with their IWXXM
+     * details, using a single PostgreSQL statement per table. Each statement inserts the message rows as a multi-row {@code VALUES} list and their
+     * IWXXM details in a CTE, requiring a single database round-trip. All messages are inserted atomically; either all or none of them are stored.
+     * On databases other than PostgreSQL, this method is equivalent to {@link #insertAviationMessages(List, List, ReadableLoggingContext)}.
+     *
+     * @param archiveAviationMessages
+     *         aviation messages to archive
+     * @param rejectedAviationMessages
+     *         aviation messages to archive in the rejected messages table
+     * @param loggingContext
+     *         logging context
+     */
+    public void cteInsertAviationMessages(final List<ArchiveAviationMessage> archiveAviationMessages,
+            final List<ArchiveAviationMessage> rejectedAviationMessages, final ReadableLoggingContext loggingContext) {
+        requireNonNull(archiveAviationMessages, "archiveAviationMessages");
+        requireNonNull(rejectedAviationMessages, "rejectedAviationMessages");
+        requireNonNull(loggingContext, "loggingContext");
+        if (!isPostgreSQL()) {
+            insertAviationMessages(archiveAviationMessages, rejectedAviationMessages, loggingContext);
+            return;
+        }
+        final List<MapSqlParameterSource> parameters = archiveAviationMessages.stream()//
+                .map(message -> addIwxxmDetailsParameters(aviationMessageParameters(message, loggingContext), message.getIWXXMDetails()))//
+                .collect(Collectors.toList());
+        final List<MapSqlParameterSource> rejectedParameters = rejectedAviationMessages.stream()//
+                .map(message -> addIwxxmDetailsParameters(rejectedAviationMessageParameters(message), message.getIWXXMDetails()))//
+                .collect(Collectors.toList());
+        final Supplier<Void> insert = () -> {
+            cteInsert(cteInsertAviationMessage, parameters, archiveAviationMessages);
+            cteInsert(cteInsertRejectedAviationMessage, rejectedParameters, rejectedAviationMessages);
+            return null;
+        };
+        final int statementCount = PostgreSQLCteInsert.statementCount(parameters.size()) + PostgreSQLCteInsert.statementCount(rejectedParameters.size());
+        if (statementCount > 1) {
+            executeInTransaction("insert messages in single statement", loggingContext, status -> insert.get());
+        } else {
+            // A single statement is atomic by itself; avoid the round-trips of an explicit transaction.
+            executeWithRetry("insert messages in single statement", loggingContext, insert);
+        }
+        LOGGER.debug("Inserted {} messages and {} rejected messages in {} statements <{}>.", parameters.size(), rejectedParameters.size(), statementCount,
+                loggingContext);
+    }
+
+    private void cteInsert(final PostgreSQLCteInsert cteInsert, final List<MapSqlParameterSource> parameters, final List<ArchiveAviationMessage> messages) {
+        if (parameters.isEmpty()) {
+            return;
+        }
+        final List<Boolean> hasDetails = messages.stream()//
+                .map(message -> !message.getIWXXMDetails().isEmpty())//
+                .collect(Collectors.toList());
+        jdbcTemplate.getJdbcTemplate().execute((ConnectionCallback<List<Number>>) connection -> cteInsert.insert(connection, parameters, hasDetails));
+    }
+
+    private boolean isPostgreSQL() {
+        Boolean isPostgreSQL = postgreSQL;
+        if (isPostgreSQL == null) {
+            isPostgreSQL = jdbcTemplate.getJdbcTemplate().execute((ConnectionCallback<Boolean>) connection -> connection.isWrapperFor(PGConnection.class));
+            postgreSQL = isPostgreSQL;
+        }
+        return Boolean.TRUE.equals(isPostgreSQL);
+    }
+
+    private List<Number> batchInsertAndReturnKeys(final ParsedSql insertStatement, final String keyColumn, final List<MapSqlParameterSource> parameters) {
+        if (parameters.isEmpty()) {
+            return ImmutableList.of();
+        }
+        final String sql = NamedParameterUtils.substituteNamedParameters(insertStatement, null);
+        return jdbcTemplate.getJdbcTemplate().execute((ConnectionCallback<List<Number>>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql, new String[]{keyColumn})) {
+                for (final MapSqlParameterSource parameterSource : parameters) {
+                    new ArgumentPreparedStatementSetter(NamedParameterUtils.buildValueArray(insertStatement, parameterSource, null)).setValues(statement);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                final List<Number> keys = new ArrayList<>(parameters.size());
+                try (ResultSet generatedKeys = statement.getGeneratedKeys()) {
+                    while (generatedKeys.next()) {
+                        keys.add((Number) generatedKeys.getObject(1));
+                    }
+                }
+                if (keys.size() != parameters.size()) {
+                    throw new IncorrectResultSizeDataAccessException("Unexpected number of generated keys in batch insert", parameters.size(), keys.size());
+                }
+                return keys;
+            }
+        });
+    }
+
+    private static void batchInsertIwxxmDetails(final SimpleJdbcInsert insert, final String idColumn, final List<Number> ids,
+            final List<ArchiveAviationMessage> messages) {
+        final List<MapSqlParameterSource> parameters = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            final ArchiveAviationMessageIWXXMDetails iwxxmDetails = messages.get(i).getIWXXMDetails();
+            if (!iwxxmDetails.isEmpty()) {
+                parameters.add(iwxxmDetailsParameters(idColumn, ids.get(i), iwxxmDetails));
+            }
+        }
+        if (!parameters.isEmpty()) {
+            insert.executeBatch(parameters.toArray(new MapSqlParameterSource[0]));
+        }
+    }
+
+    private static MapSqlParameterSource iwxxmDetailsParameters(final String idColumn, final Number id, final ArchiveAviationMessageIWXXMDetails iwxxmDetails) {
+        return addIwxxmDetailsParameters(new MapSqlParameterSource(idColumn, id), iwxxmDetails);
+    }
+
+    private static MapSqlParameterSource addIwxxmDetailsParameters(final MapSqlParameterSource parameters,
+            final ArchiveAviationMessageIWXXMDetails iwxxmDetails) {
+        return parameters//
+                .addValue(PostgreSQLCteInsert.COLLECT_IDENTIFIER, iwxxmDetails.getCollectIdentifier().orElse(null))//
+                .addValue(PostgreSQLCteInsert.IWXXM_VERSION, iwxxmDetails.getXMLNamespace().orElse(null));
+    }
+
+    private void insertIwxxmDetails(final Number messageId, final ArchiveAviationMessageIWXXMDetails iwxxmDetails, final ReadableLoggingContext loggingContext) {
+        final MapSqlParameterSource parameters = iwxxmDetailsParameters("message_id", messageId, iwxxmDetails);
+        executeWithRetry("insert IWXXM details id:" + messageId, loggingContext, () -> insertIwxxmDetails.execute(parameters));
         LOGGER.debug("Inserted IWXXM details of message <{}> id:{}.", loggingContext, messageId);
     }
 
     private void insertRejectedIwxxmDetails(final Number rejectedMessageId, final ArchiveAviationMessageIWXXMDetails iwxxmDetails, final ReadableLoggingContext loggingContext) {
-        final MapSqlParameterSource parameters = new MapSqlParameterSource();
-        parameters.addValue("rejected_message_id", rejectedMessageId)
-                .addValue("collect_identifier", iwxxmDetails.getCollectIdentifier().orElse(null))
-                .addValue("iwxxm_version", iwxxmDetails.getXMLNamespace().orElse(null));
-        retryTemplate.execute(context -> {
-            initRetryContext(context, "insert rejected IWXXM details id:" + rejectedMessageId, loggingContext);
-            return insertRejectedIwxxmDetails.execute(parameters);
-        });
+        final MapSqlParameterSource parameters = iwxxmDetailsParameters("rejected_message_id", rejectedMessageId, iwxxmDetails);
+        executeWithRetry("insert rejected IWXXM details id:" + rejectedMessageId, loggingContext,
+                () -> insertRejectedIwxxmDetails.execute(parameters));
         LOGGER.debug("Inserted IWXXM details of rejected message <{}> id:{}.", loggingContext, rejectedMessageId);
     }
 
+    /**
+     * Execute provided action in a single database transaction. The transaction is committed if the action completes normally, and rolled back if it
+     * throws an exception.
+     *
+     * <p>
+     * Database operations of this class invoked within the action are not retried individually. Instead, the transaction as a whole is retried by the
+     * retry template, because a failed statement may leave the transaction unusable. The action must therefore be repeatable, and it should not have
+     * side effects other than database operations within the transaction.
+     * </p>
+     *
+     * @param databaseOperation
+     *         description of the operation for logging
+     * @param loggingContext
+     *         logging context
+     * @param action
+     *         action to execute within the transaction
+     * @param <T>
+     *         type of result
+     *
+     * @return the result of action
+     */
+    public <T> T executeInTransaction(final String databaseOperation, final ReadableLoggingContext loggingContext, final TransactionCallback<T> action) {
+        requireNonNull(databaseOperation, "databaseOperation");
+        requireNonNull(loggingContext, "loggingContext");
+        requireNonNull(action, "action");
+        return retryTemplate.execute(context -> {
+            initRetryContext(context, databaseOperation, loggingContext);
+            return transactionOperations.execute(action);
+        });
+    }
+
+    /**
+     * Execute provided action in a single database transaction without retrying. The transaction is committed if the action completes normally, and
+     * rolled back if it throws an exception. Database operations of this class invoked within the action are not retried either.
+     *
+     * @param databaseOperation
+     *         description of the operation for logging
+     * @param loggingContext
+     *         logging context
+     * @param action
+     *         action to execute within the transaction
+     * @param <T>
+     *         type of result
+     *
+     * @return the result of action
+     */
+    public <T> T executeInTransactionWithoutRetry(final String databaseOperation, final ReadableLoggingContext loggingContext,
+            final TransactionCallback<T> action) {
+        requireNonNull(databaseOperation, "databaseOperation");
+        requireNonNull(loggingContext, "loggingContext");
+        requireNonNull(action, "action");
+        LOGGER.debug("Executing database operation '{}' without retry <{}>.", databaseOperation, loggingContext);
+        return transactionOperations.execute(action);
+    }
+
+    /**
+     * Return whether the database responds to a trivial query. The query is not retried.
+     *
+     * @return {@code true} if the database is available, otherwise {@code false}
+     */
+    public boolean isAvailable() {
+        try {
+            jdbcTemplate.getJdbcTemplate().queryForObject("select 1", Integer.class);
+            return true;
+        } catch (final DataAccessException e) {
+            LOGGER.debug("Database is not available: {}", e.toString());
+            return false;
+        }
+    }
+
+    private <T> T executeWithRetry(final String databaseOperation, final ReadableLoggingContext loggingContext, final Supplier<T> operation) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            // Retried as a whole in executeInTransaction
+            return operation.get();
+        }
+        return retryTemplate.execute(context -> {
+            initRetryContext(context, databaseOperation, loggingContext);
+            return operation.get();
+        });
+    }
+
     /**
      * Return the station id matching provided {@code stationIcaoCode}, if exists.
      *
@@ -166,6 +477,30 @@ public class DatabaseAccess {
      * @return station id or empty if database does not contain provided {@code stationIcaoCode} or in case of an error
      */
     public Optional<Integer> queryStationId(final String stationIcaoCode, final ReadableLoggingContext loggingContext) {
+        requireNonNull(stationIcaoCode, "stationIcaoCode");
+        requireNonNull(loggingContext, "loggingContext");
+        try {
+            return findStationId(stationIcaoCode, loggingContext);
+        } catch (final RuntimeException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Return the station id matching provided {@code stationIcaoCode}, if exists. Unlike {@link #queryStationId(String, ReadableLoggingContext)}, this
+     * method distinguishes an unknown station from an error.
+     *
+     * @param stationIcaoCode
+     *         ICAO code to look for
+     * @param loggingContext
+     *         logging context
+     *
+     * @return station id or empty if database does not contain provided {@code stationIcaoCode}
+     *
+     * @throws org.springframework.dao.DataAccessException
+     *         if querying the database fails
+     */
+    public Optional<Integer> findStationId(final String stationIcaoCode, final ReadableLoggingContext loggingContext) {
         requireNonNull(stationIcaoCode, "stationIcaoCode");
         requireNonNull(loggingContext, "loggingContext");
         final MapSqlParameterSource parameters = new MapSqlParameterSource();
@@ -176,16 +511,87 @@ public class DatabaseAccess {
                 return jdbcTemplate.queryForObject(stationIdQuery, parameters, Integer.class);
             });
             return Optional.ofNullable(stationId);
-        } catch (final RuntimeException e) {
+        } catch (final EmptyResultDataAccessException e) {
             return Optional.empty();
         }
     }
 
+    /**
+     * Return ids of all stations in the database.
+     *
+     * @param loggingContext
+     *         logging context
+     *
+     * @return station ids by ICAO code
+     *
+     * @throws org.springframework.dao.DataAccessException
+     *         if querying the database fails
+     */
+    public Map<String, Integer> queryStationIds(final ReadableLoggingContext loggingContext) {
+        requireNonNull(loggingContext, "loggingContext");
+        return retryTemplate.execute(context -> {
+            initRetryContext(context, "query station ids", loggingContext);
+            final Map<String, Integer> stationIds = new HashMap<>();
+            jdbcTemplate.query(stationIdsQuery, (RowCallbackHandler) resultSet -> stationIds.put(resultSet.getString(1), resultSet.getInt(2)));
+            return stationIds;
+        });
+    }
+
+    /**
+     * Return whether the database contains a message identical to provided message. Accepted messages are looked up from the main message table and
+     * rejected messages from the rejected messages table, by station, type, message time and message text. The query is not retried on failure.
+     *
+     * @param archiveAviationMessage
+     *         message to look for
+     * @param loggingContext
+     *         logging context
+     *
+     * @return {@code true} if an identical message is stored, otherwise {@code false}
+     *
+     * @throws org.springframework.dao.DataAccessException
+     *         if querying the database fails
+     */
+    public boolean existsAviationMessage(final ArchiveAviationMessage archiveAviationMessage, final ReadableLoggingContext loggingContext) {
+        requireNonNull(archiveAviationMessage, "archiveAviationMessage");
+        requireNonNull(loggingContext, "loggingContext");
+        final MapSqlParameterSource parameters = new MapSqlParameterSource()//
+                .addValue("type_id", archiveAviationMessage.getType())//
+                .addValue("message", archiveAviationMessage.getMessage());
+        addTimestampWithTimezone(parameters, "message_time", archiveAviationMessage.getMessageTime());
+        final String query;
+        if (archiveAviationMessage.getProcessingResult() == ProcessingResult.OK
+                && archiveAviationMessage.getStationId().isPresent()) {
+            parameters.addValue("station_id", archiveAviationMessage.getStationId().getAsInt());
+            query = messageCountQuery;
+        } else {
+            parameters.addValue("icao_code", archiveAviationMessage.getStationIcaoCode());
+            query = rejectedMessageCountQuery;
+        }
+        // Not retried, as callers rather assume the message is not stored than wait for the database
+        final Integer count = jdbcTemplate.queryForObject(query, parameters, Integer.class);
+        return count != null && count > 0;
+    }
+
     private void initRetryContext(final RetryContext context, final String databaseOperation, final ReadableLoggingContext loggingContext) {
         ArchiverRetryContexts.DATABASE_OPERATION.set(context, databaseOperation);
         ArchiverRetryContexts.LOGGING_CONTEXT.set(context, loggingContext);
     }
 
+    private MapSqlParameterSource aviationMessageParameters(final ArchiveAviationMessage archiveAviationMessage, final ReadableLoggingContext loggingContext) {
+        final MapSqlParameterSource parameters = new MapSqlParameterSource();
+        parameters.addValue("station_id", archiveAviationMessage.getStationId()//
+                .orElseThrow(() -> new IllegalArgumentException(String.format("Message <%s> is missing stationId.", loggingContext))));
+        addCommonParameters(parameters, archiveAviationMessage);
+        return parameters;
+    }
+
+    private MapSqlParameterSource rejectedAviationMessageParameters(final ArchiveAviationMessage archiveAviationMessage) {
+        final MapSqlParameterSource parameters = new MapSqlParameterSource();
+        parameters.addValue("icao_code", archiveAviationMessage.getStationIcaoCode()).addValue("reject_reason", archiveAviationMessage.getProcessingResult().getCode());
+        addCommonParameters(parameters, archiveAviationMessage);
+        return parameters;
+    }
+
     private void addCommonParameters(final MapSqlParameterSource parameters, final ArchiveAviationMessage archiveAviationMessage) {
         parameters.addValue("type_id", archiveAviationMessage.getType())
                 .addValue("route_id", archiveAviationMessage.getRoute())
@@ -1,29 +1,304 @@
 package fi.fmi.avi.archiver.database;
 
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.NonTransientDataAccessException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.TransactionStatus;
+
 import com.google.common.collect.ImmutableList;
+
+import fi.fmi.avi.archiver.ProcessingBudget;
 import fi.fmi.avi.archiver.ProcessingServiceContext;
 import fi.fmi.avi.archiver.logging.model.FileProcessingStatistics;
 import fi.fmi.avi.archiver.logging.model.LoggingContext;
+import fi.fmi.avi.archiver.logging.model.ReadableLoggingContext;
 import fi.fmi.avi.archiver.message.ArchivalStatus;
 import fi.fmi.avi.archiver.message.ArchiveAviationMessage;
 import fi.fmi.avi.archiver.message.InputAndArchiveAviationMessage;
-
-import java.util.List;
-
-import static java.util.Objects.requireNonNull;
+import fi.fmi.avi.archiver.message.ProcessingResult;
+import fi.fmi.avi.archiver.metrics.IngestLatencyMetrics;
 
 public class DatabaseService {
+    /**
+     * Bulk load threshold value denoting bulk loading is disabled.
+     */
+    public static final long BULK_LOAD_DISABLED = 0;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DatabaseService.class);
 
     private final DatabaseAccess databaseAccess;
+    private final IngestLatencyMetrics ingestLatencyMetrics;
+    private final ProcessingBudget processingBudget;
+    private final boolean singleStatementInsert;
+    private final boolean batchInsert;
+    private final boolean transactionPerFile;
+    private final long bulkLoadThreshold;
 
-    public DatabaseService(final DatabaseAccess databaseAccess) {
+    /**
+     * Construct a new instance.
+     *
+     * @param databaseAccess       database access
+     * @param ingestLatencyMetrics ingest latency metrics
+     * @param processingBudget     budget of work in flight, indicating backlog
+     * @param singleStatementInsert whether to insert messages of a file along with their IWXXM details in a single statement on PostgreSQL,
+     *                             falling back to other modes if the insertion fails
+     * @param batchInsert          whether to insert messages of a file in JDBC batches, falling back to inserting messages one by one if the batch fails
+     * @param transactionPerFile   whether to insert messages of a file one by one in a single transaction, using a savepoint for each message
+     * @param bulkLoadThreshold    number of messages in flight at or above which messages of a file are bulk loaded, falling back to other modes if
+     *                             bulk loading fails, or {@link #BULK_LOAD_DISABLED}
+     */
+    public DatabaseService(final DatabaseAccess databaseAccess, final IngestLatencyMetrics ingestLatencyMetrics, final ProcessingBudget processingBudget,
+                           final boolean singleStatementInsert, final boolean batchInsert, final boolean transactionPerFile,
+                           final long bulkLoadThreshold) {
         this.databaseAccess = requireNonNull(databaseAccess, "databaseAccess");
+        this.ingestLatencyMetrics = requireNonNull(ingestLatencyMetrics, "ingestLatencyMetrics");
+        this.processingBudget = requireNonNull(processingBudget, "processingBudget");
+        checkArgument(bulkLoadThreshold >= 0, "bulkLoadThreshold must be non-negative; was: %s", bulkLoadThreshold);
+        this.singleStatementInsert = singleStatementInsert;
+        this.batchInsert = batchInsert;
+        this.transactionPerFile = transactionPerFile;
+        this.bulkLoadThreshold = bulkLoadThreshold;
+    }
+
+    private static boolean isAccepted(final ArchiveAviationMessage message) {
+        return message.getProcessingResult() == ProcessingResult.OK;
+    }
+
+    private static ArchivalStatus successStatus(final ArchiveAviationMessage message) {
+        return isAccepted(message) ? ArchivalStatus.ARCHIVED : ArchivalStatus.REJECTED;
     }
 
     public List<InputAndArchiveAviationMessage> insertMessages(final List<InputAndArchiveAviationMessage> messages, final ProcessingServiceContext context) {
         requireNonNull(messages, "messages");
         requireNonNull(context, "context");
 
+        if (isEnabled(InsertionMode.BULK_LOAD, messages)) {
+            final Optional<List<InputAndArchiveAviationMessage>> bulkInsertedMessages = tryInsertBatch(messages, context, InsertionMode.BULK_LOAD,
+                    databaseAccess::bulkInsertAviationMessages);
+            if (bulkInsertedMessages.isPresent()) {
+                return bulkInsertedMessages.get();
+            }
+        }
+        if (isEnabled(InsertionMode.SINGLE_STATEMENT, messages)) {
+            final Optional<List<InputAndArchiveAviationMessage>> insertedMessages = tryInsertBatch(messages, context, InsertionMode.SINGLE_STATEMENT,
+                    databaseAccess::cteInsertAviationMessages);
+            if (insertedMessages.isPresent()) {
+                return insertedMessages.get();
+            }
+        }
+        if (isEnabled(InsertionMode.BATCH, messages)) {
+            final Optional<List<InputAndArchiveAviationMessage>> batchInsertedMessages = tryInsertBatch(messages, context, InsertionMode.BATCH,
+                    databaseAccess::insertAviationMessages);
+            if (batchInsertedMessages.isPresent()) {
+                return batchInsertedMessages.get();
+            }
+        }
+        if (isEnabled(InsertionMode.TRANSACTION_PER_FILE, messages)) {
+            return insertInTransaction(messages, context);
+        }
+        return insertOneByOne(messages, context);
+    }
+
+    private boolean isBacklogged() {
+        return bulkLoadThreshold != BULK_LOAD_DISABLED && processingBudget.getMessagesInUse() >= bulkLoadThreshold;
+    }
+
+    private boolean isEnabled(final InsertionMode mode, final List<InputAndArchiveAviationMessage> messages) {
+        return switch (mode) {
+            case BULK_LOAD -> messages.size() > 1 && isBacklogged();
+            case SINGLE_STATEMENT -> singleStatementInsert && !messages.isEmpty();
+            case BATCH -> batchInsert && messages.size() > 1;
+            case TRANSACTION_PER_FILE -> transactionPerFile && messages.size() > 1;
+            case ONE_BY_ONE -> true;
+        };
+    }
+
+    /**
+     * Return the insertion mode attempted after provided mode fails. Insertion modes are attempted in declaration order, skipping disabled modes.
+     */
+    private InsertionMode nextInsertionMode(final InsertionMode failedMode, final List<InputAndArchiveAviationMessage> messages) {
+        final InsertionMode[] modes = InsertionMode.values();
+        for (int i = failedMode.ordinal() + 1; i < modes.length; i++) {
+            if (isEnabled(modes[i], messages)) {
+                return modes[i];
+            }
+        }
+        return InsertionMode.ONE_BY_ONE;
+    }
+
+    private Optional<List<InputAndArchiveAviationMessage>> tryInsertBatch(final List<InputAndArchiveAviationMessage> messages,
+                                                                          final ProcessingServiceContext context, final InsertionMode mode,
+                                                                          final BatchInsertion batchInsertion) {
+        final LoggingContext loggingContext = context.getLoggingContext();
+        final List<ArchiveAviationMessage> acceptedMessages = new ArrayList<>();
+        final List<ArchiveAviationMessage> rejectedMessages = new ArrayList<>();
+        for (final InputAndArchiveAviationMessage inputAndArchiveMessage : messages) {
+            final ArchiveAviationMessage message = inputAndArchiveMessage.archiveMessage();
+            (isAccepted(message) ? acceptedMessages : rejectedMessages).add(message);
+        }
+        try {
+            batchInsertion.insert(acceptedMessages, rejectedMessages, loggingContext);
+        } catch (final RuntimeException e) {
+            LOGGER.warn("Messages in <{}> failed to be stored by {}; falling back to {}. Cause: {}", loggingContext, mode.description(),
+                    nextInsertionMode(mode, messages).description(), e.toString());
+            return Optional.empty();
+        }
+
+        final List<ArchivalStatus> archivalStatuses = new ArrayList<>(messages.size());
+        for (final InputAndArchiveAviationMessage inputAndArchiveMessage : messages) {
+            archivalStatuses.add(successStatus(inputAndArchiveMessage.archiveMessage()));
+        }
+        return Optional.of(recordResults(messages, archivalStatuses, context));
+    }
+
+    /**
+     * Insert messages one by one in a single transaction. Each message is inserted under a savepoint, which is rolled back if the message cannot be
+     * inserted due to a non-transient error, marking only that message as failed. Other errors roll back the whole transaction, to be retried by
+     * {@link DatabaseAccess#executeInTransaction(String, fi.fmi.avi.archiver.logging.model.ReadableLoggingContext,
+     * org.springframework.transaction.support.TransactionCallback)}. Statistics are recorded only after the transaction is complete.
+     */
+    private List<InputAndArchiveAviationMessage> insertInTransaction(final List<InputAndArchiveAviationMessage> messages,
+                                                                     final ProcessingServiceContext context) {
+        final LoggingContext loggingContext = context.getLoggingContext();
+        SavepointInsertResult result;
+        try {
+            result = databaseAccess.executeInTransaction("insert messages of file", loggingContext,
+                    status -> insertWithSavepoints(messages, loggingContext, status));
+        } catch (final RuntimeException e) {
+            loggingContext.leaveBulletin();
+            result = new SavepointInsertResult(Collections.nCopies(messages.size(), ArchivalStatus.FAILED), e);
+        }
+        return completeSavepointInsert(messages, result, context);
+    }
+
+    /**
+     * Attempt once to insert messages in a single transaction, using a savepoint for each message like in transaction-per-file mode, but without
+     * retrying. If the attempt fails due to a {@link #isRetryable(Throwable) retryable} error, e.g. the database being unavailable, the transaction
+     * is rolled back and the error is thrown without recording any results, so that the attempt can be repeated later. On the last attempt, or on
+     * other errors, results are recorded like in {@link #insertMessages(List, ProcessingServiceContext)}.
+     *
+     * @param messages    messages to insert
+     * @param context     processing context
+     * @param lastAttempt whether this is the last attempt, recording messages as failed also on retryable errors
+     * @return messages with updated archival status
+     */
+    public List<InputAndArchiveAviationMessage> attemptInsertMessages(final List<InputAndArchiveAviationMessage> messages,
+                                                                      final ProcessingServiceContext context, final boolean lastAttempt) {
+        requireNonNull(messages, "messages");
+        requireNonNull(context, "context");
+        final LoggingContext loggingContext = context.getLoggingContext();
+        SavepointInsertResult result;
+        try {
+            result = databaseAccess.executeInTransactionWithoutRetry("insert messages of file", loggingContext,
+                    status -> insertWithSavepoints(messages, loggingContext, status));
+        } catch (final RuntimeException e) {
+            loggingContext.leaveBulletin();
+            if (!lastAttempt && isRetryable(e)) {
+                throw e;
+            }
+            result = new SavepointInsertResult(Collections.nCopies(messages.size(), ArchivalStatus.FAILED), e);
+        }
+        return completeSavepointInsert(messages, result, context);
+    }
+
+    /**
+     * Return whether an insertion failing with provided error may succeed when attempted again later, typically when the database is unavailable.
+     *
+     * @param error error to check
+     * @return {@code true} if the error is retryable, otherwise {@code false}
+     */
+    static boolean isRetryable(final Throwable error) {
+        return error instanceof TransientDataAccessException
+                || error instanceof RecoverableDataAccessException
+                || error instanceof DataAccessResourceFailureException
+                || error instanceof TransactionException;
+    }
+
+    private List<InputAndArchiveAviationMessage> completeSavepointInsert(final List<InputAndArchiveAviationMessage> messages,
+                                                                         final SavepointInsertResult result, final ProcessingServiceContext context) {
+        final List<InputAndArchiveAviationMessage> updatedMessages = recordResults(messages, result.archivalStatuses(), context);
+        if (result.lastFailure() != null) {
+            throw result.lastFailure();
+        }
+        return updatedMessages;
+    }
+
+    private SavepointInsertResult insertWithSavepoints(final List<InputAndArchiveAviationMessage> messages, final LoggingContext loggingContext,
+                                                       final TransactionStatus status) {
+        final List<ArchivalStatus> archivalStatuses = new ArrayList<>(messages.size());
+        RuntimeException lastFailure = null;
+        for (final InputAndArchiveAviationMessage inputAndArchiveMessage : messages) {
+            final ArchiveAviationMessage message = inputAndArchiveMessage.archiveMessage();
+            loggingContext.enterBulletinMessage(inputAndArchiveMessage.inputMessage().getMessagePositionInFile());
+            final Object savepoint = status.createSavepoint();
+            try {
+                insert(message, loggingContext);
+                status.releaseSavepoint(savepoint);
+                archivalStatuses.add(successStatus(message));
+            } catch (final NonTransientDataAccessException | IllegalArgumentException e) {
+                if (isRetryable(e)) {
+                    throw e;
+                }
+                status.rollbackToSavepoint(savepoint);
+                LOGGER.error("Unable to insert message <{}>; continuing with remaining messages of file.", loggingContext, e);
+                lastFailure = e;
+                archivalStatuses.add(ArchivalStatus.FAILED);
+            } finally {
+                loggingContext.leaveMessage();
+            }
+        }
+        loggingContext.leaveBulletin();
+        return new SavepointInsertResult(archivalStatuses, lastFailure);
+    }
+
+    private void insert(final ArchiveAviationMessage message, final LoggingContext loggingContext) {
+        if (isAccepted(message)) {
+            databaseAccess.insertAviationMessage(message, loggingContext);
+        } else {
+            databaseAccess.insertRejectedAviationMessage(message, loggingContext);
+        }
+    }
+
+    private List<InputAndArchiveAviationMessage> recordResults(final List<InputAndArchiveAviationMessage> messages,
+                                                               final List<ArchivalStatus> archivalStatuses, final ProcessingServiceContext context) {
+        final LoggingContext loggingContext = context.getLoggingContext();
+        final ImmutableList.Builder<InputAndArchiveAviationMessage> updatedMessages = ImmutableList.builder();
+        for (int i = 0; i < messages.size(); i++) {
+            final InputAndArchiveAviationMessage inputAndArchiveMessage = messages.get(i);
+            final ArchiveAviationMessage message = inputAndArchiveMessage.archiveMessage();
+            final ArchivalStatus archivalStatus = archivalStatuses.get(i);
+            loggingContext.enterBulletinMessage(inputAndArchiveMessage.inputMessage().getMessagePositionInFile());
+            if (archivalStatus == ArchivalStatus.FAILED) {
+                context.signalProcessingErrors();
+                loggingContext.recordProcessingResult(FileProcessingStatistics.ProcessingResult.FAILED);
+            } else {
+                loggingContext.recordProcessingResult(archivalStatus == ArchivalStatus.ARCHIVED
+                        ? FileProcessingStatistics.ProcessingResult.ARCHIVED
+                        : FileProcessingStatistics.ProcessingResult.REJECTED);
+                ingestLatencyMetrics.recordStored(inputAndArchiveMessage.inputMessage(), message);
+            }
+            updatedMessages.add(inputAndArchiveMessage.withArchiveMessage(message.toBuilder().setArchivalStatus(archivalStatus).build()));
+            loggingContext.leaveMessage();
+        }
+        loggingContext.leaveBulletin();
+        return updatedMessages.build();
+    }
+
+    private List<InputAndArchiveAviationMessage> insertOneByOne(final List<InputAndArchiveAviationMessage> messages, final ProcessingServiceContext context) {
         final LoggingContext loggingContext = context.getLoggingContext();
         RuntimeException databaseInsertionException = null;
         final ImmutableList.Builder<InputAndArchiveAviationMessage> updatedMessages = ImmutableList.builder();
@@ -32,7 +307,7 @@ public class DatabaseService {
             ArchivalStatus archivalStatus = message.getArchivalStatus();
             try {
                 loggingContext.enterBulletinMessage(inputAndArchiveMessage.inputMessage().getMessagePositionInFile());
-                if (message.getProcessingResult() == fi.fmi.avi.archiver.message.ProcessingResult.OK) {
+                if (isAccepted(message)) {
                     databaseAccess.insertAviationMessage(message, loggingContext);
                     archivalStatus = ArchivalStatus.ARCHIVED;
                     loggingContext.recordProcessingResult(FileProcessingStatistics.ProcessingResult.ARCHIVED);
@@ -41,6 +316,7 @@ public class DatabaseService {
                     archivalStatus = ArchivalStatus.REJECTED;
                     loggingContext.recordProcessingResult(FileProcessingStatistics.ProcessingResult.REJECTED);
                 }
+                ingestLatencyMetrics.recordStored(inputAndArchiveMessage.inputMessage(), message);
             } catch (final RuntimeException e) {
                 databaseInsertionException = e;
                 archivalStatus = ArchivalStatus.FAILED;
@@ -58,4 +334,33 @@ public class DatabaseService {
         return updatedMessages.build();
     }
 
+    /**
+     * Modes of inserting messages of a file, in the order they are attempted.
+     */
+    private enum InsertionMode {
+        BULK_LOAD("bulk load"),
+        SINGLE_STATEMENT("single-statement insertion"),
+        BATCH("batch insertion"),
+        TRANSACTION_PER_FILE("insertion one by one in a single transaction"),
+        ONE_BY_ONE("insertion one by one");
+
+        private final String description;
+
+        InsertionMode(final String description) {
+            this.description = description;
+        }
+
+        String description() {
+            return description;
+        }
+    }
+
+    @FunctionalInterface
+    private interface BatchInsertion {
+        void insert(List<ArchiveAviationMessage> acceptedMessages, List<ArchiveAviationMessage> rejectedMessages, ReadableLoggingContext loggingContext);
+    }
+
+    private record SavepointInsertResult(List<ArchivalStatus> archivalStatuses, @Nullable RuntimeException lastFailure) {
+    }
+
 }
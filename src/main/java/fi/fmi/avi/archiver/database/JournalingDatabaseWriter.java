@@ -0,0 +1,274 @@
+package fi.fmi.avi.archiver.database;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import fi.fmi.avi.archiver.DefaultProcessingServiceContext;
+import fi.fmi.avi.archiver.ProcessingServiceContext;
+import fi.fmi.avi.archiver.file.InputAviationMessage;
+import fi.fmi.avi.archiver.logging.model.FileProcessingStatistics;
+import fi.fmi.avi.archiver.logging.model.LoggingContext;
+import fi.fmi.avi.archiver.logging.model.NoOpLoggingContext;
+import fi.fmi.avi.archiver.message.ArchivalStatus;
+import fi.fmi.avi.archiver.message.ArchiveAviationMessage;
+import fi.fmi.avi.archiver.message.InputAndArchiveAviationMessage;
+import fi.fmi.avi.archiver.message.ProcessingResult;
+
+/**
+ * Stores messages of files in the database, writing them to a local {@link MessageJournal} while the database is unavailable, so that processing of
+ * files can continue without waiting for the database.
+ *
+ * <p>
+ * Messages of a file are inserted in a single attempt by {@link DatabaseService#attemptInsertMessages(List, ProcessingServiceContext, boolean)}. If
+ * the attempt fails with a {@link DatabaseService#isRetryable(Throwable) retryable} error, the database is considered unavailable and the messages are
+ * appended to the journal. While the database is unavailable, messages are appended to the journal without attempting to insert them. Journaled
+ * messages get archival status {@link ArchivalStatus#JOURNALED}, and are recorded in file processing statistics as archived or rejected, according to
+ * their processing result. If appending to the journal fails, insertion is attempted once more, recording messages as failed if it fails. Messages
+ * are journaled until the journal is drained after the database becomes available again, so that messages are stored in the order they were received.
+ * </p>
+ *
+ * <p>
+ * Journaled messages are replayed periodically once the database is available, inserting them in batches using
+ * {@link DatabaseAccess#bulkInsertAviationMessages(List, List, fi.fmi.avi.archiver.logging.model.ReadableLoggingContext) bulk loading}. If bulk
+ * loading fails with a non-retryable error, messages of the batch are inserted one by one, and messages that cannot be inserted are
+ * {@link MessageJournal#quarantine(List) quarantined} in the dead-letter file of the journal, as they are already recorded as archived or rejected.
+ * Replayed messages are deduplicated and recorded as stored by {@link MessageDeduplicator} and {@link RecentMessageCache} like messages stored
+ * directly.
+ * </p>
+ */
+public class JournalingDatabaseWriter implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(JournalingDatabaseWriter.class);
+    private static final InputAviationMessage REPLAYED_INPUT_MESSAGE = InputAviationMessage.builder().buildPartial();
+
+    private final DatabaseService databaseService;
+    private final DatabaseAccess databaseAccess;
+    private final MessageJournal journal;
+    private final int replayBatchSize;
+    private final MessageDeduplicator messageDeduplicator;
+    private final RecentMessageCache recentMessageCache;
+    private final ScheduledExecutorService replayExecutor;
+    private final Object switchOverLock = new Object();
+    private volatile boolean available;
+
+    /**
+     * Construct a new instance.
+     *
+     * @param databaseService database service
+     * @param databaseAccess  database access, for probing database availability and replaying journaled messages
+     * @param journal             journal of messages
+     * @param messageDeduplicator deduplicator of replayed messages, remembering stored messages
+     * @param recentMessageCache  cache of recently stored messages
+     * @param replayBatchSize     maximum number of journaled messages inserted in a single transaction
+     * @param replayInterval      interval of probing database availability and replaying journaled messages
+     */
+    public JournalingDatabaseWriter(final DatabaseService databaseService, final DatabaseAccess databaseAccess, final MessageJournal journal,
+            final MessageDeduplicator messageDeduplicator, final RecentMessageCache recentMessageCache, final int replayBatchSize,
+            final Duration replayInterval) {
+        this.databaseService = requireNonNull(databaseService, "databaseService");
+        this.databaseAccess = requireNonNull(databaseAccess, "databaseAccess");
+        this.journal = requireNonNull(journal, "journal");
+        this.messageDeduplicator = requireNonNull(messageDeduplicator, "messageDeduplicator");
+        this.recentMessageCache = requireNonNull(recentMessageCache, "recentMessageCache");
+        requireNonNull(replayInterval, "replayInterval");
+        checkArgument(replayBatchSize > 0, "replayBatchSize must be positive; was: %s", replayBatchSize);
+        checkArgument(replayInterval.isPositive(), "replayInterval must be positive; was: %s", replayInterval);
+        this.replayBatchSize = replayBatchSize;
+        // Messages remaining in the journal are stored before storing new messages directly
+        this.available = journal.getDepth() == 0;
+
+        this.replayExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()//
+                .setNameFormat("Database-Journal-Replay-%d")//
+                .setDaemon(true)//
+                .build());
+        replayExecutor.scheduleWithFixedDelay(this::replay, replayInterval.toNanos(), replayInterval.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    private static boolean isAccepted(final ArchiveAviationMessage message) {
+        return message.getProcessingResult() == ProcessingResult.OK;
+    }
+
+    /**
+     * Insert provided messages of a file to the database, or append them to the journal if the database is unavailable.
+     *
+     * @param messages messages of a file
+     * @param context  processing context
+     * @return messages with updated archival status
+     */
+    public List<InputAndArchiveAviationMessage> insertMessages(final List<InputAndArchiveAviationMessage> messages,
+            final ProcessingServiceContext context) {
+        requireNonNull(messages, "messages");
+        requireNonNull(context, "context");
+        if (!available) {
+            synchronized (switchOverLock) {
+                if (!available) {
+                    return journal(messages, context);
+                }
+            }
+        }
+        try {
+            return databaseService.attemptInsertMessages(messages, context, false);
+        } catch (final RuntimeException e) {
+            if (!DatabaseService.isRetryable(e)) {
+                throw e;
+            }
+            LOGGER.warn("Database is unavailable; journaling messages of <{}> to be stored later. Cause: {}", context.getLoggingContext(),
+                    e.toString());
+            synchronized (switchOverLock) {
+                available = false;
+                return journal(messages, context);
+            }
+        }
+    }
+
+    private List<InputAndArchiveAviationMessage> journal(final List<InputAndArchiveAviationMessage> messages, final ProcessingServiceContext context) {
+        final LoggingContext loggingContext = context.getLoggingContext();
+        try {
+            journal.append(messages.stream()//
+                    .map(InputAndArchiveAviationMessage::archiveMessage)//
+                    .toList());
+        } catch (final IOException e) {
+            LOGGER.error("Unable to journal messages of <{}>; attempting to store them in the database.", loggingContext, e);
+            return databaseService.attemptInsertMessages(messages, context, true);
+        }
+        final ImmutableList.Builder<InputAndArchiveAviationMessage> updatedMessages = ImmutableList.builder();
+        for (final InputAndArchiveAviationMessage inputAndArchiveMessage : messages) {
+            final ArchiveAviationMessage message = inputAndArchiveMessage.archiveMessage();
+            loggingContext.enterBulletinMessage(inputAndArchiveMessage.inputMessage().getMessagePositionInFile());
+            loggingContext.recordProcessingResult(isAccepted(message)
+                    ? FileProcessingStatistics.ProcessingResult.ARCHIVED
+                    : FileProcessingStatistics.ProcessingResult.REJECTED);
+            updatedMessages.add(inputAndArchiveMessage.withArchiveMessage(message.toBuilder().setArchivalStatus(ArchivalStatus.JOURNALED).build()));
+            loggingContext.leaveMessage();
+        }
+        loggingContext.leaveBulletin();
+        LOGGER.info("Journaled {} messages of <{}>; journal depth is {}.", messages.size(), loggingContext, journal.getDepth());
+        return updatedMessages.build();
+    }
+
+    @VisibleForTesting
+    void replay() {
+        if (journal.getDepth() == 0 && available) {
+            return;
+        }
+        try {
+            if (!databaseAccess.isAvailable()) {
+                return;
+            }
+            LOGGER.info("Database is available; replaying {} journaled messages.", journal.getDepth());
+            long replayed = journal.replay(replayBatchSize, this::insertBatch);
+            if (!available) {
+                synchronized (switchOverLock) {
+                    // Messages journaled meanwhile are stored before storing new messages directly, to keep messages in order
+                    replayed += journal.replay(replayBatchSize, this::insertBatch);
+                    available = true;
+                }
+                LOGGER.info("Journal is drained; storing messages in the database directly.");
+            }
+            if (replayed > 0) {
+                LOGGER.info("Stored {} journaled messages; journal depth is {}.", replayed, journal.getDepth());
+            }
+        } catch (final IOException | RuntimeException e) {
+            if (DatabaseService.isRetryable(e)) {
+                available = false;
+            }
+            LOGGER.error("Replaying journaled messages failed; retrying later.", e);
+        }
+    }
+
+    private static InputAndArchiveAviationMessage withArchivalStatus(final InputAndArchiveAviationMessage message, final ArchivalStatus archivalStatus) {
+        return message.withArchiveMessage(message.archiveMessage().toBuilder().setArchivalStatus(archivalStatus).build());
+    }
+
+    private static ArchivalStatus storedArchivalStatus(final ArchiveAviationMessage message) {
+        return isAccepted(message) ? ArchivalStatus.ARCHIVED : ArchivalStatus.REJECTED;
+    }
+
+    private void insertBatch(final List<ArchiveAviationMessage> batch) {
+        // Input messages are not journaled
+        final List<InputAndArchiveAviationMessage> messages = messageDeduplicator.deduplicateMessages(batch.stream()//
+                        .map(message -> new InputAndArchiveAviationMessage(REPLAYED_INPUT_MESSAGE, message))//
+                        .toList(),//
+                new DefaultProcessingServiceContext(NoOpLoggingContext.getInstance()));
+        final List<ArchiveAviationMessage> acceptedMessages = new ArrayList<>();
+        final List<ArchiveAviationMessage> rejectedMessages = new ArrayList<>();
+        for (final InputAndArchiveAviationMessage message : messages) {
+            (isAccepted(message.archiveMessage()) ? acceptedMessages : rejectedMessages).add(message.archiveMessage());
+        }
+        List<InputAndArchiveAviationMessage> storedMessages;
+        try {
+            databaseAccess.bulkInsertAviationMessages(acceptedMessages, rejectedMessages, NoOpLoggingContext.getInstance());
+            storedMessages = messages.stream()//
+                    .map(message -> withArchivalStatus(message, storedArchivalStatus(message.archiveMessage())))//
+                    .toList();
+        } catch (final RuntimeException e) {
+            if (DatabaseService.isRetryable(e)) {
+                throw e;
+            }
+            LOGGER.warn("Bulk insertion of journaled messages failed; inserting messages one by one. Cause: {}", e.toString());
+            storedMessages = messages.stream()//
+                    .map(this::insertOne)//
+                    .toList();
+        }
+        messageDeduplicator.recordStoredMessages(storedMessages);
+        recentMessageCache.recordStoredMessages(storedMessages);
+    }
+
+    private InputAndArchiveAviationMessage insertOne(final InputAndArchiveAviationMessage inputAndArchiveMessage) {
+        final ArchiveAviationMessage message = inputAndArchiveMessage.archiveMessage();
+        try {
+            if (isAccepted(message)) {
+                databaseAccess.insertAviationMessage(message, NoOpLoggingContext.getInstance());
+            } else {
+                databaseAccess.insertRejectedAviationMessage(message, NoOpLoggingContext.getInstance());
+            }
+            return withArchivalStatus(inputAndArchiveMessage, storedArchivalStatus(message));
+        } catch (final RuntimeException e) {
+            if (DatabaseService.isRetryable(e)) {
+                throw e;
+            }
+            LOGGER.error("Unable to store journaled message of station {} at {}; quarantining it in <{}>.", message.getStationIcaoCode(),
+                    message.getMessageTime(), journal.getDirectory(), e);
+            try {
+                journal.quarantine(List.of(message));
+            } catch (final IOException quarantineFailure) {
+                quarantineFailure.addSuppressed(e);
+                // Fail the batch to be replayed again later rather than losing the message
+                throw new UncheckedIOException("Unable to quarantine journaled message", quarantineFailure);
+            }
+            return withArchivalStatus(inputAndArchiveMessage, ArchivalStatus.FAILED);
+        }
+    }
+
+    /**
+     * Return whether the database is considered available.
+     *
+     * @return {@code true} if messages are inserted in the database, or {@code false} if they are journaled
+     */
+    public boolean isAvailable() {
+        return available;
+    }
+
+    /**
+     * Stop replaying journaled messages. Messages remaining in the journal are replayed after restart.
+     */
+    @Override
+    public void close() {
+        replayExecutor.shutdownNow();
+    }
+}
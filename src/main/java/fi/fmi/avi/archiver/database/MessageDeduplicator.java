@@ -0,0 +1,253 @@
+package fi.fmi.avi.archiver.database;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import fi.fmi.avi.archiver.ProcessingServiceContext;
+import fi.fmi.avi.archiver.logging.model.FileProcessingStatistics;
+import fi.fmi.avi.archiver.logging.model.LoggingContext;
+import fi.fmi.avi.archiver.logging.model.ReadableLoggingContext;
+import fi.fmi.avi.archiver.message.ArchivalStatus;
+import fi.fmi.avi.archiver.message.ArchiveAviationMessage;
+import fi.fmi.avi.archiver.message.InputAndArchiveAviationMessage;
+import fi.fmi.avi.archiver.message.ProcessingResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Detects messages already stored in the database before inserting them again, e.g. when the same bulletin arrives over several routes or is
+ * retransmitted.
+ *
+ * <p>
+ * Messages are identified by a content hash of message text, type, station ICAO code and message time. Hashes of stored messages are remembered in a
+ * bounded set for the recent window, and in a Bloom filter for the longer history window. A message is considered a duplicate when its hash is found
+ * in the recent set, or when the Bloom filter reports a possible hit and the database contains an identical message. Messages repeated within a file
+ * are considered duplicates as well. Hashes are remembered only after messages are {@link #recordStoredMessages(List) stored}, so that messages
+ * failing to be stored are not considered duplicates when received again.
+ * </p>
+ *
+ * <p>
+ * Duplicates are handled according to the configured {@link Policy}. Metrics:
+ * </p>
+ * <ul>
+ *     <li>{@code archiver.deduplication.duplicates}: number of detected duplicates</li>
+ *     <li>{@code archiver.deduplication.database.checks}: number of possible duplicates checked from the database</li>
+ * </ul>
+ */
+public class MessageDeduplicator {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MessageDeduplicator.class);
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+    private static final double BLOOM_FILTER_FALSE_POSITIVE_PROBABILITY = 0.01;
+
+    private final DatabaseAccess databaseAccess;
+    private final Policy policy;
+    private final Cache<HashCode, Boolean> recentHashes;
+    private final long expectedInsertions;
+    private final long bloomFilterRotationNanos;
+    private final Ticker ticker;
+    private final Counter duplicates;
+    private final Counter databaseChecks;
+    private volatile BloomFilterGenerations bloomFilters;
+
+    /**
+     * Construct a new instance.
+     *
+     * @param databaseAccess     database access
+     * @param meterRegistry      meter registry
+     * @param policy             policy on duplicates
+     * @param recentWindow       time to remember hashes of stored messages in the recent set
+     * @param maximumSize        maximum number of hashes in the recent set
+     * @param historyWindow      time to remember hashes of stored messages in the Bloom filter; must not be shorter than {@code recentWindow}
+     * @param expectedInsertions expected number of stored messages within half of {@code historyWindow}, determining the Bloom filter size
+     */
+    public MessageDeduplicator(final DatabaseAccess databaseAccess, final MeterRegistry meterRegistry, final Policy policy, final Duration recentWindow,
+            final long maximumSize, final Duration historyWindow, final long expectedInsertions) {
+        this(databaseAccess, meterRegistry, policy, recentWindow, maximumSize, historyWindow, expectedInsertions, Ticker.systemTicker());
+    }
+
+    @VisibleForTesting
+    MessageDeduplicator(final DatabaseAccess databaseAccess, final MeterRegistry meterRegistry, final Policy policy, final Duration recentWindow,
+            final long maximumSize, final Duration historyWindow, final long expectedInsertions, final Ticker ticker) {
+        this.databaseAccess = requireNonNull(databaseAccess, "databaseAccess");
+        requireNonNull(meterRegistry, "meterRegistry");
+        this.policy = requireNonNull(policy, "policy");
+        requireNonNull(recentWindow, "recentWindow");
+        requireNonNull(historyWindow, "historyWindow");
+        this.ticker = requireNonNull(ticker, "ticker");
+        checkArgument(recentWindow.isPositive(), "recentWindow must be positive; was: %s", recentWindow);
+        checkArgument(historyWindow.compareTo(recentWindow) >= 0, "historyWindow (%s) must not be shorter than recentWindow (%s)", historyWindow,
+                recentWindow);
+        checkArgument(maximumSize > 0, "maximumSize must be positive; was: %s", maximumSize);
+        checkArgument(expectedInsertions > 0, "expectedInsertions must be positive; was: %s", expectedInsertions);
+
+        this.recentHashes = CacheBuilder.newBuilder()//
+                .maximumSize(maximumSize)//
+                .expireAfterWrite(recentWindow)//
+                .ticker(ticker)//
+                .build();
+        this.expectedInsertions = expectedInsertions;
+        this.bloomFilterRotationNanos = historyWindow.toNanos() / 2;
+        this.bloomFilters = new BloomFilterGenerations(newBloomFilter(), newBloomFilter(), ticker.read());
+        this.duplicates = Counter.builder("archiver.deduplication.duplicates")//
+                .description("Number of detected duplicate messages")//
+                .tag("policy", policy.name().toLowerCase())//
+                .register(meterRegistry);
+        this.databaseChecks = Counter.builder("archiver.deduplication.database.checks")//
+                .description("Number of possible duplicate messages checked from the database")//
+                .register(meterRegistry);
+    }
+
+    @VisibleForTesting
+    static HashCode contentHash(final ArchiveAviationMessage message) {
+        return HASH_FUNCTION.newHasher()//
+                .putString(message.getMessage(), StandardCharsets.UTF_8)//
+                .putInt(message.getType())//
+                .putString(message.getStationIcaoCode(), StandardCharsets.UTF_8)//
+                .putLong(message.getMessageTime().getEpochSecond())//
+                .putInt(message.getMessageTime().getNano())//
+                .hash();
+    }
+
+    private BloomFilter<Long> newBloomFilter() {
+        return BloomFilter.create(Funnels.longFunnel(), expectedInsertions, BLOOM_FILTER_FALSE_POSITIVE_PROBABILITY);
+    }
+
+    /**
+     * Handle duplicates among provided messages according to the configured policy.
+     *
+     * @param messages messages to be stored
+     * @param context  processing context
+     * @return messages to be stored, including duplicates to be rejected
+     */
+    public List<InputAndArchiveAviationMessage> deduplicateMessages(final List<InputAndArchiveAviationMessage> messages,
+            final ProcessingServiceContext context) {
+        requireNonNull(messages, "messages");
+        requireNonNull(context, "context");
+        if (policy == Policy.DISABLED) {
+            return messages;
+        }
+        final LoggingContext loggingContext = context.getLoggingContext();
+        final Set<HashCode> hashesInFile = new HashSet<>();
+        final List<InputAndArchiveAviationMessage> result = new ArrayList<>(messages.size());
+        for (final InputAndArchiveAviationMessage inputAndArchiveMessage : messages) {
+            final ArchiveAviationMessage message = inputAndArchiveMessage.archiveMessage();
+            loggingContext.enterBulletinMessage(inputAndArchiveMessage.inputMessage().getMessagePositionInFile());
+            final HashCode hash = contentHash(message);
+            if (!hashesInFile.add(hash) || isStored(hash, message, loggingContext)) {
+                duplicates.increment();
+                if (policy == Policy.DISCARD) {
+                    LOGGER.info("Discarded duplicate message <{}>.", loggingContext);
+                    loggingContext.recordProcessingResult(FileProcessingStatistics.ProcessingResult.DISCARDED);
+                } else {
+                    LOGGER.info("Rejecting duplicate message <{}>.", loggingContext);
+                    result.add(message.getProcessingResult() == ProcessingResult.OK
+                            ? inputAndArchiveMessage.withArchiveMessage(message.toBuilder().setProcessingResult(ProcessingResult.DUPLICATE).build())
+                            : inputAndArchiveMessage);
+                }
+            } else {
+                result.add(inputAndArchiveMessage);
+            }
+            loggingContext.leaveMessage();
+        }
+        loggingContext.leaveBulletin();
+        return List.copyOf(result);
+    }
+
+    private boolean isStored(final HashCode hash, final ArchiveAviationMessage message, final ReadableLoggingContext loggingContext) {
+        if (recentHashes.getIfPresent(hash) != null) {
+            return true;
+        }
+        final BloomFilterGenerations filters = currentBloomFilters();
+        final long key = hash.asLong();
+        if (!filters.current().mightContain(key) && !filters.previous().mightContain(key)) {
+            return false;
+        }
+        databaseChecks.increment();
+        try {
+            return databaseAccess.existsAviationMessage(message, loggingContext);
+        } catch (final RuntimeException e) {
+            LOGGER.warn("Unable to check whether message <{}> is already stored; assuming it is not: {}", loggingContext, e.toString());
+            return false;
+        }
+    }
+
+    /**
+     * Remember hashes of messages successfully stored in the database.
+     *
+     * @param messages messages after storage
+     */
+    public void recordStoredMessages(final List<InputAndArchiveAviationMessage> messages) {
+        requireNonNull(messages, "messages");
+        if (policy == Policy.DISABLED) {
+            return;
+        }
+        final BloomFilterGenerations filters = currentBloomFilters();
+        for (final InputAndArchiveAviationMessage inputAndArchiveMessage : messages) {
+            final ArchiveAviationMessage message = inputAndArchiveMessage.archiveMessage();
+            if (message.getArchivalStatus() == ArchivalStatus.ARCHIVED || message.getArchivalStatus() == ArchivalStatus.REJECTED) {
+                final HashCode hash = contentHash(message);
+                recentHashes.put(hash, Boolean.TRUE);
+                filters.current().put(hash.asLong());
+            }
+        }
+    }
+
+    private BloomFilterGenerations currentBloomFilters() {
+        final BloomFilterGenerations filters = bloomFilters;
+        if (ticker.read() - filters.createdNanos() < bloomFilterRotationNanos) {
+            return filters;
+        }
+        synchronized (this) {
+            final long now = ticker.read();
+            if (now - bloomFilters.createdNanos() >= bloomFilterRotationNanos) {
+                bloomFilters = new BloomFilterGenerations(newBloomFilter(), bloomFilters.current(), now);
+            }
+            return bloomFilters;
+        }
+    }
+
+    /**
+     * Policy on detected duplicate messages.
+     */
+    public enum Policy {
+        /**
+         * Do not detect duplicates.
+         */
+        DISABLED,
+        /**
+         * Discard duplicates without storing them, recording them as discarded in file processing statistics.
+         */
+        DISCARD,
+        /**
+         * Store duplicates in the rejected messages table with reject reason {@link ProcessingResult#DUPLICATE}, unless already rejected for another
+         * reason.
+         */
+        REJECT
+    }
+
+    /**
+     * Bloom filters of current and previous rotation periods. New hashes are put in the current filter only.
+     */
+    private record BloomFilterGenerations(BloomFilter<Long> current, BloomFilter<Long> previous, long createdNanos) {
+    }
+}
@@ -0,0 +1,647 @@
+package fi.fmi.avi.archiver.database;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import fi.fmi.avi.archiver.message.ArchiveAviationMessage;
+import fi.fmi.avi.archiver.message.ArchiveAviationMessageIWXXMDetails;
+import fi.fmi.avi.archiver.message.ProcessingResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Local durable journal of messages to be stored in the database later, e.g. while the database is unavailable.
+ *
+ * <p>
+ * Messages are appended to segment files in the journal directory. Each message is written as a record consisting of payload length, CRC-32C
+ * checksum of the payload, and the payload. Messages are flushed to the storage device before {@link #append(List)} returns. Records of a failed
+ * append are removed from the segment, or if that fails, a new segment is started for subsequent appends. A new segment is also started when the
+ * current one exceeds the configured size, and on each {@link #replay(int, Consumer) replay}. The journal directory is synced after creating files.
+ * </p>
+ *
+ * <p>
+ * Replay reads segments in the order they were written, and hands messages over in batches. The position after each successfully handled batch is
+ * stored in a checkpoint file, and fully replayed segments are deleted. If the application stops between handling a batch and storing the
+ * checkpoint, the batch is replayed again on the next replay. Reading a segment stops at the first record with invalid length or checksum, e.g. a
+ * record partially written when the application was stopped. Messages that cannot be stored can be {@link #quarantine(List) quarantined} in a
+ * dead-letter file in the journal directory, which is not replayed.
+ * </p>
+ *
+ * <p>
+ * Metrics:
+ * </p>
+ * <ul>
+ *     <li>{@code archiver.journal.depth}: number of messages in the journal waiting to be replayed</li>
+ *     <li>{@code archiver.journal.appended}: number of messages appended to the journal</li>
+ *     <li>{@code archiver.journal.replayed}: number of messages replayed from the journal</li>
+ *     <li>{@code archiver.journal.corrupted}: number of segments found to contain an invalid record</li>
+ *     <li>{@code archiver.journal.quarantined}: number of messages quarantined in the dead-letter file</li>
+ * </ul>
+ */
+public class MessageJournal implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MessageJournal.class);
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String CHECKPOINT_FILE = "journal.checkpoint";
+    private static final String DEAD_LETTER_FILE = "dead-letter.seg";
+    private static final int RECORD_HEADER_LENGTH = Integer.BYTES * 2;
+    private static final int MAX_RECORD_LENGTH = 64 * 1024 * 1024;
+    private static final byte FORMAT_VERSION = 1;
+
+    private final Path directory;
+    private final long segmentSize;
+    private final SegmentChannelFactory segmentChannelFactory;
+    private final AtomicLong depth = new AtomicLong();
+    private final Counter appended;
+    private final Counter replayed;
+    private final Counter corrupted;
+    private final Counter quarantined;
+    private final Object appendLock = new Object();
+    private final Object replayLock = new Object();
+
+    // Guarded by appendLock
+    private long nextSegmentSequence;
+    @Nullable
+    private FileChannel currentSegment;
+    private boolean closed;
+
+    // Guarded by replayLock
+    private Checkpoint checkpoint;
+
+    /**
+     * Open a journal in the provided directory, creating the directory if it does not exist. Messages remaining in the journal are counted in
+     * journal depth, and will be handed over on the next replay.
+     *
+     * @param directory     journal directory
+     * @param segmentSize   size in bytes at which a new segment file is started
+     * @param meterRegistry meter registry
+     * @throws IOException if the journal cannot be opened
+     */
+    public MessageJournal(final Path directory, final long segmentSize, final MeterRegistry meterRegistry) throws IOException {
+        this(directory, segmentSize, meterRegistry, path -> FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE));
+    }
+
+    MessageJournal(final Path directory, final long segmentSize, final MeterRegistry meterRegistry, final SegmentChannelFactory segmentChannelFactory)
+            throws IOException {
+        this.directory = requireNonNull(directory, "directory");
+        requireNonNull(meterRegistry, "meterRegistry");
+        this.segmentChannelFactory = requireNonNull(segmentChannelFactory, "segmentChannelFactory");
+        checkArgument(segmentSize > 0, "segmentSize must be positive; was: %s", segmentSize);
+        this.segmentSize = segmentSize;
+
+        Files.createDirectories(directory);
+        this.checkpoint = readCheckpoint();
+        final TreeMap<Long, Path> segments = listSegments();
+        this.nextSegmentSequence = Math.max(checkpoint.segmentSequence() + 1, segments.isEmpty() ? 0 : segments.lastKey() + 1);
+        long recoveredDepth = 0;
+        for (final Map.Entry<Long, Path> segment : segments.entrySet()) {
+            if (segment.getKey() < checkpoint.segmentSequence()) {
+                Files.deleteIfExists(segment.getValue());
+            } else {
+                recoveredDepth += countRecords(segment.getValue(), checkpoint.startPosition(segment.getKey()));
+            }
+        }
+        depth.set(recoveredDepth);
+        if (recoveredDepth > 0) {
+            LOGGER.info("Recovered {} journaled messages in {} segments from <{}>.", recoveredDepth, segments.size(), directory);
+        }
+
+        Gauge.builder("archiver.journal.depth", depth, AtomicLong::get)//
+                .description("Number of messages in the journal waiting to be replayed")//
+                .register(meterRegistry);
+        this.appended = Counter.builder("archiver.journal.appended")//
+                .description("Number of messages appended to the journal")//
+                .register(meterRegistry);
+        this.replayed = Counter.builder("archiver.journal.replayed")//
+                .description("Number of messages replayed from the journal")//
+                .register(meterRegistry);
+        this.corrupted = Counter.builder("archiver.journal.corrupted")//
+                .description("Number of journal segments found to contain an invalid record")//
+                .register(meterRegistry);
+        this.quarantined = Counter.builder("archiver.journal.quarantined")//
+                .description("Number of journaled messages failed to be stored and quarantined in the dead-letter file")//
+                .register(meterRegistry);
+    }
+
+    private static String segmentFileName(final long sequence) {
+        return String.format("%s%020d%s", SEGMENT_PREFIX, sequence, SEGMENT_SUFFIX);
+    }
+
+    private static void writeString(final DataOutputStream output, final String value) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static void writeOptionalString(final DataOutputStream output, final Optional<String> value) throws IOException {
+        output.writeBoolean(value.isPresent());
+        if (value.isPresent()) {
+            writeString(output, value.get());
+        }
+    }
+
+    private static void writeInstant(final DataOutputStream output, final Instant value) throws IOException {
+        output.writeLong(value.getEpochSecond());
+        output.writeInt(value.getNano());
+    }
+
+    private static void writeOptionalInstant(final DataOutputStream output, final Optional<Instant> value) throws IOException {
+        output.writeBoolean(value.isPresent());
+        if (value.isPresent()) {
+            writeInstant(output, value.get());
+        }
+    }
+
+    private static String readString(final DataInputStream input) throws IOException {
+        final byte[] bytes = new byte[input.readInt()];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static Optional<String> readOptionalString(final DataInputStream input) throws IOException {
+        return input.readBoolean() ? Optional.of(readString(input)) : Optional.empty();
+    }
+
+    private static Instant readInstant(final DataInputStream input) throws IOException {
+        return Instant.ofEpochSecond(input.readLong(), input.readInt());
+    }
+
+    private static Optional<Instant> readOptionalInstant(final DataInputStream input) throws IOException {
+        return input.readBoolean() ? Optional.of(readInstant(input)) : Optional.empty();
+    }
+
+    private static byte[] encode(final ArchiveAviationMessage message) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(message.getMessage().length() + 256);
+        final DataOutputStream output = new DataOutputStream(bytes);
+        output.writeByte(FORMAT_VERSION);
+        output.writeUTF(message.getProcessingResult().name());
+        output.writeInt(message.getRoute());
+        output.writeInt(message.getFormat());
+        output.writeInt(message.getType());
+        writeInstant(output, message.getMessageTime());
+        writeString(output, message.getStationIcaoCode());
+        final OptionalInt stationId = message.getStationId();
+        output.writeBoolean(stationId.isPresent());
+        if (stationId.isPresent()) {
+            output.writeInt(stationId.getAsInt());
+        }
+        writeOptionalInstant(output, message.getValidFrom());
+        writeOptionalInstant(output, message.getValidTo());
+        writeOptionalInstant(output, message.getFileModified());
+        writeOptionalString(output, message.getHeading());
+        writeOptionalString(output, message.getVersion());
+        writeOptionalString(output, message.getIWXXMDetails().getXMLNamespace());
+        writeOptionalString(output, message.getIWXXMDetails().getCollectIdentifier());
+        writeString(output, message.getMessage());
+        output.flush();
+        return bytes.toByteArray();
+    }
+
+    private static ArchiveAviationMessage decode(final byte[] payload) throws IOException {
+        final DataInputStream input = new DataInputStream(new ByteArrayInputStream(payload));
+        final byte version = input.readByte();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported journal record version: " + version);
+        }
+        final ArchiveAviationMessage.Builder builder = ArchiveAviationMessage.builder()//
+                .setProcessingResult(ProcessingResult.valueOf(input.readUTF()))//
+                .setRoute(input.readInt())//
+                .setFormat(input.readInt())//
+                .setType(input.readInt())//
+                .setMessageTime(readInstant(input))//
+                .setStationIcaoCode(readString(input));
+        if (input.readBoolean()) {
+            builder.setStationId(input.readInt());
+        }
+        builder.setValidFrom(readOptionalInstant(input))//
+                .setValidTo(readOptionalInstant(input))//
+                .setFileModified(readOptionalInstant(input))//
+                .setHeading(readOptionalString(input))//
+                .setVersion(readOptionalString(input))//
+                .setIWXXMDetails(ArchiveAviationMessageIWXXMDetails.builder()//
+                        .setXMLNamespace(readOptionalString(input))//
+                        .setCollectIdentifier(readOptionalString(input))//
+                        .build())//
+                .setMessage(readString(input));
+        return builder.build();
+    }
+
+    /**
+     * Append provided messages to the journal. Messages are written to the storage device before returning.
+     *
+     * @param messages messages to append
+     * @throws IOException if writing messages fails, in which case they may or may not be replayed later
+     */
+    public void append(final List<ArchiveAviationMessage> messages) throws IOException {
+        requireNonNull(messages, "messages");
+        if (messages.isEmpty()) {
+            return;
+        }
+        final ByteBuffer buffer = encodeRecords(messages);
+        synchronized (appendLock) {
+            if (closed) {
+                throw new IOException("Journal is closed");
+            }
+            final FileChannel segment = currentSegmentForAppend();
+            final long position = segment.position();
+            try {
+                while (buffer.hasRemaining()) {
+                    segment.write(buffer);
+                }
+                segment.force(false);
+            } catch (final IOException | RuntimeException e) {
+                discardPartialAppend(segment, position, e);
+                throw e;
+            }
+            depth.addAndGet(messages.size());
+        }
+        appended.increment(messages.size());
+    }
+
+    private static ByteBuffer encodeRecords(final List<ArchiveAviationMessage> messages) throws IOException {
+        final ByteArrayOutputStream records = new ByteArrayOutputStream();
+        final DataOutputStream output = new DataOutputStream(records);
+        final CRC32C checksum = new CRC32C();
+        for (final ArchiveAviationMessage message : messages) {
+            final byte[] payload = encode(message);
+            checkArgument(payload.length <= MAX_RECORD_LENGTH, "Message exceeds maximum journal record length: %s", payload.length);
+            checksum.reset();
+            checksum.update(payload);
+            output.writeInt(payload.length);
+            output.writeInt((int) checksum.getValue());
+            output.write(payload);
+        }
+        output.flush();
+        return ByteBuffer.wrap(records.toByteArray());
+    }
+
+    /**
+     * Append provided messages to the dead-letter file of the journal. Messages are written to the storage device before returning. Quarantined
+     * messages are not replayed, but retained in the dead-letter file in journal record format for manual recovery.
+     *
+     * @param messages messages to quarantine
+     * @throws IOException if writing messages fails
+     */
+    public void quarantine(final List<ArchiveAviationMessage> messages) throws IOException {
+        requireNonNull(messages, "messages");
+        if (messages.isEmpty()) {
+            return;
+        }
+        final ByteBuffer buffer = encodeRecords(messages);
+        final Path path = directory.resolve(DEAD_LETTER_FILE);
+        synchronized (appendLock) {
+            final boolean created = !Files.exists(path);
+            try (FileChannel deadLetters = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                final long position = deadLetters.size();
+                try {
+                    while (buffer.hasRemaining()) {
+                        deadLetters.write(buffer);
+                    }
+                    deadLetters.force(false);
+                } catch (final IOException | RuntimeException e) {
+                    deadLetters.truncate(position);
+                    throw e;
+                }
+            }
+            if (created) {
+                syncDirectory();
+            }
+        }
+        quarantined.increment(messages.size());
+    }
+
+    /**
+     * Read messages quarantined in the dead-letter file.
+     *
+     * @return quarantined messages in the order they were quarantined
+     * @throws IOException if reading the dead-letter file fails
+     */
+    public List<ArchiveAviationMessage> readQuarantined() throws IOException {
+        final Path path = directory.resolve(DEAD_LETTER_FILE);
+        synchronized (appendLock) {
+            if (!Files.exists(path)) {
+                return List.of();
+            }
+            final List<ArchiveAviationMessage> messages = new ArrayList<>();
+            try (SegmentReader reader = new SegmentReader(path, 0)) {
+                ArchiveAviationMessage message;
+                while ((message = reader.next()) != null) {
+                    messages.add(message);
+                }
+            }
+            return messages;
+        }
+    }
+
+    /**
+     * Remove records of a failed append from the end of the current segment. Otherwise replay would stop at the partial record, losing all records
+     * appended after it. If the records cannot be removed, the segment is closed, and subsequent appends are written to a new segment.
+     */
+    private void discardPartialAppend(final FileChannel segment, final long position, final Exception appendFailure) {
+        try {
+            segment.truncate(position);
+            segment.position(position);
+        } catch (final IOException | RuntimeException truncateFailure) {
+            appendFailure.addSuppressed(truncateFailure);
+            LOGGER.warn("Unable to discard partially appended records in journal; starting a new segment.", truncateFailure);
+            try {
+                closeCurrentSegment();
+            } catch (final IOException closeFailure) {
+                appendFailure.addSuppressed(closeFailure);
+            }
+        }
+    }
+
+    private FileChannel currentSegmentForAppend() throws IOException {
+        if (currentSegment != null && currentSegment.size() >= segmentSize) {
+            closeCurrentSegment();
+        }
+        if (currentSegment == null) {
+            currentSegment = segmentChannelFactory.open(directory.resolve(segmentFileName(nextSegmentSequence++)));
+            syncDirectory();
+        }
+        return currentSegment;
+    }
+
+    /**
+     * Flush the directory entries of the journal directory to the storage device, so that newly created files survive a crash.
+     */
+    private void syncDirectory() {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (final IOException e) {
+            // Not supported on all platforms
+            LOGGER.debug("Unable to sync journal directory <{}>: {}", directory, e.getMessage());
+        }
+    }
+
+    private void closeCurrentSegment() throws IOException {
+        if (currentSegment != null) {
+            final FileChannel segment = currentSegment;
+            currentSegment = null;
+            segment.close();
+        }
+    }
+
+    /**
+     * Hand over messages in the journal to the provided consumer in batches, in the order they were appended. Messages appended during the replay
+     * are handed over on the next replay. If the consumer throws an exception, replay stops and the exception is propagated; the failed batch is
+     * handed over again on the next replay.
+     *
+     * @param batchSize maximum number of messages in a batch
+     * @param consumer  consumer of message batches, e.g. storing them in the database
+     * @return number of replayed messages
+     * @throws IOException if reading the journal fails
+     */
+    public long replay(final int batchSize, final Consumer<List<ArchiveAviationMessage>> consumer) throws IOException {
+        requireNonNull(consumer, "consumer");
+        checkArgument(batchSize > 0, "batchSize must be positive; was: %s", batchSize);
+        synchronized (replayLock) {
+            final long endSequence;
+            synchronized (appendLock) {
+                closeCurrentSegment();
+                endSequence = nextSegmentSequence;
+            }
+            long replayedMessages = 0;
+            for (final Map.Entry<Long, Path> segment : listSegments().headMap(endSequence).entrySet()) {
+                replayedMessages += replaySegment(segment.getKey(), segment.getValue(), batchSize, consumer);
+            }
+            return replayedMessages;
+        }
+    }
+
+    private long replaySegment(final long sequence, final Path segment, final int batchSize, final Consumer<List<ArchiveAviationMessage>> consumer)
+            throws IOException {
+        long replayedMessages = 0;
+        try (SegmentReader reader = new SegmentReader(segment, checkpoint.startPosition(sequence))) {
+            final List<ArchiveAviationMessage> batch = new ArrayList<>(batchSize);
+            ArchiveAviationMessage message;
+            do {
+                message = reader.next();
+                if (message != null) {
+                    batch.add(message);
+                }
+                if (!batch.isEmpty() && (batch.size() >= batchSize || message == null)) {
+                    consumer.accept(List.copyOf(batch));
+                    writeCheckpoint(new Checkpoint(sequence, reader.position()));
+                    depth.addAndGet(-batch.size());
+                    replayed.increment(batch.size());
+                    replayedMessages += batch.size();
+                    batch.clear();
+                }
+            } while (message != null);
+            if (reader.isCorrupted()) {
+                corrupted.increment();
+            }
+        }
+        Files.deleteIfExists(segment);
+        LOGGER.debug("Replayed {} messages from journal segment <{}>.", replayedMessages, segment);
+        return replayedMessages;
+    }
+
+    /**
+     * Return the number of messages in the journal waiting to be replayed.
+     *
+     * @return journal depth
+     */
+    public long getDepth() {
+        return depth.get();
+    }
+
+    /**
+     * Return the journal directory.
+     *
+     * @return journal directory
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (appendLock) {
+            closed = true;
+            closeCurrentSegment();
+        }
+    }
+
+    private TreeMap<Long, Path> listSegments() throws IOException {
+        final TreeMap<Long, Path> segments = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (final Path path : stream) {
+                final String fileName = path.getFileName().toString();
+                try {
+                    segments.put(Long.parseLong(fileName.substring(SEGMENT_PREFIX.length(), fileName.length() - SEGMENT_SUFFIX.length())), path);
+                } catch (final NumberFormatException e) {
+                    LOGGER.warn("Ignoring unrecognized file <{}> in journal directory.", path);
+                }
+            }
+        }
+        return segments;
+    }
+
+    private long countRecords(final Path segment, final long startPosition) throws IOException {
+        long count = 0;
+        try (SegmentReader reader = new SegmentReader(segment, startPosition)) {
+            while (reader.next() != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private Checkpoint readCheckpoint() throws IOException {
+        final Path path = directory.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(path)) {
+            return Checkpoint.INITIAL;
+        }
+        final String[] fields = Files.readString(path, StandardCharsets.US_ASCII).trim().split(" ");
+        try {
+            return new Checkpoint(Long.parseLong(fields[0]), Long.parseLong(fields[1]));
+        } catch (final RuntimeException e) {
+            throw new IOException("Invalid journal checkpoint: " + path, e);
+        }
+    }
+
+    private void writeCheckpoint(final Checkpoint newCheckpoint) throws IOException {
+        final Path path = directory.resolve(CHECKPOINT_FILE);
+        final Path tempPath = directory.resolve(CHECKPOINT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(ByteBuffer.wrap((newCheckpoint.segmentSequence() + " " + newCheckpoint.position()).getBytes(StandardCharsets.US_ASCII)));
+            channel.force(false);
+        }
+        Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory();
+        checkpoint = newCheckpoint;
+    }
+
+    /**
+     * Opens a new segment file for writing.
+     */
+    @FunctionalInterface
+    interface SegmentChannelFactory {
+        FileChannel open(Path path) throws IOException;
+    }
+
+    /**
+     * Position of replay: segments before {@code segmentSequence} are fully replayed, and segment {@code segmentSequence} is replayed up to
+     * {@code position}.
+     */
+    private record Checkpoint(long segmentSequence, long position) {
+        private static final Checkpoint INITIAL = new Checkpoint(-1, 0);
+
+        long startPosition(final long sequence) {
+            return sequence == segmentSequence ? position : 0;
+        }
+    }
+
+    private static final class SegmentReader implements Closeable {
+        private final Path segment;
+        private final DataInputStream input;
+        private final CRC32C checksum = new CRC32C();
+        private long position;
+        private boolean corrupted;
+
+        SegmentReader(final Path segment, final long startPosition) throws IOException {
+            this.segment = segment;
+            final InputStream inputStream = Files.newInputStream(segment);
+            try {
+                inputStream.skipNBytes(startPosition);
+            } catch (final IOException e) {
+                inputStream.close();
+                throw e;
+            }
+            this.input = new DataInputStream(new BufferedInputStream(inputStream));
+            this.position = startPosition;
+        }
+
+        @Nullable
+        ArchiveAviationMessage next() throws IOException {
+            if (corrupted) {
+                return null;
+            }
+            final int length;
+            try {
+                length = input.readInt();
+            } catch (final EOFException e) {
+                return null;
+            }
+            try {
+                if (length < 0 || length > MAX_RECORD_LENGTH) {
+                    return invalidRecord("invalid length " + length);
+                }
+                final int expectedChecksum = input.readInt();
+                final byte[] payload = new byte[length];
+                input.readFully(payload);
+                checksum.reset();
+                checksum.update(payload);
+                if ((int) checksum.getValue() != expectedChecksum) {
+                    return invalidRecord("checksum mismatch");
+                }
+                final ArchiveAviationMessage message = decode(payload);
+                position += RECORD_HEADER_LENGTH + length;
+                return message;
+            } catch (final EOFException e) {
+                return invalidRecord("truncated record");
+            } catch (final IOException | RuntimeException e) {
+                return invalidRecord(e.toString());
+            }
+        }
+
+        @Nullable
+        private ArchiveAviationMessage invalidRecord(final String reason) {
+            if (!corrupted) {
+                LOGGER.warn("Invalid record in journal segment <{}> at position {} ({}); ignoring rest of the segment.", segment, position, reason);
+            }
+            corrupted = true;
+            return null;
+        }
+
+        long position() {
+            return position;
+        }
+
+        boolean isCorrupted() {
+            return corrupted;
+        }
+
+        @Override
+        public void close() throws IOException {
+            input.close();
+        }
+    }
+}
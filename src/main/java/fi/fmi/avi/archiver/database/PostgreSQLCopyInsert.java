@@ -0,0 +1,137 @@
+package fi.fmi.avi.archiver.database;
+
+import static java.util.Objects.requireNonNull;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Inserts rows into a table with PostgreSQL {@code COPY FROM STDIN} in CSV format.
+ *
+ * <p>
+ * {@code COPY} does not return generated keys. Therefore ids of new rows are allocated from the sequence of the id column in advance, and written
+ * explicitly along with other columns. Allocated ids are returned in the order of provided rows, to link dependent rows to them.
+ * </p>
+ */
+final class PostgreSQLCopyInsert {
+    private static final int ROW_BUFFER_INITIAL_CAPACITY = 512;
+
+    private final String idAllocationQuery;
+    private final String copyStatement;
+    private final List<String> columns;
+
+    /**
+     * Construct a new instance.
+     *
+     * @param schema   database schema
+     * @param table    table to insert into
+     * @param idColumn generated id column of the table
+     * @param columns  columns to insert, excluding the id column
+     */
+    PostgreSQLCopyInsert(final String schema, final String table, final String idColumn, final List<String> columns) {
+        requireNonNull(schema, "schema");
+        requireNonNull(table, "table");
+        requireNonNull(idColumn, "idColumn");
+        this.columns = ImmutableList.copyOf(columns);
+        this.idAllocationQuery = "select nextval(pg_get_serial_sequence('" + schema + "." + table + "', '" + idColumn + "'))"
+                + " from generate_series(1, ?)";
+        this.copyStatement = "copy " + schema + "." + table + " (" + idColumn + ", " + String.join(", ", columns) + ") from stdin with (format csv)";
+    }
+
+    /**
+     * Append a value in CSV format. {@code null} is written as an unquoted empty value, which {@code COPY} reads as {@code NULL}. Numbers are written
+     * unquoted, and other values are quoted, doubling embedded quotes. Within quotes, delimiters, line breaks and backslashes are read literally.
+     */
+    @VisibleForTesting
+    static void appendCsvValue(final StringBuilder row, @Nullable final Object value) {
+        if (value == null) {
+            return;
+        }
+        if (value instanceof Number) {
+            row.append(value);
+            return;
+        }
+        final String string = value.toString();
+        row.append('"');
+        for (int i = 0, length = string.length(); i < length; i++) {
+            final char c = string.charAt(i);
+            if (c == '"') {
+                row.append('"');
+            }
+            row.append(c);
+        }
+        row.append('"');
+    }
+
+    /**
+     * Insert provided rows. Must be executed within a transaction to make id allocation and insertion atomic.
+     *
+     * @param connection connection to use
+     * @param rows       values of columns for each row
+     * @return allocated ids in the order of rows
+     * @throws SQLException on database access error
+     */
+    List<Number> insert(final Connection connection, final List<? extends SqlParameterSource> rows) throws SQLException {
+        requireNonNull(connection, "connection");
+        requireNonNull(rows, "rows");
+        if (rows.isEmpty()) {
+            return ImmutableList.of();
+        }
+        final List<Number> ids = allocateIds(connection, rows.size());
+        final CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(copyStatement);
+        try {
+            final StringBuilder row = new StringBuilder(ROW_BUFFER_INITIAL_CAPACITY);
+            for (int i = 0; i < rows.size(); i++) {
+                final SqlParameterSource values = rows.get(i);
+                row.setLength(0);
+                row.append(ids.get(i));
+                for (final String column : columns) {
+                    row.append(',');
+                    appendCsvValue(row, values.hasValue(column) ? values.getValue(column) : null);
+                }
+                row.append('\n');
+                final byte[] bytes = row.toString().getBytes(StandardCharsets.UTF_8);
+                copyIn.writeToCopy(bytes, 0, bytes.length);
+            }
+            final long rowCount = copyIn.endCopy();
+            if (rowCount != rows.size()) {
+                throw new SQLException("Copied " + rowCount + " rows instead of " + rows.size());
+            }
+        } finally {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+        return ids;
+    }
+
+    private List<Number> allocateIds(final Connection connection, final int count) throws SQLException {
+        final List<Number> ids = new ArrayList<>(count);
+        try (PreparedStatement statement = connection.prepareStatement(idAllocationQuery)) {
+            statement.setInt(1, count);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    ids.add(resultSet.getLong(1));
+                }
+            }
+        }
+        if (ids.size() != count) {
+            throw new SQLException("Allocated " + ids.size() + " ids instead of " + count);
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,173 @@
+package fi.fmi.avi.archiver.database;
+
+import static java.util.Objects.requireNonNull;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+
+/**
+ * Inserts rows into a message table along with their IWXXM details in a single PostgreSQL statement.
+ *
+ * <p>
+ * Rows are provided as a multi-row {@code VALUES} list. A data-modifying CTE inserts the message rows with {@code INSERT ... RETURNING}, and another
+ * one inserts the IWXXM details of inserted rows. Ids are drawn from the sequence of the id column in the input CTE, so that details rows and the
+ * returned ids can be matched to input rows. Large inputs are split into statements of at most {@value #MAX_ROWS_PER_STATEMENT} rows to stay within
+ * the bind parameter limit.
+ * </p>
+ */
+final class PostgreSQLCteInsert {
+    static final String COLLECT_IDENTIFIER = "collect_identifier";
+    static final String IWXXM_VERSION = "iwxxm_version";
+
+    private static final int MAX_ROWS_PER_STATEMENT = 1000;
+    private static final String TIMESTAMP = "timestamptz";
+    private static final Map<String, String> COLUMN_TYPES = ImmutableMap.<String, String> builder()//
+            .put("station_id", "integer")//
+            .put("icao_code", "text")//
+            .put("reject_reason", "integer")//
+            .put("type_id", "integer")//
+            .put("route_id", "integer")//
+            .put("message", "text")//
+            .put("flag", "integer")//
+            .put("messir_heading", "text")//
+            .put("version", "text")//
+            .put("format_id", "integer")//
+            .put("message_time", TIMESTAMP)//
+            .put("valid_from", TIMESTAMP)//
+            .put("valid_to", TIMESTAMP)//
+            .put("created", TIMESTAMP)//
+            .put("file_modified", TIMESTAMP)//
+            .put(COLLECT_IDENTIFIER, "text")//
+            .put(IWXXM_VERSION, "text")//
+            .build();
+
+    private final List<String> columns;
+    private final String statementStart;
+    private final String statementEnd;
+    private final String rowPlaceholder;
+
+    /**
+     * Construct a new instance.
+     *
+     * @param schema       database schema
+     * @param table        message table to insert into
+     * @param detailsTable IWXXM details table to insert into
+     * @param idColumn     generated id column of the message table, referred by the details table
+     * @param columns      columns of message table to insert, excluding the id column
+     */
+    PostgreSQLCteInsert(final String schema, final String table, final String detailsTable, final String idColumn, final List<String> columns) {
+        requireNonNull(schema, "schema");
+        requireNonNull(table, "table");
+        requireNonNull(detailsTable, "detailsTable");
+        requireNonNull(idColumn, "idColumn");
+        this.columns = ImmutableList.copyOf(columns);
+        final List<String> inputColumns = ImmutableList.<String> builder()//
+                .add("ord", "has_details")//
+                .addAll(columns)//
+                .add(COLLECT_IDENTIFIER, IWXXM_VERSION)//
+                .build();
+        final String columnList = String.join(", ", columns);
+        this.statementStart = "with input as (select nextval(pg_get_serial_sequence('" + schema + "." + table + "', '" + idColumn + "')) as " + idColumn
+                + ", v.* from (values ";
+        this.statementEnd = ") as v (" + String.join(", ", inputColumns) + ")), "//
+                + "inserted as (insert into " + schema + "." + table + " (" + idColumn + ", " + columnList + ") "//
+                + "select " + idColumn + ", " + columnList + " from input returning " + idColumn + "), "//
+                + "details as (insert into " + schema + "." + detailsTable + " (" + idColumn + ", " + COLLECT_IDENTIFIER + ", " + IWXXM_VERSION + ") "//
+                + "select input." + idColumn + ", input." + COLLECT_IDENTIFIER + ", input." + IWXXM_VERSION//
+                + " from input join inserted using (" + idColumn + ") where input.has_details) "//
+                + "select " + idColumn + " from input order by ord";
+        this.rowPlaceholder = "(?::integer, ?::boolean, "//
+                + columns.stream().map(column -> "?::" + requireNonNull(COLUMN_TYPES.get(column), column)).collect(Collectors.joining(", "))//
+                + ", ?::text, ?::text)";
+    }
+
+    /**
+     * Return the number of statements needed to insert provided number of rows.
+     *
+     * @param rowCount number of rows
+     * @return number of statements
+     */
+    static int statementCount(final int rowCount) {
+        return (rowCount + MAX_ROWS_PER_STATEMENT - 1) / MAX_ROWS_PER_STATEMENT;
+    }
+
+    /**
+     * Insert provided rows. Must be executed within a transaction if rows may exceed a single statement.
+     *
+     * @param connection connection to use
+     * @param rows       values of columns for each row, including {@value #COLLECT_IDENTIFIER} and {@value #IWXXM_VERSION} of rows having details
+     * @param hasDetails whether each row has IWXXM details
+     * @return generated ids in the order of rows
+     * @throws SQLException on database access error
+     */
+    List<Number> insert(final Connection connection, final List<? extends SqlParameterSource> rows, final List<Boolean> hasDetails) throws SQLException {
+        requireNonNull(connection, "connection");
+        requireNonNull(rows, "rows");
+        requireNonNull(hasDetails, "hasDetails");
+        final List<Number> ids = new ArrayList<>(rows.size());
+        int offset = 0;
+        for (final List<? extends SqlParameterSource> chunk : Lists.partition(rows, MAX_ROWS_PER_STATEMENT)) {
+            ids.addAll(insertChunk(connection, chunk, hasDetails.subList(offset, offset + chunk.size())));
+            offset += chunk.size();
+        }
+        return ids;
+    }
+
+    private List<Number> insertChunk(final Connection connection, final List<? extends SqlParameterSource> rows, final List<Boolean> hasDetails)
+            throws SQLException {
+        final StringBuilder sql = new StringBuilder(statementStart);
+        for (int i = 0; i < rows.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(rowPlaceholder);
+        }
+        sql.append(statementEnd);
+        try (PreparedStatement statement = connection.prepareStatement(sql.toString())) {
+            int parameterIndex = 1;
+            for (int i = 0; i < rows.size(); i++) {
+                final SqlParameterSource row = rows.get(i);
+                statement.setInt(parameterIndex++, i);
+                statement.setBoolean(parameterIndex++, hasDetails.get(i));
+                for (final String column : columns) {
+                    setValue(statement, parameterIndex++, row, column);
+                }
+                setValue(statement, parameterIndex++, row, COLLECT_IDENTIFIER);
+                setValue(statement, parameterIndex++, row, IWXXM_VERSION);
+            }
+            final List<Number> ids = new ArrayList<>(rows.size());
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    ids.add(resultSet.getLong(1));
+                }
+            }
+            if (ids.size() != rows.size()) {
+                throw new SQLException("Inserted " + ids.size() + " rows instead of " + rows.size());
+            }
+            return ids;
+        }
+    }
+
+    private static void setValue(final PreparedStatement statement, final int parameterIndex, final SqlParameterSource row, final String column)
+            throws SQLException {
+        final Object value = row.hasValue(column) ? row.getValue(column) : null;
+        if (value == null) {
+            statement.setNull(parameterIndex, Types.NULL);
+        } else {
+            statement.setObject(parameterIndex, value);
+        }
+    }
+}
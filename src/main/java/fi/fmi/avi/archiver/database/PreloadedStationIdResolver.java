@@ -0,0 +1,86 @@
+package fi.fmi.avi.archiver.database;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Map;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import fi.fmi.avi.archiver.logging.model.NoOpLoggingContext;
+import fi.fmi.avi.archiver.logging.model.ReadableLoggingContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Station id resolver looking up station ids from a snapshot of all stations in the database.
+ *
+ * <p>
+ * The snapshot is loaded by {@link #reload()}, which is expected to be invoked periodically. A new snapshot replaces the current one atomically
+ * only when stations in the database have changed. Resolving a station present in the snapshot requires no database access and no allocation.
+ * Stations missing from the snapshot, e.g. added after the latest reload, are queried from the database.
+ * </p>
+ *
+ * <p>
+ * Metrics:
+ * </p>
+ * <ul>
+ *     <li>{@code archiver.station.table.size}: number of stations in the current snapshot</li>
+ *     <li>{@code archiver.station.table.fallback.queries}: number of stations queried from the database due to missing from the snapshot</li>
+ *     <li>{@code archiver.station.table.reload.failures}: number of failed reloads</li>
+ * </ul>
+ */
+public class PreloadedStationIdResolver implements StationIdResolver {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PreloadedStationIdResolver.class);
+
+    private final DatabaseAccess databaseAccess;
+    private final Counter fallbackQueries;
+    private final Counter reloadFailures;
+    private volatile StationIdTable table = StationIdTable.empty();
+
+    public PreloadedStationIdResolver(final DatabaseAccess databaseAccess, final MeterRegistry meterRegistry) {
+        this.databaseAccess = requireNonNull(databaseAccess, "databaseAccess");
+        requireNonNull(meterRegistry, "meterRegistry");
+        Gauge.builder("archiver.station.table.size", this, resolver -> resolver.table.getStationIds().size())//
+                .description("Number of stations in the current station table snapshot")//
+                .register(meterRegistry);
+        this.fallbackQueries = Counter.builder("archiver.station.table.fallback.queries")//
+                .description("Number of stations queried from the database due to missing from the station table snapshot")//
+                .register(meterRegistry);
+        this.reloadFailures = Counter.builder("archiver.station.table.reload.failures")//
+                .description("Number of failed station table reloads")//
+                .register(meterRegistry);
+    }
+
+    /**
+     * Load all stations from the database, and replace the current snapshot if stations have changed.
+     * Failures are logged and counted, retaining the current snapshot.
+     */
+    public void reload() {
+        try {
+            final Map<String, Integer> stationIds = databaseAccess.queryStationIds(NoOpLoggingContext.getInstance());
+            if (!stationIds.equals(table.getStationIds())) {
+                table = StationIdTable.of(stationIds);
+                LOGGER.info("Loaded {} stations into station table.", stationIds.size());
+            }
+        } catch (final RuntimeException e) {
+            reloadFailures.increment();
+            LOGGER.warn("Unable to reload station table; retaining current snapshot of {} stations.", table.getStationIds().size(), e);
+        }
+    }
+
+    @Override
+    public Optional<Integer> resolveStationId(final String stationIcaoCode, final ReadableLoggingContext loggingContext) {
+        requireNonNull(stationIcaoCode, "stationIcaoCode");
+        requireNonNull(loggingContext, "loggingContext");
+        final StationIdTable currentTable = table;
+        final int index = currentTable.indexOf(stationIcaoCode);
+        if (index != StationIdTable.NOT_FOUND) {
+            return currentTable.stationIdAt(index);
+        }
+        fallbackQueries.increment();
+        return databaseAccess.queryStationId(stationIcaoCode, loggingContext);
+    }
+}
@@ -0,0 +1,198 @@
+package fi.fmi.avi.archiver.database;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import javax.annotation.Nullable;
+
+import com.google.common.collect.ImmutableMap;
+
+import fi.fmi.avi.archiver.message.ArchivalStatus;
+import fi.fmi.avi.archiver.message.ArchiveAviationMessage;
+import fi.fmi.avi.archiver.message.InputAndArchiveAviationMessage;
+
+/**
+ * In-memory cache of messages recently archived to the main message table, serving queries of the latest messages of a station without loading the
+ * database.
+ *
+ * <p>
+ * For each station and message type, the cache retains the latest configured number of messages by message time, and additionally all messages
+ * stored within the configured recent window. Messages of each station are held in an immutable {@link StationSnapshot}, which is replaced on update.
+ * Reads do not lock, and always see a consistent snapshot of a station. Each snapshot has a version tag changing on each update, usable as an entity
+ * tag along with the last modification time.
+ * </p>
+ */
+public class RecentMessageCache {
+    private static final Comparator<RecentMessage> NEWEST_FIRST = Comparator.comparing(RecentMessage::messageTime)//
+            .thenComparing(RecentMessage::storedAt)//
+            .reversed();
+
+    private final Clock clock;
+    private final int messagesPerType;
+    private final Duration recentWindow;
+    private final String instanceTag;
+    private final AtomicLong versions = new AtomicLong();
+    private final ConcurrentHashMap<String, StationSnapshot> stations = new ConcurrentHashMap<>();
+
+    /**
+     * Construct a new instance. The cache is disabled if both {@code messagesPerType} and {@code recentWindow} are zero.
+     *
+     * @param clock           clock
+     * @param messagesPerType number of latest messages to retain for each station and message type
+     * @param recentWindow    time to retain stored messages in addition to the latest ones
+     */
+    public RecentMessageCache(final Clock clock, final int messagesPerType, final Duration recentWindow) {
+        this.clock = requireNonNull(clock, "clock");
+        this.recentWindow = requireNonNull(recentWindow, "recentWindow");
+        checkArgument(messagesPerType >= 0, "messagesPerType must not be negative; was: %s", messagesPerType);
+        checkArgument(!recentWindow.isNegative(), "recentWindow must not be negative; was: %s", recentWindow);
+        this.messagesPerType = messagesPerType;
+        this.instanceTag = Long.toHexString(clock.millis());
+    }
+
+    private static RecentMessage toRecentMessage(final ArchiveAviationMessage message, final Instant storedAt) {
+        return new RecentMessage(message.getType(), message.getRoute(), message.getFormat(), message.getMessageTime(),
+                message.getValidFrom().orElse(null), message.getValidTo().orElse(null), message.getHeading().orElse(null),
+                message.getVersion().orElse(null), message.getMessage(), storedAt);
+    }
+
+    /**
+     * Return whether the cache is enabled.
+     *
+     * @return {@code true} if messages are cached, otherwise {@code false}
+     */
+    public boolean isEnabled() {
+        return messagesPerType > 0 || recentWindow.isPositive();
+    }
+
+    /**
+     * Add messages archived to the main message table. Other messages are ignored.
+     *
+     * @param messages messages after storage
+     */
+    public void recordStoredMessages(final List<InputAndArchiveAviationMessage> messages) {
+        requireNonNull(messages, "messages");
+        if (!isEnabled()) {
+            return;
+        }
+        final Instant now = clock.instant();
+        final Map<String, List<RecentMessage>> archivedByStation = messages.stream()//
+                .map(InputAndArchiveAviationMessage::archiveMessage)//
+                .filter(message -> message.getArchivalStatus() == ArchivalStatus.ARCHIVED)//
+                .collect(Collectors.groupingBy(ArchiveAviationMessage::getStationIcaoCode, LinkedHashMap::new,
+                        Collectors.mapping(message -> toRecentMessage(message, now), Collectors.toList())));
+        archivedByStation.forEach((stationIcaoCode, stationMessages) -> stations.compute(stationIcaoCode,
+                (key, previous) -> update(stationIcaoCode, previous, stationMessages, now)));
+    }
+
+    private StationSnapshot update(final String stationIcaoCode, @Nullable final StationSnapshot previous, final List<RecentMessage> added,
+            final Instant now) {
+        final Map<Integer, List<RecentMessage>> messagesByType = new HashMap<>(previous == null ? Map.of() : previous.messagesByType());
+        added.stream()//
+                .collect(Collectors.groupingBy(RecentMessage::type))//
+                .forEach((type, addedOfType) -> {
+                    final List<RecentMessage> messagesOfType = new ArrayList<>(messagesByType.getOrDefault(type, List.of()));
+                    for (final RecentMessage message : addedOfType) {
+                        if (messagesOfType.stream().noneMatch(existing -> existing.hasSameContent(message))) {
+                            messagesOfType.add(message);
+                        }
+                    }
+                    messagesOfType.sort(NEWEST_FIRST);
+                    messagesByType.put(type, messagesOfType);
+                });
+        return new StationSnapshot(stationIcaoCode, retain(messagesByType, now), now, instanceTag + "-" + versions.incrementAndGet());
+    }
+
+    private Map<Integer, List<RecentMessage>> retain(final Map<Integer, List<RecentMessage>> messagesByType, final Instant now) {
+        final Instant windowStart = now.minus(recentWindow);
+        final ImmutableMap.Builder<Integer, List<RecentMessage>> retained = ImmutableMap.builder();
+        messagesByType.forEach((type, messages) -> {
+            final List<RecentMessage> retainedMessages = new ArrayList<>(Math.min(messages.size(), messagesPerType));
+            for (int i = 0; i < messages.size(); i++) {
+                final RecentMessage message = messages.get(i);
+                if (i < messagesPerType || !message.storedAt().isBefore(windowStart)) {
+                    retainedMessages.add(message);
+                }
+            }
+            if (!retainedMessages.isEmpty()) {
+                retained.put(type, List.copyOf(retainedMessages));
+            }
+        });
+        return retained.build();
+    }
+
+    /**
+     * Return recent messages of provided station. Messages stored before the recent window, exceeding the number of latest messages to retain, are
+     * excluded.
+     *
+     * @param stationIcaoCode station ICAO code
+     * @return snapshot of recent messages of the station, or empty if no messages of the station are cached
+     */
+    public Optional<StationSnapshot> getStation(final String stationIcaoCode) {
+        requireNonNull(stationIcaoCode, "stationIcaoCode");
+        final StationSnapshot snapshot = stations.get(stationIcaoCode);
+        if (snapshot == null) {
+            return Optional.empty();
+        }
+        final Map<Integer, List<RecentMessage>> retained = retain(snapshot.messagesByType(), clock.instant());
+        return Optional.of(retained.equals(snapshot.messagesByType())
+                ? snapshot
+                : new StationSnapshot(snapshot.stationIcaoCode(), retained, snapshot.lastModified(), snapshot.versionTag()));
+    }
+
+    /**
+     * Immutable snapshot of recent messages of a station.
+     *
+     * @param stationIcaoCode station ICAO code
+     * @param messagesByType  recent messages by message type identifier, newest first
+     * @param lastModified    time of the latest update
+     * @param versionTag      tag identifying the update
+     */
+    public record StationSnapshot(String stationIcaoCode, Map<Integer, List<RecentMessage>> messagesByType, Instant lastModified, String versionTag) {
+        public StationSnapshot {
+            requireNonNull(stationIcaoCode, "stationIcaoCode");
+            requireNonNull(messagesByType, "messagesByType");
+            requireNonNull(lastModified, "lastModified");
+            requireNonNull(versionTag, "versionTag");
+        }
+
+        /**
+         * Return an entity tag identifying the content of this snapshot.
+         *
+         * @return entity tag
+         */
+        public String eTag() {
+            return versionTag + "-" + messagesByType.values().stream().mapToInt(List::size).sum();
+        }
+    }
+
+    /**
+     * Recently archived message.
+     */
+    public record RecentMessage(int type, int route, int format, Instant messageTime, @Nullable Instant validFrom, @Nullable Instant validTo,
+                                @Nullable String heading, @Nullable String version, String message, Instant storedAt) {
+        public RecentMessage {
+            requireNonNull(messageTime, "messageTime");
+            requireNonNull(message, "message");
+            requireNonNull(storedAt, "storedAt");
+        }
+
+        boolean hasSameContent(final RecentMessage other) {
+            return messageTime.equals(other.messageTime) && message.equals(other.message);
+        }
+    }
+}
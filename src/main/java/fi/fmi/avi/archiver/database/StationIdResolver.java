@@ -0,0 +1,23 @@
+package fi.fmi.avi.archiver.database;
+
+import java.util.Optional;
+
+import fi.fmi.avi.archiver.logging.model.ReadableLoggingContext;
+
+/**
+ * Resolves database station ids by station ICAO code.
+ */
+@FunctionalInterface
+public interface StationIdResolver {
+    /**
+     * Return the station id matching provided {@code stationIcaoCode}, if exists.
+     *
+     * @param stationIcaoCode
+     *         ICAO code to look for
+     * @param loggingContext
+     *         logging context
+     *
+     * @return station id or empty if station is unknown or cannot be resolved due to an error
+     */
+    Optional<Integer> resolveStationId(String stationIcaoCode, ReadableLoggingContext loggingContext);
+}
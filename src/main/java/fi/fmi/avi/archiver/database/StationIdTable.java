@@ -0,0 +1,137 @@
+package fi.fmi.avi.archiver.database;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Map;
+import java.util.Optional;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Immutable open-addressing hash table of station ids keyed by {@link #pack(CharSequence) packed} ICAO code.
+ *
+ * <p>
+ * Lookups do not allocate. Station ids are stored as ready-made {@code Optional} instances to be returned as is. ICAO codes that cannot be packed
+ * are not stored in the table.
+ * </p>
+ */
+final class StationIdTable {
+    /**
+     * Return value of {@link #pack(CharSequence)} for codes that cannot be packed. Denotes also an empty slot in the table.
+     */
+    static final int UNPACKABLE = 0;
+    /**
+     * Return value of {@link #indexOf(CharSequence)} for codes not present in the table.
+     */
+    static final int NOT_FOUND = -1;
+
+    private static final StationIdTable EMPTY = new StationIdTable(ImmutableMap.of());
+
+    private final ImmutableMap<String, Integer> stationIds;
+    private final int[] keys;
+    private final Optional<Integer>[] values;
+    private final int mask;
+
+    @SuppressWarnings("unchecked")
+    private StationIdTable(final ImmutableMap<String, Integer> stationIds) {
+        this.stationIds = stationIds;
+        final int capacity = Integer.highestOneBit(Math.max(stationIds.size(), 1) * 2 - 1) << 1;
+        this.keys = new int[capacity];
+        this.values = new Optional[capacity];
+        this.mask = capacity - 1;
+        stationIds.forEach((icaoCode, stationId) -> {
+            final int key = pack(icaoCode);
+            if (key != UNPACKABLE) {
+                int index = slot(key);
+                while (keys[index] != UNPACKABLE) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = key;
+                values[index] = Optional.of(stationId);
+            }
+        });
+    }
+
+    static StationIdTable empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Create a new table of provided station ids.
+     *
+     * @param stationIds station ids by ICAO code
+     * @return new table
+     */
+    static StationIdTable of(final Map<String, Integer> stationIds) {
+        requireNonNull(stationIds, "stationIds");
+        return new StationIdTable(ImmutableMap.copyOf(stationIds));
+    }
+
+    /**
+     * Pack an ICAO code of four uppercase ASCII letters or digits into an int, one character per byte.
+     *
+     * @param icaoCode ICAO code
+     * @return packed code, or {@link #UNPACKABLE} if provided code is not a four-character code of uppercase ASCII letters or digits
+     */
+    static int pack(final CharSequence icaoCode) {
+        if (icaoCode.length() != 4) {
+            return UNPACKABLE;
+        }
+        int packed = 0;
+        for (int i = 0; i < 4; i++) {
+            final char c = icaoCode.charAt(i);
+            if ((c < 'A' || c > 'Z') && (c < '0' || c > '9')) {
+                return UNPACKABLE;
+            }
+            packed = packed << 8 | c;
+        }
+        return packed;
+    }
+
+    private int slot(final int key) {
+        final int hash = key * 0x9E3779B9;
+        return (hash ^ hash >>> 16) & mask;
+    }
+
+    /**
+     * Return index of provided ICAO code in this table.
+     *
+     * @param icaoCode ICAO code
+     * @return index of the code, or {@link #NOT_FOUND} if the code is not present
+     */
+    int indexOf(final CharSequence icaoCode) {
+        final int key = pack(icaoCode);
+        if (key == UNPACKABLE) {
+            return NOT_FOUND;
+        }
+        int index = slot(key);
+        while (true) {
+            final int candidate = keys[index];
+            if (candidate == key) {
+                return index;
+            } else if (candidate == UNPACKABLE) {
+                return NOT_FOUND;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    /**
+     * Return station id at provided index.
+     *
+     * @param index index returned by {@link #indexOf(CharSequence)}
+     * @return station id
+     */
+    Optional<Integer> stationIdAt(final int index) {
+        return values[index];
+    }
+
+    /**
+     * Return the station ids this table was created of, including ones that could not be packed.
+     *
+     * @return station ids by ICAO code
+     */
+    Map<String, Integer> getStationIds() {
+        return stationIds;
+    }
+}
@@ -0,0 +1,110 @@
+package fi.fmi.avi.archiver.file;
+
+import org.springframework.integration.file.transformer.AbstractFilePayloadTransformer;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Transforms a file payload into a string, reading the file content as bytes and decoding it directly into the resulting string.
+ *
+ * <p>
+ * Unlike {@link org.springframework.integration.file.transformer.FileToStringTransformer}, which copies the content through a reader, an intermediate
+ * character buffer and a string writer, this transformer reads the file with {@link FileChannel#read(ByteBuffer)} into a single byte array. When the
+ * charset is ASCII-compatible and the content consists of ASCII bytes only, as is typical for aviation messages, the content is decoded as ISO-8859-1
+ * without any charset validation. Otherwise the content is decoded with the configured charset, replacing malformed input.
+ * </p>
+ *
+ * <p>
+ * Files are deliberately not memory-mapped. Input files are written by external parties, and accessing a mapping of a file truncated meanwhile fails
+ * with an asynchronous {@link InternalError} or {@code SIGBUS} instead of an {@link IOException}, while the mapping itself stays alive until garbage
+ * collected. Reading the file instead fails with an {@link java.io.EOFException}, failing only the file at hand.
+ * </p>
+ */
+public class ByteFileToStringTransformer extends AbstractFilePayloadTransformer<String> {
+    private static final Set<Charset> ASCII_COMPATIBLE_CHARSETS = Set.of(StandardCharsets.US_ASCII, StandardCharsets.ISO_8859_1, StandardCharsets.UTF_8);
+    private static final long NON_ASCII_MASK = 0x8080808080808080L;
+
+    private final Charset charset;
+    private final boolean asciiCompatible;
+
+    /**
+     * Construct a new transformer.
+     *
+     * @param charset charset of files
+     */
+    public ByteFileToStringTransformer(final Charset charset) {
+        this.charset = requireNonNull(charset, "charset");
+        this.asciiCompatible = ASCII_COMPATIBLE_CHARSETS.contains(charset);
+    }
+
+    static boolean isAscii(final ByteBuffer buffer) {
+        final ByteBuffer bytes = buffer.duplicate().order(ByteOrder.nativeOrder());
+        while (bytes.remaining() >= Long.BYTES) {
+            if ((bytes.getLong() & NON_ASCII_MASK) != 0) {
+                return false;
+            }
+        }
+        while (bytes.hasRemaining()) {
+            if (bytes.get() < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static ByteBuffer read(final FileChannel channel, final int size) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(size);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("File was truncated while reading; expected " + size + " bytes, got " + buffer.position());
+            }
+        }
+        return buffer.flip();
+    }
+
+    @Override
+    protected String transformFile(final File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File <" + file + "> is too large to read: " + size + " bytes");
+            }
+            if (size == 0) {
+                return "";
+            }
+            return decode(read(channel, (int) size));
+        }
+    }
+
+    String decode(final ByteBuffer content) {
+        requireNonNull(content, "content");
+        if (asciiCompatible && isAscii(content)) {
+            return toString(content, StandardCharsets.ISO_8859_1);
+        }
+        if (asciiCompatible) {
+            // String constructor decodes these charsets without an intermediate char buffer
+            return toString(content, charset);
+        }
+        return charset.decode(content.duplicate()).toString();
+    }
+
+    private static String toString(final ByteBuffer content, final Charset charset) {
+        if (content.hasArray()) {
+            return new String(content.array(), content.arrayOffset() + content.position(), content.remaining(), charset);
+        }
+        final byte[] bytes = new byte[content.remaining()];
+        content.duplicate().get(bytes);
+        return new String(bytes, charset);
+    }
+}
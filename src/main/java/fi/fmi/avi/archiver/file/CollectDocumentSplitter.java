@@ -0,0 +1,209 @@
+package fi.fmi.avi.archiver.file;
+
+import javax.annotation.Nullable;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.EndElement;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Splits a WMO COLLECT 1.2 document into single-member COLLECT documents while streaming through the document with StAX.
+ *
+ * <p>
+ * Each fragment consists of the original root element with its namespace declarations and attributes, a single {@code meteorologicalInformation} member,
+ * and the other child elements of the root, such as {@code bulletinIdentifier}. Thus each fragment is a valid COLLECT document on its own, and memory
+ * required to process a fragment is proportional to a single member rather than the whole document. As {@code bulletinIdentifier} follows the members,
+ * the document is streamed through twice: first to collect child elements other than members, and then to split the members.
+ * </p>
+ *
+ * <p>
+ * Instances are not thread-safe.
+ * </p>
+ */
+final class CollectDocumentSplitter implements AutoCloseable {
+    static final String COLLECT_1_2_NAMESPACE = "http://def.wmo.int/collect/2014";
+    static final String BULLETIN_ELEMENT_NAME = "MeteorologicalBulletin";
+    private static final QName MEMBER_ELEMENT = new QName(COLLECT_1_2_NAMESPACE, "meteorologicalInformation");
+
+    private static final XMLInputFactory INPUT_FACTORY = newInputFactory();
+    private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newFactory();
+    private static final XMLEventFactory EVENT_FACTORY = XMLEventFactory.newFactory();
+
+    private final XMLEventReader reader;
+    private final StartElement root;
+    private final EndElement rootEnd;
+    private final List<XMLEvent> otherChildren;
+
+    /**
+     * Start splitting the provided COLLECT document.
+     *
+     * @param content COLLECT document
+     * @throws XMLStreamException if the content is not well-formed XML, or the root element is not a COLLECT 1.2 bulletin
+     */
+    CollectDocumentSplitter(final String content) throws XMLStreamException {
+        requireNonNull(content, "content");
+        this.otherChildren = readOtherChildren(content);
+        this.reader = INPUT_FACTORY.createXMLEventReader(new StringReader(content));
+        try {
+            this.root = requireCollectRoot(reader);
+            this.rootEnd = EVENT_FACTORY.createEndElement(root.getName(), root.getNamespaces());
+        } catch (final XMLStreamException | RuntimeException e) {
+            reader.close();
+            throw e;
+        }
+    }
+
+    private static StartElement requireCollectRoot(final XMLEventReader reader) throws XMLStreamException {
+        @Nullable final StartElement root = nextStartElement(reader);
+        if (root == null || !isCollectBulletin(root.getName())) {
+            throw new XMLStreamException("Not a COLLECT 1.2 bulletin: " + (root == null ? "no root element" : root.getName()));
+        }
+        return root;
+    }
+
+    private static List<XMLEvent> readOtherChildren(final String content) throws XMLStreamException {
+        final XMLEventReader reader = INPUT_FACTORY.createXMLEventReader(new StringReader(content));
+        try {
+            requireCollectRoot(reader);
+            final List<XMLEvent> otherChildren = new ArrayList<>();
+            while (reader.hasNext()) {
+                final XMLEvent event = reader.nextEvent();
+                if (isMemberStart(event)) {
+                    skipElement(reader, null);
+                } else if (event.isStartElement()) {
+                    otherChildren.add(event);
+                    skipElement(reader, otherChildren);
+                } else if (event.isEndElement() || event.isEndDocument()) {
+                    // End of root element
+                    break;
+                }
+            }
+            return otherChildren;
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static void skipElement(final XMLEventReader reader, @Nullable final List<XMLEvent> skippedEvents) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            final XMLEvent event = reader.nextEvent();
+            if (event.isStartElement()) {
+                depth++;
+            } else if (event.isEndElement()) {
+                depth--;
+            }
+            if (skippedEvents != null) {
+                skippedEvents.add(event);
+            }
+        }
+    }
+
+    private static XMLInputFactory newInputFactory() {
+        final XMLInputFactory inputFactory = XMLInputFactory.newFactory();
+        inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        inputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        return inputFactory;
+    }
+
+    private static boolean isCollectBulletin(final QName name) {
+        return COLLECT_1_2_NAMESPACE.equals(name.getNamespaceURI()) && BULLETIN_ELEMENT_NAME.equals(name.getLocalPart());
+    }
+
+    private static boolean isMemberStart(final XMLEvent event) {
+        return event.isStartElement() && MEMBER_ELEMENT.equals(event.asStartElement().getName());
+    }
+
+    @Nullable
+    private static StartElement nextStartElement(final XMLEventReader reader) throws XMLStreamException {
+        while (reader.hasNext()) {
+            final XMLEvent event = reader.nextEvent();
+            if (event.isStartElement()) {
+                return event.asStartElement();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Return whether the root element of the provided XML document is a COLLECT 1.2 bulletin. Only the beginning of the document up to the root element
+     * is read.
+     *
+     * @param content XML document
+     * @return {@code true} if the document is a COLLECT 1.2 bulletin, otherwise {@code false}
+     * @throws XMLStreamException if the content is not well-formed XML up to the root element
+     */
+    static boolean isCollectDocument(final String content) throws XMLStreamException {
+        requireNonNull(content, "content");
+        final XMLEventReader reader = INPUT_FACTORY.createXMLEventReader(new StringReader(content));
+        try {
+            @Nullable final StartElement root = nextStartElement(reader);
+            return root != null && isCollectBulletin(root.getName());
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Return the next single-member COLLECT document, or empty if all members have been read.
+     *
+     * @return next single-member COLLECT document, or empty
+     * @throws XMLStreamException if the content is not well-formed XML
+     */
+    Optional<String> nextFragment() throws XMLStreamException {
+        while (reader.hasNext()) {
+            final XMLEvent event = reader.nextEvent();
+            if (isMemberStart(event)) {
+                return Optional.of(writeFragment(event));
+            } else if (event.isStartElement()) {
+                skipElement(reader, null);
+            } else if (event.isEndElement() || event.isEndDocument()) {
+                // End of root element
+                return Optional.empty();
+            }
+        }
+        return Optional.empty();
+    }
+
+    private String writeFragment(final XMLEvent memberStart) throws XMLStreamException {
+        final StringWriter fragment = new StringWriter();
+        final XMLEventWriter writer = OUTPUT_FACTORY.createXMLEventWriter(fragment);
+        writer.add(root);
+        writer.add(memberStart);
+        int depth = 1;
+        while (depth > 0) {
+            final XMLEvent event = reader.nextEvent();
+            if (event.isStartElement()) {
+                depth++;
+            } else if (event.isEndElement()) {
+                depth--;
+            }
+            writer.add(event);
+        }
+        for (final XMLEvent event : otherChildren) {
+            writer.add(event);
+        }
+        writer.add(rootEnd);
+        writer.close();
+        return fragment.toString();
+    }
+
+    @Override
+    public void close() throws XMLStreamException {
+        reader.close();
+    }
+}
@@ -0,0 +1,124 @@
+package fi.fmi.avi.archiver.file;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+import javax.annotation.Nullable;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A pool of reusable {@link DocumentBuilder} instances created by a shared {@link DocumentBuilderFactory}.
+ *
+ * <p>
+ * Creating a document builder, especially with secure processing enabled, is costly compared to parsing a small document. This pool lends an idle
+ * builder for each parse, creating a new one when none is idle, and {@link DocumentBuilder#reset() resets} it for reuse afterwards. Builders are not
+ * bound to threads, thus builders are reused also when each parse runs on a virtual thread of its own. At most {@code maxIdle} builders are retained
+ * while idle; builders returned beyond that are discarded.
+ * </p>
+ *
+ * <p>
+ * The pool reports metrics {@code archiver.parser.documentbuilder.created}, {@code archiver.parser.documentbuilder.reused},
+ * {@code archiver.parser.documentbuilder.discarded} and {@code archiver.parser.documentbuilder.idle}.
+ * </p>
+ */
+public final class DocumentBuilderPool {
+    private final DocumentBuilderFactory documentBuilderFactory;
+    private final BlockingQueue<DocumentBuilder> idleBuilders;
+    private final Counter created;
+    private final Counter reused;
+    private final Counter discarded;
+
+    /**
+     * Construct a new pool.
+     *
+     * @param documentBuilderFactory factory of document builders, which must not be modified afterwards
+     * @param maxIdle                maximum number of idle builders to retain
+     * @param meterRegistry          meter registry
+     */
+    public DocumentBuilderPool(final DocumentBuilderFactory documentBuilderFactory, final int maxIdle, final MeterRegistry meterRegistry) {
+        this.documentBuilderFactory = requireNonNull(documentBuilderFactory, "documentBuilderFactory");
+        requireNonNull(meterRegistry, "meterRegistry");
+        checkArgument(maxIdle > 0, "maxIdle must be positive; was: %s", maxIdle);
+        this.idleBuilders = new ArrayBlockingQueue<>(maxIdle);
+        this.created = Counter.builder("archiver.parser.documentbuilder.created")//
+                .description("Number of XML document builders created")//
+                .register(meterRegistry);
+        this.reused = Counter.builder("archiver.parser.documentbuilder.reused")//
+                .description("Number of XML document parses on a reused document builder")//
+                .register(meterRegistry);
+        this.discarded = Counter.builder("archiver.parser.documentbuilder.discarded")//
+                .description("Number of XML document builders discarded after use")//
+                .register(meterRegistry);
+        Gauge.builder("archiver.parser.documentbuilder.idle", idleBuilders, BlockingQueue::size)//
+                .description("Number of idle XML document builders in the pool")//
+                .register(meterRegistry);
+    }
+
+    /**
+     * Parse the provided {@code inputSource} into a document on a pooled document builder.
+     *
+     * @param inputSource input to parse
+     * @return parsed document
+     * @throws IOException                  on input error
+     * @throws SAXException                 on parse error
+     * @throws ParserConfigurationException if a document builder cannot be created
+     */
+    public Document parse(final InputSource inputSource) throws IOException, SAXException, ParserConfigurationException {
+        requireNonNull(inputSource, "inputSource");
+        final DocumentBuilder documentBuilder = borrow();
+        try {
+            return documentBuilder.parse(inputSource);
+        } finally {
+            release(documentBuilder);
+        }
+    }
+
+    private DocumentBuilder borrow() throws ParserConfigurationException {
+        @Nullable final DocumentBuilder idleBuilder = idleBuilders.poll();
+        if (idleBuilder != null) {
+            reused.increment();
+            return idleBuilder;
+        }
+        final DocumentBuilder newBuilder;
+        // DocumentBuilderFactory is not guaranteed to be thread-safe
+        synchronized (documentBuilderFactory) {
+            newBuilder = documentBuilderFactory.newDocumentBuilder();
+        }
+        created.increment();
+        return newBuilder;
+    }
+
+    private void release(final DocumentBuilder documentBuilder) {
+        try {
+            documentBuilder.reset();
+        } catch (final RuntimeException e) {
+            // Not resettable; do not reuse
+            discarded.increment();
+            return;
+        }
+        if (!idleBuilders.offer(documentBuilder)) {
+            discarded.increment();
+        }
+    }
+
+    /**
+     * Return the number of idle document builders in the pool.
+     *
+     * @return number of idle document builders
+     */
+    public int getIdleCount() {
+        return idleBuilders.size();
+    }
+}
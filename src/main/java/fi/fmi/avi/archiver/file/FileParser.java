@@ -1,5 +1,6 @@
 package fi.fmi.avi.archiver.file;
 
+import fi.fmi.avi.archiver.DefaultProcessingServiceContext;
 import fi.fmi.avi.archiver.ProcessingServiceContext;
 import fi.fmi.avi.archiver.logging.model.BulletinLogReference;
 import fi.fmi.avi.archiver.logging.model.FileProcessingStatistics;
@@ -7,6 +8,7 @@ import fi.fmi.avi.archiver.logging.model.LoggingContext;
 import fi.fmi.avi.archiver.logging.model.MessageLogReference;
 import fi.fmi.avi.archiver.message.MessagePositionInFile;
 import fi.fmi.avi.converter.AviMessageConverter;
+import fi.fmi.avi.converter.ConversionIssue;
 import fi.fmi.avi.converter.ConversionHints;
 import fi.fmi.avi.converter.ConversionResult;
 import fi.fmi.avi.converter.iwxxm.conf.IWXXMConverter;
@@ -18,48 +20,101 @@ import fi.fmi.avi.util.BulletinHeadingDecoder;
 import fi.fmi.avi.util.GTSDataExchangeTranscoder;
 import fi.fmi.avi.util.GTSDataParseException;
 import fi.fmi.avi.util.GTSMeteorologicalMessage;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 
+import javax.annotation.Nullable;
 import javax.xml.XMLConstants;
-import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
 import java.io.IOException;
 import java.io.StringReader;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static java.util.Objects.requireNonNull;
 
 /**
  * Parses raw aviation message file content into structured {@link InputAviationMessage} instances.
+ *
+ * <p>
+ * Bulletins within a file are parsed sequentially by default. When constructed with bulletin parallelism greater than one, bulletins of a file having
+ * multiple bulletins are parsed concurrently on a fork-join pool of the given parallelism. Parsed messages are returned in order of
+ * {@link MessagePositionInFile} regardless, and the logging context state of each bulletin is applied on the file logging context in bulletin order.
+ * </p>
+ *
+ * <p>
+ * IWXXM COLLECT documents at least of the configured length are parsed one {@code meteorologicalInformation} member at a time, splitting the document
+ * with {@link CollectDocumentSplitter} instead of building a DOM of the whole document.
+ * </p>
+ *
+ * <p>
+ * TAC content is converted as a bulletin or a single message as predicted by {@link TacContentClassifier}, attempting the other structure only if
+ * conversion as the predicted structure fails.
+ * </p>
  */
-public class FileParser {
+public class FileParser implements AutoCloseable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(FileParser.class);
 
-    private static final String COLLECT_1_2_NAMESPACE = "http://def.wmo.int/collect/2014";
-    private static final String BULLETIN_ELEMENT_NAME = "MeteorologicalBulletin";
     private static final ConversionHints CONVERSION_HINTS = ConversionHints.ALLOW_ERRORS;
     private static final MessageType UNKNOWN_MESSAGE_TYPE = new MessageType("UNKNOWN");
+    private static final int DEFAULT_DOCUMENT_BUILDER_POOL_SIZE = 16;
 
     private final AviMessageConverter aviMessageConverter;
-    private final DocumentBuilderFactory documentBuilderFactory;
+    private final DocumentBuilderPool documentBuilderPool;
+    private final long collectStreamingMinLength;
+    private final TacContentClassifier tacContentClassifier;
+    @Nullable
+    private final ForkJoinPool bulletinParsingPool;
 
     public FileParser(final AviMessageConverter aviMessageConverter) {
+        this(aviMessageConverter, 1, DEFAULT_DOCUMENT_BUILDER_POOL_SIZE, Long.MAX_VALUE, new SimpleMeterRegistry());
+    }
+
+    /**
+     * Construct a new file parser.
+     *
+     * @param aviMessageConverter       converter of aviation messages
+     * @param bulletinParallelism       maximum number of bulletins of a file to parse concurrently, {@code 1} to parse sequentially
+     * @param documentBuilderPoolSize   maximum number of idle XML document builders retained for reuse
+     * @param collectStreamingMinLength minimum length of IWXXM COLLECT documents to parse one member at a time while streaming through the document,
+     *                                  {@link Long#MAX_VALUE} to always parse the whole document at once
+     * @param meterRegistry             meter registry
+     */
+    public FileParser(final AviMessageConverter aviMessageConverter, final int bulletinParallelism, final int documentBuilderPoolSize,
+                      final long collectStreamingMinLength, final MeterRegistry meterRegistry) {
         this.aviMessageConverter = requireNonNull(aviMessageConverter, "aviMessageConverter");
+        requireNonNull(meterRegistry, "meterRegistry");
+        checkArgument(bulletinParallelism > 0, "bulletinParallelism must be positive; was: %s", bulletinParallelism);
+        checkArgument(documentBuilderPoolSize > 0, "documentBuilderPoolSize must be positive; was: %s", documentBuilderPoolSize);
+        checkArgument(collectStreamingMinLength >= 0, "collectStreamingMinLength must not be negative; was: %s", collectStreamingMinLength);
+        this.collectStreamingMinLength = collectStreamingMinLength;
+        this.tacContentClassifier = new TacContentClassifier(meterRegistry);
         try {
             final DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
             documentBuilderFactory.setNamespaceAware(true);
             documentBuilderFactory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
-            this.documentBuilderFactory = documentBuilderFactory;
+            this.documentBuilderPool = new DocumentBuilderPool(documentBuilderFactory, documentBuilderPoolSize, meterRegistry);
         } catch (final ParserConfigurationException e) {
             throw new IllegalStateException("Unable to initialize file parser", e);
         }
+        this.bulletinParsingPool = bulletinParallelism > 1 ? new ForkJoinPool(bulletinParallelism, pool -> {
+            final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("Bulletin-Parser-" + thread.getPoolIndex());
+            return thread;
+        }, null, false) : null;
     }
 
     private static List<InputAviationMessage> error(final ProcessingServiceContext context) {
@@ -69,7 +124,8 @@ public class FileParser {
 
     private static boolean usesCollectSchema(final Document document) {
         final Element root = document.getDocumentElement();
-        return root.getNamespaceURI().equals(COLLECT_1_2_NAMESPACE) && root.getLocalName().equals(BULLETIN_ELEMENT_NAME);
+        return root.getNamespaceURI().equals(CollectDocumentSplitter.COLLECT_1_2_NAMESPACE)
+                && root.getLocalName().equals(CollectDocumentSplitter.BULLETIN_ELEMENT_NAME);
     }
 
     private static Optional<InputBulletinHeading> parseGtsHeading(final String headingString) {
@@ -125,21 +181,12 @@ public class FileParser {
             final InputAviationMessage.Builder inputMessageTemplate = InputAviationMessage.builder()//
                     .setFileMetadata(fileMetadata);
             if (bulletinParseSuccess) {
-                for (int bulletinIndex = 0, size = parseResults.size(); bulletinIndex < size; bulletinIndex++) {
-                    final GTSDataExchangeTranscoder.ParseResult result = parseResults.get(bulletinIndex);
-                    loggingContext.enterBulletin(BulletinLogReference.builder()//
-                            .setIndex(bulletinIndex)//
-                            .setHeading(result.getMessage().map(GTSMeteorologicalMessage::getHeading))//
-                            .setCharIndex(result.getStartIndex())//
-                            .build());
-                    if (result.getError().isPresent()) {
-                        context.signalProcessingErrors();
-                        final GTSDataParseException error = result.getError().get();
-                        LOGGER.error("Error parsing GTS envelope <{}>: {}", loggingContext, error.getMessage());
-                        loggingContext.recordProcessingResult(FileProcessingStatistics.ProcessingResult.FAILED);
-                    } else if (result.getMessage().isPresent()) {
-                        final GTSMeteorologicalMessage gtsMessage = result.getMessage().get();
-                        resultBuilder.addAll(parseContent(fileContent, gtsMessage, fileFormat, inputMessageTemplate, bulletinIndex, context));
+                if (bulletinParsingPool != null && parseResults.size() > 1) {
+                    resultBuilder.addAll(parseBulletinsInParallel(bulletinParsingPool, fileContent, parseResults, fileFormat, inputMessageTemplate, context));
+                } else {
+                    for (int bulletinIndex = 0, size = parseResults.size(); bulletinIndex < size; bulletinIndex++) {
+                        resultBuilder.addAll(parseGtsParseResult(fileContent, parseResults.get(bulletinIndex), fileFormat, inputMessageTemplate, bulletinIndex,
+                                context));
                     }
                 }
             } else {
@@ -170,6 +217,78 @@ public class FileParser {
         }
     }
 
+    private List<InputAviationMessage> parseBulletinsInParallel(
+            final ForkJoinPool pool, final String fileContent, final List<GTSDataExchangeTranscoder.ParseResult> parseResults,
+            final GenericAviationWeatherMessage.Format fileFormat, final InputAviationMessage.Builder inputMessageTemplate,
+            final ProcessingServiceContext context) {
+        final LoggingContext loggingContext = context.getLoggingContext();
+        @Nullable
+        final FileReference file = loggingContext.getFile().orElse(null);
+        @Nullable
+        final Map<String, String> mdcContext = MDC.getCopyOfContextMap();
+        final List<ForkJoinTask<BulletinParseResult>> tasks = new ArrayList<>(parseResults.size());
+        for (int bulletinIndex = 0, size = parseResults.size(); bulletinIndex < size; bulletinIndex++) {
+            final GTSDataExchangeTranscoder.ParseResult parseResult = parseResults.get(bulletinIndex);
+            final int index = bulletinIndex;
+            tasks.add(pool.submit(() -> {
+                // The task may be executed by the joining thread
+                @Nullable
+                final Map<String, String> previousMdcContext = MDC.getCopyOfContextMap();
+                if (mdcContext != null) {
+                    MDC.setContextMap(mdcContext);
+                }
+                try {
+                    // Each bulletin records its logging state separately, to be replayed on the file logging context in bulletin order
+                    final RecordingLoggingContext bulletinLoggingContext = new RecordingLoggingContext(file);
+                    final ProcessingServiceContext bulletinContext = new DefaultProcessingServiceContext(bulletinLoggingContext);
+                    final List<InputAviationMessage> messages = parseGtsParseResult(fileContent, parseResult, fileFormat, inputMessageTemplate, index,
+                            bulletinContext);
+                    return new BulletinParseResult(messages, bulletinLoggingContext, bulletinContext.isProcessingErrors());
+                } finally {
+                    if (previousMdcContext == null) {
+                        MDC.clear();
+                    } else {
+                        MDC.setContextMap(previousMdcContext);
+                    }
+                }
+            }));
+        }
+        final ArrayList<InputAviationMessage> resultBuilder = new ArrayList<>();
+        for (final ForkJoinTask<BulletinParseResult> task : tasks) {
+            final BulletinParseResult result = task.join();
+            result.loggingContext().replayTo(loggingContext);
+            if (result.processingErrors()) {
+                context.signalProcessingErrors();
+            }
+            resultBuilder.addAll(result.messages());
+        }
+        return resultBuilder;
+    }
+
+    private List<InputAviationMessage> parseGtsParseResult(
+            final String fileContent, final GTSDataExchangeTranscoder.ParseResult result,
+            final GenericAviationWeatherMessage.Format fileFormat, final InputAviationMessage.Builder inputMessageTemplate,
+            final int bulletinIndex, final ProcessingServiceContext context) {
+        final LoggingContext loggingContext = context.getLoggingContext();
+        loggingContext.enterBulletin(BulletinLogReference.builder()//
+                .setIndex(bulletinIndex)//
+                .setHeading(result.getMessage().map(GTSMeteorologicalMessage::getHeading))//
+                .setCharIndex(result.getStartIndex())//
+                .build());
+        if (result.getError().isPresent()) {
+            context.signalProcessingErrors();
+            final GTSDataParseException error = result.getError().get();
+            LOGGER.error("Error parsing GTS envelope <{}>: {}", loggingContext, error.getMessage());
+            loggingContext.recordProcessingResult(FileProcessingStatistics.ProcessingResult.FAILED);
+            return Collections.emptyList();
+        } else if (result.getMessage().isPresent()) {
+            final GTSMeteorologicalMessage gtsMessage = result.getMessage().get();
+            return parseContent(fileContent, gtsMessage, fileFormat, inputMessageTemplate, bulletinIndex, context);
+        } else {
+            return Collections.emptyList();
+        }
+    }
+
     private List<InputAviationMessage> parseContent(
             final String fileContent, final GTSMeteorologicalMessage gtsMessage,
             final GenericAviationWeatherMessage.Format fileFormat, final InputAviationMessage.Builder inputMessageTemplate,
@@ -214,13 +333,16 @@ public class FileParser {
             return parseTac(inputBuilder, bulletinContent, bulletinIndex, context);
         } else {
             try {
+                if (bulletinContent.length() >= collectStreamingMinLength && CollectDocumentSplitter.isCollectDocument(bulletinContent)) {
+                    return parseIwxxmCollectDocumentStreaming(inputBuilder, bulletinContent, bulletinIndex, context);
+                }
                 final Document iwxxmDocument = toDocument(bulletinContent);
                 if (usesCollectSchema(iwxxmDocument)) {
                     return parseIwxxmCollectDocument(inputBuilder, iwxxmDocument, bulletinIndex, context);
                 } else {
                     return parseIwxxmMessage(inputBuilder, iwxxmDocument, bulletinIndex, context);
                 }
-            } catch (final IOException | SAXException | ParserConfigurationException e) {
+            } catch (final IOException | SAXException | ParserConfigurationException | XMLStreamException e) {
                 final LoggingContext loggingContext = context.getLoggingContext();
                 LOGGER.error("Unable to parse bulletin <{}> as IWXXM document: {}", loggingContext, String.valueOf(e));
                 loggingContext.recordProcessingResult(FileProcessingStatistics.ProcessingResult.FAILED);
@@ -233,35 +355,81 @@ public class FileParser {
             final InputAviationMessage.Builder inputBuilder, final String bulletinContent, final int bulletinIndex,
             final ProcessingServiceContext context) {
         final LoggingContext loggingContext = context.getLoggingContext();
-        final ConversionResult<GenericMeteorologicalBulletin> bulletinConversion = aviMessageConverter.convertMessage(bulletinContent,
-                TACConverter.TAC_TO_GENERIC_BULLETIN_POJO, CONVERSION_HINTS);
-        if (bulletinConversion.getConvertedMessage().isPresent()) {
-            final List<GenericAviationWeatherMessage> parsedMessages = bulletinConversion.getConvertedMessage().get().getMessages();
-            if (bulletinConversion.getConversionIssues().isEmpty()) {
-                LOGGER.debug("Successfully parsed <{}> as TAC bulletin with {} messages.", loggingContext, parsedMessages.size());
-            } else {
-                LOGGER.warn("Issues while parsing TAC bulletin <{}>: {}", loggingContext, bulletinConversion.getConversionIssues());
+        // Convert once as the predicted structure, falling back to the other structure only if the prediction fails
+        final TacContentClassifier.Classification classification = tacContentClassifier.classify(bulletinContent);
+        if (classification.bulletin()) {
+            final ConversionResult<GenericMeteorologicalBulletin> bulletinConversion = convertTacBulletin(bulletinContent);
+            tacContentClassifier.recordStructure(classification, bulletinConversion.getConvertedMessage().isPresent());
+            if (bulletinConversion.getConvertedMessage().isPresent()) {
+                return toTacBulletinMessages(inputBuilder, bulletinConversion, classification, bulletinIndex, loggingContext);
+            }
+            final ConversionResult<GenericAviationWeatherMessage> messageConversion = convertTacMessage(bulletinContent);
+            if (messageConversion.getConvertedMessage().isPresent()) {
+                return toTacMessage(inputBuilder, messageConversion, classification, bulletinIndex, loggingContext);
             }
-            return toInputAviationMessages(inputBuilder, parsedMessages, bulletinIndex, loggingContext);
+            return tacError(messageConversion, context);
         } else {
-            final ConversionResult<GenericAviationWeatherMessage> messageConversion = aviMessageConverter.convertMessage(bulletinContent,
-                    TACConverter.TAC_TO_GENERIC_AVIATION_WEATHER_MESSAGE_POJO, CONVERSION_HINTS);
+            final ConversionResult<GenericAviationWeatherMessage> messageConversion = convertTacMessage(bulletinContent);
+            tacContentClassifier.recordStructure(classification, messageConversion.getConvertedMessage().isPresent());
             if (messageConversion.getConvertedMessage().isPresent()) {
-                final GenericAviationWeatherMessage message = messageConversion.getConvertedMessage().get();
-                if (messageConversion.getConversionIssues().isEmpty()) {
-                    LOGGER.debug("Successfully parsed <{}> as TAC {} message.", loggingContext, message.getMessageType().orElse(UNKNOWN_MESSAGE_TYPE));
-                } else {
-                    LOGGER.warn("Issues while parsing single TAC message <{}>: {}", loggingContext, messageConversion.getConversionIssues());
-                }
-                return toInputAviationMessages(inputBuilder, Collections.singletonList(message), bulletinIndex, loggingContext);
-            } else {
-                LOGGER.error("Unable to parse TAC content <{}>: {}", loggingContext, messageConversion.getConversionIssues());
-                loggingContext.recordProcessingResult(FileProcessingStatistics.ProcessingResult.FAILED);
-                return error(context);
+                return toTacMessage(inputBuilder, messageConversion, classification, bulletinIndex, loggingContext);
+            }
+            final ConversionResult<GenericMeteorologicalBulletin> bulletinConversion = convertTacBulletin(bulletinContent);
+            if (bulletinConversion.getConvertedMessage().isPresent()) {
+                return toTacBulletinMessages(inputBuilder, bulletinConversion, classification, bulletinIndex, loggingContext);
             }
+            return tacError(messageConversion, context);
         }
     }
 
+    private ConversionResult<GenericMeteorologicalBulletin> convertTacBulletin(final String bulletinContent) {
+        return aviMessageConverter.convertMessage(bulletinContent, TACConverter.TAC_TO_GENERIC_BULLETIN_POJO, CONVERSION_HINTS);
+    }
+
+    private ConversionResult<GenericAviationWeatherMessage> convertTacMessage(final String bulletinContent) {
+        return aviMessageConverter.convertMessage(bulletinContent, TACConverter.TAC_TO_GENERIC_AVIATION_WEATHER_MESSAGE_POJO, CONVERSION_HINTS);
+    }
+
+    private List<InputAviationMessage> toTacBulletinMessages(
+            final InputAviationMessage.Builder inputBuilder, final ConversionResult<GenericMeteorologicalBulletin> bulletinConversion,
+            final TacContentClassifier.Classification classification, final int bulletinIndex, final LoggingContext loggingContext) {
+        final List<GenericAviationWeatherMessage> parsedMessages = bulletinConversion.getConvertedMessage()
+                .map(GenericMeteorologicalBulletin::getMessages)
+                .orElse(Collections.emptyList());
+        tacContentClassifier.recordType(classification, parsedMessages);
+        if (bulletinConversion.getConversionIssues().isEmpty()) {
+            LOGGER.debug("Successfully parsed <{}> as TAC bulletin with {} messages.", loggingContext, parsedMessages.size());
+        } else {
+            LOGGER.warn("Issues while parsing TAC bulletin <{}>: {}", loggingContext, bulletinConversion.getConversionIssues());
+        }
+        return toInputAviationMessages(inputBuilder, parsedMessages, bulletinIndex, loggingContext);
+    }
+
+    private List<InputAviationMessage> toTacMessage(
+            final InputAviationMessage.Builder inputBuilder, final ConversionResult<GenericAviationWeatherMessage> messageConversion,
+            final TacContentClassifier.Classification classification, final int bulletinIndex, final LoggingContext loggingContext) {
+        final List<GenericAviationWeatherMessage> parsedMessages = messageConversion.getConvertedMessage()
+                .map(Collections::singletonList)
+                .orElse(Collections.emptyList());
+        tacContentClassifier.recordType(classification, parsedMessages);
+        if (messageConversion.getConversionIssues().isEmpty()) {
+            LOGGER.debug("Successfully parsed <{}> as TAC {} message.", loggingContext, parsedMessages.isEmpty()
+                    ? UNKNOWN_MESSAGE_TYPE
+                    : parsedMessages.get(0).getMessageType().orElse(UNKNOWN_MESSAGE_TYPE));
+        } else {
+            LOGGER.warn("Issues while parsing single TAC message <{}>: {}", loggingContext, messageConversion.getConversionIssues());
+        }
+        return toInputAviationMessages(inputBuilder, parsedMessages, bulletinIndex, loggingContext);
+    }
+
+    private static List<InputAviationMessage> tacError(final ConversionResult<GenericAviationWeatherMessage> messageConversion,
+                                                       final ProcessingServiceContext context) {
+        final LoggingContext loggingContext = context.getLoggingContext();
+        LOGGER.error("Unable to parse TAC content <{}>: {}", loggingContext, messageConversion.getConversionIssues());
+        loggingContext.recordProcessingResult(FileProcessingStatistics.ProcessingResult.FAILED);
+        return error(context);
+    }
+
     private List<InputAviationMessage> parseIwxxmCollectDocument(
             final InputAviationMessage.Builder inputBuilder,
             final Document iwxxmDocument,
@@ -273,24 +441,7 @@ public class FileParser {
         final LoggingContext loggingContext = context.getLoggingContext();
         if (conversion.getConvertedMessage().isPresent()) {
             final GenericMeteorologicalBulletin bulletin = conversion.getConvertedMessage().get();
-            final List<GenericAviationWeatherMessage> parsedMessages = bulletin.getMessages();
-            if (conversion.getConversionIssues().isEmpty()) {
-                LOGGER.debug("Successfully parsed <{}> as IWXXM collect document with {} messages.", loggingContext, parsedMessages.size());
-            } else {
-                LOGGER.warn("Issues while parsing IWXXM collect document <{}>: {}", loggingContext, conversion.getConversionIssues());
-            }
-            final Optional<String> collectIdentifier = bulletin.getCollectIdentifier();
-            if (collectIdentifier.isEmpty()) {
-                LOGGER.warn("IWXXM collect document <{}> is missing bulletinIdentifier.", loggingContext);
-            } else if (inputBuilder.getGtsBulletinHeadingBuilder().getBulletinHeadingString().isEmpty()) {
-                loggingContext.modifyBulletin(reference -> reference.toBuilder().setHeading(collectIdentifier).build());
-            }
-
-            inputBuilder.setCollectIdentifier(InputBulletinHeading.builder()
-                    .setBulletinHeading(bulletin.getHeading())
-                    .setBulletinHeadingString(collectIdentifier)
-                    .build());
-            return toInputAviationMessages(inputBuilder, parsedMessages, bulletinIndex, loggingContext);
+            return toCollectInputAviationMessages(inputBuilder, bulletin, bulletin.getMessages(), conversion.getConversionIssues(), bulletinIndex, loggingContext);
         } else {
             LOGGER.error("Unable to parse IWXXM collect document <{}>: {}", loggingContext, conversion.getConversionIssues());
             loggingContext.recordProcessingResult(FileProcessingStatistics.ProcessingResult.FAILED);
@@ -298,6 +449,72 @@ public class FileParser {
         }
     }
 
+    /**
+     * Parse a COLLECT document one member at a time, holding the DOM of a single member in memory instead of the whole document.
+     */
+    private List<InputAviationMessage> parseIwxxmCollectDocumentStreaming(
+            final InputAviationMessage.Builder inputBuilder,
+            final String collectDocument,
+            final int bulletinIndex,
+            final ProcessingServiceContext context) throws IOException, SAXException, ParserConfigurationException, XMLStreamException {
+        final LoggingContext loggingContext = context.getLoggingContext();
+        @Nullable
+        GenericMeteorologicalBulletin firstMemberBulletin = null;
+        final List<GenericAviationWeatherMessage> parsedMessages = new ArrayList<>();
+        final List<ConversionIssue> conversionIssues = new ArrayList<>();
+        try (CollectDocumentSplitter splitter = new CollectDocumentSplitter(collectDocument)) {
+            Optional<String> memberDocument;
+            while ((memberDocument = splitter.nextFragment()).isPresent()) {
+                final ConversionResult<GenericMeteorologicalBulletin> conversion =
+                        aviMessageConverter.convertMessage(toDocument(memberDocument.get()),
+                                IWXXMConverter.WMO_COLLECT_DOM_TO_GENERIC_BULLETIN_POJO, CONVERSION_HINTS);
+                if (conversion.getConvertedMessage().isEmpty()) {
+                    LOGGER.error("Unable to parse IWXXM collect document <{}> member {}: {}", loggingContext, parsedMessages.size(),
+                            conversion.getConversionIssues());
+                    loggingContext.recordProcessingResult(FileProcessingStatistics.ProcessingResult.FAILED);
+                    return error(context);
+                }
+                final GenericMeteorologicalBulletin memberBulletin = conversion.getConvertedMessage().get();
+                if (firstMemberBulletin == null) {
+                    firstMemberBulletin = memberBulletin;
+                }
+                parsedMessages.addAll(memberBulletin.getMessages());
+                conversionIssues.addAll(conversion.getConversionIssues());
+            }
+        }
+        if (firstMemberBulletin == null) {
+            // No members; the document is small
+            return parseIwxxmCollectDocument(inputBuilder, toDocument(collectDocument), bulletinIndex, context);
+        }
+        return toCollectInputAviationMessages(inputBuilder, firstMemberBulletin, parsedMessages, conversionIssues, bulletinIndex, loggingContext);
+    }
+
+    private static List<InputAviationMessage> toCollectInputAviationMessages(
+            final InputAviationMessage.Builder inputBuilder,
+            final GenericMeteorologicalBulletin bulletin,
+            final List<GenericAviationWeatherMessage> parsedMessages,
+            final List<ConversionIssue> conversionIssues,
+            final int bulletinIndex,
+            final LoggingContext loggingContext) {
+        if (conversionIssues.isEmpty()) {
+            LOGGER.debug("Successfully parsed <{}> as IWXXM collect document with {} messages.", loggingContext, parsedMessages.size());
+        } else {
+            LOGGER.warn("Issues while parsing IWXXM collect document <{}>: {}", loggingContext, conversionIssues);
+        }
+        final Optional<String> collectIdentifier = bulletin.getCollectIdentifier();
+        if (collectIdentifier.isEmpty()) {
+            LOGGER.warn("IWXXM collect document <{}> is missing bulletinIdentifier.", loggingContext);
+        } else if (inputBuilder.getGtsBulletinHeadingBuilder().getBulletinHeadingString().isEmpty()) {
+            loggingContext.modifyBulletin(reference -> reference.toBuilder().setHeading(collectIdentifier).build());
+        }
+
+        inputBuilder.setCollectIdentifier(InputBulletinHeading.builder()
+                .setBulletinHeading(bulletin.getHeading())
+                .setBulletinHeadingString(collectIdentifier)
+                .build());
+        return toInputAviationMessages(inputBuilder, parsedMessages, bulletinIndex, loggingContext);
+    }
+
     private List<InputAviationMessage> parseIwxxmMessage(
             final InputAviationMessage.Builder inputBuilder,
             final Document iwxxmDocument,
@@ -323,7 +540,16 @@ public class FileParser {
     }
 
     private Document toDocument(final String documentContent) throws IOException, SAXException, ParserConfigurationException {
-        final DocumentBuilder documentBuilder = documentBuilderFactory.newDocumentBuilder();
-        return documentBuilder.parse(new InputSource(new StringReader(documentContent)));
+        return documentBuilderPool.parse(new InputSource(new StringReader(documentContent)));
+    }
+
+    @Override
+    public void close() {
+        if (bulletinParsingPool != null) {
+            bulletinParsingPool.shutdownNow();
+        }
+    }
+
+    private record BulletinParseResult(List<InputAviationMessage> messages, RecordingLoggingContext loggingContext, boolean processingErrors) {
     }
 }
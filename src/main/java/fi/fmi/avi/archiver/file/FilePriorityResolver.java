@@ -0,0 +1,105 @@
+package fi.fmi.avi.archiver.file;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.regex.Matcher;
+import java.util.stream.IntStream;
+
+import com.google.common.collect.ImmutableMap;
+
+import fi.fmi.avi.archiver.config.model.AviationProduct;
+import fi.fmi.avi.archiver.config.model.FileConfig;
+
+/**
+ * Resolves scheduling priority of input files.
+ *
+ * <p>
+ * Priority of a file is the sum of {@link AviationProduct#getPriority() product priority}, {@link FileConfig#getPriority() file configuration priority}
+ * and priority of data type designators T1T2 of the file. Data type designators are read from the named group {@value #DATA_DESIGNATORS_GROUP} of
+ * {@link FileConfig#getPattern() file name pattern}, and after parsing, from GTS bulletin headings of messages in the file. Highest priority of all
+ * designators found is applied. Designators having no configured priority have priority {@code 0}.
+ * </p>
+ */
+public class FilePriorityResolver {
+    /**
+     * Name of the file name pattern group capturing data type designators T1T2.
+     */
+    public static final String DATA_DESIGNATORS_GROUP = "T1T2";
+
+    private static final int DATA_DESIGNATORS_LENGTH = 2;
+
+    private final Map<String, AviationProduct> aviationProducts;
+    private final Map<String, Integer> dataDesignatorPriorities;
+
+    /**
+     * Construct a new resolver.
+     *
+     * @param aviationProducts         aviation products by identifier
+     * @param dataDesignatorPriorities priorities by data type designators T1T2
+     */
+    public FilePriorityResolver(final Map<String, AviationProduct> aviationProducts, final Map<String, Integer> dataDesignatorPriorities) {
+        this.aviationProducts = requireNonNull(aviationProducts, "aviationProducts");
+        this.dataDesignatorPriorities = ImmutableMap.copyOf(requireNonNull(dataDesignatorPriorities, "dataDesignatorPriorities"));
+    }
+
+    /**
+     * Resolve priority of a file based on its metadata.
+     *
+     * @param fileMetadata file metadata
+     * @return file priority
+     */
+    public int resolve(final FileMetadata fileMetadata) {
+        requireNonNull(fileMetadata, "fileMetadata");
+        return basePriority(fileMetadata) + filenameDataDesignatorPriority(fileMetadata).orElse(0);
+    }
+
+    /**
+     * Resolve priority of a parsed file based on its metadata and GTS bulletin headings of messages within.
+     *
+     * @param fileMetadata file metadata
+     * @param messages     messages parsed from the file
+     * @return file priority
+     */
+    public int resolve(final FileMetadata fileMetadata, final List<InputAviationMessage> messages) {
+        requireNonNull(fileMetadata, "fileMetadata");
+        requireNonNull(messages, "messages");
+        final IntStream headingPriorities = messages.stream()//
+                .map(message -> message.getGtsBulletinHeading().getBulletinHeadingString())//
+                .flatMap(Optional::stream)//
+                .distinct()//
+                .mapToInt(this::dataDesignatorPriority);
+        final int dataDesignatorPriority = IntStream.concat(filenameDataDesignatorPriority(fileMetadata).stream(), headingPriorities)//
+                .max()//
+                .orElse(0);
+        return basePriority(fileMetadata) + dataDesignatorPriority;
+    }
+
+    private int basePriority(final FileMetadata fileMetadata) {
+        final FileConfig fileConfig = fileMetadata.getFileConfig();
+        final AviationProduct product = aviationProducts.get(fileMetadata.getFileReference().getProductId());
+        return (product == null ? 0 : product.getPriority()) + fileConfig.getPriority();
+    }
+
+    private OptionalInt filenameDataDesignatorPriority(final FileMetadata fileMetadata) {
+        if (dataDesignatorPriorities.isEmpty()) {
+            return OptionalInt.empty();
+        }
+        final Matcher matcher = fileMetadata.getFileConfig().getPattern().matcher(fileMetadata.getFileReference().getFilename());
+        if (!matcher.matches() || !matcher.namedGroups().containsKey(DATA_DESIGNATORS_GROUP)) {
+            return OptionalInt.empty();
+        }
+        final String dataDesignators = matcher.group(DATA_DESIGNATORS_GROUP);
+        return dataDesignators == null ? OptionalInt.empty() : OptionalInt.of(dataDesignatorPriority(dataDesignators));
+    }
+
+    private int dataDesignatorPriority(final String headingOrDataDesignators) {
+        if (headingOrDataDesignators.length() < DATA_DESIGNATORS_LENGTH) {
+            return 0;
+        }
+        return dataDesignatorPriorities.getOrDefault(headingOrDataDesignators.substring(0, DATA_DESIGNATORS_LENGTH), 0);
+    }
+}
@@ -0,0 +1,97 @@
+package fi.fmi.avi.archiver.file;
+
+import fi.fmi.avi.archiver.logging.model.BulletinLogReference;
+import fi.fmi.avi.archiver.logging.model.FileProcessingStatistics;
+import fi.fmi.avi.archiver.logging.model.LoggingContext;
+import fi.fmi.avi.archiver.logging.model.LoggingContextImpl;
+import fi.fmi.avi.archiver.logging.model.MessageLogReference;
+import fi.fmi.avi.archiver.logging.model.NoOpFileProcessingStatistics;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A {@link LoggingContext} recording state changes for later {@link #replayTo(LoggingContext) replay} on another logging context.
+ *
+ * <p>
+ * This allows processing a bulletin on another thread without sharing the non-thread-safe file logging context. The current state is maintained locally,
+ * producing correct logging output while processing. Processing results are recorded only through
+ * {@link #recordProcessingResult(FileProcessingStatistics.ProcessingResult)}; {@link #getStatistics() statistics} of this context discard any results
+ * recorded on them directly.
+ * </p>
+ */
+final class RecordingLoggingContext extends LoggingContextImpl {
+    private final List<Consumer<LoggingContext>> actions = new ArrayList<>();
+    private int depth;
+
+    RecordingLoggingContext(@Nullable final FileReference file) {
+        super(NoOpFileProcessingStatistics.getInstance());
+        // Initial state is not recorded
+        depth++;
+        super.enterFile(file);
+        depth--;
+    }
+
+    private void record(final Runnable localAction, final Consumer<LoggingContext> action) {
+        // Record outermost invocations only, as nested invocations are repeated on replay
+        depth++;
+        try {
+            localAction.run();
+        } finally {
+            depth--;
+        }
+        if (depth == 0) {
+            actions.add(action);
+        }
+    }
+
+    @Override
+    public void enterFile(@Nullable final FileReference file) {
+        record(() -> super.enterFile(file), context -> context.enterFile(file));
+    }
+
+    @Override
+    public void enterBulletin(@Nullable final BulletinLogReference bulletin) {
+        record(() -> super.enterBulletin(bulletin), context -> context.enterBulletin(bulletin));
+    }
+
+    @Override
+    public void enterBulletin(final int index) {
+        record(() -> super.enterBulletin(index), context -> context.enterBulletin(index));
+    }
+
+    @Override
+    public void enterMessage(@Nullable final MessageLogReference message) {
+        record(() -> super.enterMessage(message), context -> context.enterMessage(message));
+    }
+
+    @Override
+    public void enterMessage(final int index) {
+        record(() -> super.enterMessage(index), context -> context.enterMessage(index));
+    }
+
+    @Override
+    public void initStatistics() {
+        record(super::initStatistics, LoggingContext::initStatistics);
+    }
+
+    @Override
+    public void recordProcessingResult(final FileProcessingStatistics.ProcessingResult processingResult) {
+        requireNonNull(processingResult, "processingResult");
+        record(() -> super.recordProcessingResult(processingResult), context -> context.recordProcessingResult(processingResult));
+    }
+
+    /**
+     * Apply recorded state changes on the provided {@code loggingContext} in order of invocation.
+     *
+     * @param loggingContext logging context to apply recorded state changes on
+     */
+    void replayTo(final LoggingContext loggingContext) {
+        requireNonNull(loggingContext, "loggingContext");
+        actions.forEach(action -> action.accept(loggingContext));
+    }
+}
@@ -0,0 +1,171 @@
+package fi.fmi.avi.archiver.file;
+
+import fi.fmi.avi.model.GenericAviationWeatherMessage;
+import fi.fmi.avi.model.MessageType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Lexical classifier of TAC content, predicting from leading tokens whether the content is a bulletin or a single message, and the expected message type.
+ * This allows converting TAC content once with the appropriate converter, instead of attempting bulletin conversion on every single message first.
+ *
+ * <p>
+ * Content is classified as a bulletin when its first line looks like a WMO abbreviated heading {@code TTAAii CCCC YYGGgg [BBB]}, judged by the data
+ * designators {@code TTAAii} only, to tolerate unusual spacing and suffixes of the heading. Content without a heading is classified as a bulletin as
+ * well when it contains more than one message terminator {@code =}, so that only content that is certainly a single message skips the bulletin
+ * conversion. The message type is predicted from the first message keyword, e.g. {@code METAR}, {@code TAF}, {@code SIGMET} following a location
+ * indicator, or {@code VA ADVISORY}.
+ * </p>
+ *
+ * <p>
+ * Accuracy of predictions is recorded in metrics {@code archiver.parser.tac.classification}, tagged by predicted structure ({@code bulletin} or
+ * {@code message}) and outcome ({@code correct} or {@code incorrect}), and {@code archiver.parser.tac.type.classification}, tagged by outcome
+ * ({@code correct}, {@code incorrect} or {@code unpredicted}).
+ * </p>
+ */
+final class TacContentClassifier {
+    private static final Pattern BULLETIN_HEADING_DATA_DESIGNATORS = Pattern.compile("[A-Z]{4}\\d{2}(?:\\s|$)");
+    private static final char MESSAGE_TERMINATOR = '=';
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("\\s+");
+    private static final int LEADING_TOKENS = 3;
+    private static final Map<String, MessageType> FIRST_TOKEN_TYPES = Map.of(
+            "METAR", MessageType.METAR,
+            "SPECI", MessageType.SPECI,
+            "TAF", MessageType.TAF);
+    private static final Map<String, MessageType> SECOND_TOKEN_TYPES = Map.of(
+            "SIGMET", MessageType.SIGMET,
+            "AIRMET", MessageType.AIRMET);
+    private static final Map<String, MessageType> ADVISORY_TYPES = Map.of(
+            "VA", MessageType.VOLCANIC_ASH_ADVISORY,
+            "TC", MessageType.TROPICAL_CYCLONE_ADVISORY,
+            "SWX", MessageType.SPACE_WEATHER_ADVISORY);
+    private static final String ADVISORY_TOKEN = "ADVISORY";
+
+    private final Counter bulletinCorrect;
+    private final Counter bulletinIncorrect;
+    private final Counter messageCorrect;
+    private final Counter messageIncorrect;
+    private final Counter typeCorrect;
+    private final Counter typeIncorrect;
+    private final Counter typeUnpredicted;
+
+    TacContentClassifier(final MeterRegistry meterRegistry) {
+        requireNonNull(meterRegistry, "meterRegistry");
+        this.bulletinCorrect = structureCounter(meterRegistry, "bulletin", "correct");
+        this.bulletinIncorrect = structureCounter(meterRegistry, "bulletin", "incorrect");
+        this.messageCorrect = structureCounter(meterRegistry, "message", "correct");
+        this.messageIncorrect = structureCounter(meterRegistry, "message", "incorrect");
+        this.typeCorrect = typeCounter(meterRegistry, "correct");
+        this.typeIncorrect = typeCounter(meterRegistry, "incorrect");
+        this.typeUnpredicted = typeCounter(meterRegistry, "unpredicted");
+    }
+
+    private static Counter structureCounter(final MeterRegistry meterRegistry, final String structure, final String outcome) {
+        return Counter.builder("archiver.parser.tac.classification")//
+                .description("Number of TAC contents by predicted structure and whether the prediction was correct")//
+                .tag("structure", structure)//
+                .tag("outcome", outcome)//
+                .register(meterRegistry);
+    }
+
+    private static Counter typeCounter(final MeterRegistry meterRegistry, final String outcome) {
+        return Counter.builder("archiver.parser.tac.type.classification")//
+                .description("Number of TAC contents by whether the predicted message type was correct")//
+                .tag("outcome", outcome)//
+                .register(meterRegistry);
+    }
+
+    @Nullable
+    private static MessageType predictType(final String messageLine) {
+        final List<String> tokens = TOKEN_SEPARATOR.splitAsStream(messageLine.trim())//
+                .limit(LEADING_TOKENS)//
+                .toList();
+        if (tokens.isEmpty()) {
+            return null;
+        }
+        @Nullable final MessageType firstTokenType = FIRST_TOKEN_TYPES.get(tokens.get(0));
+        if (firstTokenType != null || tokens.size() < 2) {
+            return firstTokenType;
+        }
+        if (ADVISORY_TOKEN.equals(tokens.get(1))) {
+            return ADVISORY_TYPES.get(tokens.get(0));
+        }
+        return SECOND_TOKEN_TYPES.get(tokens.get(1));
+    }
+
+    private static boolean hasMultipleMessageTerminators(final String content) {
+        final int firstTerminator = content.indexOf(MESSAGE_TERMINATOR);
+        return firstTerminator >= 0 && content.indexOf(MESSAGE_TERMINATOR, firstTerminator + 1) >= 0;
+    }
+
+    private static String line(final String content, final int start) {
+        final int end = content.indexOf('\n', start);
+        return content.substring(start, end < 0 ? content.length() : end);
+    }
+
+    /**
+     * Classify the provided TAC content.
+     *
+     * @param content trimmed TAC content
+     * @return classification
+     */
+    Classification classify(final String content) {
+        requireNonNull(content, "content");
+        final String firstLine = line(content, 0);
+        if (BULLETIN_HEADING_DATA_DESIGNATORS.matcher(firstLine).lookingAt()) {
+            final String text = content.substring(Math.min(firstLine.length() + 1, content.length())).trim();
+            return new Classification(true, predictType(line(text, 0)));
+        }
+        return new Classification(hasMultipleMessageTerminators(content), predictType(firstLine));
+    }
+
+    /**
+     * Record whether the conversion of content as predicted by the provided {@code classification} succeeded.
+     *
+     * @param classification classification of the content
+     * @param converted      {@code true} if the content was converted as the predicted structure, otherwise {@code false}
+     */
+    void recordStructure(final Classification classification, final boolean converted) {
+        requireNonNull(classification, "classification");
+        if (classification.bulletin()) {
+            (converted ? bulletinCorrect : bulletinIncorrect).increment();
+        } else {
+            (converted ? messageCorrect : messageIncorrect).increment();
+        }
+    }
+
+    /**
+     * Record whether the predicted message type of the provided {@code classification} matches the first converted message.
+     *
+     * @param classification classification of the content
+     * @param messages       converted messages
+     */
+    void recordType(final Classification classification, final List<GenericAviationWeatherMessage> messages) {
+        requireNonNull(classification, "classification");
+        requireNonNull(messages, "messages");
+        @Nullable final MessageType expectedType = classification.expectedType();
+        if (expectedType == null) {
+            typeUnpredicted.increment();
+        } else if (!messages.isEmpty() && messages.get(0).getMessageType().filter(expectedType::equals).isPresent()) {
+            typeCorrect.increment();
+        } else {
+            typeIncorrect.increment();
+        }
+    }
+
+    /**
+     * Result of classifying TAC content.
+     *
+     * @param bulletin     whether the content is predicted to be a bulletin rather than a single message
+     * @param expectedType predicted type of the (first) message, or {@code null} if unknown
+     */
+    record Classification(boolean bulletin, @Nullable MessageType expectedType) {
+    }
+}
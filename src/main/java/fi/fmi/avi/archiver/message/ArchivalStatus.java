@@ -22,6 +22,11 @@ public enum ArchivalStatus {
     /**
      * Database insertion failed due to an error.
      */
-    FAILED
+    FAILED,
+
+    /**
+     * Message was stored in the local journal while the database was unavailable, to be archived once the database is available again.
+     */
+    JOURNALED
 
 }
\ No newline at end of file
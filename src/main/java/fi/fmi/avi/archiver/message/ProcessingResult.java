@@ -40,7 +40,13 @@ public enum ProcessingResult implements StructuredLoggable {
      * {@link fi.fmi.avi.archiver.file.InputAviationMessage message}, {@link fi.fmi.avi.archiver.file.InputBulletinHeading heading} or
      * {@link fi.fmi.avi.archiver.config.model.AviationProduct product}.
      */
-    FORBIDDEN_BULLETIN_LOCATION_INDICATOR(6);
+    FORBIDDEN_BULLETIN_LOCATION_INDICATOR(6),
+    /**
+     * Message is a duplicate of a message already stored in the database.
+     *
+     * @see fi.fmi.avi.archiver.database.MessageDeduplicator
+     */
+    DUPLICATE(7);
 
     private final int code;
 
@@ -1,6 +1,6 @@
 package fi.fmi.avi.archiver.message.processor.populator;
 
-import fi.fmi.avi.archiver.database.DatabaseAccess;
+import fi.fmi.avi.archiver.database.StationIdResolver;
 import fi.fmi.avi.archiver.message.ArchiveAviationMessage;
 import fi.fmi.avi.archiver.message.ProcessingResult;
 import fi.fmi.avi.archiver.message.processor.MessageProcessorContext;
@@ -21,10 +21,10 @@ import static java.util.Objects.requireNonNull;
  */
 public class StationIdPopulator implements MessagePopulator {
 
-    private final DatabaseAccess databaseAccess;
+    private final StationIdResolver stationIdResolver;
 
-    public StationIdPopulator(final DatabaseAccess databaseAccess) {
-        this.databaseAccess = requireNonNull(databaseAccess, "databaseAccess");
+    public StationIdPopulator(final StationIdResolver stationIdResolver) {
+        this.stationIdResolver = requireNonNull(stationIdResolver, "stationIdResolver");
     }
 
     @Override
@@ -32,7 +32,7 @@ public class StationIdPopulator implements MessagePopulator {
         requireNonNull(context, "context");
         requireNonNull(target, "target");
 
-        final Optional<Integer> stationId = databaseAccess.queryStationId(target.getStationIcaoCode(), context.getLoggingContext());
+        final Optional<Integer> stationId = stationIdResolver.resolveStationId(target.getStationIcaoCode(), context.getLoggingContext());
         if (stationId.isPresent()) {
             target.setStationId(stationId.get());
         } else {
@@ -7,6 +7,7 @@ import fi.fmi.avi.archiver.file.InputAviationMessage;
 import fi.fmi.avi.archiver.logging.model.ReadableLoggingContext;
 import fi.fmi.avi.archiver.message.ArchiveAviationMessage;
 import fi.fmi.avi.archiver.message.processor.MessageProcessorContext;
+import fi.fmi.avi.archiver.metrics.IngestLatencyMetrics;
 import fi.fmi.avi.model.AviationWeatherMessage;
 import fi.fmi.avi.model.MessageType;
 import fi.fmi.avi.model.PartialOrCompleteTimeInstant;
@@ -43,6 +44,7 @@ public class SwimRabbitMQPublisher extends AbstractRetryingPostAction<Publisher.
     private final int iwxxmFormatId;
     private final Map<Integer, StaticApplicationProperties> staticAppPropsByTypeId;
     private final MessageConfig messageConfig;
+    private final IngestLatencyMetrics ingestLatencyMetrics;
 
     public SwimRabbitMQPublisher(
             final RetryParams retryParams,
@@ -52,7 +54,8 @@ public class SwimRabbitMQPublisher extends AbstractRetryingPostAction<Publisher.
             final Clock clock,
             final int iwxxmFormatId,
             final Map<Integer, StaticApplicationProperties> staticAppPropsByTypeId,
-            final MessageConfig messageConfig) {
+            final MessageConfig messageConfig,
+            final IngestLatencyMetrics ingestLatencyMetrics) {
         super(retryParams);
         this.instanceId = requireNonNull(instanceId, "instanceId");
         this.amqpPublisher = requireNonNull(amqpPublisher, "amqpPublisher");
@@ -61,6 +64,7 @@ public class SwimRabbitMQPublisher extends AbstractRetryingPostAction<Publisher.
         this.iwxxmFormatId = iwxxmFormatId;
         this.staticAppPropsByTypeId = requireNonNull(staticAppPropsByTypeId, "staticAppPropsByTypeId");
         this.messageConfig = requireNonNull(messageConfig, "messageConfig");
+        this.ingestLatencyMetrics = requireNonNull(ingestLatencyMetrics, "ingestLatencyMetrics");
     }
 
     /**
@@ -131,6 +135,9 @@ public class SwimRabbitMQPublisher extends AbstractRetryingPostAction<Publisher.
             } finally {
                 future.complete(publisherContext);
             }
+            if (publisherContext.status() == Publisher.Status.ACCEPTED) {
+                ingestLatencyMetrics.recordPublished(context.getInputMessage(), message);
+            }
         });
         return future;
     }
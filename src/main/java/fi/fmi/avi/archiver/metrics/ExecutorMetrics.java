@@ -0,0 +1,139 @@
+package fi.fmi.avi.archiver.metrics;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import fi.fmi.avi.archiver.spring.integration.util.CallerBlockingMonitor;
+import fi.fmi.avi.archiver.spring.integration.util.SemaphoreBoundedExecutorService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+
+/**
+ * Metrics of bounded executors.
+ *
+ * <p>
+ * Metrics are tagged by executor name in tag {@value #EXECUTOR_TAG}:
+ * </p>
+ * <ul>
+ *     <li>{@code archiver.executor.queued}: number of tasks waiting for execution</li>
+ *     <li>{@code archiver.executor.queue.remaining}: number of further tasks that may wait for execution before the executor is saturated</li>
+ *     <li>{@code archiver.executor.active}: number of tasks being executed</li>
+ *     <li>{@code archiver.executor.completed}: number of completed tasks</li>
+ *     <li>{@code archiver.executor.blocked}: how long the longest blocked caller has currently been blocked while submitting a task</li>
+ *     <li>{@code archiver.executor.blocked.callers}: number of callers currently blocked while submitting a task</li>
+ *     <li>{@code archiver.executor.dropped}: number of tasks dropped while the executor was saturated</li>
+ * </ul>
+ */
+public class ExecutorMetrics {
+    public static final String EXECUTOR_TAG = "executor";
+
+    private static final String PREFIX = "archiver.executor.";
+
+    private final MeterRegistry meterRegistry;
+
+    public ExecutorMetrics(final MeterRegistry meterRegistry) {
+        this.meterRegistry = requireNonNull(meterRegistry, "meterRegistry");
+    }
+
+    /**
+     * Register metrics of provided executor. Executors other than {@link ThreadPoolExecutor} and {@link SemaphoreBoundedExecutorService} are ignored.
+     * The blocked duration of a {@code SemaphoreBoundedExecutorService} is registered automatically.
+     *
+     * @param executorName name of executor
+     * @param executor     executor
+     */
+    public void bind(final String executorName, final ExecutorService executor) {
+        requireNonNull(executorName, "executorName");
+        requireNonNull(executor, "executor");
+        if (executor instanceof final ThreadPoolExecutor threadPoolExecutor) {
+            bindThreadPoolExecutor(executorName, threadPoolExecutor);
+        } else if (executor instanceof final SemaphoreBoundedExecutorService semaphoreBoundedExecutor) {
+            bindSemaphoreBoundedExecutor(executorName, semaphoreBoundedExecutor);
+            bindBlockingMonitor(executorName, semaphoreBoundedExecutor);
+        }
+    }
+
+    /**
+     * Register metrics of provided executor, along with the blocked duration of provided monitor, typically the rejection policy of the executor.
+     *
+     * @param executorName    name of executor
+     * @param executor        executor
+     * @param blockingMonitor monitor of blocked callers
+     */
+    public void bind(final String executorName, final ExecutorService executor, final CallerBlockingMonitor blockingMonitor) {
+        requireNonNull(blockingMonitor, "blockingMonitor");
+        bind(executorName, executor);
+        if (!(executor instanceof SemaphoreBoundedExecutorService)) {
+            bindBlockingMonitor(executorName, blockingMonitor);
+        }
+    }
+
+    /**
+     * Return a counter of tasks dropped by the named executor.
+     *
+     * @param executorName name of executor
+     * @return counter of dropped tasks
+     */
+    public Counter droppedTasksCounter(final String executorName) {
+        requireNonNull(executorName, "executorName");
+        return Counter.builder(PREFIX + "dropped")//
+                .description("Number of tasks dropped while the executor was saturated")//
+                .tag(EXECUTOR_TAG, executorName)//
+                .register(meterRegistry);
+    }
+
+    private void bindThreadPoolExecutor(final String executorName, final ThreadPoolExecutor executor) {
+        Gauge.builder(PREFIX + "queued", executor, tpe -> tpe.getQueue().size())//
+                .description("Number of tasks waiting for execution")//
+                .tag(EXECUTOR_TAG, executorName)//
+                .register(meterRegistry);
+        Gauge.builder(PREFIX + "queue.remaining", executor, tpe -> tpe.getQueue().remainingCapacity())//
+                .description("Number of further tasks that may wait for execution")//
+                .tag(EXECUTOR_TAG, executorName)//
+                .register(meterRegistry);
+        Gauge.builder(PREFIX + "active", executor, ThreadPoolExecutor::getActiveCount)//
+                .description("Number of tasks being executed")//
+                .tag(EXECUTOR_TAG, executorName)//
+                .register(meterRegistry);
+        FunctionCounter.builder(PREFIX + "completed", executor, ThreadPoolExecutor::getCompletedTaskCount)//
+                .description("Number of completed tasks")//
+                .tag(EXECUTOR_TAG, executorName)//
+                .register(meterRegistry);
+    }
+
+    private void bindSemaphoreBoundedExecutor(final String executorName, final SemaphoreBoundedExecutorService executor) {
+        Gauge.builder(PREFIX + "queued", executor, SemaphoreBoundedExecutorService::getQueueSize)//
+                .description("Number of tasks waiting for execution")//
+                .tag(EXECUTOR_TAG, executorName)//
+                .register(meterRegistry);
+        Gauge.builder(PREFIX + "queue.remaining", executor, SemaphoreBoundedExecutorService::getRemainingCapacity)//
+                .description("Number of further tasks that may wait for execution")//
+                .tag(EXECUTOR_TAG, executorName)//
+                .register(meterRegistry);
+        Gauge.builder(PREFIX + "active", executor, SemaphoreBoundedExecutorService::getActiveCount)//
+                .description("Number of tasks being executed")//
+                .tag(EXECUTOR_TAG, executorName)//
+                .register(meterRegistry);
+        FunctionCounter.builder(PREFIX + "completed", executor, SemaphoreBoundedExecutorService::getCompletedTaskCount)//
+                .description("Number of completed tasks")//
+                .tag(EXECUTOR_TAG, executorName)//
+                .register(meterRegistry);
+    }
+
+    private void bindBlockingMonitor(final String executorName, final CallerBlockingMonitor blockingMonitor) {
+        TimeGauge.builder(PREFIX + "blocked", blockingMonitor, TimeUnit.MILLISECONDS, monitor -> monitor.getBlockedDuration().toMillis())//
+                .description("How long the longest blocked caller has currently been blocked while submitting a task")//
+                .tag(EXECUTOR_TAG, executorName)//
+                .register(meterRegistry);
+        Gauge.builder(PREFIX + "blocked.callers", blockingMonitor, CallerBlockingMonitor::getBlockedCallerCount)//
+                .description("Number of callers currently blocked while submitting a task")//
+                .tag(EXECUTOR_TAG, executorName)//
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,82 @@
+package fi.fmi.avi.archiver.metrics;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import fi.fmi.avi.archiver.logging.model.ProcessingPhase;
+import io.micrometer.core.instrument.Clock;
+
+/**
+ * Measures time spent in each processing phase of a single file.
+ *
+ * <p>
+ * A phase is timed from {@link #enter(ProcessingPhase) entering} it until {@link #exit() exiting} it or entering another phase. Time spent while waiting
+ * between phases, e.g. in executor queues, is not included. A phase may be entered several times, in which case the times are summed up. Phase times
+ * are recorded into {@link ProcessingPhaseMetrics} once, when {@link #record()} is invoked at the end of file processing.
+ * </p>
+ *
+ * <p>
+ * Instances of this class are thread-safe.
+ * </p>
+ */
+public class FileProcessingTimer {
+    private final ProcessingPhaseMetrics metrics;
+    private final Clock clock;
+    private final String productId;
+    private final String format;
+    private final Map<ProcessingPhase, Long> phaseNanos = new EnumMap<>(ProcessingPhase.class);
+    @Nullable
+    private ProcessingPhase currentPhase;
+    private long currentPhaseStart;
+    private boolean recorded;
+
+    FileProcessingTimer(final ProcessingPhaseMetrics metrics, final Clock clock, final String productId, final String format) {
+        this.metrics = requireNonNull(metrics, "metrics");
+        this.clock = requireNonNull(clock, "clock");
+        this.productId = requireNonNull(productId, "productId");
+        this.format = requireNonNull(format, "format");
+    }
+
+    /**
+     * Start timing provided phase, and stop timing the current phase, if any.
+     * Entering the current phase again has no effect.
+     *
+     * @param phase phase to enter
+     */
+    public synchronized void enter(final ProcessingPhase phase) {
+        requireNonNull(phase, "phase");
+        if (recorded || phase == currentPhase) {
+            return;
+        }
+        exit();
+        currentPhase = phase;
+        currentPhaseStart = clock.monotonicTime();
+    }
+
+    /**
+     * Stop timing the current phase, if any.
+     */
+    public synchronized void exit() {
+        if (currentPhase != null) {
+            phaseNanos.merge(currentPhase, clock.monotonicTime() - currentPhaseStart, Long::sum);
+            currentPhase = null;
+        }
+    }
+
+    /**
+     * Stop timing the current phase, and record times of all entered phases. Subsequent invocations have no effect.
+     */
+    public synchronized void record() {
+        exit();
+        if (recorded) {
+            return;
+        }
+        recorded = true;
+        phaseNanos.forEach((phase, nanos) -> metrics.getTimer(phase, productId, format).record(nanos, TimeUnit.NANOSECONDS));
+    }
+}
@@ -0,0 +1,125 @@
+package fi.fmi.avi.archiver.metrics;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Map;
+
+import com.google.common.collect.ImmutableBiMap;
+import com.google.common.collect.ImmutableMap;
+
+import fi.fmi.avi.archiver.file.InputAviationMessage;
+import fi.fmi.avi.archiver.message.ArchiveAviationMessage;
+import fi.fmi.avi.model.MessageType;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Latency of messages from file arrival to storage and publication.
+ *
+ * <p>
+ * Latency is measured from the {@link fi.fmi.avi.archiver.file.FileMetadata#getFileModified() last modified time} of the input file to the time a
+ * message is committed into the database ({@value #STORE_TIMER_NAME}) or accepted by a publication target ({@value #PUBLISH_TIMER_NAME}). Messages of
+ * files without known modification time are not recorded. Timers are tagged by product identifier, message type and route, and publish a percentile
+ * histogram along with p50, p95 and p99 percentiles over a rolling window.
+ * </p>
+ */
+public class IngestLatencyMetrics {
+    public static final String STORE_TIMER_NAME = "archiver.ingest.store.latency";
+    public static final String PUBLISH_TIMER_NAME = "archiver.ingest.publish.latency";
+    public static final String PRODUCT_TAG = "product";
+    public static final String TYPE_TAG = "type";
+    public static final String ROUTE_TAG = "route";
+
+    private static final double[] PERCENTILES = {0.5, 0.95, 0.99};
+
+    private final MeterRegistry meterRegistry;
+    private final Clock clock;
+    private final Map<Integer, String> messageTypeNames;
+    private final Map<Integer, String> messageRouteNames;
+    private final Duration window;
+
+    /**
+     * Construct a new instance.
+     *
+     * @param meterRegistry   meter registry
+     * @param clock           clock
+     * @param messageTypeIds  message type identifiers by message type
+     * @param messageRouteIds message route identifiers by route name
+     * @param window          length of the rolling window of percentiles
+     */
+    public IngestLatencyMetrics(final MeterRegistry meterRegistry, final Clock clock, final Map<MessageType, Integer> messageTypeIds,
+                                final Map<String, Integer> messageRouteIds, final Duration window) {
+        this.meterRegistry = requireNonNull(meterRegistry, "meterRegistry");
+        this.clock = requireNonNull(clock, "clock");
+        requireNonNull(messageTypeIds, "messageTypeIds");
+        requireNonNull(messageRouteIds, "messageRouteIds");
+        this.window = requireNonNull(window, "window");
+        checkArgument(window.isPositive(), "window must be positive; was: %s", window);
+        final ImmutableMap.Builder<Integer, String> typeNames = ImmutableMap.builder();
+        ImmutableBiMap.copyOf(messageTypeIds).inverse().forEach((id, type) -> typeNames.put(id, type.name()));
+        this.messageTypeNames = typeNames.build();
+        this.messageRouteNames = ImmutableBiMap.copyOf(messageRouteIds).inverse();
+    }
+
+    /**
+     * Record latency of a message committed into the database just now.
+     *
+     * @param inputMessage   input message
+     * @param archiveMessage stored message
+     */
+    public void recordStored(final InputAviationMessage inputMessage, final ArchiveAviationMessage archiveMessage) {
+        record(STORE_TIMER_NAME, "Latency from file modification to database commit per message", inputMessage, archiveMessage);
+    }
+
+    /**
+     * Record latency of a message accepted by a publication target just now.
+     *
+     * @param inputMessage   input message
+     * @param archiveMessage published message
+     */
+    public void recordPublished(final InputAviationMessage inputMessage, final ArchiveAviationMessage archiveMessage) {
+        record(PUBLISH_TIMER_NAME, "Latency from file modification to publication per message", inputMessage, archiveMessage);
+    }
+
+    private void record(final String timerName, final String description, final InputAviationMessage inputMessage,
+                        final ArchiveAviationMessage archiveMessage) {
+        requireNonNull(inputMessage, "inputMessage");
+        requireNonNull(archiveMessage, "archiveMessage");
+        inputMessage.getFileMetadata().getFileModified().ifPresent(fileModified -> {
+            final Duration latency = Duration.between(fileModified, Instant.now(clock));
+            Timer.builder(timerName)//
+                    .description(description)//
+                    .tag(PRODUCT_TAG, inputMessage.getFileMetadata().getFileReference().getProductId())//
+                    .tag(TYPE_TAG, messageTypeNames.getOrDefault(archiveMessage.getType(), String.valueOf(archiveMessage.getType())))//
+                    .tag(ROUTE_TAG, messageRouteNames.getOrDefault(archiveMessage.getRoute(), String.valueOf(archiveMessage.getRoute())))//
+                    .publishPercentileHistogram()//
+                    .publishPercentiles(PERCENTILES)//
+                    .distributionStatisticExpiry(window)//
+                    .register(meterRegistry)//
+                    .record(latency.isNegative() ? Duration.ZERO : latency);
+        });
+    }
+
+    /**
+     * Return all registered store latency timers.
+     *
+     * @return store latency timers
+     */
+    public Collection<Timer> getStoreTimers() {
+        return meterRegistry.find(STORE_TIMER_NAME).timers();
+    }
+
+    /**
+     * Return all registered publication latency timers.
+     *
+     * @return publication latency timers
+     */
+    public Collection<Timer> getPublishTimers() {
+        return meterRegistry.find(PUBLISH_TIMER_NAME).timers();
+    }
+}
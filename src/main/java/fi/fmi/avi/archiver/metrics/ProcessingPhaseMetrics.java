@@ -0,0 +1,59 @@
+package fi.fmi.avi.archiver.metrics;
+
+import static java.util.Objects.requireNonNull;
+
+import fi.fmi.avi.archiver.logging.model.ProcessingPhase;
+import fi.fmi.avi.model.GenericAviationWeatherMessage;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Timers of file processing phases.
+ *
+ * <p>
+ * Time spent in each {@link ProcessingPhase processing phase} of a file is measured by a {@link FileProcessingTimer} obtained from
+ * {@link #newFileTimer(String, GenericAviationWeatherMessage.Format)}, and recorded in timer {@value #TIMER_NAME} tagged by phase, product identifier
+ * and file format. Timers publish a percentile histogram along with precomputed p50, p95 and p99 percentiles.
+ * </p>
+ */
+public class ProcessingPhaseMetrics {
+    /**
+     * Name of file processing phase timers.
+     */
+    public static final String TIMER_NAME = "archiver.processing.phase";
+    public static final String PHASE_TAG = "phase";
+    public static final String PRODUCT_TAG = "product";
+    public static final String FORMAT_TAG = "format";
+
+    private static final double[] PERCENTILES = {0.5, 0.95, 0.99};
+
+    private final MeterRegistry meterRegistry;
+
+    public ProcessingPhaseMetrics(final MeterRegistry meterRegistry) {
+        this.meterRegistry = requireNonNull(meterRegistry, "meterRegistry");
+    }
+
+    /**
+     * Start timing processing of a file.
+     *
+     * @param productId identifier of product the file belongs to
+     * @param format    format of the file
+     * @return new timer of the file
+     */
+    public FileProcessingTimer newFileTimer(final String productId, final GenericAviationWeatherMessage.Format format) {
+        requireNonNull(productId, "productId");
+        requireNonNull(format, "format");
+        return new FileProcessingTimer(this, meterRegistry.config().clock(), productId, format.name());
+    }
+
+    Timer getTimer(final ProcessingPhase phase, final String productId, final String format) {
+        return Timer.builder(TIMER_NAME)//
+                .description("Time spent in a file processing phase per file")//
+                .tag(PHASE_TAG, phase.name())//
+                .tag(PRODUCT_TAG, productId)//
+                .tag(FORMAT_TAG, format)//
+                .publishPercentileHistogram()//
+                .publishPercentiles(PERCENTILES)//
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,68 @@
+package fi.fmi.avi.archiver.spring.endpoint;
+
+import fi.fmi.avi.archiver.metrics.IngestLatencyMetrics;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Actuator endpoint showing rolling percentiles of message latency from file arrival to storage and publication, as recorded by
+ * {@link IngestLatencyMetrics}. Latencies are expressed in milliseconds.
+ */
+@Endpoint(id = IngestLatencyEndpoint.ID)
+public class IngestLatencyEndpoint {
+    public static final String ID = "ingestlatency";
+
+    private final IngestLatencyMetrics ingestLatencyMetrics;
+
+    public IngestLatencyEndpoint(final IngestLatencyMetrics ingestLatencyMetrics) {
+        this.ingestLatencyMetrics = requireNonNull(ingestLatencyMetrics, "ingestLatencyMetrics");
+    }
+
+    private static List<LatencySummary> summarize(final Collection<Timer> timers) {
+        return timers.stream()//
+                .map(LatencySummary::of)//
+                .toList();
+    }
+
+    @ReadOperation
+    public IngestLatencyReport latency() {
+        return new IngestLatencyReport(summarize(ingestLatencyMetrics.getStoreTimers()), summarize(ingestLatencyMetrics.getPublishTimers()));
+    }
+
+    public record IngestLatencyReport(List<LatencySummary> store, List<LatencySummary> publish) {
+    }
+
+    /**
+     * Latency of messages sharing the same tags.
+     *
+     * @param tags        timer tags
+     * @param count       total number of recorded messages
+     * @param percentiles rolling latency percentiles in milliseconds by percentile name, e.g. {@code p95}
+     */
+    public record LatencySummary(Map<String, String> tags, long count, Map<String, Double> percentiles) {
+        static LatencySummary of(final Timer timer) {
+            final Map<String, String> tags = new LinkedHashMap<>();
+            for (final Tag tag : timer.getId().getTagsAsIterable()) {
+                tags.put(tag.getKey(), tag.getValue());
+            }
+            final HistogramSnapshot snapshot = timer.takeSnapshot();
+            final Map<String, Double> percentiles = new LinkedHashMap<>();
+            for (final ValueAtPercentile valueAtPercentile : snapshot.percentileValues()) {
+                percentiles.put("p" + Math.round(valueAtPercentile.percentile() * 100), valueAtPercentile.value(TimeUnit.MILLISECONDS));
+            }
+            return new LatencySummary(tags, snapshot.count(), percentiles);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package fi.fmi.avi.archiver.spring.endpoint;
+
+import com.google.common.collect.BiMap;
+import fi.fmi.avi.archiver.database.RecentMessageCache;
+import fi.fmi.avi.model.MessageType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.annotation.Nullable;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * HTTP endpoint serving recently archived messages of a station from {@link RecentMessageCache}.
+ *
+ * <p>
+ * {@code GET /recent-messages/{station}} returns recent messages of the station by message type, newest first. Messages may be restricted to a
+ * single message type with the {@code type} request parameter. Responses carry {@code ETag} and {@code Last-Modified} headers, and conditional
+ * requests with {@code If-None-Match} or {@code If-Modified-Since} are answered with {@code 304 Not Modified} while the messages of the station are
+ * unchanged.
+ * </p>
+ */
+@RestController
+public class RecentMessagesController {
+    public static final String PATH = "/recent-messages";
+
+    private final RecentMessageCache recentMessageCache;
+    private final Map<Integer, String> typeNames;
+    private final Map<Integer, String> routeNames;
+
+    public RecentMessagesController(final RecentMessageCache recentMessageCache, final BiMap<MessageType, Integer> messageTypeIds,
+                                    final BiMap<String, Integer> messageRouteIds) {
+        this.recentMessageCache = requireNonNull(recentMessageCache, "recentMessageCache");
+        requireNonNull(messageTypeIds, "messageTypeIds");
+        requireNonNull(messageRouteIds, "messageRouteIds");
+        final Map<Integer, String> typeNames = new LinkedHashMap<>();
+        messageTypeIds.inverse().forEach((id, type) -> typeNames.put(id, type.name()));
+        this.typeNames = Map.copyOf(typeNames);
+        this.routeNames = Map.copyOf(messageRouteIds.inverse());
+    }
+
+    @GetMapping(PATH + "/{station}")
+    public ResponseEntity<StationMessages> recentMessages(@PathVariable("station") final String station,
+                                                          @Nullable @RequestParam(name = "type", required = false) final String type) {
+        final Optional<RecentMessageCache.StationSnapshot> snapshot = recentMessageCache.getStation(station.toUpperCase(Locale.ROOT));
+        if (snapshot.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        final RecentMessageCache.StationSnapshot stationSnapshot = snapshot.get();
+        final Map<String, List<Message>> messages = new LinkedHashMap<>();
+        stationSnapshot.messagesByType().forEach((typeId, messagesOfType) -> {
+            final String typeName = typeNames.getOrDefault(typeId, String.valueOf(typeId));
+            if (type == null || type.equalsIgnoreCase(typeName)) {
+                messages.put(typeName, messagesOfType.stream().map(this::toMessage).toList());
+            }
+        });
+        // Conditional requests are evaluated against these headers, responding 304 Not Modified if applicable
+        return ResponseEntity.ok()
+                .eTag(stationSnapshot.eTag() + (type == null ? "" : "-" + type.toUpperCase(Locale.ROOT)))
+                .lastModified(stationSnapshot.lastModified())
+                .body(new StationMessages(stationSnapshot.stationIcaoCode(), stationSnapshot.lastModified(), messages));
+    }
+
+    private Message toMessage(final RecentMessageCache.RecentMessage message) {
+        return new Message(routeNames.getOrDefault(message.route(), String.valueOf(message.route())), message.format(), message.messageTime(),
+                message.validFrom(), message.validTo(), message.heading(), message.version(), message.message(), message.storedAt());
+    }
+
+    /**
+     * Recent messages of a station.
+     *
+     * @param station      station ICAO code
+     * @param lastModified time of the latest update of messages of the station
+     * @param messages     recent messages by message type name, newest first
+     */
+    public record StationMessages(String station, Instant lastModified, Map<String, List<Message>> messages) {
+    }
+
+    public record Message(String route, int format, Instant messageTime, @Nullable Instant validFrom, @Nullable Instant validTo,
+                          @Nullable String heading, @Nullable String version, String message, Instant storedAt) {
+    }
+}
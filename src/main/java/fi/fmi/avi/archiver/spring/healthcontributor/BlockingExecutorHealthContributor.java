@@ -1,5 +1,6 @@
 package fi.fmi.avi.archiver.spring.healthcontributor;
 
+import fi.fmi.avi.archiver.spring.integration.util.CallerBlockingMonitor;
 import fi.fmi.avi.archiver.spring.integration.util.MonitorableCallerBlocksPolicy;
 import org.springframework.boot.actuate.health.AbstractHealthIndicator;
 import org.springframework.boot.actuate.health.Health;
@@ -20,20 +21,26 @@ public class BlockingExecutorHealthContributor extends RegistryCompositeHealthCo
     public void registerPolicy(final String name, final MonitorableCallerBlocksPolicy policy) {
         requireNonNull(name, "name");
         requireNonNull(policy, "policy");
-        registerContributor(name, new BlockingExecutorHealthIndicator(policy));
+        registerMonitor(name, policy);
+    }
+
+    public void registerMonitor(final String name, final CallerBlockingMonitor monitor) {
+        requireNonNull(name, "name");
+        requireNonNull(monitor, "monitor");
+        registerContributor(name, new BlockingExecutorHealthIndicator(monitor));
     }
 
     private class BlockingExecutorHealthIndicator extends AbstractHealthIndicator {
 
-        private final MonitorableCallerBlocksPolicy policy;
+        private final CallerBlockingMonitor monitor;
 
-        public BlockingExecutorHealthIndicator(final MonitorableCallerBlocksPolicy policy) {
-            this.policy = requireNonNull(policy, "policy");
+        public BlockingExecutorHealthIndicator(final CallerBlockingMonitor monitor) {
+            this.monitor = requireNonNull(monitor, "monitor");
         }
 
         @Override
         protected void doHealthCheck(final Health.Builder builder) {
-            final Duration blockedDuration = policy.getBlockedDuration();
+            final Duration blockedDuration = monitor.getBlockedDuration();
             if (timeout.compareTo(blockedDuration) > 0) {
                 builder.up();
             } else {
@@ -0,0 +1,37 @@
+package fi.fmi.avi.archiver.spring.healthcontributor;
+
+import fi.fmi.avi.archiver.database.JournalingDatabaseWriter;
+import fi.fmi.avi.archiver.database.MessageJournal;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Reports the state of the local message journal. Journaling messages while the database is unavailable is an intended mode of operation, so the
+ * status is always up; journal depth and database availability are reported as details.
+ */
+public class MessageJournalHealthIndicator implements HealthIndicator {
+
+    private static final String DETAIL_DEPTH = "depth";
+    private static final String DETAIL_DATABASE_AVAILABLE = "databaseAvailable";
+    private static final String DETAIL_DIRECTORY = "directory";
+
+    private final MessageJournal journal;
+    private final JournalingDatabaseWriter writer;
+
+    public MessageJournalHealthIndicator(final MessageJournal journal, final JournalingDatabaseWriter writer) {
+        this.journal = requireNonNull(journal, "journal");
+        this.writer = requireNonNull(writer, "writer");
+    }
+
+    @Override
+    public Health health() {
+        return Health.up()
+                .withDetail(DETAIL_DEPTH, journal.getDepth())
+                .withDetail(DETAIL_DATABASE_AVAILABLE, writer.isAvailable())
+                .withDetail(DETAIL_DIRECTORY, journal.getDirectory())
+                .build();
+    }
+
+}
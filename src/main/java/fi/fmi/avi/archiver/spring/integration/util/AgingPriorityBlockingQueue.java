@@ -0,0 +1,268 @@
+package fi.fmi.avi.archiver.spring.integration.util;
+
+import javax.annotation.Nullable;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import java.util.function.ToIntFunction;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Bounded {@link BlockingQueue} ordering elements by priority, with aging to prevent starvation of low-priority elements.
+ *
+ * <p>
+ * Each element is ranked upon insertion by its insertion time reduced by its priority multiplied by {@code agingInterval}. Elements are taken in
+ * ascending rank order, and elements of equal rank in insertion order. Thus, an element of priority {@code p} is taken ahead of elements of priority
+ * {@code p - 1} inserted less than {@code agingInterval} before it, but an element waiting for longer is taken first regardless of priorities.
+ * </p>
+ *
+ * <p>
+ * The iterator of this queue returns elements in no particular order.
+ * </p>
+ *
+ * @param <E> element type
+ */
+public class AgingPriorityBlockingQueue<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+    private final int capacity;
+    private final ToIntFunction<? super E> priorityFunction;
+    private final long agingIntervalNanos;
+    private final LongSupplier nanoTime;
+    private final PriorityQueue<Entry<E>> queue = new PriorityQueue<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private long sequence;
+
+    /**
+     * Construct a new queue.
+     *
+     * @param capacity         maximum number of elements in the queue
+     * @param priorityFunction function returning priority of an element; higher value means higher priority
+     * @param agingInterval    waiting time that compensates one step of priority
+     */
+    public AgingPriorityBlockingQueue(final int capacity, final ToIntFunction<? super E> priorityFunction, final Duration agingInterval) {
+        this(capacity, priorityFunction, agingInterval, System::nanoTime);
+    }
+
+    AgingPriorityBlockingQueue(final int capacity, final ToIntFunction<? super E> priorityFunction, final Duration agingInterval,
+                               final LongSupplier nanoTime) {
+        this.priorityFunction = requireNonNull(priorityFunction, "priorityFunction");
+        requireNonNull(agingInterval, "agingInterval");
+        this.nanoTime = requireNonNull(nanoTime, "nanoTime");
+        checkArgument(capacity > 0, "capacity must be positive; was: %s", capacity);
+        checkArgument(!agingInterval.isNegative(), "agingInterval must not be negative; was: %s", agingInterval);
+        this.capacity = capacity;
+        this.agingIntervalNanos = agingInterval.toNanos();
+    }
+
+    private void enqueue(final E element) {
+        final long rank = nanoTime.getAsLong() - (long) priorityFunction.applyAsInt(element) * agingIntervalNanos;
+        queue.add(new Entry<>(element, rank, sequence++));
+        notEmpty.signal();
+    }
+
+    private E dequeue() {
+        final E element = queue.remove().element;
+        notFull.signal();
+        return element;
+    }
+
+    @Override
+    public boolean offer(final E element) {
+        requireNonNull(element, "element");
+        lock.lock();
+        try {
+            if (queue.size() >= capacity) {
+                return false;
+            }
+            enqueue(element);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void put(final E element) throws InterruptedException {
+        requireNonNull(element, "element");
+        lock.lockInterruptibly();
+        try {
+            while (queue.size() >= capacity) {
+                notFull.await();
+            }
+            enqueue(element);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offer(final E element, final long timeout, final TimeUnit unit) throws InterruptedException {
+        requireNonNull(element, "element");
+        requireNonNull(unit, "unit");
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (queue.size() >= capacity) {
+                if (nanos <= 0L) {
+                    return false;
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            enqueue(element);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Nullable
+    @Override
+    public E poll() {
+        lock.lock();
+        try {
+            return queue.isEmpty() ? null : dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (queue.isEmpty()) {
+                notEmpty.await();
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Nullable
+    @Override
+    public E poll(final long timeout, final TimeUnit unit) throws InterruptedException {
+        requireNonNull(unit, "unit");
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (queue.isEmpty()) {
+                if (nanos <= 0L) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Nullable
+    @Override
+    public E peek() {
+        lock.lock();
+        try {
+            final Entry<E> entry = queue.peek();
+            return entry == null ? null : entry.element;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int remainingCapacity() {
+        lock.lock();
+        try {
+            return capacity - queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(final Object object) {
+        lock.lock();
+        try {
+            final Iterator<Entry<E>> iterator = queue.iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().element.equals(object)) {
+                    iterator.remove();
+                    notFull.signal();
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int drainTo(final Collection<? super E> collection) {
+        return drainTo(collection, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(final Collection<? super E> collection, final int maxElements) {
+        requireNonNull(collection, "collection");
+        checkArgument(collection != this, "Cannot drain to self");
+        lock.lock();
+        try {
+            int count = 0;
+            while (count < maxElements && !queue.isEmpty()) {
+                collection.add(queue.remove().element);
+                count++;
+            }
+            if (count > 0) {
+                notFull.signalAll();
+            }
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Return a snapshot iterator over elements in this queue, in no particular order.
+     *
+     * @return iterator over elements
+     */
+    @Override
+    public Iterator<E> iterator() {
+        final List<E> snapshot;
+        lock.lock();
+        try {
+            snapshot = new ArrayList<>(queue.size());
+            queue.forEach(entry -> snapshot.add(entry.element));
+        } finally {
+            lock.unlock();
+        }
+        return Collections.unmodifiableList(snapshot).iterator();
+    }
+
+    private record Entry<E>(E element, long rank, long sequence) implements Comparable<Entry<E>> {
+        @Override
+        public int compareTo(final Entry<E> other) {
+            final int rankComparison = Long.compare(rank, other.rank);
+            return rankComparison != 0 ? rankComparison : Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package fi.fmi.avi.archiver.spring.integration.util;
+
+import java.time.Duration;
+
+/**
+ * A component that may block the calling thread, e.g. while waiting for capacity to submit a task, and allows querying the current blocked duration.
+ */
+public interface CallerBlockingMonitor {
+
+    /**
+     * Return how long the longest blocked caller has currently been blocked.
+     *
+     * @return current blocked duration, or {@link Duration#ZERO} if no caller is blocked
+     */
+    Duration getBlockedDuration();
+
+    /**
+     * Return the number of callers currently blocked. The default implementation is suitable for monitors of a single caller only.
+     *
+     * @return number of blocked callers
+     */
+    default int getBlockedCallerCount() {
+        return getBlockedDuration().isZero() ? 0 : 1;
+    }
+
+}
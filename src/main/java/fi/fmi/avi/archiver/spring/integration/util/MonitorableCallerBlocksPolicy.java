@@ -3,20 +3,22 @@ package fi.fmi.avi.archiver.spring.integration.util;
 import java.time.Clock;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.Map;
+import java.util.OptionalLong;
 import java.util.concurrent.*;
-import java.util.concurrent.atomic.AtomicLong;
 
 import static java.util.Objects.requireNonNull;
 
 /**
  * {@link RejectedExecutionHandler} similar to {@link org.springframework.integration.util.CallerBlocksPolicy} that
- * also allows querying the blocked duration.
+ * also allows querying the blocked duration. Multiple callers may be blocked at the same time; the blocked duration is
+ * that of the longest blocked caller.
  */
-public class MonitorableCallerBlocksPolicy implements RejectedExecutionHandler {
+public class MonitorableCallerBlocksPolicy implements RejectedExecutionHandler, CallerBlockingMonitor {
 
     private final Clock clock;
     private final long maxWait;
-    private final AtomicLong blockStartMillis = new AtomicLong(-1);
+    private final Map<Thread, Long> blockStartMillisByCaller = new ConcurrentHashMap<>();
 
     /**
      * Construct instance based on the provided maximum wait time.
@@ -34,7 +36,7 @@ public class MonitorableCallerBlocksPolicy implements RejectedExecutionHandler {
         if (!executor.isShutdown()) {
             try {
                 final BlockingQueue<Runnable> queue = executor.getQueue();
-                blockStartMillis.set(clock.millis());
+                blockStartMillisByCaller.put(Thread.currentThread(), clock.millis());
                 if (!queue.offer(runnable, this.maxWait, TimeUnit.MILLISECONDS)) {
                     throw new RejectedExecutionException("Max wait time expired to queue task");
                 }
@@ -42,20 +44,28 @@ public class MonitorableCallerBlocksPolicy implements RejectedExecutionHandler {
                 Thread.currentThread().interrupt();
                 throw new RejectedExecutionException("Interrupted", e);
             } finally {
-                blockStartMillis.set(-1);
+                blockStartMillisByCaller.remove(Thread.currentThread());
             }
         } else {
             throw new RejectedExecutionException("Executor has been shut down");
         }
     }
 
+    @Override
     public Duration getBlockedDuration() {
-        final long millis = blockStartMillis.get();
-        if (millis > -1) {
-            return Duration.between(Instant.ofEpochMilli(millis), clock.instant());
+        final OptionalLong earliestMillis = blockStartMillisByCaller.values().stream()
+                .mapToLong(Long::longValue)
+                .min();
+        if (earliestMillis.isPresent()) {
+            return Duration.between(Instant.ofEpochMilli(earliestMillis.getAsLong()), clock.instant());
         } else {
             return Duration.ZERO;
         }
     }
 
+    @Override
+    public int getBlockedCallerCount() {
+        return blockStartMillisByCaller.size();
+    }
+
 }
@@ -0,0 +1,62 @@
+package fi.fmi.avi.archiver.spring.integration.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.integration.aop.ReceiveMessageAdvice;
+import org.springframework.messaging.Message;
+
+import javax.annotation.Nullable;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * {@link ReceiveMessageAdvice} that skips receiving messages while provided pause condition holds.
+ *
+ * <p>
+ * When applied on a poller, the poll ends without a message while paused, and the poller thread is released until the next poll. Thus, the message source
+ * is paused cleanly, without blocking the poller thread.
+ * </p>
+ */
+public class PausingReceiveMessageAdvice implements ReceiveMessageAdvice {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PausingReceiveMessageAdvice.class);
+
+    private final String name;
+    private final BooleanSupplier pauseCondition;
+    private final AtomicBoolean paused = new AtomicBoolean();
+
+    /**
+     * Construct a new advice.
+     *
+     * @param name           name of advised source, used in logging
+     * @param pauseCondition condition returning {@code true} when receiving should be paused
+     */
+    public PausingReceiveMessageAdvice(final String name, final BooleanSupplier pauseCondition) {
+        this.name = requireNonNull(name, "name");
+        this.pauseCondition = requireNonNull(pauseCondition, "pauseCondition");
+    }
+
+    @Override
+    public boolean beforeReceive(final Object source) {
+        final boolean pause = pauseCondition.getAsBoolean();
+        if (paused.compareAndSet(!pause, pause)) {
+            if (pause) {
+                LOGGER.info("Pausing input of <{}>.", name);
+            } else {
+                LOGGER.info("Resuming input of <{}>.", name);
+            }
+        }
+        return !pause;
+    }
+
+    @Nullable
+    @Override
+    public Message<?> afterReceive(@Nullable final Message<?> result, final Object source) {
+        return result;
+    }
+
+    public boolean isPaused() {
+        return paused.get();
+    }
+}
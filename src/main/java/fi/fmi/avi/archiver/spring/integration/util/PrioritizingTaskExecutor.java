@@ -0,0 +1,80 @@
+package fi.fmi.avi.archiver.spring.integration.util;
+
+import org.springframework.integration.IntegrationMessageHeaderAccessor;
+import org.springframework.integration.util.ErrorHandlingTaskExecutor;
+import org.springframework.messaging.support.MessageHandlingRunnable;
+import org.springframework.util.ErrorHandler;
+
+import java.util.concurrent.Executor;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * {@link ErrorHandlingTaskExecutor} that exposes the priority of dispatched messages to the underlying executor.
+ *
+ * <p>
+ * Message handling tasks are submitted to the underlying executor as {@link PrioritizedTask} instances carrying the value of
+ * {@link IntegrationMessageHeaderAccessor#PRIORITY priority header} of the handled message, or {@code 0} if the header is not set. A channel using this
+ * executor does not wrap it in another {@code ErrorHandlingTaskExecutor}, so the underlying executor may order tasks using
+ * {@link #getPriority(Runnable)}, e.g. with an {@link AgingPriorityBlockingQueue}.
+ * </p>
+ */
+public class PrioritizingTaskExecutor extends ErrorHandlingTaskExecutor {
+    private final Executor executor;
+    private final ErrorHandler errorHandler;
+
+    public PrioritizingTaskExecutor(final Executor executor, final ErrorHandler errorHandler) {
+        super(executor, errorHandler);
+        this.executor = requireNonNull(executor, "executor");
+        this.errorHandler = requireNonNull(errorHandler, "errorHandler");
+    }
+
+    /**
+     * Return priority of provided task, if it is a {@link PrioritizedTask}, otherwise {@code 0}.
+     *
+     * @param task task
+     * @return task priority
+     */
+    public static int getPriority(final Runnable task) {
+        return task instanceof final PrioritizedTask prioritizedTask ? prioritizedTask.getPriority() : 0;
+    }
+
+    private static int getMessagePriority(final Runnable task) {
+        if (task instanceof final MessageHandlingRunnable messageHandlingRunnable
+                && messageHandlingRunnable.getMessage().getHeaders().get(IntegrationMessageHeaderAccessor.PRIORITY) instanceof final Number priority) {
+            return priority.intValue();
+        }
+        return 0;
+    }
+
+    @Override
+    public void execute(final Runnable task) {
+        requireNonNull(task, "task");
+        executor.execute(new PrioritizedTask(getMessagePriority(task), () -> {
+            try {
+                task.run();
+            } catch (final Throwable throwable) {
+                errorHandler.handleError(throwable);
+            }
+        }));
+    }
+
+    public static final class PrioritizedTask implements Runnable {
+        private final int priority;
+        private final Runnable delegate;
+
+        private PrioritizedTask(final int priority, final Runnable delegate) {
+            this.priority = priority;
+            this.delegate = delegate;
+        }
+
+        public int getPriority() {
+            return priority;
+        }
+
+        @Override
+        public void run() {
+            delegate.run();
+        }
+    }
+}
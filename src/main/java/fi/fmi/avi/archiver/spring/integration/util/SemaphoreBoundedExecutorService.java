@@ -0,0 +1,309 @@
+package fi.fmi.avi.archiver.spring.integration.util;
+
+import javax.annotation.Nullable;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * {@link ExecutorService} that starts a new thread for each task, typically a virtual thread, and limits concurrency with semaphores instead of a fixed
+ * pool of threads.
+ *
+ * <p>
+ * At most {@code maxConcurrency} tasks are executed concurrently, and at most {@code queueCapacity} further tasks may wait for execution. Waiting tasks
+ * are started in submission order, and a thread is started for a task only once it may start executing. When both limits are reached, the caller
+ * submitting a task is blocked until a task completes, similarly to {@link MonitorableCallerBlocksPolicy}, and blocked callers proceed in the order
+ * they were blocked. Alternatively, a saturation handler may be provided, in which case the task is handed to the handler instead of blocking the
+ * caller.
+ * </p>
+ */
+public class SemaphoreBoundedExecutorService extends AbstractExecutorService implements CallerBlockingMonitor {
+
+    private final ThreadFactory threadFactory;
+    private final Clock clock;
+    private final int maxConcurrency;
+    private final int maxInFlight;
+    @Nullable
+    private final Consumer<Runnable> saturationHandler;
+    private final Semaphore executionPermits;
+    private final Semaphore inFlightPermits;
+    private final Deque<Runnable> pendingTasks = new ConcurrentLinkedDeque<>();
+    private final Set<Thread> taskThreads = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger inFlightCount = new AtomicInteger();
+    private final AtomicLong completedTaskCount = new AtomicLong();
+    private final Map<Thread, Long> blockStartMillisByCaller = new ConcurrentHashMap<>();
+    private final ReentrantLock terminationLock = new ReentrantLock();
+    private final Condition terminated = terminationLock.newCondition();
+    private volatile boolean shutdown;
+
+    /**
+     * Construct an executor that blocks the caller when saturated.
+     *
+     * @param threadFactory  factory for task threads
+     * @param clock          clock
+     * @param maxConcurrency maximum number of tasks executed concurrently
+     * @param queueCapacity  maximum number of tasks waiting for execution
+     */
+    public SemaphoreBoundedExecutorService(final ThreadFactory threadFactory, final Clock clock, final int maxConcurrency, final int queueCapacity) {
+        this(threadFactory, clock, maxConcurrency, queueCapacity, null);
+    }
+
+    /**
+     * Construct an executor that hands tasks to the provided {@code saturationHandler} when saturated.
+     * If {@code saturationHandler} is {@code null}, the caller is blocked instead.
+     *
+     * @param threadFactory     factory for task threads
+     * @param clock             clock
+     * @param maxConcurrency    maximum number of tasks executed concurrently
+     * @param queueCapacity     maximum number of tasks waiting for execution
+     * @param saturationHandler handler of tasks that cannot be accepted, or {@code null} to block the caller
+     */
+    public SemaphoreBoundedExecutorService(final ThreadFactory threadFactory, final Clock clock, final int maxConcurrency, final int queueCapacity,
+                                           @Nullable final Consumer<Runnable> saturationHandler) {
+        this.threadFactory = requireNonNull(threadFactory, "threadFactory");
+        this.clock = requireNonNull(clock, "clock");
+        checkArgument(maxConcurrency > 0, "maxConcurrency must be positive; was: %s", maxConcurrency);
+        checkArgument(queueCapacity >= 0, "queueCapacity must not be negative; was: %s", queueCapacity);
+        this.maxConcurrency = maxConcurrency;
+        this.maxInFlight = maxConcurrency + queueCapacity;
+        this.saturationHandler = saturationHandler;
+        this.executionPermits = new Semaphore(maxConcurrency, true);
+        this.inFlightPermits = new Semaphore(maxInFlight, true);
+    }
+
+    @Override
+    public void execute(final Runnable command) {
+        requireNonNull(command, "command");
+        if (shutdown) {
+            throw new RejectedExecutionException("Executor has been shut down");
+        }
+        if (!tryAcquireInFlightPermit()) {
+            if (saturationHandler != null) {
+                saturationHandler.accept(command);
+                return;
+            }
+            acquireBlocking();
+        }
+        if (shutdown) {
+            inFlightPermits.release();
+            throw new RejectedExecutionException("Executor has been shut down");
+        }
+        inFlightCount.incrementAndGet();
+        pendingTasks.addLast(command);
+        @Nullable final RejectedExecutionException startFailure = startPendingTasks();
+        if (startFailure != null && pendingTasks.removeLastOccurrence(command)) {
+            taskFinished();
+            throw startFailure;
+        }
+    }
+
+    private boolean tryAcquireInFlightPermit() {
+        try {
+            // Unlike tryAcquire(), honors fairness, not barging ahead of blocked callers
+            return inFlightPermits.tryAcquire(0, TimeUnit.NANOSECONDS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted", e);
+        }
+    }
+
+    private void acquireBlocking() {
+        final Thread caller = Thread.currentThread();
+        try {
+            blockStartMillisByCaller.put(caller, clock.millis());
+            inFlightPermits.acquire();
+        } catch (final InterruptedException e) {
+            caller.interrupt();
+            throw new RejectedExecutionException("Interrupted", e);
+        } finally {
+            blockStartMillisByCaller.remove(caller);
+        }
+    }
+
+    /**
+     * Start waiting tasks while execution permits are available. If a task thread fails to start, the task is returned to the head of the queue to
+     * be started again on next submission or task completion.
+     *
+     * @return failure to start a task thread, or {@code null} if all tasks that may start executing were started
+     */
+    @Nullable
+    private RejectedExecutionException startPendingTasks() {
+        while (!pendingTasks.isEmpty() && executionPermits.tryAcquire()) {
+            final Runnable command = pendingTasks.pollFirst();
+            if (command == null) {
+                // Another thread started the task in between
+                executionPermits.release();
+                continue;
+            }
+            try {
+                final Thread thread = threadFactory.newThread(() -> runTask(command));
+                if (thread == null) {
+                    throw new IllegalStateException("Thread factory did not create a thread");
+                }
+                thread.start();
+            } catch (final RuntimeException | Error e) {
+                pendingTasks.addFirst(command);
+                executionPermits.release();
+                return new RejectedExecutionException("Unable to start task thread", e);
+            }
+        }
+        return null;
+    }
+
+    private void runTask(final Runnable command) {
+        final Thread currentThread = Thread.currentThread();
+        taskThreads.add(currentThread);
+        try {
+            command.run();
+        } finally {
+            taskThreads.remove(currentThread);
+            completedTaskCount.incrementAndGet();
+            executionPermits.release();
+            taskFinished();
+            // A task failing to start is left waiting at the head of the queue
+            startPendingTasks();
+        }
+    }
+
+    private void taskFinished() {
+        inFlightPermits.release();
+        if (inFlightCount.decrementAndGet() == 0 && shutdown) {
+            signalTermination();
+        }
+    }
+
+    private void signalTermination() {
+        terminationLock.lock();
+        try {
+            terminated.signalAll();
+        } finally {
+            terminationLock.unlock();
+        }
+    }
+
+    @Override
+    public Duration getBlockedDuration() {
+        final OptionalLong earliestMillis = blockStartMillisByCaller.values().stream()
+                .mapToLong(Long::longValue)
+                .min();
+        if (earliestMillis.isPresent()) {
+            return Duration.between(Instant.ofEpochMilli(earliestMillis.getAsLong()), clock.instant());
+        } else {
+            return Duration.ZERO;
+        }
+    }
+
+    @Override
+    public int getBlockedCallerCount() {
+        return blockStartMillisByCaller.size();
+    }
+
+    /**
+     * Return the approximate number of tasks currently being executed.
+     *
+     * @return number of executing tasks
+     */
+    public int getActiveCount() {
+        return maxConcurrency - executionPermits.availablePermits();
+    }
+
+    /**
+     * Return the approximate number of tasks waiting for execution.
+     *
+     * @return number of waiting tasks
+     */
+    public int getQueueSize() {
+        return pendingTasks.size();
+    }
+
+    /**
+     * Return the approximate number of tasks that can be accepted without blocking.
+     *
+     * @return remaining capacity
+     */
+    public int getRemainingCapacity() {
+        return inFlightPermits.availablePermits();
+    }
+
+    /**
+     * Return the approximate number of completed tasks.
+     *
+     * @return number of completed tasks
+     */
+    public long getCompletedTaskCount() {
+        return completedTaskCount.get();
+    }
+
+    /**
+     * Return the maximum number of tasks executing or waiting for execution.
+     *
+     * @return maximum number of tasks in flight
+     */
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        if (inFlightCount.get() == 0) {
+            signalTermination();
+        }
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        shutdown();
+        final List<Runnable> notStarted = new ArrayList<>();
+        Runnable command;
+        while ((command = pendingTasks.poll()) != null) {
+            notStarted.add(command);
+            taskFinished();
+        }
+        taskThreads.forEach(Thread::interrupt);
+        return notStarted;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return shutdown && inFlightCount.get() == 0;
+    }
+
+    @Override
+    public boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+        requireNonNull(unit, "unit");
+        long nanos = unit.toNanos(timeout);
+        terminationLock.lock();
+        try {
+            while (!isTerminated()) {
+                if (nanos <= 0L) {
+                    return false;
+                }
+                nanos = terminated.awaitNanos(nanos);
+            }
+            return true;
+        } finally {
+            terminationLock.unlock();
+        }
+    }
+}
@@ -26,9 +26,11 @@ import org.springframework.test.context.support.AnnotationConfigContextLoader;
 
 import java.time.Clock;
 import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
@@ -163,6 +165,123 @@ class DatabaseAccessTest {
         databaseAccessTestUtil.assertRejectedMessagesContains(archiveAviationMessage);
     }
 
+    @Test
+    void test_insert_aviation_messages_in_batch() {
+        final ArchiveAviationMessage messageWithIwxxmDetails = TEST_MESSAGE.toBuilder()
+                .setMessage("TAF 2 =")
+                .setIWXXMDetails(
+                        ArchiveAviationMessageIWXXMDetails.builder().setCollectIdentifier("test identifier").setXMLNamespace(IWXXM_2_1_NAMESPACE).build())
+                .build();
+        final ArchiveAviationMessage rejectedMessage = TEST_MESSAGE.toBuilder()
+                .setProcessingResult(ProcessingResult.UNKNOWN_STATION_ICAO_CODE)
+                .setIWXXMDetails(ArchiveAviationMessageIWXXMDetails.builder().setXMLNamespace(IWXXM_2_1_NAMESPACE).build())
+                .build();
+
+        databaseAccess.insertAviationMessages(List.of(TEST_MESSAGE, messageWithIwxxmDetails), List.of(rejectedMessage), loggingContext);
+
+        assertThat(databaseAccessTestUtil.fetchArchiveMessages())
+                .extracting(ArchiveAviationMessage::getMessage, ArchiveAviationMessage::getIWXXMDetails)
+                .containsExactlyInAnyOrder(
+                        tuple(TEST_MESSAGE.getMessage(), TEST_MESSAGE.getIWXXMDetails()),
+                        tuple(messageWithIwxxmDetails.getMessage(), messageWithIwxxmDetails.getIWXXMDetails()));
+        databaseAccessTestUtil.assertRejectedMessagesContains(rejectedMessage);
+    }
+
+    @Test
+    void test_insert_aviation_messages_in_batch_is_rolled_back_on_failure() {
+        final ArchiveAviationMessage invalidMessage = TEST_MESSAGE.toBuilder().setStationId(200).build();
+        final ArchiveAviationMessage rejectedMessage = TEST_MESSAGE.toBuilder().setProcessingResult(ProcessingResult.UNKNOWN_STATION_ICAO_CODE).build();
+
+        assertThrows(DataIntegrityViolationException.class,
+                () -> databaseAccess.insertAviationMessages(List.of(TEST_MESSAGE, invalidMessage), List.of(rejectedMessage), loggingContext));
+
+        databaseAccessTestUtil.assertMessagesEmpty();
+        databaseAccessTestUtil.assertRejectedMessagesEmpty();
+    }
+
+    @Test
+    void test_bulk_insert_aviation_messages_falls_back_to_batch_insert_on_h2() {
+        final ArchiveAviationMessage messageWithIwxxmDetails = TEST_MESSAGE.toBuilder()
+                .setMessage("TAF 2 =")
+                .setIWXXMDetails(
+                        ArchiveAviationMessageIWXXMDetails.builder().setCollectIdentifier("test identifier").setXMLNamespace(IWXXM_2_1_NAMESPACE).build())
+                .build();
+        final ArchiveAviationMessage rejectedMessage = TEST_MESSAGE.toBuilder().setProcessingResult(ProcessingResult.UNKNOWN_STATION_ICAO_CODE).build();
+
+        databaseAccess.bulkInsertAviationMessages(List.of(TEST_MESSAGE, messageWithIwxxmDetails), List.of(rejectedMessage), loggingContext);
+
+        assertThat(databaseAccessTestUtil.fetchArchiveMessages())
+                .extracting(ArchiveAviationMessage::getMessage, ArchiveAviationMessage::getIWXXMDetails)
+                .containsExactlyInAnyOrder(
+                        tuple(TEST_MESSAGE.getMessage(), TEST_MESSAGE.getIWXXMDetails()),
+                        tuple(messageWithIwxxmDetails.getMessage(), messageWithIwxxmDetails.getIWXXMDetails()));
+        databaseAccessTestUtil.assertRejectedMessagesContains(rejectedMessage);
+    }
+
+    @Test
+    void test_cte_insert_aviation_messages_falls_back_to_batch_insert_on_h2() {
+        final ArchiveAviationMessage messageWithIwxxmDetails = TEST_MESSAGE.toBuilder()
+                .setMessage("TAF 2 =")
+                .setIWXXMDetails(
+                        ArchiveAviationMessageIWXXMDetails.builder().setCollectIdentifier("test identifier").setXMLNamespace(IWXXM_2_1_NAMESPACE).build())
+                .build();
+        final ArchiveAviationMessage rejectedMessage = TEST_MESSAGE.toBuilder().setProcessingResult(ProcessingResult.UNKNOWN_STATION_ICAO_CODE).build();
+
+        databaseAccess.cteInsertAviationMessages(List.of(TEST_MESSAGE, messageWithIwxxmDetails), List.of(rejectedMessage), loggingContext);
+
+        assertThat(databaseAccessTestUtil.fetchArchiveMessages())
+                .extracting(ArchiveAviationMessage::getMessage, ArchiveAviationMessage::getIWXXMDetails)
+                .containsExactlyInAnyOrder(
+                        tuple(TEST_MESSAGE.getMessage(), TEST_MESSAGE.getIWXXMDetails()),
+                        tuple(messageWithIwxxmDetails.getMessage(), messageWithIwxxmDetails.getIWXXMDetails()));
+        databaseAccessTestUtil.assertRejectedMessagesContains(rejectedMessage);
+    }
+
+    @Test
+    void test_execute_in_transaction_with_savepoint_rolled_back() {
+        final ArchiveAviationMessage invalidMessage = TEST_MESSAGE.toBuilder().setStationId(200).build();
+
+        databaseAccess.executeInTransaction("test", loggingContext, status -> {
+            databaseAccess.insertAviationMessage(TEST_MESSAGE, loggingContext);
+            final Object savepoint = status.createSavepoint();
+            assertThrows(DataIntegrityViolationException.class, () -> databaseAccess.insertAviationMessage(invalidMessage, loggingContext));
+            status.rollbackToSavepoint(savepoint);
+            return null;
+        });
+
+        databaseAccessTestUtil.assertMessagesContains(TEST_MESSAGE);
+    }
+
+    @Test
+    void test_execute_in_transaction_is_rolled_back_on_failure() {
+        assertThrows(IllegalStateException.class, () -> databaseAccess.executeInTransaction("test", loggingContext, status -> {
+            databaseAccess.insertAviationMessage(TEST_MESSAGE, loggingContext);
+            throw new IllegalStateException("test");
+        }));
+
+        databaseAccessTestUtil.assertMessagesEmpty();
+    }
+
+    @Test
+    void test_execute_in_transaction_is_retried_as_whole() {
+        doCallRealMethod().doThrow(QueryTimeoutException.class)
+                .doCallRealMethod()
+                .when(jdbcTemplate)
+                .update(any(PreparedStatementCreator.class), any(KeyHolder.class));
+        final ArchiveAviationMessage secondMessage = TEST_MESSAGE.toBuilder().setMessage("TAF 2 =").build();
+
+        databaseAccess.executeInTransaction("test", loggingContext, status -> {
+            databaseAccess.insertAviationMessage(TEST_MESSAGE, loggingContext);
+            databaseAccess.insertAviationMessage(secondMessage, loggingContext);
+            return null;
+        });
+
+        verify(jdbcTemplate, times(4)).update(any(PreparedStatementCreator.class), any(KeyHolder.class));
+        assertThat(databaseAccessTestUtil.fetchArchiveMessages())
+                .extracting(ArchiveAviationMessage::getMessage)
+                .containsExactlyInAnyOrder(TEST_MESSAGE.getMessage(), secondMessage.getMessage());
+    }
+
     @Test
     void test_query_existing_station() {
         final Optional<Integer> testId = databaseAccess.queryStationId("EFXX", loggingContext);
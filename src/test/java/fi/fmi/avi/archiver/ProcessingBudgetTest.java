@@ -0,0 +1,74 @@
+package fi.fmi.avi.archiver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+import fi.fmi.avi.archiver.file.FileProcessingIdentifier;
+
+class ProcessingBudgetTest {
+    private static final FileProcessingIdentifier PROCESSING_ID_1 = FileProcessingIdentifier.newInstance();
+    private static final FileProcessingIdentifier PROCESSING_ID_2 = FileProcessingIdentifier.newInstance();
+
+    @Test
+    void unlimited_budget_is_never_exhausted() {
+        final ProcessingBudget budget = new ProcessingBudget(ProcessingBudget.UNLIMITED, ProcessingBudget.UNLIMITED);
+
+        budget.reserveBytes(PROCESSING_ID_1, Long.MAX_VALUE / 2);
+        budget.reserveMessages(PROCESSING_ID_1, Integer.MAX_VALUE);
+
+        assertThat(budget.isExhausted()).isFalse();
+    }
+
+    @Test
+    void budget_is_exhausted_when_bytes_reach_limit() {
+        final ProcessingBudget budget = new ProcessingBudget(100, ProcessingBudget.UNLIMITED);
+
+        budget.reserveBytes(PROCESSING_ID_1, 60);
+        assertThat(budget.isExhausted()).isFalse();
+        budget.reserveBytes(PROCESSING_ID_2, 40);
+
+        assertThat(budget.isExhausted()).isTrue();
+        assertThat(budget.getBytesInUse()).isEqualTo(100);
+        assertThat(budget.getFileCount()).isEqualTo(2);
+    }
+
+    @Test
+    void budget_is_exhausted_when_messages_reach_limit() {
+        final ProcessingBudget budget = new ProcessingBudget(ProcessingBudget.UNLIMITED, 10);
+
+        budget.reserveMessages(PROCESSING_ID_1, 9);
+        assertThat(budget.isExhausted()).isFalse();
+        budget.reserveMessages(PROCESSING_ID_2, 1);
+
+        assertThat(budget.isExhausted()).isTrue();
+        assertThat(budget.getMessagesInUse()).isEqualTo(10);
+    }
+
+    @Test
+    void release_frees_all_work_reserved_for_file_processing() {
+        final ProcessingBudget budget = new ProcessingBudget(100, 10);
+        budget.reserveBytes(PROCESSING_ID_1, 100);
+        budget.reserveMessages(PROCESSING_ID_1, 10);
+        budget.reserveBytes(PROCESSING_ID_2, 5);
+        budget.reserveMessages(PROCESSING_ID_2, 1);
+
+        budget.release(PROCESSING_ID_1);
+
+        assertThat(budget.isExhausted()).isFalse();
+        assertThat(budget.getBytesInUse()).isEqualTo(5);
+        assertThat(budget.getMessagesInUse()).isEqualTo(1);
+        assertThat(budget.getFileCount()).isEqualTo(1);
+    }
+
+    @Test
+    void release_of_unreserved_file_processing_does_nothing() {
+        final ProcessingBudget budget = new ProcessingBudget(100, 10);
+        budget.reserveBytes(PROCESSING_ID_1, 50);
+
+        budget.release(PROCESSING_ID_2);
+
+        assertThat(budget.getBytesInUse()).isEqualTo(50);
+        assertThat(budget.getFileCount()).isEqualTo(1);
+    }
+}
@@ -2,8 +2,11 @@ package fi.fmi.avi.archiver.config.factory.postaction;
 
 import com.google.common.testing.AbstractPackageSanityTests;
 import fi.fmi.avi.archiver.message.processor.postaction.AbstractRetryingPostAction;
+import fi.fmi.avi.archiver.metrics.ExecutorMetrics;
+import fi.fmi.avi.archiver.metrics.IngestLatencyMetrics;
 import fi.fmi.avi.archiver.message.processor.postaction.SwimRabbitMQPublisher;
 import fi.fmi.avi.archiver.util.GeneratedClasses;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.springframework.retry.support.RetryTemplate;
 
 import java.time.Clock;
@@ -23,6 +26,8 @@ public class PackageSanityTest extends AbstractPackageSanityTests {
         setDefault(AbstractRetryingPostAction.RetryParams.class, new AbstractRetryingPostAction.RetryParams(
                 mock(ThreadPoolExecutor.class), Duration.ZERO, RetryTemplate.defaultInstance()));
         setDefault(Clock.class, Clock.systemUTC());
+        setDefault(ExecutorMetrics.class, new ExecutorMetrics(new SimpleMeterRegistry()));
+        setDefault(IngestLatencyMetrics.class, mock(IngestLatencyMetrics.class));
         setDefault(SwimRabbitMQPublisher.MessageConfig.class, mock(SwimRabbitMQPublisher.MessageConfig.class));
     }
 }
@@ -8,6 +8,7 @@ import com.rabbitmq.client.amqp.impl.AmqpEnvironmentBuilder;
 import fi.fmi.avi.archiver.config.factory.postaction.SwimRabbitMQPublisherFactory.Config;
 import fi.fmi.avi.archiver.message.processor.postaction.AbstractRetryingPostAction;
 import fi.fmi.avi.archiver.message.processor.postaction.SwimRabbitMQPublisher;
+import fi.fmi.avi.archiver.metrics.IngestLatencyMetrics;
 import fi.fmi.avi.archiver.spring.healthcontributor.RabbitMQConnectionHealthIndicator;
 import fi.fmi.avi.archiver.spring.healthcontributor.RabbitMQPublisherHealthIndicator;
 import fi.fmi.avi.archiver.spring.healthcontributor.SwimRabbitMQConnectionHealthContributor;
@@ -112,6 +113,8 @@ class SwimRabbitMQPublisherFactoryTest {
     @Mock
     private SwimRabbitMQConnectionHealthContributor healthContributorRegistry;
     @Mock
+    private IngestLatencyMetrics ingestLatencyMetrics;
+    @Mock
     private Message amqpMessage;
     @Mock
     private Publisher.Callback amqpMessageCallback;
@@ -213,7 +216,8 @@ class SwimRabbitMQPublisherFactoryTest {
     }
 
     private TestSwimRabbitMQPublisherFactory newSwimRabbitMQPublisherFactory(final BiMap<MessageType, Integer> messageTypeIds) {
-        return new TestSwimRabbitMQPublisherFactory(configFactory, retryParamsFactory, healthContributorRegistry, CLOCK, IWXXM_FORMAT_ID, messageTypeIds);
+        return new TestSwimRabbitMQPublisherFactory(configFactory, retryParamsFactory, healthContributorRegistry, CLOCK, IWXXM_FORMAT_ID, messageTypeIds,
+                ingestLatencyMetrics);
     }
 
     @Test
@@ -671,8 +675,9 @@ class SwimRabbitMQPublisherFactoryTest {
                 final SwimRabbitMQConnectionHealthContributor healthContributorRegistry,
                 final Clock clock,
                 final int iwxxmFormatId,
-                final BiMap<MessageType, Integer> messageTypeIds) {
-            super(configFactory, retryParamsFactory, healthContributorRegistry, clock, iwxxmFormatId, messageTypeIds);
+                final BiMap<MessageType, Integer> messageTypeIds,
+                final IngestLatencyMetrics ingestLatencyMetrics) {
+            super(configFactory, retryParamsFactory, healthContributorRegistry, clock, iwxxmFormatId, messageTypeIds, ingestLatencyMetrics);
             this.openMocks = MockitoAnnotations.openMocks(this);
             when(amqpEnvironmentBuilder.build()).thenReturn(environment);
             when(environment.connectionBuilder()).thenReturn(connectionBuilder);
@@ -0,0 +1,235 @@
+package fi.fmi.avi.archiver.database;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.slf4j.MDC;
+import org.springframework.dao.QueryTimeoutException;
+
+import fi.fmi.avi.archiver.DefaultProcessingServiceContext;
+import fi.fmi.avi.archiver.ProcessingServiceContext;
+import fi.fmi.avi.archiver.file.InputAviationMessage;
+import fi.fmi.avi.archiver.logging.model.NoOpLoggingContext;
+import fi.fmi.avi.archiver.message.ArchivalStatus;
+import fi.fmi.avi.archiver.message.ArchiveAviationMessage;
+import fi.fmi.avi.archiver.message.InputAndArchiveAviationMessage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+class AsyncDatabaseWriterTest {
+    private static final long TIMEOUT_SECONDS = 5;
+    private static final List<InputAndArchiveAviationMessage> MESSAGES = List.of(new InputAndArchiveAviationMessage(
+            InputAviationMessage.builder().buildPartial(), ArchiveAviationMessage.builder().buildPartial()));
+    private static final List<InputAndArchiveAviationMessage> STORED_MESSAGES = List.of(new InputAndArchiveAviationMessage(
+            InputAviationMessage.builder().buildPartial(), ArchiveAviationMessage.builder().setArchivalStatus(ArchivalStatus.ARCHIVED).buildPartial()));
+    private static final List<InputAndArchiveAviationMessage> MESSAGES_2 = List.of(new InputAndArchiveAviationMessage(
+            InputAviationMessage.builder().buildPartial(), ArchiveAviationMessage.builder().setMessage("second").buildPartial()));
+
+    @Mock
+    private DatabaseService databaseService;
+    @Mock
+    private DatabaseAccess databaseAccess;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ProcessingServiceContext context;
+    private AsyncDatabaseWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        context = new DefaultProcessingServiceContext(NoOpLoggingContext.getInstance());
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (writer != null) {
+            writer.close();
+        }
+    }
+
+    private AsyncDatabaseWriter writer(final Duration initialInterval, final Duration timeout, final Duration probeInterval) {
+        return writer(100, initialInterval, timeout, probeInterval);
+    }
+
+    private AsyncDatabaseWriter writer(final int capacity, final Duration initialInterval, final Duration timeout, final Duration probeInterval) {
+        writer = new AsyncDatabaseWriter(databaseService, databaseAccess, meterRegistry, 2, capacity, initialInterval, 2,
+                initialInterval.multipliedBy(10), timeout, probeInterval);
+        return writer;
+    }
+
+    private void awaitParkedWrites(final int expected) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (writer.getParkedWriteCount() != expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(writer.getParkedWriteCount()).isEqualTo(expected);
+    }
+
+    private static List<InputAndArchiveAviationMessage> storeConcurrently(final AtomicBoolean databaseAvailable,
+            final CyclicBarrier concurrentAttempts, final List<InputAndArchiveAviationMessage> storedMessages) throws Exception {
+        if (!databaseAvailable.get()) {
+            throw new QueryTimeoutException("test");
+        }
+        // Fails unless another write is attempted at the same time
+        concurrentAttempts.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        return storedMessages;
+    }
+
+    private double retries() {
+        return meterRegistry.get("archiver.database.writer.retries").counter().count();
+    }
+
+    @Test
+    void writes_messages() throws Exception {
+        when(databaseService.attemptInsertMessages(MESSAGES, context, false)).thenReturn(STORED_MESSAGES);
+
+        final CompletableFuture<List<InputAndArchiveAviationMessage>> result = writer(Duration.ofMillis(10), Duration.ZERO, Duration.ofHours(1))//
+                .write(MESSAGES, context);
+
+        assertThat(result.get(TIMEOUT_SECONDS, TimeUnit.SECONDS)).isEqualTo(STORED_MESSAGES);
+        assertThat(writer.isAvailable()).isTrue();
+    }
+
+    @Test
+    void retries_parked_write_after_retryable_failure() throws Exception {
+        when(databaseService.attemptInsertMessages(MESSAGES, context, false))//
+                .thenThrow(new QueryTimeoutException("test"))//
+                .thenReturn(STORED_MESSAGES);
+
+        final CompletableFuture<List<InputAndArchiveAviationMessage>> result = writer(Duration.ofMillis(10), Duration.ZERO, Duration.ofHours(1))//
+                .write(MESSAGES, context);
+
+        assertThat(result.get(TIMEOUT_SECONDS, TimeUnit.SECONDS)).isEqualTo(STORED_MESSAGES);
+        assertThat(retries()).isEqualTo(1);
+    }
+
+    @Test
+    void fails_on_non_retryable_failure() {
+        when(databaseService.attemptInsertMessages(MESSAGES, context, false)).thenThrow(new DataIntegrityViolationException("test"));
+
+        final CompletableFuture<List<InputAndArchiveAviationMessage>> result = writer(Duration.ofMillis(10), Duration.ZERO, Duration.ofHours(1))//
+                .write(MESSAGES, context);
+
+        assertThatThrownBy(() -> result.get(TIMEOUT_SECONDS, TimeUnit.SECONDS))//
+                .isInstanceOf(ExecutionException.class)//
+                .hasCauseInstanceOf(DataIntegrityViolationException.class);
+        assertThat(retries()).isZero();
+    }
+
+    @Test
+    void resumes_parked_write_when_database_is_available_again() throws Exception {
+        when(databaseService.attemptInsertMessages(MESSAGES, context, false))//
+                .thenThrow(new QueryTimeoutException("test"))//
+                .thenReturn(STORED_MESSAGES);
+        when(databaseAccess.isAvailable()).thenReturn(true);
+
+        final CompletableFuture<List<InputAndArchiveAviationMessage>> result = writer(Duration.ofHours(1), Duration.ZERO, Duration.ofMillis(10))//
+                .write(MESSAGES, context);
+
+        assertThat(result.get(TIMEOUT_SECONDS, TimeUnit.SECONDS)).isEqualTo(STORED_MESSAGES);
+    }
+
+    @Test
+    void makes_last_attempt_after_timeout() throws Exception {
+        when(databaseService.attemptInsertMessages(eq(MESSAGES), eq(context), anyBoolean()))//
+                .thenThrow(new QueryTimeoutException("test"))//
+                .thenReturn(STORED_MESSAGES);
+
+        final CompletableFuture<List<InputAndArchiveAviationMessage>> result = writer(Duration.ofMillis(200), Duration.ofMillis(100),
+                Duration.ofHours(1)).write(MESSAGES, context);
+
+        assertThat(result.get(TIMEOUT_SECONDS, TimeUnit.SECONDS)).isEqualTo(STORED_MESSAGES);
+        verify(databaseService).attemptInsertMessages(MESSAGES, context, true);
+    }
+
+    @Test
+    void fails_parked_writes_on_close() throws InterruptedException {
+        when(databaseService.attemptInsertMessages(MESSAGES, context, false)).thenThrow(new QueryTimeoutException("test"));
+        final CompletableFuture<List<InputAndArchiveAviationMessage>> result = writer(Duration.ofHours(1), Duration.ZERO, Duration.ofHours(1))//
+                .write(MESSAGES, context);
+        awaitParkedWrites(1);
+
+        writer.close();
+
+        assertThatThrownBy(() -> result.get(TIMEOUT_SECONDS, TimeUnit.SECONDS))//
+                .isInstanceOf(ExecutionException.class)//
+                .hasCauseInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void resumes_parked_writes_of_different_files_concurrently() throws Exception {
+        final AtomicBoolean databaseAvailable = new AtomicBoolean();
+        final CyclicBarrier concurrentAttempts = new CyclicBarrier(2);
+        when(databaseAccess.isAvailable()).thenAnswer(invocation -> databaseAvailable.get());
+        when(databaseService.attemptInsertMessages(MESSAGES, context, false))//
+                .thenAnswer(invocation -> storeConcurrently(databaseAvailable, concurrentAttempts, STORED_MESSAGES));
+        when(databaseService.attemptInsertMessages(MESSAGES_2, context, false))//
+                .thenAnswer(invocation -> storeConcurrently(databaseAvailable, concurrentAttempts, MESSAGES_2));
+        final CompletableFuture<List<InputAndArchiveAviationMessage>> first = writer(Duration.ofHours(1), Duration.ZERO, Duration.ofMillis(10))//
+                .write(MESSAGES, context);
+        final CompletableFuture<List<InputAndArchiveAviationMessage>> second = writer.write(MESSAGES_2, context);
+        awaitParkedWrites(2);
+
+        databaseAvailable.set(true);
+
+        assertThat(first.get(TIMEOUT_SECONDS, TimeUnit.SECONDS)).isEqualTo(STORED_MESSAGES);
+        assertThat(second.get(TIMEOUT_SECONDS, TimeUnit.SECONDS)).isEqualTo(MESSAGES_2);
+        assertThat(writer.isAvailable()).isTrue();
+    }
+
+    @Test
+    void blocks_writes_when_capacity_is_reached() throws Exception {
+        when(databaseService.attemptInsertMessages(MESSAGES, context, false)).thenThrow(new QueryTimeoutException("test"));
+        writer(1, Duration.ofHours(1), Duration.ZERO, Duration.ofHours(1)).write(MESSAGES, context);
+        awaitParkedWrites(1);
+
+        final CompletableFuture<List<InputAndArchiveAviationMessage>> blocked = CompletableFuture.supplyAsync(() -> writer.write(MESSAGES_2, context))//
+                .thenCompose(future -> future);
+        Thread.sleep(100);
+        assertThat(blocked).isNotDone();
+        writer.close();
+
+        assertThatThrownBy(() -> blocked.get(TIMEOUT_SECONDS, TimeUnit.SECONDS))//
+                .isInstanceOf(ExecutionException.class)//
+                .hasCauseInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void applies_mdc_of_caller_while_writing() throws Exception {
+        final AtomicReference<String> mdcValue = new AtomicReference<>();
+        when(databaseService.attemptInsertMessages(MESSAGES, context, false)).thenAnswer(invocation -> {
+            mdcValue.set(MDC.get("test"));
+            return STORED_MESSAGES;
+        });
+        writer(Duration.ofMillis(10), Duration.ZERO, Duration.ofHours(1));
+
+        MDC.put("test", "value");
+        try {
+            writer.write(MESSAGES, context).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } finally {
+            MDC.remove("test");
+        }
+
+        assertThat(mdcValue).hasValue("value");
+    }
+}
@@ -0,0 +1,126 @@
+package fi.fmi.avi.archiver.database;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+
+import com.google.common.testing.FakeTicker;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import fi.fmi.avi.archiver.logging.model.NoOpLoggingContext;
+import fi.fmi.avi.archiver.logging.model.ReadableLoggingContext;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+class CachingStationIdResolverTest {
+    private static final Duration TIME_TO_LIVE = Duration.ofHours(1);
+    private static final Duration REFRESH_INTERVAL = Duration.ofMinutes(10);
+    private static final ReadableLoggingContext LOGGING_CONTEXT = NoOpLoggingContext.getInstance();
+
+    @Mock
+    private DatabaseAccess databaseAccess;
+
+    private SimpleMeterRegistry meterRegistry;
+    private FakeTicker ticker;
+    private CachingStationIdResolver resolver;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        ticker = new FakeTicker();
+        resolver = new CachingStationIdResolver(databaseAccess, meterRegistry, MoreExecutors.directExecutor(), TIME_TO_LIVE, REFRESH_INTERVAL, 100,
+                ticker);
+    }
+
+    private double hitRatio() {
+        return meterRegistry.get("archiver.station.cache.hit.ratio").gauge().value();
+    }
+
+    private double refreshFailures() {
+        return meterRegistry.get("archiver.station.cache.refresh.failures").counter().count();
+    }
+
+    @Test
+    void caches_known_station() {
+        when(databaseAccess.findStationId(eq("EFHK"), any())).thenReturn(Optional.of(1));
+
+        assertThat(resolver.resolveStationId("EFHK", LOGGING_CONTEXT)).contains(1);
+        assertThat(resolver.resolveStationId("EFHK", LOGGING_CONTEXT)).contains(1);
+
+        verify(databaseAccess, times(1)).findStationId(eq("EFHK"), any());
+        assertThat(hitRatio()).isEqualTo(0.5);
+    }
+
+    @Test
+    void caches_unknown_station() {
+        when(databaseAccess.findStationId(eq("XXXX"), any())).thenReturn(Optional.empty());
+
+        assertThat(resolver.resolveStationId("XXXX", LOGGING_CONTEXT)).isEmpty();
+        assertThat(resolver.resolveStationId("XXXX", LOGGING_CONTEXT)).isEmpty();
+
+        verify(databaseAccess, times(1)).findStationId(eq("XXXX"), any());
+    }
+
+    @Test
+    void does_not_cache_lookup_errors() {
+        when(databaseAccess.findStationId(eq("EFHK"), any()))//
+                .thenThrow(new QueryTimeoutException("test"))//
+                .thenReturn(Optional.of(1));
+
+        assertThat(resolver.resolveStationId("EFHK", LOGGING_CONTEXT)).isEmpty();
+        assertThat(resolver.resolveStationId("EFHK", LOGGING_CONTEXT)).contains(1);
+
+        verify(databaseAccess, times(2)).findStationId(eq("EFHK"), any());
+    }
+
+    @Test
+    void refreshes_entry_after_refresh_interval() {
+        when(databaseAccess.findStationId(eq("EFHK"), any()))//
+                .thenReturn(Optional.empty())//
+                .thenReturn(Optional.of(1));
+
+        assertThat(resolver.resolveStationId("EFHK", LOGGING_CONTEXT)).isEmpty();
+        ticker.advance(REFRESH_INTERVAL.plusSeconds(1));
+
+        assertThat(resolver.resolveStationId("EFHK", LOGGING_CONTEXT)).contains(1);
+        assertThat(refreshFailures()).isZero();
+    }
+
+    @Test
+    void retains_cached_value_when_refresh_fails() {
+        when(databaseAccess.findStationId(eq("EFHK"), any()))//
+                .thenReturn(Optional.of(1))//
+                .thenThrow(new QueryTimeoutException("test"));
+
+        assertThat(resolver.resolveStationId("EFHK", LOGGING_CONTEXT)).contains(1);
+        ticker.advance(REFRESH_INTERVAL.plusSeconds(1));
+
+        assertThat(resolver.resolveStationId("EFHK", LOGGING_CONTEXT)).contains(1);
+        assertThat(refreshFailures()).isEqualTo(1);
+    }
+
+    @Test
+    void expires_entry_after_time_to_live() {
+        when(databaseAccess.findStationId(eq("EFHK"), any()))//
+                .thenReturn(Optional.of(1))//
+                .thenThrow(new QueryTimeoutException("test"));
+
+        assertThat(resolver.resolveStationId("EFHK", LOGGING_CONTEXT)).contains(1);
+        ticker.advance(TIME_TO_LIVE.plusSeconds(1));
+
+        assertThat(resolver.resolveStationId("EFHK", LOGGING_CONTEXT)).isEmpty();
+    }
+}
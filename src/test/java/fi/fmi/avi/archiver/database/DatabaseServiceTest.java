@@ -0,0 +1,133 @@
+package fi.fmi.avi.archiver.database;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import fi.fmi.avi.archiver.DefaultProcessingServiceContext;
+import fi.fmi.avi.archiver.ProcessingBudget;
+import fi.fmi.avi.archiver.ProcessingServiceContext;
+import fi.fmi.avi.archiver.file.InputAviationMessage;
+import fi.fmi.avi.archiver.logging.model.NoOpLoggingContext;
+import fi.fmi.avi.archiver.message.ArchivalStatus;
+import fi.fmi.avi.archiver.message.ArchiveAviationMessage;
+import fi.fmi.avi.archiver.message.InputAndArchiveAviationMessage;
+import fi.fmi.avi.archiver.message.ProcessingResult;
+import fi.fmi.avi.archiver.metrics.IngestLatencyMetrics;
+
+@ExtendWith(MockitoExtension.class)
+class DatabaseServiceTest {
+    private static final long BULK_LOAD_THRESHOLD = 10;
+    private static final ArchiveAviationMessage MESSAGE = ArchiveAviationMessage.builder()//
+            .setMessage("METAR EFHK 011200Z 00000KT CAVOK 10/05 Q1010=")//
+            .setType(1)//
+            .setRoute(1)//
+            .setFormat(1)//
+            .setStationIcaoCode("EFHK")//
+            .setStationId(1)//
+            .setMessageTime(Instant.parse("2024-01-01T12:00:00Z"))//
+            .build();
+    private static final ArchiveAviationMessage REJECTED_MESSAGE = ArchiveAviationMessage.builder()//
+            .setMessage("METAR XXXX 011200Z 00000KT CAVOK 10/05 Q1010=")//
+            .setType(1)//
+            .setRoute(1)//
+            .setFormat(1)//
+            .setStationIcaoCode("XXXX")//
+            .setMessageTime(Instant.parse("2024-01-01T12:00:00Z"))//
+            .setProcessingResult(ProcessingResult.UNKNOWN_STATION_ICAO_CODE)//
+            .build();
+    private static final List<InputAndArchiveAviationMessage> MESSAGES = List.of(//
+            new InputAndArchiveAviationMessage(InputAviationMessage.builder().buildPartial(), MESSAGE), //
+            new InputAndArchiveAviationMessage(InputAviationMessage.builder().buildPartial(), REJECTED_MESSAGE));
+
+    @Mock
+    private DatabaseAccess databaseAccess;
+    @Mock
+    private IngestLatencyMetrics ingestLatencyMetrics;
+    @Mock
+    private ProcessingBudget processingBudget;
+
+    private ProcessingServiceContext context;
+
+    @BeforeEach
+    void setUp() {
+        context = new DefaultProcessingServiceContext(NoOpLoggingContext.getInstance());
+    }
+
+    private DatabaseService databaseService(final boolean batchInsert) {
+        return new DatabaseService(databaseAccess, ingestLatencyMetrics, processingBudget, false, batchInsert, false, BULK_LOAD_THRESHOLD);
+    }
+
+    private void givenFailingBulkLoad() {
+        when(processingBudget.getMessagesInUse()).thenReturn(BULK_LOAD_THRESHOLD);
+        doThrow(new DataIntegrityViolationException("copy failed"))//
+                .when(databaseAccess).bulkInsertAviationMessages(anyList(), anyList(), any());
+    }
+
+    @Test
+    void bulk_loads_messages_when_backlogged() {
+        when(processingBudget.getMessagesInUse()).thenReturn(BULK_LOAD_THRESHOLD);
+
+        final List<InputAndArchiveAviationMessage> result = databaseService(true).insertMessages(MESSAGES, context);
+
+        assertThat(result)//
+                .extracting(message -> message.archiveMessage().getArchivalStatus())//
+                .containsExactly(ArchivalStatus.ARCHIVED, ArchivalStatus.REJECTED);
+        verify(databaseAccess).bulkInsertAviationMessages(List.of(MESSAGE), List.of(REJECTED_MESSAGE), context.getLoggingContext());
+        verify(databaseAccess, never()).insertAviationMessages(anyList(), anyList(), any());
+    }
+
+    @Test
+    void does_not_bulk_load_messages_when_not_backlogged() {
+        when(processingBudget.getMessagesInUse()).thenReturn(BULK_LOAD_THRESHOLD - 1);
+
+        databaseService(true).insertMessages(MESSAGES, context);
+
+        verify(databaseAccess, never()).bulkInsertAviationMessages(anyList(), anyList(), any());
+        verify(databaseAccess).insertAviationMessages(List.of(MESSAGE), List.of(REJECTED_MESSAGE), context.getLoggingContext());
+    }
+
+    @Test
+    void falls_back_to_batch_insertion_when_bulk_load_fails() {
+        givenFailingBulkLoad();
+
+        final List<InputAndArchiveAviationMessage> result = databaseService(true).insertMessages(MESSAGES, context);
+
+        assertThat(result)//
+                .extracting(message -> message.archiveMessage().getArchivalStatus())//
+                .containsExactly(ArchivalStatus.ARCHIVED, ArchivalStatus.REJECTED);
+        verify(databaseAccess).insertAviationMessages(List.of(MESSAGE), List.of(REJECTED_MESSAGE), context.getLoggingContext());
+        verify(databaseAccess, never()).insertAviationMessage(any(), any());
+        verify(ingestLatencyMetrics).recordStored(MESSAGES.get(0).inputMessage(), MESSAGE);
+        verify(ingestLatencyMetrics).recordStored(MESSAGES.get(1).inputMessage(), REJECTED_MESSAGE);
+    }
+
+    @Test
+    void falls_back_to_insertion_one_by_one_when_bulk_load_fails() {
+        givenFailingBulkLoad();
+
+        final List<InputAndArchiveAviationMessage> result = databaseService(false).insertMessages(MESSAGES, context);
+
+        assertThat(result)//
+                .extracting(message -> message.archiveMessage().getArchivalStatus())//
+                .containsExactly(ArchivalStatus.ARCHIVED, ArchivalStatus.REJECTED);
+        assertThat(context.isProcessingErrors()).isFalse();
+        verify(databaseAccess).insertAviationMessage(MESSAGE, context.getLoggingContext());
+        verify(databaseAccess).insertRejectedAviationMessage(REJECTED_MESSAGE, context.getLoggingContext());
+        verify(databaseAccess, never()).insertAviationMessages(anyList(), anyList(), any());
+    }
+}
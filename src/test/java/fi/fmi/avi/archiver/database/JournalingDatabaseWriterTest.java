@@ -0,0 +1,224 @@
+package fi.fmi.avi.archiver.database;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+
+import fi.fmi.avi.archiver.DefaultProcessingServiceContext;
+import fi.fmi.avi.archiver.ProcessingServiceContext;
+import fi.fmi.avi.archiver.file.InputAviationMessage;
+import fi.fmi.avi.archiver.logging.model.NoOpLoggingContext;
+import fi.fmi.avi.archiver.message.ArchivalStatus;
+import fi.fmi.avi.archiver.message.ArchiveAviationMessage;
+import fi.fmi.avi.archiver.message.InputAndArchiveAviationMessage;
+import fi.fmi.avi.archiver.message.ProcessingResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+class JournalingDatabaseWriterTest {
+    private static final ArchiveAviationMessage MESSAGE = ArchiveAviationMessage.builder()//
+            .setMessage("METAR EFHK 011200Z 00000KT CAVOK 10/05 Q1010=")//
+            .setType(1)//
+            .setRoute(1)//
+            .setFormat(1)//
+            .setStationIcaoCode("EFHK")//
+            .setStationId(1)//
+            .setMessageTime(Instant.parse("2024-01-01T12:00:00Z"))//
+            .build();
+    private static final ArchiveAviationMessage MESSAGE_2 = MESSAGE.toBuilder()//
+            .setMessage("METAR EFRO 011200Z 00000KT CAVOK M10/M15 Q1010=")//
+            .setStationIcaoCode("EFRO")//
+            .setStationId(2)//
+            .build();
+    private static final List<InputAndArchiveAviationMessage> MESSAGES = List.of(
+            new InputAndArchiveAviationMessage(InputAviationMessage.builder().buildPartial(), MESSAGE));
+    private static final List<InputAndArchiveAviationMessage> MESSAGES_2 = List.of(
+            new InputAndArchiveAviationMessage(InputAviationMessage.builder().buildPartial(), MESSAGE_2));
+
+    @TempDir
+    Path directory;
+
+    @Mock
+    private DatabaseService databaseService;
+    @Mock
+    private DatabaseAccess databaseAccess;
+
+    private SimpleMeterRegistry meterRegistry;
+    private RecentMessageCache recentMessageCache;
+    private ProcessingServiceContext context;
+    private MessageJournal journal;
+    private JournalingDatabaseWriter writer;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        context = new DefaultProcessingServiceContext(NoOpLoggingContext.getInstance());
+        meterRegistry = new SimpleMeterRegistry();
+        journal = new MessageJournal(directory, 1024 * 1024, meterRegistry);
+        recentMessageCache = new RecentMessageCache(Clock.systemUTC(), 10, Duration.ZERO);
+        final MessageDeduplicator messageDeduplicator = new MessageDeduplicator(databaseAccess, meterRegistry, MessageDeduplicator.Policy.REJECT,
+                Duration.ofHours(1), 100, Duration.ofDays(1), 100);
+        writer = new JournalingDatabaseWriter(databaseService, databaseAccess, journal, messageDeduplicator, recentMessageCache, 100,
+                Duration.ofHours(1));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        writer.close();
+        journal.close();
+    }
+
+    @Test
+    void inserts_messages_when_database_is_available() {
+        final List<InputAndArchiveAviationMessage> stored = List.of(
+                MESSAGES.get(0).withArchiveMessage(MESSAGE.toBuilder().setArchivalStatus(ArchivalStatus.ARCHIVED).build()));
+        when(databaseService.attemptInsertMessages(MESSAGES, context, false)).thenReturn(stored);
+
+        assertThat(writer.insertMessages(MESSAGES, context)).isEqualTo(stored);
+        assertThat(journal.getDepth()).isZero();
+    }
+
+    @Test
+    void journals_messages_when_database_is_unavailable() {
+        when(databaseService.attemptInsertMessages(MESSAGES, context, false)).thenThrow(new QueryTimeoutException("test"));
+
+        assertThat(writer.insertMessages(MESSAGES, context))//
+                .extracting(message -> message.archiveMessage().getArchivalStatus())//
+                .containsExactly(ArchivalStatus.JOURNALED);
+        assertThat(writer.insertMessages(MESSAGES, context)).hasSize(1);
+        assertThat(journal.getDepth()).isEqualTo(2);
+        assertThat(writer.isAvailable()).isFalse();
+        verify(databaseService, times(1)).attemptInsertMessages(eq(MESSAGES), eq(context), anyBoolean());
+    }
+
+    @Test
+    void does_not_journal_messages_on_non_retryable_error() {
+        when(databaseService.attemptInsertMessages(MESSAGES, context, false)).thenThrow(new DataIntegrityViolationException("test"));
+
+        assertThatThrownBy(() -> writer.insertMessages(MESSAGES, context)).isInstanceOf(DataIntegrityViolationException.class);
+        assertThat(journal.getDepth()).isZero();
+        assertThat(writer.isAvailable()).isTrue();
+    }
+
+    @Test
+    void replays_journaled_messages_once_database_is_available() {
+        when(databaseService.attemptInsertMessages(MESSAGES, context, false)).thenThrow(new QueryTimeoutException("test"));
+        writer.insertMessages(MESSAGES, context);
+        when(databaseAccess.isAvailable()).thenReturn(true);
+
+        writer.replay();
+
+        verify(databaseAccess).bulkInsertAviationMessages(eq(List.of(MESSAGE)), eq(List.of()), any());
+        assertThat(journal.getDepth()).isZero();
+        assertThat(writer.isAvailable()).isTrue();
+    }
+
+    @Test
+    void keeps_journaled_messages_while_database_is_unavailable() {
+        when(databaseService.attemptInsertMessages(MESSAGES, context, false)).thenThrow(new QueryTimeoutException("test"));
+        writer.insertMessages(MESSAGES, context);
+        when(databaseAccess.isAvailable()).thenReturn(false);
+
+        writer.replay();
+
+        verify(databaseAccess, never()).bulkInsertAviationMessages(anyList(), anyList(), any());
+        assertThat(journal.getDepth()).isEqualTo(1);
+        assertThat(writer.isAvailable()).isFalse();
+    }
+
+    @Test
+    void quarantines_journaled_messages_failing_with_non_retryable_error() throws IOException {
+        when(databaseService.attemptInsertMessages(MESSAGES, context, false)).thenThrow(new QueryTimeoutException("test"));
+        writer.insertMessages(MESSAGES, context);
+        when(databaseAccess.isAvailable()).thenReturn(true);
+        doThrow(new DataIntegrityViolationException("test")).when(databaseAccess).bulkInsertAviationMessages(anyList(), anyList(), any());
+        when(databaseAccess.insertAviationMessage(any(), any())).thenThrow(new DataIntegrityViolationException("test"));
+
+        writer.replay();
+
+        assertThat(journal.getDepth()).isZero();
+        assertThat(journal.readQuarantined()).containsExactly(MESSAGE);
+        assertThat(meterRegistry.get("archiver.journal.quarantined").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void journals_messages_until_journal_is_drained() {
+        when(databaseService.attemptInsertMessages(MESSAGES, context, false)).thenThrow(new QueryTimeoutException("test"));
+        writer.insertMessages(MESSAGES, context);
+        when(databaseAccess.isAvailable()).thenReturn(true);
+        doThrow(new QueryTimeoutException("test")).doNothing().when(databaseAccess).bulkInsertAviationMessages(anyList(), anyList(), any());
+
+        writer.replay();
+        assertThat(writer.isAvailable()).isFalse();
+        assertThat(writer.insertMessages(MESSAGES_2, context))//
+                .extracting(message -> message.archiveMessage().getArchivalStatus())//
+                .containsExactly(ArchivalStatus.JOURNALED);
+
+        writer.replay();
+
+        final InOrder inOrder = inOrder(databaseAccess);
+        inOrder.verify(databaseAccess, times(2)).bulkInsertAviationMessages(eq(List.of(MESSAGE)), eq(List.of()), any());
+        inOrder.verify(databaseAccess).bulkInsertAviationMessages(eq(List.of(MESSAGE_2)), eq(List.of()), any());
+        assertThat(journal.getDepth()).isZero();
+        assertThat(writer.isAvailable()).isTrue();
+        verify(databaseService, times(1)).attemptInsertMessages(anyList(), eq(context), anyBoolean());
+    }
+
+    @Test
+    void does_not_store_new_messages_directly_while_journal_has_messages_after_restart() throws IOException {
+        when(databaseService.attemptInsertMessages(MESSAGES, context, false)).thenThrow(new QueryTimeoutException("test"));
+        writer.insertMessages(MESSAGES, context);
+        writer.close();
+
+        final JournalingDatabaseWriter restartedWriter = new JournalingDatabaseWriter(databaseService, databaseAccess, journal,
+                new MessageDeduplicator(databaseAccess, meterRegistry, MessageDeduplicator.Policy.DISABLED, Duration.ofHours(1), 100, Duration.ofDays(1),
+                        100), recentMessageCache, 100, Duration.ofHours(1));
+        try {
+            assertThat(restartedWriter.isAvailable()).isFalse();
+            restartedWriter.insertMessages(MESSAGES_2, context);
+            assertThat(journal.getDepth()).isEqualTo(2);
+        } finally {
+            restartedWriter.close();
+        }
+    }
+
+    @Test
+    void deduplicates_and_records_replayed_messages() {
+        when(databaseService.attemptInsertMessages(MESSAGES, context, false)).thenThrow(new QueryTimeoutException("test"));
+        writer.insertMessages(MESSAGES, context);
+        writer.insertMessages(MESSAGES, context);
+        when(databaseAccess.isAvailable()).thenReturn(true);
+
+        writer.replay();
+
+        verify(databaseAccess).bulkInsertAviationMessages(eq(List.of(MESSAGE)),
+                eq(List.of(MESSAGE.toBuilder().setProcessingResult(ProcessingResult.DUPLICATE).build())), any());
+        assertThat(recentMessageCache.getStation("EFHK")).isPresent();
+    }
+}
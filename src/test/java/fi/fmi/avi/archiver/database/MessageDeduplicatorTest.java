@@ -0,0 +1,211 @@
+package fi.fmi.avi.archiver.database;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.retry.support.RetryTemplate;
+import org.springframework.transaction.support.TransactionOperations;
+
+import com.google.common.testing.FakeTicker;
+
+import fi.fmi.avi.archiver.DefaultProcessingServiceContext;
+import fi.fmi.avi.archiver.ProcessingServiceContext;
+import fi.fmi.avi.archiver.file.InputAviationMessage;
+import fi.fmi.avi.archiver.logging.model.FileProcessingStatistics;
+import fi.fmi.avi.archiver.logging.model.LoggingContext;
+import fi.fmi.avi.archiver.message.ArchivalStatus;
+import fi.fmi.avi.archiver.message.ArchiveAviationMessage;
+import fi.fmi.avi.archiver.message.InputAndArchiveAviationMessage;
+import fi.fmi.avi.archiver.message.MessagePositionInFile;
+import fi.fmi.avi.archiver.message.ProcessingResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+class MessageDeduplicatorTest {
+    private static final Duration RECENT_WINDOW = Duration.ofHours(1);
+    private static final Duration HISTORY_WINDOW = Duration.ofDays(1);
+    private static final ArchiveAviationMessage MESSAGE = ArchiveAviationMessage.builder()//
+            .setMessage("METAR EFHK 011200Z 00000KT CAVOK 10/05 Q1010=")//
+            .setType(1)//
+            .setRoute(1)//
+            .setFormat(1)//
+            .setStationIcaoCode("EFHK")//
+            .setStationId(1)//
+            .setMessageTime(Instant.parse("2024-01-01T12:00:00Z"))//
+            .build();
+    private static final ArchiveAviationMessage OTHER_MESSAGE = MESSAGE.toBuilder()//
+            .setMessage("METAR EFHK 011230Z 00000KT CAVOK 10/05 Q1010=")//
+            .setMessageTime(Instant.parse("2024-01-01T12:30:00Z"))//
+            .build();
+
+    @Mock
+    private DatabaseAccess databaseAccess;
+    @Mock
+    private LoggingContext loggingContext;
+
+    private SimpleMeterRegistry meterRegistry;
+    private FakeTicker ticker;
+    private ProcessingServiceContext context;
+
+    private static InputAndArchiveAviationMessage inputAndArchiveMessage(final ArchiveAviationMessage message, final int messageIndex) {
+        return new InputAndArchiveAviationMessage(InputAviationMessage.builder()//
+                .setMessagePositionInFile(MessagePositionInFile.getInstance(0, messageIndex))//
+                .buildPartial(), message);
+    }
+
+    private static List<InputAndArchiveAviationMessage> stored(final List<InputAndArchiveAviationMessage> messages) {
+        return messages.stream()//
+                .map(message -> message.withArchiveMessage(message.archiveMessage().toBuilder().setArchivalStatus(ArchivalStatus.ARCHIVED).build()))//
+                .toList();
+    }
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        ticker = new FakeTicker();
+        context = new DefaultProcessingServiceContext(loggingContext);
+    }
+
+    private MessageDeduplicator deduplicator(final MessageDeduplicator.Policy policy) {
+        return new MessageDeduplicator(databaseAccess, meterRegistry, policy, RECENT_WINDOW, 100, HISTORY_WINDOW, 1000, ticker);
+    }
+
+    private double duplicates() {
+        return meterRegistry.get("archiver.deduplication.duplicates").counter().count();
+    }
+
+    @Test
+    void passes_new_messages() {
+        final MessageDeduplicator deduplicator = deduplicator(MessageDeduplicator.Policy.DISCARD);
+        final List<InputAndArchiveAviationMessage> messages = List.of(inputAndArchiveMessage(MESSAGE, 0), inputAndArchiveMessage(OTHER_MESSAGE, 1));
+
+        assertThat(deduplicator.deduplicateMessages(messages, context)).isEqualTo(messages);
+        assertThat(duplicates()).isZero();
+        verify(databaseAccess, never()).existsAviationMessage(any(), any());
+    }
+
+    @Test
+    void discards_duplicate_within_file() {
+        final MessageDeduplicator deduplicator = deduplicator(MessageDeduplicator.Policy.DISCARD);
+        final InputAndArchiveAviationMessage first = inputAndArchiveMessage(MESSAGE, 0);
+
+        assertThat(deduplicator.deduplicateMessages(List.of(first, inputAndArchiveMessage(MESSAGE, 1)), context)).containsExactly(first);
+        assertThat(duplicates()).isEqualTo(1);
+        verify(loggingContext).recordProcessingResult(FileProcessingStatistics.ProcessingResult.DISCARDED);
+    }
+
+    @Test
+    void discards_recently_stored_message_without_database_check() {
+        final MessageDeduplicator deduplicator = deduplicator(MessageDeduplicator.Policy.DISCARD);
+        deduplicator.recordStoredMessages(stored(List.of(inputAndArchiveMessage(MESSAGE, 0))));
+
+        assertThat(deduplicator.deduplicateMessages(List.of(inputAndArchiveMessage(MESSAGE, 0)), context)).isEmpty();
+        verify(databaseAccess, never()).existsAviationMessage(any(), any());
+    }
+
+    @Test
+    void does_not_remember_messages_failed_to_store() {
+        final MessageDeduplicator deduplicator = deduplicator(MessageDeduplicator.Policy.DISCARD);
+        final List<InputAndArchiveAviationMessage> messages = List.of(inputAndArchiveMessage(MESSAGE, 0));
+        deduplicator.recordStoredMessages(messages);
+
+        assertThat(deduplicator.deduplicateMessages(messages, context)).isEqualTo(messages);
+    }
+
+    @Test
+    void checks_database_after_recent_window() {
+        final MessageDeduplicator deduplicator = deduplicator(MessageDeduplicator.Policy.DISCARD);
+        deduplicator.recordStoredMessages(stored(List.of(inputAndArchiveMessage(MESSAGE, 0))));
+        ticker.advance(RECENT_WINDOW.plusSeconds(1));
+        when(databaseAccess.existsAviationMessage(any(), any())).thenReturn(true);
+
+        assertThat(deduplicator.deduplicateMessages(List.of(inputAndArchiveMessage(MESSAGE, 0)), context)).isEmpty();
+        verify(databaseAccess).existsAviationMessage(any(), any());
+    }
+
+    @Test
+    void passes_message_when_database_check_fails() {
+        final MessageDeduplicator deduplicator = deduplicator(MessageDeduplicator.Policy.DISCARD);
+        deduplicator.recordStoredMessages(stored(List.of(inputAndArchiveMessage(MESSAGE, 0))));
+        ticker.advance(RECENT_WINDOW.plusSeconds(1));
+        when(databaseAccess.existsAviationMessage(any(), any())).thenThrow(new QueryTimeoutException("test"));
+
+        assertThat(deduplicator.deduplicateMessages(List.of(inputAndArchiveMessage(MESSAGE, 0)), context)).hasSize(1);
+    }
+
+    @Test
+    void passes_message_promptly_when_database_is_unavailable() {
+        final NamedParameterJdbcTemplate jdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+        when(jdbcTemplate.getJdbcTemplate()).thenReturn(new JdbcTemplate());
+        when(jdbcTemplate.queryForObject(anyString(), any(SqlParameterSource.class), eq(Integer.class))).thenThrow(new QueryTimeoutException("test"));
+        final RetryTemplate infiniteRetryTemplate = RetryTemplate.builder()//
+                .infiniteRetry()//
+                .fixedBackoff(10)//
+                .build();
+        final DatabaseAccess unavailableDatabaseAccess = new DatabaseAccess(jdbcTemplate, Clock.systemUTC(), infiniteRetryTemplate,
+                mock(TransactionOperations.class), "public");
+        final MessageDeduplicator deduplicator = new MessageDeduplicator(unavailableDatabaseAccess, meterRegistry, MessageDeduplicator.Policy.DISCARD,
+                RECENT_WINDOW, 100, HISTORY_WINDOW, 1000, ticker);
+        deduplicator.recordStoredMessages(stored(List.of(inputAndArchiveMessage(MESSAGE, 0))));
+        ticker.advance(RECENT_WINDOW.plusSeconds(1));
+
+        final List<InputAndArchiveAviationMessage> result = assertTimeoutPreemptively(Duration.ofSeconds(10),
+                () -> deduplicator.deduplicateMessages(List.of(inputAndArchiveMessage(MESSAGE, 0)), context));
+
+        assertThat(result).hasSize(1);
+        verify(jdbcTemplate).queryForObject(anyString(), any(SqlParameterSource.class), eq(Integer.class));
+    }
+
+    @Test
+    void forgets_messages_after_history_window() {
+        final MessageDeduplicator deduplicator = deduplicator(MessageDeduplicator.Policy.DISCARD);
+        deduplicator.recordStoredMessages(stored(List.of(inputAndArchiveMessage(MESSAGE, 0))));
+        ticker.advance(HISTORY_WINDOW.dividedBy(2));
+        deduplicator.recordStoredMessages(stored(List.of(inputAndArchiveMessage(OTHER_MESSAGE, 0))));
+        ticker.advance(HISTORY_WINDOW.dividedBy(2));
+
+        assertThat(deduplicator.deduplicateMessages(List.of(inputAndArchiveMessage(MESSAGE, 0)), context)).hasSize(1);
+    }
+
+    @Test
+    void rejects_duplicate_with_reject_policy() {
+        final MessageDeduplicator deduplicator = deduplicator(MessageDeduplicator.Policy.REJECT);
+
+        final List<InputAndArchiveAviationMessage> result = deduplicator.deduplicateMessages(
+                List.of(inputAndArchiveMessage(MESSAGE, 0), inputAndArchiveMessage(MESSAGE, 1)), context);
+
+        assertThat(result)//
+                .extracting(message -> message.archiveMessage().getProcessingResult())//
+                .containsExactly(ProcessingResult.OK, ProcessingResult.DUPLICATE);
+        assertThat(duplicates()).isEqualTo(1);
+    }
+
+    @Test
+    void passes_all_messages_when_disabled() {
+        final MessageDeduplicator deduplicator = deduplicator(MessageDeduplicator.Policy.DISABLED);
+        final List<InputAndArchiveAviationMessage> messages = List.of(inputAndArchiveMessage(MESSAGE, 0), inputAndArchiveMessage(MESSAGE, 1));
+
+        assertThat(deduplicator.deduplicateMessages(messages, context)).isEqualTo(messages);
+    }
+}
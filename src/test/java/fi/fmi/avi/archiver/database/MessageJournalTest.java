@@ -0,0 +1,338 @@
+package fi.fmi.avi.archiver.database;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import fi.fmi.avi.archiver.message.ArchiveAviationMessage;
+import fi.fmi.avi.archiver.message.ArchiveAviationMessageIWXXMDetails;
+import fi.fmi.avi.archiver.message.ProcessingResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class MessageJournalTest {
+    private static final long SEGMENT_SIZE = 1024 * 1024;
+    private static final ArchiveAviationMessage MESSAGE = ArchiveAviationMessage.builder()//
+            .setMessage("TAF EFHK 011130Z 0112/0212 24008KT CAVOK=")//
+            .setType(2)//
+            .setRoute(1)//
+            .setFormat(1)//
+            .setStationIcaoCode("EFHK")//
+            .setStationId(1)//
+            .setMessageTime(Instant.parse("2024-01-01T11:30:00Z"))//
+            .setValidFrom(Instant.parse("2024-01-01T12:00:00Z"))//
+            .setValidTo(Instant.parse("2024-01-02T12:00:00Z"))//
+            .setFileModified(Instant.parse("2024-01-01T11:31:00.123456Z"))//
+            .setHeading("FTFI33 EFPP 011130")//
+            .setVersion("AAA")//
+            .build();
+    private static final ArchiveAviationMessage REJECTED_MESSAGE = ArchiveAviationMessage.builder()//
+            .setMessage("<iwxxm:METAR>ÄÖ</iwxxm:METAR>")//
+            .setType(1)//
+            .setRoute(1)//
+            .setFormat(2)//
+            .setStationIcaoCode("XXXX")//
+            .setMessageTime(Instant.parse("2024-01-01T12:00:00Z"))//
+            .setProcessingResult(ProcessingResult.UNKNOWN_STATION_ICAO_CODE)//
+            .setIWXXMDetails(ArchiveAviationMessageIWXXMDetails.builder()//
+                    .setXMLNamespace("http://icao.int/iwxxm/2023-1")//
+                    .setCollectIdentifier("A_LAFI31EFKL011200_C_EFKL_2024010112----.xml")//
+                    .build())//
+            .build();
+
+    @TempDir
+    Path directory;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private static List<ArchiveAviationMessage> messages(final int count) {
+        return IntStream.range(0, count)//
+                .mapToObj(i -> MESSAGE.toBuilder().setMessage("message " + i).build())//
+                .toList();
+    }
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    private MessageJournal journal() throws IOException {
+        return new MessageJournal(directory, SEGMENT_SIZE, meterRegistry);
+    }
+
+    private static List<ArchiveAviationMessage> replayAll(final MessageJournal journal, final int batchSize) throws IOException {
+        final List<ArchiveAviationMessage> replayed = new ArrayList<>();
+        journal.replay(batchSize, replayed::addAll);
+        return replayed;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".seg")).sorted().toList();
+        }
+    }
+
+    @Test
+    void replays_appended_messages_unchanged() throws IOException {
+        try (MessageJournal journal = journal()) {
+            journal.append(List.of(MESSAGE, REJECTED_MESSAGE));
+
+            assertThat(journal.getDepth()).isEqualTo(2);
+            assertThat(replayAll(journal, 10)).containsExactly(MESSAGE, REJECTED_MESSAGE);
+            assertThat(journal.getDepth()).isZero();
+            assertThat(segments()).isEmpty();
+            assertThat(meterRegistry.get("archiver.journal.depth").gauge().value()).isZero();
+            assertThat(meterRegistry.get("archiver.journal.replayed").counter().count()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void replays_in_batches_in_order() throws IOException {
+        final List<ArchiveAviationMessage> messages = messages(5);
+        try (MessageJournal journal = journal()) {
+            journal.append(messages.subList(0, 3));
+            journal.append(messages.subList(3, 5));
+            final List<List<ArchiveAviationMessage>> batches = new ArrayList<>();
+
+            assertThat(journal.replay(2, batches::add)).isEqualTo(5);
+            assertThat(batches).containsExactly(messages.subList(0, 2), messages.subList(2, 4), messages.subList(4, 5));
+        }
+    }
+
+    @Test
+    void recovers_messages_after_reopening() throws IOException {
+        final List<ArchiveAviationMessage> messages = messages(3);
+        try (MessageJournal journal = journal()) {
+            journal.append(messages);
+        }
+        try (MessageJournal journal = journal()) {
+            assertThat(journal.getDepth()).isEqualTo(3);
+            journal.append(List.of(MESSAGE));
+            assertThat(replayAll(journal, 10)).containsExactlyElementsOf(
+                    Stream.concat(messages.stream(), Stream.of(MESSAGE)).toList());
+        }
+    }
+
+    @Test
+    void resumes_replay_after_failed_batch() throws IOException {
+        final List<ArchiveAviationMessage> messages = messages(5);
+        try (MessageJournal journal = journal()) {
+            journal.append(messages);
+            final List<ArchiveAviationMessage> replayed = new ArrayList<>();
+            assertThatThrownBy(() -> journal.replay(2, batch -> {
+                if (!replayed.isEmpty()) {
+                    throw new IllegalStateException("test");
+                }
+                replayed.addAll(batch);
+            })).isInstanceOf(IllegalStateException.class);
+            assertThat(journal.getDepth()).isEqualTo(3);
+        }
+        try (MessageJournal journal = journal()) {
+            assertThat(journal.getDepth()).isEqualTo(3);
+            assertThat(replayAll(journal, 2)).containsExactlyElementsOf(messages.subList(2, 5));
+        }
+    }
+
+    @Test
+    void ignores_truncated_record() throws IOException {
+        final List<ArchiveAviationMessage> messages = messages(2);
+        try (MessageJournal journal = journal()) {
+            journal.append(messages);
+        }
+        final Path segment = segments().get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 1);
+        }
+        try (MessageJournal journal = journal()) {
+            assertThat(journal.getDepth()).isEqualTo(1);
+            assertThat(replayAll(journal, 10)).containsExactly(messages.get(0));
+            assertThat(meterRegistry.get("archiver.journal.corrupted").counter().count()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void ignores_record_with_checksum_mismatch() throws IOException {
+        final List<ArchiveAviationMessage> messages = messages(2);
+        try (MessageJournal journal = journal()) {
+            journal.append(messages);
+        }
+        final Path segment = segments().get(0);
+        final byte[] content = Files.readAllBytes(segment);
+        content[content.length - 1] ^= 1;
+        Files.write(segment, content);
+        try (MessageJournal journal = journal()) {
+            assertThat(replayAll(journal, 10)).containsExactly(messages.get(0));
+        }
+    }
+
+    @Test
+    void starts_new_segment_when_segment_size_is_exceeded() throws IOException {
+        try (MessageJournal journal = new MessageJournal(directory, 1, meterRegistry)) {
+            journal.append(List.of(MESSAGE));
+            journal.append(List.of(REJECTED_MESSAGE));
+
+            assertThat(segments()).hasSize(2);
+            assertThat(replayAll(journal, 10)).containsExactly(MESSAGE, REJECTED_MESSAGE);
+        }
+    }
+
+    @Test
+    void rejects_appending_after_close() throws IOException {
+        final MessageJournal journal = journal();
+        journal.close();
+
+        assertThatThrownBy(() -> journal.append(List.of(MESSAGE))).isInstanceOf(IOException.class);
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void replays_appends_following_a_failed_append(final boolean truncateFails) throws IOException {
+        final List<ArchiveAviationMessage> messages = messages(5);
+        final List<FailingFileChannel> channels = new ArrayList<>();
+        try (MessageJournal journal = new MessageJournal(directory, SEGMENT_SIZE, meterRegistry, path -> {
+            final FailingFileChannel channel = new FailingFileChannel(FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE));
+            channels.add(channel);
+            return channel;
+        })) {
+            journal.append(messages.subList(0, 2));
+            channels.get(0).failWrites = true;
+            channels.get(0).failTruncate = truncateFails;
+            assertThatThrownBy(() -> journal.append(messages.subList(2, 3))).isInstanceOf(IOException.class);
+            channels.get(0).failWrites = false;
+            journal.append(messages.subList(3, 5));
+
+            assertThat(segments()).hasSize(truncateFails ? 2 : 1);
+            assertThat(journal.getDepth()).isEqualTo(4);
+            assertThat(replayAll(journal, 10)).containsExactly(messages.get(0), messages.get(1), messages.get(3), messages.get(4));
+        }
+    }
+
+    /**
+     * Delegating file channel, writing only part of the buffer before failing when {@code failWrites} is set.
+     */
+    private static final class FailingFileChannel extends FileChannel {
+        private final FileChannel delegate;
+        boolean failWrites;
+        boolean failTruncate;
+
+        FailingFileChannel(final FileChannel delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int write(final ByteBuffer src) throws IOException {
+            if (failWrites) {
+                final ByteBuffer part = src.slice(src.position(), src.remaining() / 2);
+                final int written = delegate.write(part);
+                src.position(src.position() + written);
+                throw new IOException("test write failure");
+            }
+            return delegate.write(src);
+        }
+
+        @Override
+        public FileChannel truncate(final long size) throws IOException {
+            if (failTruncate) {
+                throw new IOException("test truncate failure");
+            }
+            delegate.truncate(size);
+            return this;
+        }
+
+        @Override
+        public int read(final ByteBuffer dst) throws IOException {
+            return delegate.read(dst);
+        }
+
+        @Override
+        public long read(final ByteBuffer[] dsts, final int offset, final int length) throws IOException {
+            return delegate.read(dsts, offset, length);
+        }
+
+        @Override
+        public long write(final ByteBuffer[] srcs, final int offset, final int length) throws IOException {
+            return delegate.write(srcs, offset, length);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return delegate.position();
+        }
+
+        @Override
+        public FileChannel position(final long newPosition) throws IOException {
+            delegate.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return delegate.size();
+        }
+
+        @Override
+        public void force(final boolean metaData) throws IOException {
+            delegate.force(metaData);
+        }
+
+        @Override
+        public long transferTo(final long position, final long count, final WritableByteChannel target) throws IOException {
+            return delegate.transferTo(position, count, target);
+        }
+
+        @Override
+        public long transferFrom(final ReadableByteChannel src, final long position, final long count) throws IOException {
+            return delegate.transferFrom(src, position, count);
+        }
+
+        @Override
+        public int read(final ByteBuffer dst, final long position) throws IOException {
+            return delegate.read(dst, position);
+        }
+
+        @Override
+        public int write(final ByteBuffer src, final long position) throws IOException {
+            return delegate.write(src, position);
+        }
+
+        @Override
+        public MappedByteBuffer map(final MapMode mode, final long position, final long size) throws IOException {
+            return delegate.map(mode, position, size);
+        }
+
+        @Override
+        public FileLock lock(final long position, final long size, final boolean shared) throws IOException {
+            return delegate.lock(position, size, shared);
+        }
+
+        @Override
+        public FileLock tryLock(final long position, final long size, final boolean shared) throws IOException {
+            return delegate.tryLock(position, size, shared);
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            delegate.close();
+        }
+    }
+}
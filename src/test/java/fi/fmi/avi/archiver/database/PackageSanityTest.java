@@ -3,13 +3,20 @@ package fi.fmi.avi.archiver.database;
 import static org.mockito.Mockito.mock;
 
 import java.time.Clock;
+import java.util.concurrent.Executor;
 
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.transaction.support.TransactionOperations;
 
+import com.google.common.base.Ticker;
 import com.google.common.testing.AbstractPackageSanityTests;
+import com.google.common.util.concurrent.MoreExecutors;
 
 import fi.fmi.avi.archiver.message.ArchiveAviationMessage;
+import fi.fmi.avi.archiver.metrics.IngestLatencyMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
 @SuppressWarnings("UnstableApiUsage")
 public class PackageSanityTest extends AbstractPackageSanityTests {
@@ -20,7 +27,12 @@ public class PackageSanityTest extends AbstractPackageSanityTests {
         setDefault(ArchiveAviationMessage.class, ArchiveAviationMessage.builder().buildPartial());
         setDefault(Clock.class, Clock.systemUTC());
         setDefault(DatabaseAccess.class, mock(DatabaseAccess.class));
+        setDefault(Executor.class, MoreExecutors.directExecutor());
+        setDefault(IngestLatencyMetrics.class, mock(IngestLatencyMetrics.class));
+        setDefault(MeterRegistry.class, new SimpleMeterRegistry());
         setDefault(NamedParameterJdbcTemplate.class, new NamedParameterJdbcTemplate(new DelegatingDataSource()));
+        setDefault(Ticker.class, Ticker.systemTicker());
+        setDefault(TransactionOperations.class, TransactionOperations.withoutTransaction());
     }
 
 }
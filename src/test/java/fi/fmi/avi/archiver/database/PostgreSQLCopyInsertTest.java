@@ -0,0 +1,161 @@
+package fi.fmi.avi.archiver.database;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+
+@ExtendWith(MockitoExtension.class)
+class PostgreSQLCopyInsertTest {
+    private static final String COPY_STATEMENT = "copy public.avidb_messages (message_id, station_id, message, version) from stdin with (format csv)";
+
+    @Mock
+    private Connection connection;
+    @Mock
+    private PreparedStatement statement;
+    @Mock
+    private ResultSet resultSet;
+    @Mock
+    private PGConnection pgConnection;
+    @Mock
+    private CopyManager copyManager;
+    @Mock
+    private CopyIn copyIn;
+
+    private PostgreSQLCopyInsert copyInsert;
+    private ByteArrayOutputStream copied;
+
+    static List<Arguments> csvValues() {
+        return List.of(//
+                Arguments.of(null, ""), //
+                Arguments.of("", "\"\""), //
+                Arguments.of(1, "1"), //
+                Arguments.of(2L, "2"), //
+                Arguments.of("METAR EFHK=", "\"METAR EFHK=\""), //
+                Arguments.of("a \"quoted\" value", "\"a \"\"quoted\"\" value\""), //
+                Arguments.of("\"", "\"\"\"\""), //
+                Arguments.of("line1\r\nline2\nline3\r", "\"line1\r\nline2\nline3\r\""), //
+                Arguments.of("a,b;c\td", "\"a,b;c\td\""), //
+                Arguments.of("C:\\path\\N", "\"C:\\path\\N\""), //
+                Arguments.of("\\.", "\"\\.\""), //
+                Arguments.of(Instant.parse("2024-01-01T12:00:00Z").atOffset(ZoneOffset.UTC), "\"2024-01-01T12:00Z\""));
+    }
+
+    @BeforeEach
+    void setUp() {
+        copyInsert = new PostgreSQLCopyInsert("public", "avidb_messages", "message_id", List.of("station_id", "message", "version"));
+        copied = new ByteArrayOutputStream();
+    }
+
+    private void givenAllocatedIds(final Long firstId, final Long... otherIds) throws SQLException {
+        when(connection.prepareStatement(
+                "select nextval(pg_get_serial_sequence('public.avidb_messages', 'message_id')) from generate_series(1, ?)")).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(resultSet);
+        final Boolean[] hasMoreRows = new Boolean[otherIds.length + 1];
+        Arrays.fill(hasMoreRows, true);
+        hasMoreRows[otherIds.length] = false;
+        when(resultSet.next()).thenReturn(true, hasMoreRows);
+        when(resultSet.getLong(1)).thenReturn(firstId, otherIds);
+    }
+
+    private void givenCopyIn() throws SQLException {
+        when(connection.unwrap(PGConnection.class)).thenReturn(pgConnection);
+        when(pgConnection.getCopyAPI()).thenReturn(copyManager);
+        when(copyManager.copyIn(COPY_STATEMENT)).thenReturn(copyIn);
+        doAnswer(invocation -> {
+            copied.write(invocation.<byte[]> getArgument(0), invocation.getArgument(1), invocation.getArgument(2));
+            return null;
+        }).when(copyIn).writeToCopy(any(byte[].class), anyInt(), anyInt());
+    }
+
+    @ParameterizedTest
+    @MethodSource("csvValues")
+    void encodes_csv_value(final Object value, final String expected) {
+        final StringBuilder row = new StringBuilder();
+
+        PostgreSQLCopyInsert.appendCsvValue(row, value);
+
+        assertThat(row.toString()).isEqualTo(expected);
+    }
+
+    @Test
+    void copies_rows_with_allocated_ids() throws SQLException {
+        givenAllocatedIds(10L, 11L);
+        givenCopyIn();
+        when(copyIn.endCopy()).thenReturn(2L);
+        final List<MapSqlParameterSource> rows = List.of(new MapSqlParameterSource()//
+                        .addValue("station_id", 1)//
+                        .addValue("message", "METAR EFHK \"AUTO\"=")//
+                        .addValue("version", ""), //
+                new MapSqlParameterSource()//
+                        .addValue("station_id", 2)//
+                        .addValue("message", "TAF EFRO\nBECMG=")//
+                        .addValue("version", null));
+
+        final List<Number> ids = copyInsert.insert(connection, rows);
+
+        assertThat(ids).containsExactly(10L, 11L);
+        verify(statement).setInt(1, 2);
+        assertThat(copied.toString(StandardCharsets.UTF_8)).isEqualTo(""//
+                + "10,1,\"METAR EFHK \"\"AUTO\"\"=\",\"\"\n"//
+                + "11,2,\"TAF EFRO\nBECMG=\",\n");
+    }
+
+    @Test
+    void cancels_copy_on_failure() throws SQLException {
+        givenAllocatedIds(10L);
+        givenCopyIn();
+        when(copyIn.endCopy()).thenThrow(new SQLException("copy failed"));
+        when(copyIn.isActive()).thenReturn(true);
+        final List<MapSqlParameterSource> rows = List.of(new MapSqlParameterSource("station_id", 1));
+
+        assertThatExceptionOfType(SQLException.class)//
+                .isThrownBy(() -> copyInsert.insert(connection, rows))//
+                .withMessage("copy failed");
+        verify(copyIn).cancelCopy();
+    }
+
+    @Test
+    void fails_when_not_all_rows_are_copied() throws SQLException {
+        givenAllocatedIds(10L, 11L);
+        givenCopyIn();
+        when(copyIn.endCopy()).thenReturn(1L);
+        final List<MapSqlParameterSource> rows = List.of(new MapSqlParameterSource("station_id", 1), new MapSqlParameterSource("station_id", 2));
+
+        assertThatExceptionOfType(SQLException.class)//
+                .isThrownBy(() -> copyInsert.insert(connection, rows))//
+                .withMessage("Copied 1 rows instead of 2");
+    }
+
+    @Test
+    void does_nothing_without_rows() throws SQLException {
+        assertThat(copyInsert.insert(connection, List.of())).isEmpty();
+    }
+}
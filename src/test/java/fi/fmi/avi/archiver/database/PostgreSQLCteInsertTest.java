@@ -0,0 +1,153 @@
+package fi.fmi.avi.archiver.database;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+
+@ExtendWith(MockitoExtension.class)
+class PostgreSQLCteInsertTest {
+    private static final Timestamp MESSAGE_TIME = Timestamp.from(Instant.parse("2024-01-01T12:00:00Z"));
+
+    @Mock
+    private Connection connection;
+    @Mock
+    private PreparedStatement statement;
+    @Mock
+    private ResultSet resultSet;
+
+    private ArgumentCaptor<String> sql;
+
+    @BeforeEach
+    void setUp() {
+        sql = ArgumentCaptor.forClass(String.class);
+    }
+
+    private void givenStatementReturning(final Boolean... hasNext) throws SQLException {
+        when(connection.prepareStatement(sql.capture())).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(hasNext[0], Arrays.copyOfRange(hasNext, 1, hasNext.length));
+    }
+
+    @Test
+    void inserts_messages_and_details_in_single_statement() throws SQLException {
+        final PostgreSQLCteInsert cteInsert = new PostgreSQLCteInsert("public", "avidb_messages", "avidb_message_iwxxm_details", "message_id",
+                List.of("station_id", "message", "message_time"));
+        givenStatementReturning(true, true, false);
+        when(resultSet.getLong(1)).thenReturn(10L, 11L);
+        final List<MapSqlParameterSource> rows = List.of(new MapSqlParameterSource()//
+                        .addValue("station_id", 1)//
+                        .addValue("message", "METAR EFHK=")//
+                        .addValue("message_time", MESSAGE_TIME)//
+                        .addValue(PostgreSQLCteInsert.COLLECT_IDENTIFIER, "collect-1")//
+                        .addValue(PostgreSQLCteInsert.IWXXM_VERSION, "http://icao.int/iwxxm/3.0"), //
+                new MapSqlParameterSource()//
+                        .addValue("station_id", 2)//
+                        .addValue("message", "METAR EFRO="));
+
+        final List<Number> ids = cteInsert.insert(connection, rows, List.of(true, false));
+
+        assertThat(ids).containsExactly(10L, 11L);
+        assertThat(sql.getValue()).isEqualTo("with input as (select nextval(pg_get_serial_sequence('public.avidb_messages', 'message_id')) "
+                + "as message_id, v.* from (values "
+                + "(?::integer, ?::boolean, ?::integer, ?::text, ?::timestamptz, ?::text, ?::text), "
+                + "(?::integer, ?::boolean, ?::integer, ?::text, ?::timestamptz, ?::text, ?::text)) "
+                + "as v (ord, has_details, station_id, message, message_time, collect_identifier, iwxxm_version)), "
+                + "inserted as (insert into public.avidb_messages (message_id, station_id, message, message_time) "
+                + "select message_id, station_id, message, message_time from input returning message_id), "
+                + "details as (insert into public.avidb_message_iwxxm_details (message_id, collect_identifier, iwxxm_version) "
+                + "select input.message_id, input.collect_identifier, input.iwxxm_version "
+                + "from input join inserted using (message_id) where input.has_details) "
+                + "select message_id from input order by ord");
+        verify(statement).setInt(1, 0);
+        verify(statement).setBoolean(2, true);
+        verify(statement).setObject(3, 1);
+        verify(statement).setObject(4, "METAR EFHK=");
+        verify(statement).setObject(5, MESSAGE_TIME);
+        verify(statement).setObject(6, "collect-1");
+        verify(statement).setObject(7, "http://icao.int/iwxxm/3.0");
+        verify(statement).setInt(8, 1);
+        verify(statement).setBoolean(9, false);
+        verify(statement).setObject(10, 2);
+        verify(statement).setObject(11, "METAR EFRO=");
+        verify(statement).setNull(12, Types.NULL);
+        verify(statement).setNull(13, Types.NULL);
+        verify(statement).setNull(14, Types.NULL);
+        verify(statement).close();
+    }
+
+    @Test
+    void inserts_rejected_messages_into_rejected_tables() throws SQLException {
+        final PostgreSQLCteInsert cteInsert = new PostgreSQLCteInsert("archive", "avidb_rejected_messages", "avidb_rejected_message_iwxxm_details",
+                "rejected_message_id", List.of("icao_code", "reject_reason", "message"));
+        givenStatementReturning(true, false);
+        when(resultSet.getLong(1)).thenReturn(20L);
+        final List<MapSqlParameterSource> rows = List.of(new MapSqlParameterSource()//
+                .addValue("icao_code", "XXXX")//
+                .addValue("reject_reason", 1)//
+                .addValue("message", "METAR XXXX=")//
+                .addValue(PostgreSQLCteInsert.COLLECT_IDENTIFIER, "collect-2")//
+                .addValue(PostgreSQLCteInsert.IWXXM_VERSION, "http://icao.int/iwxxm/2021-2"));
+
+        final List<Number> ids = cteInsert.insert(connection, rows, List.of(true));
+
+        assertThat(ids).containsExactly(20L);
+        assertThat(sql.getValue())//
+                .startsWith("with input as (select nextval(pg_get_serial_sequence('archive.avidb_rejected_messages', 'rejected_message_id')) "
+                        + "as rejected_message_id, v.* from (values (?::integer, ?::boolean, ?::text, ?::integer, ?::text, ?::text, ?::text)) "
+                        + "as v (ord, has_details, icao_code, reject_reason, message, collect_identifier, iwxxm_version)), ")//
+                .contains("insert into archive.avidb_rejected_messages (rejected_message_id, icao_code, reject_reason, message) "
+                        + "select rejected_message_id, icao_code, reject_reason, message from input returning rejected_message_id")//
+                .contains("insert into archive.avidb_rejected_message_iwxxm_details (rejected_message_id, collect_identifier, iwxxm_version) "
+                        + "select input.rejected_message_id, input.collect_identifier, input.iwxxm_version "
+                        + "from input join inserted using (rejected_message_id) where input.has_details")//
+                .endsWith("select rejected_message_id from input order by ord");
+        verify(statement).setInt(1, 0);
+        verify(statement).setBoolean(2, true);
+        verify(statement).setObject(3, "XXXX");
+        verify(statement).setObject(4, 1);
+        verify(statement).setObject(5, "METAR XXXX=");
+        verify(statement).setObject(6, "collect-2");
+        verify(statement).setObject(7, "http://icao.int/iwxxm/2021-2");
+    }
+
+    @Test
+    void fails_when_not_all_rows_are_returned() throws SQLException {
+        final PostgreSQLCteInsert cteInsert = new PostgreSQLCteInsert("public", "avidb_messages", "avidb_message_iwxxm_details", "message_id",
+                List.of("message"));
+        givenStatementReturning(true, false);
+        when(resultSet.getLong(1)).thenReturn(10L);
+        final List<MapSqlParameterSource> rows = List.of(new MapSqlParameterSource("message", "METAR EFHK="),
+                new MapSqlParameterSource("message", "METAR EFRO="));
+
+        assertThatExceptionOfType(SQLException.class)//
+                .isThrownBy(() -> cteInsert.insert(connection, rows, List.of(false, false)))//
+                .withMessage("Inserted 1 rows instead of 2");
+    }
+
+    @ParameterizedTest
+    @CsvSource({"0, 0", "1, 1", "1000, 1", "1001, 2", "2500, 3"})
+    void splits_rows_into_statements(final int rowCount, final int expectedStatementCount) {
+        assertThat(PostgreSQLCteInsert.statementCount(rowCount)).isEqualTo(expectedStatementCount);
+    }
+}
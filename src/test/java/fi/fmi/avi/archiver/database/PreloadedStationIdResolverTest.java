@@ -0,0 +1,92 @@
+package fi.fmi.avi.archiver.database;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+
+import fi.fmi.avi.archiver.logging.model.NoOpLoggingContext;
+import fi.fmi.avi.archiver.logging.model.ReadableLoggingContext;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+class PreloadedStationIdResolverTest {
+    private static final ReadableLoggingContext LOGGING_CONTEXT = NoOpLoggingContext.getInstance();
+
+    @Mock
+    private DatabaseAccess databaseAccess;
+
+    private SimpleMeterRegistry meterRegistry;
+    private PreloadedStationIdResolver resolver;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        resolver = new PreloadedStationIdResolver(databaseAccess, meterRegistry);
+    }
+
+    private double meterValue(final String name) {
+        return meterRegistry.get(name).meter().measure().iterator().next().getValue();
+    }
+
+    @Test
+    void resolves_preloaded_station_without_query() {
+        when(databaseAccess.queryStationIds(any())).thenReturn(Map.of("EFHK", 1, "EFRO", 2));
+        resolver.reload();
+
+        assertThat(resolver.resolveStationId("EFRO", LOGGING_CONTEXT)).contains(2);
+
+        verify(databaseAccess, never()).queryStationId(any(), any());
+        assertThat(meterValue("archiver.station.table.size")).isEqualTo(2);
+        assertThat(meterValue("archiver.station.table.fallback.queries")).isZero();
+    }
+
+    @Test
+    void queries_station_missing_from_snapshot() {
+        when(databaseAccess.queryStationIds(any())).thenReturn(Map.of("EFHK", 1));
+        when(databaseAccess.queryStationId(eq("EFRO"), any())).thenReturn(Optional.of(2));
+        resolver.reload();
+
+        assertThat(resolver.resolveStationId("EFRO", LOGGING_CONTEXT)).contains(2);
+
+        assertThat(meterValue("archiver.station.table.fallback.queries")).isEqualTo(1);
+    }
+
+    @Test
+    void replaces_snapshot_on_changed_stations() {
+        when(databaseAccess.queryStationIds(any()))//
+                .thenReturn(Map.of("EFHK", 1))//
+                .thenReturn(Map.of("EFHK", 3));
+        resolver.reload();
+        assertThat(resolver.resolveStationId("EFHK", LOGGING_CONTEXT)).contains(1);
+
+        resolver.reload();
+
+        assertThat(resolver.resolveStationId("EFHK", LOGGING_CONTEXT)).contains(3);
+    }
+
+    @Test
+    void retains_snapshot_on_reload_failure() {
+        when(databaseAccess.queryStationIds(any()))//
+                .thenReturn(Map.of("EFHK", 1))//
+                .thenThrow(new QueryTimeoutException("test"));
+        resolver.reload();
+
+        resolver.reload();
+
+        assertThat(resolver.resolveStationId("EFHK", LOGGING_CONTEXT)).contains(1);
+        assertThat(meterValue("archiver.station.table.reload.failures")).isEqualTo(1);
+    }
+}
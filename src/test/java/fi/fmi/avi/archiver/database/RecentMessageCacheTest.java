@@ -0,0 +1,129 @@
+package fi.fmi.avi.archiver.database;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.threeten.extra.MutableClock;
+
+import fi.fmi.avi.archiver.file.InputAviationMessage;
+import fi.fmi.avi.archiver.message.ArchivalStatus;
+import fi.fmi.avi.archiver.message.ArchiveAviationMessage;
+import fi.fmi.avi.archiver.message.InputAndArchiveAviationMessage;
+
+class RecentMessageCacheTest {
+    private static final int METAR = 1;
+    private static final int TAF = 2;
+    private static final Instant NOW = Instant.parse("2024-01-01T12:00:00Z");
+    private static final Duration WINDOW = Duration.ofHours(1);
+
+    private MutableClock clock;
+
+    private static InputAndArchiveAviationMessage stored(final String station, final int type, final Instant messageTime,
+            final ArchivalStatus archivalStatus) {
+        return new InputAndArchiveAviationMessage(InputAviationMessage.builder().buildPartial(), ArchiveAviationMessage.builder()//
+                .setMessage("message of " + station + " at " + messageTime)//
+                .setType(type)//
+                .setRoute(1)//
+                .setFormat(1)//
+                .setStationIcaoCode(station)//
+                .setMessageTime(messageTime)//
+                .setArchivalStatus(archivalStatus)//
+                .build());
+    }
+
+    private static InputAndArchiveAviationMessage archived(final String station, final int type, final Instant messageTime) {
+        return stored(station, type, messageTime, ArchivalStatus.ARCHIVED);
+    }
+
+    private static List<Instant> messageTimes(final RecentMessageCache.StationSnapshot snapshot, final int type) {
+        return snapshot.messagesByType().get(type).stream()//
+                .map(RecentMessageCache.RecentMessage::messageTime)//
+                .toList();
+    }
+
+    @BeforeEach
+    void setUp() {
+        clock = MutableClock.of(NOW, ZoneOffset.UTC);
+    }
+
+    @Test
+    void returns_latest_messages_by_station_and_type_newest_first() {
+        final RecentMessageCache cache = new RecentMessageCache(clock, 2, Duration.ZERO);
+        cache.recordStoredMessages(List.of(//
+                archived("EFHK", METAR, NOW.minusSeconds(3600)), //
+                archived("EFHK", METAR, NOW), //
+                archived("EFHK", METAR, NOW.minusSeconds(1800)), //
+                archived("EFHK", TAF, NOW), //
+                archived("EFRO", METAR, NOW)));
+
+        final RecentMessageCache.StationSnapshot snapshot = cache.getStation("EFHK").orElseThrow();
+
+        assertThat(messageTimes(snapshot, METAR)).containsExactly(NOW, NOW.minusSeconds(1800));
+        assertThat(messageTimes(snapshot, TAF)).containsExactly(NOW);
+        assertThat(cache.getStation("EFRO")).isPresent();
+        assertThat(cache.getStation("EFOU")).isEmpty();
+    }
+
+    @Test
+    void ignores_messages_not_archived() {
+        final RecentMessageCache cache = new RecentMessageCache(clock, 2, Duration.ZERO);
+        cache.recordStoredMessages(List.of(//
+                stored("EFHK", METAR, NOW, ArchivalStatus.REJECTED), //
+                stored("EFHK", METAR, NOW, ArchivalStatus.FAILED)));
+
+        assertThat(cache.getStation("EFHK")).isEmpty();
+    }
+
+    @Test
+    void ignores_messages_already_cached() {
+        final RecentMessageCache cache = new RecentMessageCache(clock, 2, Duration.ZERO);
+        cache.recordStoredMessages(List.of(archived("EFHK", METAR, NOW)));
+        cache.recordStoredMessages(List.of(archived("EFHK", METAR, NOW)));
+
+        assertThat(messageTimes(cache.getStation("EFHK").orElseThrow(), METAR)).containsExactly(NOW);
+    }
+
+    @Test
+    void retains_messages_within_recent_window_beyond_latest() {
+        final RecentMessageCache cache = new RecentMessageCache(clock, 1, WINDOW);
+        cache.recordStoredMessages(List.of(archived("EFHK", METAR, NOW.minusSeconds(1800)), archived("EFHK", METAR, NOW)));
+
+        assertThat(messageTimes(cache.getStation("EFHK").orElseThrow(), METAR)).containsExactly(NOW, NOW.minusSeconds(1800));
+
+        clock.add(WINDOW.plusSeconds(1));
+        assertThat(messageTimes(cache.getStation("EFHK").orElseThrow(), METAR)).containsExactly(NOW);
+    }
+
+    @Test
+    void changes_entity_tag_and_last_modified_on_update() {
+        final RecentMessageCache cache = new RecentMessageCache(clock, 1, WINDOW);
+        cache.recordStoredMessages(List.of(archived("EFHK", METAR, NOW.minusSeconds(1800))));
+        final RecentMessageCache.StationSnapshot first = cache.getStation("EFHK").orElseThrow();
+        assertThat(cache.getStation("EFHK").orElseThrow().eTag()).isEqualTo(first.eTag());
+
+        clock.add(Duration.ofMinutes(1));
+        cache.recordStoredMessages(List.of(archived("EFHK", METAR, NOW)));
+        final RecentMessageCache.StationSnapshot second = cache.getStation("EFHK").orElseThrow();
+
+        assertThat(second.eTag()).isNotEqualTo(first.eTag());
+        assertThat(second.lastModified()).isEqualTo(NOW.plus(Duration.ofMinutes(1)));
+
+        clock.add(WINDOW);
+        assertThat(cache.getStation("EFHK").orElseThrow().eTag()).isNotEqualTo(second.eTag());
+    }
+
+    @Test
+    void caches_nothing_when_disabled() {
+        final RecentMessageCache cache = new RecentMessageCache(clock, 0, Duration.ZERO);
+        cache.recordStoredMessages(List.of(archived("EFHK", METAR, NOW)));
+
+        assertThat(cache.isEnabled()).isFalse();
+        assertThat(cache.getStation("EFHK")).isEmpty();
+    }
+}
@@ -0,0 +1,65 @@
+package fi.fmi.avi.archiver.database;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class StationIdTableTest {
+    private static String icaoCode(final int ordinal) {
+        final char[] chars = new char[4];
+        int remainder = ordinal;
+        for (int i = 3; i >= 0; i--) {
+            chars[i] = (char) ('A' + remainder % 26);
+            remainder /= 26;
+        }
+        return new String(chars);
+    }
+
+    @Test
+    void pack_stores_one_character_per_byte() {
+        assertThat(StationIdTable.pack("EFHK")).isEqualTo('E' << 24 | 'F' << 16 | 'H' << 8 | 'K');
+        assertThat(StationIdTable.pack("K1A2")).isEqualTo('K' << 24 | '1' << 16 | 'A' << 8 | '2');
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "EFH", "EFHKK", "efhk", "EF-K", "EFHÄ"})
+    void pack_returns_unpackable_on_invalid_code(final String icaoCode) {
+        assertThat(StationIdTable.pack(icaoCode)).isEqualTo(StationIdTable.UNPACKABLE);
+    }
+
+    @Test
+    void empty_table_contains_nothing() {
+        assertThat(StationIdTable.empty().indexOf("EFHK")).isEqualTo(StationIdTable.NOT_FOUND);
+        assertThat(StationIdTable.empty().getStationIds()).isEmpty();
+    }
+
+    @Test
+    void finds_all_stations() {
+        final Map<String, Integer> stationIds = new HashMap<>();
+        for (int i = 0; i < 5000; i++) {
+            stationIds.put(icaoCode(i * 7), i);
+        }
+        final StationIdTable table = StationIdTable.of(stationIds);
+
+        stationIds.forEach((icaoCode, stationId) -> {
+            final int index = table.indexOf(icaoCode);
+            assertThat(index).as(icaoCode).isNotEqualTo(StationIdTable.NOT_FOUND);
+            assertThat(table.stationIdAt(index)).as(icaoCode).contains(stationId);
+        });
+        assertThat(table.indexOf(icaoCode(1))).isEqualTo(StationIdTable.NOT_FOUND);
+    }
+
+    @Test
+    void does_not_store_unpackable_codes() {
+        final StationIdTable table = StationIdTable.of(Map.of("EFHK", 1, "efhk", 2));
+
+        assertThat(table.indexOf("EFHK")).isNotEqualTo(StationIdTable.NOT_FOUND);
+        assertThat(table.indexOf("efhk")).isEqualTo(StationIdTable.NOT_FOUND);
+        assertThat(table.getStationIds()).containsOnlyKeys("EFHK", "efhk");
+    }
+}
@@ -0,0 +1,77 @@
+package fi.fmi.avi.archiver.file;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static java.util.Objects.requireNonNull;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ByteFileToStringTransformerTest {
+    private static final String NON_ASCII_CONTENT = "TAF EFHK 011100Z 0112/0212 00000KT CAVOK RMK TÄSSÄ ÖÖ=";
+
+    @TempDir
+    Path tempDir;
+
+    private static Path resource(final String filename) throws URISyntaxException {
+        return Paths.get(requireNonNull(ByteFileToStringTransformerTest.class.getResource(filename)).toURI());
+    }
+
+    private Path write(final String content, final Charset charset) throws IOException {
+        return Files.write(tempDir.resolve("content.txt"), content.getBytes(charset));
+    }
+
+    @Test
+    void reads_ascii_content() throws IOException, URISyntaxException {
+        final Path file = resource("taf-tac-two-bulletins.bul");
+        final ByteFileToStringTransformer transformer = new ByteFileToStringTransformer(StandardCharsets.UTF_8);
+
+        assertThat(transformer.transformFile(file.toFile())).isEqualTo(Files.readString(file));
+    }
+
+    @Test
+    void reads_non_ascii_utf8_content() throws IOException {
+        final Path file = write(NON_ASCII_CONTENT, StandardCharsets.UTF_8);
+        final ByteFileToStringTransformer transformer = new ByteFileToStringTransformer(StandardCharsets.UTF_8);
+
+        assertThat(transformer.transformFile(file.toFile())).isEqualTo(NON_ASCII_CONTENT);
+    }
+
+    @Test
+    void reads_content_in_other_charsets() throws IOException {
+        final Charset charset = StandardCharsets.UTF_16LE;
+        final Path file = write(NON_ASCII_CONTENT, charset);
+        final ByteFileToStringTransformer transformer = new ByteFileToStringTransformer(charset);
+
+        assertThat(transformer.transformFile(file.toFile())).isEqualTo(NON_ASCII_CONTENT);
+    }
+
+    @Test
+    void reads_empty_file() throws IOException {
+        final Path file = write("", StandardCharsets.UTF_8);
+        final ByteFileToStringTransformer transformer = new ByteFileToStringTransformer(StandardCharsets.UTF_8);
+
+        assertThat(transformer.transformFile(file.toFile())).isEmpty();
+    }
+
+    @Test
+    void detects_ascii_content_at_any_position() {
+        final byte[] bytes = "\u0001METAR EFHK 011200Z 00000KT CAVOK 10/05 Q1010=\r\r\n\u0003".getBytes(StandardCharsets.US_ASCII);
+        assertThat(ByteFileToStringTransformer.isAscii(ByteBuffer.wrap(bytes))).isTrue();
+        for (int i = 0; i < bytes.length; i++) {
+            final byte[] nonAscii = bytes.clone();
+            nonAscii[i] = (byte) 0xC4;
+            assertThat(ByteFileToStringTransformer.isAscii(ByteBuffer.wrap(nonAscii)))
+                    .as("non-ASCII byte at %s", i)
+                    .isFalse();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package fi.fmi.avi.archiver.file;
+
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.xml.sax.InputSource;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLStreamException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CollectDocumentSplitterTest {
+    private static final String COLLECT_NAMESPACE = "http://def.wmo.int/collect/2014";
+    private static final String DOCUMENT = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <collect:MeteorologicalBulletin xmlns:collect="http://def.wmo.int/collect/2014" xmlns:gml="http://www.opengis.net/gml/3.2"
+                                            gml:id="bulletin-1">
+                <collect:meteorologicalInformation>
+                    <test:Message xmlns:test="urn:test" gml:id="message-1">first &amp; one</test:Message>
+                </collect:meteorologicalInformation>
+                <collect:meteorologicalInformation>
+                    <test:Message xmlns:test="urn:test" gml:id="message-2"><test:Nested>second</test:Nested></test:Message>
+                </collect:meteorologicalInformation>
+                <collect:bulletinIdentifier>A_LTFI31EFKL301115_C_EFKL_201902011315--.xml</collect:bulletinIdentifier>
+            </collect:MeteorologicalBulletin>
+            """;
+
+    private static Document toDocument(final String content) throws Exception {
+        final DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
+        documentBuilderFactory.setNamespaceAware(true);
+        return documentBuilderFactory.newDocumentBuilder().parse(new InputSource(new StringReader(content)));
+    }
+
+    private static List<String> split(final String content) throws XMLStreamException {
+        final List<String> fragments = new ArrayList<>();
+        try (CollectDocumentSplitter splitter = new CollectDocumentSplitter(content)) {
+            Optional<String> fragment;
+            while ((fragment = splitter.nextFragment()).isPresent()) {
+                fragments.add(fragment.get());
+            }
+        }
+        return fragments;
+    }
+
+    @Test
+    void detects_collect_document() throws XMLStreamException {
+        assertThat(CollectDocumentSplitter.isCollectDocument(DOCUMENT)).isTrue();
+        assertThat(CollectDocumentSplitter.isCollectDocument("<iwxxm:TAF xmlns:iwxxm=\"http://icao.int/iwxxm/2023-1\"/>")).isFalse();
+        assertThat(CollectDocumentSplitter.isCollectDocument("<MeteorologicalBulletin/>")).isFalse();
+    }
+
+    @Test
+    void splits_members_into_single_member_documents() throws Exception {
+        final List<String> fragments = split(DOCUMENT);
+
+        assertThat(fragments).hasSize(2);
+        for (int i = 0; i < fragments.size(); i++) {
+            final Element root = toDocument(fragments.get(i)).getDocumentElement();
+            assertThat(root.getNamespaceURI()).isEqualTo(COLLECT_NAMESPACE);
+            assertThat(root.getLocalName()).isEqualTo("MeteorologicalBulletin");
+            assertThat(root.getAttributeNS("http://www.opengis.net/gml/3.2", "id")).isEqualTo("bulletin-1");
+            assertThat(root.getElementsByTagNameNS(COLLECT_NAMESPACE, "meteorologicalInformation").getLength()).isEqualTo(1);
+            assertThat(root.getElementsByTagNameNS(COLLECT_NAMESPACE, "bulletinIdentifier").item(0).getTextContent())
+                    .isEqualTo("A_LTFI31EFKL301115_C_EFKL_201902011315--.xml");
+            final Element message = (Element) root.getElementsByTagNameNS("urn:test", "Message").item(0);
+            assertThat(message.getAttributeNS("http://www.opengis.net/gml/3.2", "id")).isEqualTo("message-" + (i + 1));
+        }
+        assertThat(toDocument(fragments.get(0)).getElementsByTagNameNS("urn:test", "Message").item(0).getTextContent()).isEqualTo("first & one");
+        assertThat(toDocument(fragments.get(1)).getElementsByTagNameNS("urn:test", "Nested").item(0).getTextContent()).isEqualTo("second");
+    }
+
+    @Test
+    void returns_no_fragments_for_document_without_members() throws XMLStreamException {
+        assertThat(split("<collect:MeteorologicalBulletin xmlns:collect=\"http://def.wmo.int/collect/2014\"/>")).isEmpty();
+    }
+
+    @Test
+    void rejects_non_collect_document() {
+        assertThatThrownBy(() -> new CollectDocumentSplitter("<root/>")).isInstanceOf(XMLStreamException.class);
+    }
+}
@@ -0,0 +1,91 @@
+package fi.fmi.avi.archiver.file;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DocumentBuilderPoolTest {
+    private static final String DOCUMENT = "<root xmlns=\"urn:test\"><child/></root>";
+
+    private SimpleMeterRegistry meterRegistry;
+    private DocumentBuilderPool pool;
+
+    private static InputSource input(final String content) {
+        return new InputSource(new StringReader(content));
+    }
+
+    private double count(final String name) {
+        return meterRegistry.get(name).counter().count();
+    }
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        final DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
+        documentBuilderFactory.setNamespaceAware(true);
+        pool = new DocumentBuilderPool(documentBuilderFactory, 1, meterRegistry);
+    }
+
+    @Test
+    void reuses_document_builder() throws Exception {
+        final Document first = pool.parse(input(DOCUMENT));
+        final Document second = pool.parse(input(DOCUMENT));
+
+        assertThat(first).isNotSameAs(second);
+        assertThat(second.getDocumentElement().getNamespaceURI()).isEqualTo("urn:test");
+        assertThat(second.getDocumentElement().getLocalName()).isEqualTo("root");
+        assertThat(count("archiver.parser.documentbuilder.created")).isEqualTo(1);
+        assertThat(count("archiver.parser.documentbuilder.reused")).isEqualTo(1);
+        assertThat(pool.getIdleCount()).isEqualTo(1);
+        assertThat(meterRegistry.get("archiver.parser.documentbuilder.idle").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void reuses_document_builder_after_parse_error() throws Exception {
+        assertThatThrownBy(() -> pool.parse(input("<root>"))).isInstanceOf(SAXException.class);
+
+        assertThat(pool.parse(input(DOCUMENT)).getDocumentElement().getLocalName()).isEqualTo("root");
+        assertThat(count("archiver.parser.documentbuilder.created")).isEqualTo(1);
+        assertThat(count("archiver.parser.documentbuilder.reused")).isEqualTo(1);
+    }
+
+    @Test
+    void discards_document_builders_exceeding_max_idle() throws Exception {
+        // Borrow a second builder while the first one is in use, by parsing another document on first read of the outer document
+        final Reader reader = new FilterReader(new StringReader(DOCUMENT)) {
+            private boolean nestedParsed;
+
+            @Override
+            public int read(final char[] buffer, final int offset, final int length) throws IOException {
+                if (!nestedParsed) {
+                    nestedParsed = true;
+                    try {
+                        pool.parse(input(DOCUMENT));
+                    } catch (final SAXException | ParserConfigurationException e) {
+                        throw new IOException(e);
+                    }
+                }
+                return super.read(buffer, offset, length);
+            }
+        };
+
+        pool.parse(new InputSource(reader));
+
+        assertThat(count("archiver.parser.documentbuilder.created")).isEqualTo(2);
+        assertThat(count("archiver.parser.documentbuilder.discarded")).isEqualTo(1);
+        assertThat(pool.getIdleCount()).isEqualTo(1);
+    }
+}
@@ -4,11 +4,16 @@ import fi.fmi.avi.archiver.DefaultProcessingServiceContext;
 import fi.fmi.avi.archiver.ProcessingServiceContext;
 import fi.fmi.avi.archiver.config.AviMessageConverterConfig;
 import fi.fmi.avi.archiver.config.model.FileConfig;
+import fi.fmi.avi.archiver.logging.model.FileProcessingStatisticsImpl;
+import fi.fmi.avi.archiver.logging.model.LoggingContext;
+import fi.fmi.avi.archiver.logging.model.LoggingContextImpl;
 import fi.fmi.avi.archiver.logging.model.NoOpLoggingContext;
+import fi.fmi.avi.archiver.message.MessagePositionInFile;
 import fi.fmi.avi.converter.AviMessageConverter;
 import fi.fmi.avi.model.GenericAviationWeatherMessage;
 import fi.fmi.avi.model.MessageType;
 import fi.fmi.avi.model.PartialOrCompleteTimeInstant;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -190,6 +195,27 @@ public class FileParserTest {
         assertThat(result.get(1).getMessage().getOriginalMessage()).isEqualTo("TAF YUDD 160000Z NIL=");
     }
 
+    @Test
+    void taf_tac_bulletin_with_unusual_heading() {
+        final String filename = "taf-tac-bulletin-unusual-heading.txt";
+        final FileMetadata metadata = DEFAULT_METADATA.toBuilder().mutateFileReference(ref -> ref.setFilename(filename)).setFileConfig(TAC_FILECONFIG).build();
+        final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        final List<InputAviationMessage> result;
+        try (final FileParser classifyingFileParser = new FileParser(aviMessageConverter, 1, 1, Long.MAX_VALUE, meterRegistry)) {
+            result = classifyingFileParser.parse(getFileContent(filename), metadata, processingServiceContext);
+        }
+
+        // Converted as a bulletin first, instead of accepting the whole content as a single message
+        assertThat(meterRegistry.find("archiver.parser.tac.classification").tag("structure", "bulletin").counters())
+                .extracting(counter -> counter.count())
+                .containsExactlyInAnyOrder(0.0, 1.0);
+        assertThat(meterRegistry.find("archiver.parser.tac.classification").tag("structure", "message").counters())
+                .allSatisfy(counter -> assertThat(counter.count()).isZero());
+        assertThat(result)
+                .extracting(message -> message.getMessage().getOriginalMessage())
+                .containsExactly("TAF YUDO 160000Z NIL=", "TAF YUDD 160000Z NIL=");
+    }
+
     @Test
     void taf_tac_two_bulletins() {
         final String filename = "taf-tac-two-bulletins.bul";
@@ -214,6 +240,38 @@ public class FileParserTest {
         assertThat(result.get(1).getMessage().getOriginalMessage()).isEqualTo("TAF YUDD 160000Z NIL=");
     }
 
+    @Test
+    void taf_tac_two_bulletins_in_parallel() {
+        final String filename = "taf-tac-two-bulletins.bul";
+        final FileMetadata metadata = DEFAULT_METADATA.toBuilder().mutateFileReference(ref -> ref.setFilename(filename)).setFileConfig(TAC_FILECONFIG).build();
+        final LoggingContext sequentialLoggingContext = new LoggingContextImpl(new FileProcessingStatisticsImpl());
+        sequentialLoggingContext.enterFile(metadata.getFileReference());
+        final LoggingContext parallelLoggingContext = new LoggingContextImpl(new FileProcessingStatisticsImpl());
+        parallelLoggingContext.enterFile(metadata.getFileReference());
+        final ProcessingServiceContext parallelContext = new DefaultProcessingServiceContext(parallelLoggingContext);
+
+        final List<InputAviationMessage> expected = fileParser.parse(getFileContent(filename), metadata,
+                new DefaultProcessingServiceContext(sequentialLoggingContext));
+        final List<InputAviationMessage> result;
+        try (final FileParser parallelFileParser = new FileParser(aviMessageConverter, 2, 1, Long.MAX_VALUE, new SimpleMeterRegistry())) {
+            result = parallelFileParser.parse(getFileContent(filename), metadata, parallelContext);
+        }
+
+        assertThat(parallelContext.isProcessingErrors()).isFalse();
+        assertThat(result).hasSize(4);
+        assertThat(result).isEqualTo(expected);
+        assertThat(result).extracting(InputAviationMessage::getMessagePositionInFile)
+                .containsExactly(MessagePositionInFile.getInstance(0, 0), MessagePositionInFile.getInstance(0, 1),
+                        MessagePositionInFile.getInstance(1, 0), MessagePositionInFile.getInstance(1, 1));
+        assertThat(parallelLoggingContext.getAllBulletins()).isEqualTo(sequentialLoggingContext.getAllBulletins());
+        assertThat(parallelLoggingContext.getBulletinIndex()).isEqualTo(-1);
+        for (int bulletinIndex = 0; bulletinIndex < 2; bulletinIndex++) {
+            sequentialLoggingContext.enterBulletin(bulletinIndex);
+            parallelLoggingContext.enterBulletin(bulletinIndex);
+            assertThat(parallelLoggingContext.getBulletinMessages()).isEqualTo(sequentialLoggingContext.getBulletinMessages());
+        }
+    }
+
     @Test
     void taf_iwxxm() {
         final String filename = "taf.xml";
@@ -311,6 +369,31 @@ public class FileParserTest {
         });
     }
 
+    @Test
+    void metar_iwxxm_collect_streaming() {
+        final String filename = "metar-collect-3.xml";
+        final FileMetadata metadata = DEFAULT_METADATA.toBuilder()
+                .mutateFileReference(ref -> ref.setFilename(filename))
+                .setFileConfig(IWXXM_FILECONFIG)
+                .build();
+        final List<InputAviationMessage> expected = fileParser.parse(getFileContent(filename), metadata, processingServiceContext);
+        final List<InputAviationMessage> result;
+        try (final FileParser streamingFileParser = new FileParser(aviMessageConverter, 1, 1, 0, new SimpleMeterRegistry())) {
+            result = streamingFileParser.parse(getFileContent(filename), metadata, processingServiceContext);
+        }
+
+        assertThat(processingServiceContext.isProcessingErrors()).isFalse();
+        assertThat(result).hasSize(3);
+        assertThat(result).extracting(InputAviationMessage::getMessagePositionInFile)
+                .containsExactly(MessagePositionInFile.getInstance(0, 0), MessagePositionInFile.getInstance(0, 1), MessagePositionInFile.getInstance(0, 2));
+        assertThat(result).extracting(InputAviationMessage::getCollectIdentifier)
+                .containsExactlyElementsOf(expected.stream().map(InputAviationMessage::getCollectIdentifier).toList());
+        assertThat(result).extracting(message -> message.getMessage().getMessageType())
+                .containsExactlyElementsOf(expected.stream().map(message -> message.getMessage().getMessageType()).toList());
+        assertThat(result).extracting(FileParserTest::getObservationTime)
+                .containsExactlyElementsOf(expected.stream().map(FileParserTest::getObservationTime).toList());
+    }
+
     @Test
     void taf_iwxxm_bulletin_with_gts_heading() {
         final String filename = "taf-gts-heading-bulletin.xml";
@@ -0,0 +1,79 @@
+package fi.fmi.avi.archiver.file;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+import fi.fmi.avi.archiver.config.model.AviationProduct;
+import fi.fmi.avi.archiver.config.model.FileConfig;
+import fi.fmi.avi.model.GenericAviationWeatherMessage;
+
+class FilePriorityResolverTest {
+    private static final String PRODUCT_ID = "product";
+    private static final Map<String, AviationProduct> AVIATION_PRODUCTS = ImmutableMap.of(PRODUCT_ID, AviationProduct.builder()//
+            .setId(PRODUCT_ID)//
+            .setPriority(10)//
+            .buildPartial());
+    private static final Map<String, Integer> DATA_DESIGNATOR_PRIORITIES = ImmutableMap.of("WS", 100, "SP", 50);
+
+    private final FilePriorityResolver resolver = new FilePriorityResolver(AVIATION_PRODUCTS, DATA_DESIGNATOR_PRIORITIES);
+
+    private static FileMetadata fileMetadata(final String pattern, final int fileConfigPriority, final String filename) {
+        return FileMetadata.builder()//
+                .setFileReference(FileReference.create(PRODUCT_ID, filename))//
+                .setFileConfig(FileConfig.builder()//
+                        .setPattern(Pattern.compile(pattern))//
+                        .setNameTimeZone(ZoneOffset.UTC)//
+                        .setFormat(GenericAviationWeatherMessage.Format.TAC)//
+                        .setFormatId(0)//
+                        .setPriority(fileConfigPriority)//
+                        .build())//
+                .buildPartial();
+    }
+
+    private static InputAviationMessage message(final String heading) {
+        return InputAviationMessage.builder()//
+                .setGtsBulletinHeading(InputBulletinHeading.builder()//
+                        .setBulletinHeadingString(heading)//
+                        .buildPartial())//
+                .buildPartial();
+    }
+
+    @Test
+    void resolves_sum_of_product_and_file_config_priorities() {
+        assertThat(resolver.resolve(fileMetadata("^.*\\.txt$", 2, "file.txt"))).isEqualTo(12);
+    }
+
+    @Test
+    void resolves_data_designator_priority_from_filename() {
+        assertThat(resolver.resolve(fileMetadata("^(?<T1T2>[A-Z]{2})[A-Z]{2}[0-9]{2}_.*\\.txt$", 0, "WSFI31_file.txt"))).isEqualTo(110);
+    }
+
+    @Test
+    void ignores_unknown_data_designators_in_filename() {
+        assertThat(resolver.resolve(fileMetadata("^(?<T1T2>[A-Z]{2})[A-Z]{2}[0-9]{2}_.*\\.txt$", 0, "SAFI31_file.txt"))).isEqualTo(10);
+    }
+
+    @Test
+    void resolves_highest_data_designator_priority_of_headings() {
+        final FileMetadata fileMetadata = fileMetadata("^.*\\.txt$", 0, "file.txt");
+        final List<InputAviationMessage> messages = List.of(message("SAFI31 EFKL 171200"), message("SPFI31 EFKL 171210"), message("SPFI31 EFKL 171220"));
+
+        assertThat(resolver.resolve(fileMetadata, messages)).isEqualTo(60);
+    }
+
+    @Test
+    void resolves_highest_data_designator_priority_of_filename_and_headings() {
+        final FileMetadata fileMetadata = fileMetadata("^(?<T1T2>[A-Z]{2})[A-Z]{2}[0-9]{2}_.*\\.txt$", 0, "WSFI31_file.txt");
+        final List<InputAviationMessage> messages = List.of(message("SPFI31 EFKL 171200"));
+
+        assertThat(resolver.resolve(fileMetadata, messages)).isEqualTo(110);
+    }
+}
@@ -0,0 +1,54 @@
+package fi.fmi.avi.archiver.file;
+
+import fi.fmi.avi.archiver.logging.model.BulletinLogReference;
+import fi.fmi.avi.archiver.logging.model.FileProcessingStatistics;
+import fi.fmi.avi.archiver.logging.model.FileProcessingStatisticsImpl;
+import fi.fmi.avi.archiver.logging.model.LoggingContext;
+import fi.fmi.avi.archiver.logging.model.LoggingContextImpl;
+import fi.fmi.avi.archiver.logging.model.MessageLogReference;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RecordingLoggingContextTest {
+    private static final FileReference FILE = FileReference.create("product", "file.txt");
+
+    @Test
+    void maintains_local_state() {
+        final RecordingLoggingContext recordingContext = new RecordingLoggingContext(FILE);
+        recordingContext.enterBulletin(BulletinLogReference.builder().setIndex(1).setHeading("FTXX33 XXXX 181500").build());
+        recordingContext.enterMessage(MessageLogReference.builder().setIndex(0).setContent("TAF").build());
+
+        assertThat(recordingContext.getFile()).contains(FILE);
+        assertThat(recordingContext.getBulletinIndex()).isEqualTo(1);
+        assertThat(recordingContext.getMessageIndex()).isZero();
+        assertThat(recordingContext.toString()).contains("product/file.txt", "FTXX33");
+    }
+
+    @Test
+    void replays_state_changes_and_processing_results() {
+        final FileProcessingStatistics expectedStatistics = new FileProcessingStatisticsImpl();
+        final LoggingContext expected = new LoggingContextImpl(expectedStatistics);
+        final FileProcessingStatistics actualStatistics = new FileProcessingStatisticsImpl();
+        final LoggingContext actual = new LoggingContextImpl(actualStatistics);
+        expected.enterFile(FILE);
+        actual.enterFile(FILE);
+        final RecordingLoggingContext recordingContext = new RecordingLoggingContext(FILE);
+
+        for (final LoggingContext context : new LoggingContext[]{expected, recordingContext}) {
+            context.enterBulletin(BulletinLogReference.builder().setIndex(1).setHeading("FTXX33 XXXX 181500").build());
+            context.modifyBulletin(reference -> reference.toBuilder().clearHeading().build());
+            context.enterMessage(MessageLogReference.builder().setIndex(0).setContent("TAF 1").build());
+            context.leaveMessage();
+            context.enterMessage(MessageLogReference.builder().setIndex(1).setContent("TAF 2").build());
+            context.recordProcessingResult(FileProcessingStatistics.ProcessingResult.FAILED);
+        }
+        recordingContext.replayTo(actual);
+
+        assertThat(actual.getAllBulletins()).isEqualTo(expected.getAllBulletins());
+        assertThat(actual.getBulletinIndex()).isEqualTo(expected.getBulletinIndex());
+        assertThat(actual.getBulletinMessages()).isEqualTo(expected.getBulletinMessages());
+        assertThat(actual.getMessageIndex()).isEqualTo(expected.getMessageIndex());
+        assertThat(actualStatistics.toString()).isEqualTo(expectedStatistics.toString());
+    }
+}
@@ -0,0 +1,83 @@
+package fi.fmi.avi.archiver.file;
+
+import fi.fmi.avi.model.GenericAviationWeatherMessage;
+import fi.fmi.avi.model.MessageType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TacContentClassifierTest {
+    private SimpleMeterRegistry meterRegistry;
+    private TacContentClassifier classifier;
+
+    private static GenericAviationWeatherMessage message(final MessageType messageType) {
+        final GenericAviationWeatherMessage message = mock(GenericAviationWeatherMessage.class);
+        when(message.getMessageType()).thenReturn(Optional.of(messageType));
+        return message;
+    }
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        classifier = new TacContentClassifier(meterRegistry);
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "TAF EFXX 181500Z 1812/1912 00000KT CAVOK=                | false | TAF",
+            "METAR COR EFHK 011200Z 00000KT CAVOK 10/05 Q1010=        | false | METAR",
+            "SPECI EFHK 011220Z 00000KT 0500 FG 10/10 Q1010=          | false | SPECI",
+            "EFIN SIGMET 1 VALID 011200/011600 EFKL-                  | false | SIGMET",
+            "VA ADVISORY\\nDTG: 20240101/1200Z                         | false | VOLCANIC_ASH_ADVISORY",
+            "SWX ADVISORY\\nSTATUS: TEST                               | false | SPACE_WEATHER_ADVISORY",
+            "Inconvertible message                                    | false |",
+            "FTYU31 YUDO 160000\\nTAF YUDO 160000Z NIL=                | true  | TAF",
+            "FTYU31 YUDO 160000 RRA\\r\\r\\nTAF YUDO 160000Z NIL=        | true  | TAF",
+            "WSFI31 EFKL 011200\\n\\nEFIN SIGMET 1 VALID 011200/011600- | true  | SIGMET",
+            "SAFI31 EFKL 011200                                       | true  |",
+            "FTYU31  YUDO  160000  RRA1\\nTAF YUDO 160000Z NIL=        | true  | TAF",
+            "TAF YUDO 160000Z NIL=\\nTAF YUDD 160000Z NIL=            | true  | TAF",
+    })
+    void classifies_content(final String content, final boolean bulletin, @Nullable final String expectedType) {
+        final TacContentClassifier.Classification classification = classifier.classify(content.replace("\\r", "\r").replace("\\n", "\n"));
+
+        assertThat(classification.bulletin()).isEqualTo(bulletin);
+        assertThat(classification.expectedType()).isEqualTo(expectedType == null ? null : new MessageType(expectedType));
+    }
+
+    @Test
+    void records_classification_outcomes() {
+        final TacContentClassifier.Classification bulletin = classifier.classify("FTYU31 YUDO 160000\nTAF YUDO 160000Z NIL=");
+        final TacContentClassifier.Classification message = classifier.classify("TAF YUDO 160000Z NIL=");
+        final TacContentClassifier.Classification unknown = classifier.classify("Unknown message");
+
+        classifier.recordStructure(bulletin, true);
+        classifier.recordStructure(message, true);
+        classifier.recordStructure(message, false);
+        classifier.recordType(bulletin, List.of(message(MessageType.TAF)));
+        classifier.recordType(message, List.of(message(MessageType.METAR)));
+        classifier.recordType(unknown, List.of(message(MessageType.METAR)));
+
+        assertThat(meterRegistry.get("archiver.parser.tac.classification").tags("structure", "bulletin", "outcome", "correct").counter().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("archiver.parser.tac.classification").tags("structure", "bulletin", "outcome", "incorrect").counter().count())
+                .isZero();
+        assertThat(meterRegistry.get("archiver.parser.tac.classification").tags("structure", "message", "outcome", "correct").counter().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("archiver.parser.tac.classification").tags("structure", "message", "outcome", "incorrect").counter().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("archiver.parser.tac.type.classification").tag("outcome", "correct").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("archiver.parser.tac.type.classification").tag("outcome", "incorrect").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("archiver.parser.tac.type.classification").tag("outcome", "unpredicted").counter().count()).isEqualTo(1);
+    }
+}
@@ -2,7 +2,7 @@ package fi.fmi.avi.archiver.message.processor.populator;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.testing.AbstractPackageSanityTests;
-import fi.fmi.avi.archiver.database.DatabaseAccess;
+import fi.fmi.avi.archiver.database.StationIdResolver;
 import fi.fmi.avi.archiver.file.FileMetadata;
 import fi.fmi.avi.archiver.file.InputAviationMessage;
 import fi.fmi.avi.archiver.file.InputBulletinHeading;
@@ -32,7 +32,6 @@ public class PackageSanityTest extends AbstractPackageSanityTests {
         setDefault(ArchiveAviationMessage.Builder.class, ArchiveAviationMessage.builder());
         setDefault(ArchiveAviationMessage.class, ArchiveAviationMessage.builder().buildPartial());
         setDefault(Clock.class, Clock.systemUTC());
-        setDefault(DatabaseAccess.class, mock(DatabaseAccess.class));
         setDefault(FileMetadata.class, FileMetadata.builder().buildPartial());
         setDefault(InputAviationMessage.class, InputAviationMessage.builder().buildPartial());
         setDefault(InputAviationMessage.Builder.class, InputAviationMessage.builder());
@@ -41,6 +40,7 @@ public class PackageSanityTest extends AbstractPackageSanityTests {
         setDefault(MessagePopulatorHelper.class, new MessagePopulatorHelper(Clock.systemUTC()));
         setDefault(PartialOrCompleteTimeInstant.class, PartialOrCompleteTimeInstant.builder().buildPartial());
         setDefault(PartialOrCompleteTimePeriod.class, PartialOrCompleteTimePeriod.builder().buildPartial());
+        setDefault(StationIdResolver.class, mock(StationIdResolver.class));
         setDistinctValues(Instant.class, Instant.now(), Instant.now().plusSeconds(1));
         setDefault(String.class, "test");
         setDefault(Duration.class, Duration.ofHours(1));
@@ -2,6 +2,7 @@ package fi.fmi.avi.archiver.message.processor.postaction;
 
 import com.google.common.testing.AbstractPackageSanityTests;
 import fi.fmi.avi.archiver.message.ArchiveAviationMessage;
+import fi.fmi.avi.archiver.metrics.IngestLatencyMetrics;
 import fi.fmi.avi.archiver.util.GeneratedClasses;
 import org.springframework.retry.support.RetryTemplate;
 
@@ -27,6 +28,7 @@ public class PackageSanityTest extends AbstractPackageSanityTests {
                 mock(ThreadPoolExecutor.class), Duration.ZERO, RetryTemplate.defaultInstance()));
         setDefault(ArchiveAviationMessage.class, ArchiveAviationMessage.builder().buildPartial());
         setDefault(Clock.class, Clock.systemUTC());
+        setDefault(IngestLatencyMetrics.class, mock(IngestLatencyMetrics.class));
         setDefault(SwimRabbitMQPublisher.MessageConfig.class, mock(SwimRabbitMQPublisher.MessageConfig.class));
     }
 
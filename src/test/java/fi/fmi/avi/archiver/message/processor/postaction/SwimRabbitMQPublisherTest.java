@@ -12,6 +12,7 @@ import fi.fmi.avi.archiver.message.ArchiveAviationMessage;
 import fi.fmi.avi.archiver.message.ProcessingResult;
 import fi.fmi.avi.archiver.message.processor.MessageProcessorContext;
 import fi.fmi.avi.archiver.message.processor.TestMessageProcessorContext;
+import fi.fmi.avi.archiver.metrics.IngestLatencyMetrics;
 import fi.fmi.avi.model.AviationWeatherMessage;
 import fi.fmi.avi.model.GenericAviationWeatherMessage;
 import fi.fmi.avi.model.MessageType;
@@ -98,6 +99,8 @@ class SwimRabbitMQPublisherTest {
     private Message.MessageAddressBuilder addressBuilder;
     @Mock
     private Publisher.Context publisherContext;
+    @Mock
+    private IngestLatencyMetrics ingestLatencyMetrics;
     private AutoCloseable openMocks;
 
     static Stream<Arguments> ignores_message_cases() {
@@ -501,6 +504,7 @@ class SwimRabbitMQPublisherTest {
 
         verify(publisher, times(succeedOn)).publish(any(Message.class), any(Publisher.Callback.class));
         assertThat(attempts.get()).isEqualTo(succeedOn);
+        verify(ingestLatencyMetrics, times(1)).recordPublished(any(), any());
     }
 
     @Test
@@ -542,7 +546,8 @@ class SwimRabbitMQPublisherTest {
                 clock,
                 FORMAT_IWXXM,
                 APPLICATION_PROPERTIES_BY_MESSAGE_TYPE,
-                config);
+                config,
+                ingestLatencyMetrics);
     }
 
     private void verifyScenario(final AppPropScenario scenario,
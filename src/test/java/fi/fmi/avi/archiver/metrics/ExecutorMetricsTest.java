@@ -0,0 +1,109 @@
+package fi.fmi.avi.archiver.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import fi.fmi.avi.archiver.spring.integration.util.SemaphoreBoundedExecutorService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ExecutorMetricsTest {
+    private static final String EXECUTOR_NAME = "Test-executor";
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private SimpleMeterRegistry meterRegistry;
+    private ExecutorMetrics executorMetrics;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        executorMetrics = new ExecutorMetrics(meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+    }
+
+    private double gauge(final String name) {
+        return meterRegistry.get(name).tag(ExecutorMetrics.EXECUTOR_TAG, EXECUTOR_NAME).gauge().value();
+    }
+
+    private void awaitRelease() {
+        try {
+            release.await();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    void registers_thread_pool_executor_metrics() throws InterruptedException {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new ArrayBlockingQueue<>(3));
+        try {
+            executorMetrics.bind(EXECUTOR_NAME, executor, () -> Duration.ofSeconds(2));
+            final CountDownLatch started = new CountDownLatch(1);
+            executor.execute(() -> {
+                started.countDown();
+                awaitRelease();
+            });
+            executor.execute(this::awaitRelease);
+            started.await();
+
+            assertThat(gauge("archiver.executor.active")).isEqualTo(1);
+            assertThat(gauge("archiver.executor.queued")).isEqualTo(1);
+            assertThat(gauge("archiver.executor.queue.remaining")).isEqualTo(2);
+            assertThat(meterRegistry.get("archiver.executor.blocked").timeGauge().value(TimeUnit.SECONDS)).isEqualTo(2);
+            assertThat(gauge("archiver.executor.blocked.callers")).isEqualTo(1);
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(meterRegistry.get("archiver.executor.completed").functionCounter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void registers_semaphore_bounded_executor_metrics() throws InterruptedException {
+        final SemaphoreBoundedExecutorService executor = new SemaphoreBoundedExecutorService(Thread::new,
+                Clock.fixed(Instant.EPOCH, ZoneOffset.UTC), 1, 3);
+        try {
+            executorMetrics.bind(EXECUTOR_NAME, executor);
+            final CountDownLatch started = new CountDownLatch(1);
+            executor.execute(() -> {
+                started.countDown();
+                awaitRelease();
+            });
+            started.await();
+
+            assertThat(gauge("archiver.executor.active")).isEqualTo(1);
+            assertThat(gauge("archiver.executor.queue.remaining")).isEqualTo(3);
+            assertThat(meterRegistry.get("archiver.executor.blocked").timeGauge().value(TimeUnit.SECONDS)).isZero();
+            assertThat(gauge("archiver.executor.blocked.callers")).isZero();
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(meterRegistry.get("archiver.executor.completed").functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void counts_dropped_tasks() {
+        executorMetrics.droppedTasksCounter(EXECUTOR_NAME).increment();
+        executorMetrics.droppedTasksCounter(EXECUTOR_NAME).increment();
+
+        assertThat(meterRegistry.get("archiver.executor.dropped").tag(ExecutorMetrics.EXECUTOR_TAG, EXECUTOR_NAME).counter().count()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,94 @@
+package fi.fmi.avi.archiver.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import fi.fmi.avi.archiver.logging.model.ProcessingPhase;
+import fi.fmi.avi.model.GenericAviationWeatherMessage;
+import io.micrometer.core.instrument.MockClock;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class FileProcessingTimerTest {
+    private static final String PRODUCT_ID = "test_product";
+
+    private MockClock clock;
+    private SimpleMeterRegistry meterRegistry;
+    private ProcessingPhaseMetrics metrics;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MockClock();
+        meterRegistry = new SimpleMeterRegistry(SimpleConfig.DEFAULT, clock);
+        metrics = new ProcessingPhaseMetrics(meterRegistry);
+    }
+
+    private Timer timer(final ProcessingPhase phase) {
+        return meterRegistry.find(ProcessingPhaseMetrics.TIMER_NAME)//
+                .tag(ProcessingPhaseMetrics.PHASE_TAG, phase.name())//
+                .tag(ProcessingPhaseMetrics.PRODUCT_TAG, PRODUCT_ID)//
+                .tag(ProcessingPhaseMetrics.FORMAT_TAG, "TAC")//
+                .timer();
+    }
+
+    @Test
+    void records_time_of_each_phase_on_record() {
+        final FileProcessingTimer fileTimer = metrics.newFileTimer(PRODUCT_ID, GenericAviationWeatherMessage.Format.TAC);
+
+        fileTimer.enter(ProcessingPhase.READ);
+        clock.add(Duration.ofMillis(10));
+        fileTimer.exit();
+        clock.add(Duration.ofMillis(100));
+        fileTimer.enter(ProcessingPhase.PARSE);
+        clock.add(Duration.ofMillis(20));
+        fileTimer.enter(ProcessingPhase.POPULATE);
+        clock.add(Duration.ofMillis(30));
+        assertThat(timer(ProcessingPhase.READ)).isNull();
+
+        fileTimer.record();
+
+        assertThat(timer(ProcessingPhase.READ).totalTime(TimeUnit.MILLISECONDS)).isEqualTo(10);
+        assertThat(timer(ProcessingPhase.PARSE).totalTime(TimeUnit.MILLISECONDS)).isEqualTo(20);
+        assertThat(timer(ProcessingPhase.POPULATE).totalTime(TimeUnit.MILLISECONDS)).isEqualTo(30);
+        assertThat(timer(ProcessingPhase.STORE)).isNull();
+    }
+
+    @Test
+    void sums_up_times_of_phase_entered_several_times() {
+        final FileProcessingTimer fileTimer = metrics.newFileTimer(PRODUCT_ID, GenericAviationWeatherMessage.Format.TAC);
+
+        fileTimer.enter(ProcessingPhase.FAIL);
+        clock.add(Duration.ofMillis(10));
+        fileTimer.enter(ProcessingPhase.FAIL);
+        clock.add(Duration.ofMillis(10));
+        fileTimer.exit();
+        clock.add(Duration.ofMillis(100));
+        fileTimer.enter(ProcessingPhase.FAIL);
+        clock.add(Duration.ofMillis(5));
+        fileTimer.record();
+
+        assertThat(timer(ProcessingPhase.FAIL).count()).isEqualTo(1);
+        assertThat(timer(ProcessingPhase.FAIL).totalTime(TimeUnit.MILLISECONDS)).isEqualTo(25);
+    }
+
+    @Test
+    void records_only_once() {
+        final FileProcessingTimer fileTimer = metrics.newFileTimer(PRODUCT_ID, GenericAviationWeatherMessage.Format.TAC);
+
+        fileTimer.enter(ProcessingPhase.FINISH);
+        clock.add(Duration.ofMillis(10));
+        fileTimer.record();
+        fileTimer.enter(ProcessingPhase.FINISH);
+        clock.add(Duration.ofMillis(10));
+        fileTimer.record();
+
+        assertThat(timer(ProcessingPhase.FINISH).count()).isEqualTo(1);
+        assertThat(timer(ProcessingPhase.FINISH).totalTime(TimeUnit.MILLISECONDS)).isEqualTo(10);
+    }
+}
@@ -0,0 +1,104 @@
+package fi.fmi.avi.archiver.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+import fi.fmi.avi.archiver.config.model.FileConfig;
+import fi.fmi.avi.archiver.file.FileMetadata;
+import fi.fmi.avi.archiver.file.FileReference;
+import fi.fmi.avi.archiver.file.InputAviationMessage;
+import fi.fmi.avi.archiver.message.ArchiveAviationMessage;
+import fi.fmi.avi.model.GenericAviationWeatherMessage;
+import fi.fmi.avi.model.MessageType;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class IngestLatencyMetricsTest {
+    private static final Instant NOW = Instant.parse("2024-05-01T12:00:00Z");
+    private static final String PRODUCT_ID = "test_product";
+    private static final FileConfig FILE_CONFIG = FileConfig.builder()//
+            .setPattern(Pattern.compile("test"))//
+            .setNameTimeZone(ZoneOffset.UTC)//
+            .setFormat(GenericAviationWeatherMessage.Format.TAC)//
+            .setFormatId(1)//
+            .build();
+    private static final ArchiveAviationMessage ARCHIVE_MESSAGE = ArchiveAviationMessage.builder()//
+            .setType(2)//
+            .setRoute(1)//
+            .buildPartial();
+
+    private SimpleMeterRegistry meterRegistry;
+    private IngestLatencyMetrics metrics;
+
+    private static InputAviationMessage inputMessage(final FileMetadata.Builder fileMetadataBuilder) {
+        return InputAviationMessage.builder()//
+                .setFileMetadata(fileMetadataBuilder//
+                        .setFileReference(FileReference.create(PRODUCT_ID, "test"))//
+                        .setFileConfig(FILE_CONFIG)//
+                        .build())//
+                .buildPartial();
+    }
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        metrics = new IngestLatencyMetrics(meterRegistry, Clock.fixed(NOW, ZoneOffset.UTC), ImmutableMap.of(MessageType.TAF, 2),
+                ImmutableMap.of("DEFAULT", 1), Duration.ofMinutes(5));
+    }
+
+    @Test
+    void records_store_latency_from_file_modification() {
+        metrics.recordStored(inputMessage(FileMetadata.builder().setFileModified(NOW.minusSeconds(30))), ARCHIVE_MESSAGE);
+
+        final Timer timer = meterRegistry.get(IngestLatencyMetrics.STORE_TIMER_NAME)//
+                .tag(IngestLatencyMetrics.PRODUCT_TAG, PRODUCT_ID)//
+                .tag(IngestLatencyMetrics.TYPE_TAG, "TAF")//
+                .tag(IngestLatencyMetrics.ROUTE_TAG, "DEFAULT")//
+                .timer();
+        assertThat(timer.count()).isEqualTo(1);
+        assertThat(timer.totalTime(TimeUnit.SECONDS)).isEqualTo(30);
+        assertThat(metrics.getStoreTimers()).containsExactly(timer);
+        assertThat(metrics.getPublishTimers()).isEmpty();
+    }
+
+    @Test
+    void records_publish_latency_from_file_modification() {
+        metrics.recordPublished(inputMessage(FileMetadata.builder().setFileModified(NOW.minusSeconds(45))), ARCHIVE_MESSAGE);
+
+        assertThat(metrics.getPublishTimers())//
+                .singleElement()//
+                .satisfies(timer -> assertThat(timer.totalTime(TimeUnit.SECONDS)).isEqualTo(45));
+    }
+
+    @Test
+    void does_not_record_messages_without_file_modification_time() {
+        metrics.recordStored(inputMessage(FileMetadata.builder()), ARCHIVE_MESSAGE);
+
+        assertThat(metrics.getStoreTimers()).isEmpty();
+    }
+
+    @Test
+    void uses_identifiers_as_tags_of_unknown_types_and_routes() {
+        metrics.recordStored(inputMessage(FileMetadata.builder().setFileModified(NOW)), ArchiveAviationMessage.builder()//
+                .setType(17)//
+                .setRoute(7)//
+                .buildPartial());
+
+        assertThat(meterRegistry.get(IngestLatencyMetrics.STORE_TIMER_NAME)//
+                .tag(IngestLatencyMetrics.TYPE_TAG, "17")//
+                .tag(IngestLatencyMetrics.ROUTE_TAG, "7")//
+                .timer()//
+                .count()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,16 @@
+package fi.fmi.avi.archiver.metrics;
+
+import com.google.common.testing.AbstractPackageSanityTests;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@SuppressWarnings("UnstableApiUsage")
+public class PackageSanityTest extends AbstractPackageSanityTests {
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        setDefault(MeterRegistry.class, new SimpleMeterRegistry());
+    }
+
+}
@@ -0,0 +1,40 @@
+package fi.fmi.avi.archiver.spring.endpoint;
+
+import fi.fmi.avi.archiver.metrics.IngestLatencyMetrics;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.withPercentage;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class IngestLatencyEndpointTest {
+
+    @Test
+    void reports_rolling_percentiles_of_store_and_publish_timers() {
+        final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        final Timer timer = Timer.builder(IngestLatencyMetrics.STORE_TIMER_NAME)//
+                .tag(IngestLatencyMetrics.PRODUCT_TAG, "test_product")//
+                .publishPercentiles(0.5, 0.95, 0.99)//
+                .register(meterRegistry);
+        timer.record(Duration.ofSeconds(2));
+        final IngestLatencyMetrics metrics = mock(IngestLatencyMetrics.class);
+        when(metrics.getStoreTimers()).thenReturn(List.of(timer));
+        when(metrics.getPublishTimers()).thenReturn(List.of());
+
+        final IngestLatencyEndpoint.IngestLatencyReport report = new IngestLatencyEndpoint(metrics).latency();
+
+        assertThat(report.publish()).isEmpty();
+        assertThat(report.store()).singleElement().satisfies(summary -> {
+            assertThat(summary.tags()).containsEntry(IngestLatencyMetrics.PRODUCT_TAG, "test_product");
+            assertThat(summary.count()).isEqualTo(1);
+            assertThat(summary.percentiles()).containsOnlyKeys("p50", "p95", "p99");
+            assertThat(summary.percentiles().get("p50")).isCloseTo(2000.0, withPercentage(5));
+        });
+    }
+}
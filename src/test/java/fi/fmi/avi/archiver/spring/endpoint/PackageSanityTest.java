@@ -0,0 +1,23 @@
+package fi.fmi.avi.archiver.spring.endpoint;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.testing.AbstractPackageSanityTests;
+import fi.fmi.avi.archiver.database.RecentMessageCache;
+import fi.fmi.avi.archiver.metrics.IngestLatencyMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.time.Clock;
+import java.time.Duration;
+
+@SuppressWarnings("UnstableApiUsage")
+public class PackageSanityTest extends AbstractPackageSanityTests {
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        setDefault(IngestLatencyMetrics.class, new IngestLatencyMetrics(new SimpleMeterRegistry(), Clock.systemUTC(), ImmutableMap.of(),
+                ImmutableMap.of(), Duration.ofMinutes(1)));
+        setDefault(RecentMessageCache.class, new RecentMessageCache(Clock.systemUTC(), 1, Duration.ofMinutes(1)));
+    }
+
+}
@@ -0,0 +1,82 @@
+package fi.fmi.avi.archiver.spring.endpoint;
+
+import com.google.common.collect.ImmutableBiMap;
+import fi.fmi.avi.archiver.database.RecentMessageCache;
+import fi.fmi.avi.archiver.file.InputAviationMessage;
+import fi.fmi.avi.archiver.message.ArchivalStatus;
+import fi.fmi.avi.archiver.message.ArchiveAviationMessage;
+import fi.fmi.avi.archiver.message.InputAndArchiveAviationMessage;
+import fi.fmi.avi.model.MessageType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RecentMessagesControllerTest {
+    private static final Instant NOW = Instant.parse("2024-01-01T12:00:00Z");
+
+    private RecentMessageCache cache;
+    private RecentMessagesController controller;
+
+    private static InputAndArchiveAviationMessage archived(final int type, final String message) {
+        return new InputAndArchiveAviationMessage(InputAviationMessage.builder().buildPartial(), ArchiveAviationMessage.builder()//
+                .setMessage(message)//
+                .setType(type)//
+                .setRoute(1)//
+                .setFormat(1)//
+                .setStationIcaoCode("EFHK")//
+                .setMessageTime(NOW)//
+                .setArchivalStatus(ArchivalStatus.ARCHIVED)//
+                .build());
+    }
+
+    @BeforeEach
+    void setUp() {
+        cache = new RecentMessageCache(Clock.fixed(NOW, ZoneOffset.UTC), 2, Duration.ZERO);
+        controller = new RecentMessagesController(cache, ImmutableBiMap.of(MessageType.METAR, 1, MessageType.TAF, 2),
+                ImmutableBiMap.of("DEFAULT", 1));
+    }
+
+    @Test
+    void responds_not_found_for_unknown_station() {
+        assertThat(controller.recentMessages("EFHK", null).getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    void returns_messages_by_type_with_cache_headers() {
+        cache.recordStoredMessages(List.of(archived(1, "METAR EFHK 011200Z"), archived(2, "TAF EFHK 011200Z")));
+
+        final ResponseEntity<RecentMessagesController.StationMessages> response = controller.recentMessages("efhk", null);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getETag()).isEqualTo("\"" + cache.getStation("EFHK").orElseThrow().eTag() + "\"");
+        assertThat(response.getHeaders().getLastModified()).isEqualTo(NOW.toEpochMilli());
+        assertThat(response.getBody()).isNotNull();
+        assertThat(response.getBody().station()).isEqualTo("EFHK");
+        assertThat(response.getBody().messages()).containsOnlyKeys("METAR", "TAF");
+        assertThat(response.getBody().messages().get("METAR")).singleElement().satisfies(message -> {
+            assertThat(message.route()).isEqualTo("DEFAULT");
+            assertThat(message.message()).isEqualTo("METAR EFHK 011200Z");
+        });
+    }
+
+    @Test
+    void filters_messages_by_type() {
+        cache.recordStoredMessages(List.of(archived(1, "METAR EFHK 011200Z"), archived(2, "TAF EFHK 011200Z")));
+
+        final ResponseEntity<RecentMessagesController.StationMessages> all = controller.recentMessages("EFHK", null);
+        final ResponseEntity<RecentMessagesController.StationMessages> taf = controller.recentMessages("EFHK", "taf");
+
+        assertThat(taf.getBody()).isNotNull();
+        assertThat(taf.getBody().messages()).containsOnlyKeys("TAF");
+        assertThat(taf.getHeaders().getETag()).isNotEqualTo(all.getHeaders().getETag());
+    }
+}
@@ -0,0 +1,81 @@
+package fi.fmi.avi.archiver.spring.integration.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AgingPriorityBlockingQueueTest {
+
+    private final AtomicLong nanoTime = new AtomicLong();
+
+    private AgingPriorityBlockingQueue<Integer> newQueue(final int capacity) {
+        // Elements are their own priorities
+        return new AgingPriorityBlockingQueue<>(capacity, Integer::intValue, Duration.ofNanos(10), nanoTime::get);
+    }
+
+    @Test
+    void takes_elements_in_priority_order() throws Exception {
+        final AgingPriorityBlockingQueue<Integer> queue = newQueue(10);
+        queue.put(1);
+        queue.put(3);
+        queue.put(2);
+
+        assertThat(queue.take()).isEqualTo(3);
+        assertThat(queue.take()).isEqualTo(2);
+        assertThat(queue.take()).isEqualTo(1);
+    }
+
+    @Test
+    void takes_elements_of_equal_priority_in_insertion_order() {
+        final AgingPriorityBlockingQueue<String> queue = new AgingPriorityBlockingQueue<>(10, element -> 0, Duration.ofSeconds(1), nanoTime::get);
+        queue.offer("a");
+        queue.offer("b");
+        queue.offer("c");
+
+        final List<String> drained = new ArrayList<>();
+        queue.drainTo(drained);
+        assertThat(drained).containsExactly("a", "b", "c");
+    }
+
+    @Test
+    void aged_low_priority_element_is_taken_first() throws Exception {
+        final AgingPriorityBlockingQueue<Integer> queue = newQueue(10);
+        queue.put(0);
+        nanoTime.set(11);
+        queue.put(1);
+
+        assertThat(queue.take()).isEqualTo(0);
+        assertThat(queue.take()).isEqualTo(1);
+    }
+
+    @Test
+    void rejects_offer_when_full() throws Exception {
+        final AgingPriorityBlockingQueue<Integer> queue = newQueue(2);
+
+        assertThat(queue.offer(1)).isTrue();
+        assertThat(queue.offer(2)).isTrue();
+        assertThat(queue.offer(3)).isFalse();
+        assertThat(queue.offer(3, 10, TimeUnit.MILLISECONDS)).isFalse();
+        assertThat(queue.remainingCapacity()).isZero();
+
+        assertThat(queue.poll()).isEqualTo(2);
+        assertThat(queue.offer(3)).isTrue();
+        assertThat(queue).hasSize(2);
+    }
+
+    @Test
+    void poll_returns_null_when_empty() throws Exception {
+        final AgingPriorityBlockingQueue<Integer> queue = newQueue(2);
+
+        assertThat(queue.poll()).isNull();
+        assertThat(queue.poll(10, TimeUnit.MILLISECONDS)).isNull();
+        assertThat(queue.peek()).isNull();
+    }
+
+}
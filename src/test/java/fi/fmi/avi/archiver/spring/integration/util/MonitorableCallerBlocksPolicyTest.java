@@ -5,6 +5,7 @@ import org.junit.jupiter.api.Test;
 import java.time.Clock;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -12,6 +13,24 @@ public class MonitorableCallerBlocksPolicyTest {
 
     private final Clock clock = Clock.systemUTC();
 
+    private static void awaitCondition(final BooleanSupplier condition) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+
+    private static Runnable awaiting(final CountDownLatch gate) {
+        return () -> {
+            try {
+                gate.await();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+    }
+
     @Test
     void test_rejection() throws Exception {
         final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS,
@@ -81,4 +100,39 @@ public class MonitorableCallerBlocksPolicyTest {
         }
     }
 
+    @Test
+    void test_multiple_blocked_callers() throws Exception {
+        final MonitorableCallerBlocksPolicy policy = new MonitorableCallerBlocksPolicy(clock, Long.MAX_VALUE);
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(1), Executors.defaultThreadFactory(), policy);
+        final ExecutorService callers = Executors.newFixedThreadPool(2);
+        final CountDownLatch firstGate = new CountDownLatch(1);
+        final CountDownLatch secondGate = new CountDownLatch(1);
+        try {
+            executor.execute(awaiting(firstGate));
+            executor.execute(awaiting(secondGate)); // queued
+            final Future<?> firstCaller = callers.submit(() -> executor.execute(awaiting(secondGate)));
+            final Future<?> secondCaller = callers.submit(() -> executor.execute(awaiting(secondGate)));
+            awaitCondition(() -> policy.getBlockedCallerCount() == 2);
+            Thread.sleep(20);
+            assertThat(policy.getBlockedDuration()).isPositive();
+
+            // Frees a single queue slot, unblocking one of the callers
+            firstGate.countDown();
+            awaitCondition(() -> policy.getBlockedCallerCount() == 1);
+            assertThat(policy.getBlockedDuration()).isPositive();
+
+            secondGate.countDown();
+            firstCaller.get(10, TimeUnit.SECONDS);
+            secondCaller.get(10, TimeUnit.SECONDS);
+            assertThat(policy.getBlockedCallerCount()).isZero();
+            assertThat(policy.getBlockedDuration()).isZero();
+        } finally {
+            firstGate.countDown();
+            secondGate.countDown();
+            callers.shutdown();
+            executor.shutdown();
+        }
+    }
+
 }
@@ -0,0 +1,44 @@
+package fi.fmi.avi.archiver.spring.integration.util;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.integration.core.MessageSource;
+import org.springframework.messaging.support.GenericMessage;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PausingReceiveMessageAdviceTest {
+
+    @SuppressWarnings("unchecked")
+    private static MessageSource<String> advised(final MessageSource<String> source, final PausingReceiveMessageAdvice advice) {
+        final ProxyFactory proxyFactory = new ProxyFactory(source);
+        proxyFactory.addAdvice(advice);
+        return (MessageSource<String>) proxyFactory.getProxy();
+    }
+
+    @Test
+    void skips_poll_while_paused_and_resumes_once_unpaused() {
+        final AtomicBoolean pauseCondition = new AtomicBoolean();
+        final AtomicInteger receiveCount = new AtomicInteger();
+        final PausingReceiveMessageAdvice advice = new PausingReceiveMessageAdvice("test", pauseCondition::get);
+        final MessageSource<String> source = advised(() -> new GenericMessage<>("message " + receiveCount.incrementAndGet()), advice);
+
+        assertThat(source.receive()).isNotNull().extracting(message -> message.getPayload()).isEqualTo("message 1");
+        assertThat(advice.isPaused()).isFalse();
+
+        pauseCondition.set(true);
+        assertThat(source.receive()).isNull();
+        assertThat(source.receive()).isNull();
+        assertThat(advice.isPaused()).isTrue();
+        assertThat(receiveCount).hasValue(1);
+
+        pauseCondition.set(false);
+        assertThat(source.receive()).isNotNull().extracting(message -> message.getPayload()).isEqualTo("message 2");
+        assertThat(advice.isPaused()).isFalse();
+        assertThat(receiveCount).hasValue(2);
+    }
+
+}
@@ -0,0 +1,268 @@
+package fi.fmi.avi.archiver.spring.integration.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class SemaphoreBoundedExecutorServiceTest {
+
+    private final Clock clock = Clock.systemUTC();
+
+    @Test
+    void limits_concurrency() throws Exception {
+        final SemaphoreBoundedExecutorService executor = new SemaphoreBoundedExecutorService(
+                Thread.ofVirtual().factory(), clock, 2, 10);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final CountDownLatch latch = new CountDownLatch(10);
+        try {
+            for (int i = 0; i < 10; i++) {
+                executor.execute(() -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    try {
+                        Thread.sleep(10);
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        running.decrementAndGet();
+                        latch.countDown();
+                    }
+                });
+            }
+            assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+            assertThat(maxRunning.get()).isLessThanOrEqualTo(2);
+        } finally {
+            executor.shutdown();
+        }
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(executor.getCompletedTaskCount()).isEqualTo(10);
+        assertThat(executor.getRemainingCapacity()).isEqualTo(12);
+    }
+
+    @Test
+    void blocks_caller_when_saturated() throws Exception {
+        final SemaphoreBoundedExecutorService executor = new SemaphoreBoundedExecutorService(
+                Thread.ofVirtual().factory(), clock, 1, 1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch submitted = new CountDownLatch(1);
+        final AtomicReference<Throwable> exception = new AtomicReference<>();
+        try {
+            executor.execute(() -> awaitQuietly(release));
+            executor.execute(() -> awaitQuietly(release));
+            assertThat(executor.getRemainingCapacity()).isZero();
+
+            final Thread submitter = new Thread(() -> {
+                try {
+                    executor.execute(() -> {
+                    });
+                } catch (final RejectedExecutionException e) {
+                    exception.set(e);
+                }
+                submitted.countDown();
+            });
+            submitter.start();
+            assertThat(submitted.await(100, TimeUnit.MILLISECONDS)).isFalse();
+            assertThat(executor.getBlockedDuration()).isPositive();
+
+            release.countDown();
+            assertThat(submitted.await(10, TimeUnit.SECONDS)).isTrue();
+            assertThat(exception.get()).isNull();
+            assertThat(executor.getBlockedDuration()).isZero();
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void tracks_multiple_blocked_callers() throws Exception {
+        final SemaphoreBoundedExecutorService executor = new SemaphoreBoundedExecutorService(
+                Thread.ofVirtual().factory(), clock, 1, 0);
+        final ExecutorService callers = Executors.newFixedThreadPool(2);
+        final CountDownLatch firstGate = new CountDownLatch(1);
+        final CountDownLatch secondGate = new CountDownLatch(1);
+        try {
+            executor.execute(() -> awaitQuietly(firstGate));
+            final Future<?> firstCaller = callers.submit(() -> executor.execute(() -> awaitQuietly(secondGate)));
+            final Future<?> secondCaller = callers.submit(() -> executor.execute(() -> awaitQuietly(secondGate)));
+            awaitCondition(() -> executor.getBlockedCallerCount() == 2);
+            Thread.sleep(20);
+            assertThat(executor.getBlockedDuration()).isPositive();
+
+            // Completes a single task, unblocking one of the callers
+            firstGate.countDown();
+            awaitCondition(() -> executor.getBlockedCallerCount() == 1);
+            assertThat(executor.getBlockedDuration()).isPositive();
+
+            secondGate.countDown();
+            firstCaller.get(10, TimeUnit.SECONDS);
+            secondCaller.get(10, TimeUnit.SECONDS);
+            assertThat(executor.getBlockedCallerCount()).isZero();
+            assertThat(executor.getBlockedDuration()).isZero();
+        } finally {
+            firstGate.countDown();
+            secondGate.countDown();
+            callers.shutdown();
+            executor.shutdown();
+        }
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void starts_waiting_tasks_in_submission_order() throws Exception {
+        final SemaphoreBoundedExecutorService executor = new SemaphoreBoundedExecutorService(
+                Thread.ofVirtual().factory(), clock, 1, 20);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<Integer> started = Collections.synchronizedList(new ArrayList<>());
+        try {
+            executor.execute(() -> awaitQuietly(release));
+            for (int i = 0; i < 20; i++) {
+                final int index = i;
+                executor.execute(() -> started.add(index));
+            }
+            assertThat(executor.getQueueSize()).isEqualTo(20);
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(started).containsExactlyElementsOf(IntStream.range(0, 20).boxed().toList());
+    }
+
+    @Test
+    void returns_waiting_tasks_on_shutdown_now() throws Exception {
+        final SemaphoreBoundedExecutorService executor = new SemaphoreBoundedExecutorService(
+                Thread.ofVirtual().factory(), clock, 1, 2);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Runnable waitingTask = () -> {
+        };
+        try {
+            executor.execute(() -> awaitQuietly(release));
+            executor.execute(waitingTask);
+            executor.execute(waitingTask);
+
+            assertThat(executor.shutdownNow()).containsExactly(waitingTask, waitingTask);
+        } finally {
+            release.countDown();
+        }
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(executor.getCompletedTaskCount()).isEqualTo(1);
+    }
+
+    @Test
+    void hands_task_to_saturation_handler_when_saturated() throws Exception {
+        final List<Runnable> skipped = new ArrayList<>();
+        final SemaphoreBoundedExecutorService executor = new SemaphoreBoundedExecutorService(
+                Thread.ofVirtual().factory(), clock, 1, 0, skipped::add);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Runnable skippedTask = () -> {
+        };
+        try {
+            executor.execute(() -> awaitQuietly(release));
+            executor.execute(skippedTask);
+            assertThat(skipped).containsExactly(skippedTask);
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void rejects_tasks_after_shutdown() {
+        final SemaphoreBoundedExecutorService executor = new SemaphoreBoundedExecutorService(
+                Thread.ofVirtual().factory(), clock, 1, 1);
+        executor.shutdown();
+        assertThat(executor.isTerminated()).isTrue();
+        assertThatExceptionOfType(RejectedExecutionException.class).isThrownBy(() -> executor.execute(() -> {
+        }));
+    }
+
+    @Test
+    void rejects_task_when_thread_fails_to_start() throws Exception {
+        final SemaphoreBoundedExecutorService executor = new SemaphoreBoundedExecutorService(runnable -> {
+            throw new IllegalStateException("test");
+        }, clock, 1, 1);
+
+        assertThatExceptionOfType(RejectedExecutionException.class)
+                .isThrownBy(() -> executor.execute(() -> {
+                }))
+                .withCauseInstanceOf(IllegalStateException.class);
+        assertThat(executor.getQueueSize()).isZero();
+        assertThat(executor.getActiveCount()).isZero();
+        assertThat(executor.getRemainingCapacity()).isEqualTo(2);
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void keeps_waiting_task_when_thread_fails_to_start_on_task_completion() throws Exception {
+        final AtomicInteger failingStarts = new AtomicInteger();
+        final List<Throwable> uncaughtExceptions = Collections.synchronizedList(new ArrayList<>());
+        final ThreadFactory virtualThreadFactory = Thread.ofVirtual()
+                .uncaughtExceptionHandler((thread, exception) -> uncaughtExceptions.add(exception))
+                .factory();
+        final SemaphoreBoundedExecutorService executor = new SemaphoreBoundedExecutorService(runnable -> {
+            if (failingStarts.getAndUpdate(count -> Math.max(0, count - 1)) > 0) {
+                throw new IllegalStateException("test");
+            }
+            return virtualThreadFactory.newThread(runnable);
+        }, clock, 1, 1);
+        final CountDownLatch release = new CountDownLatch(1);
+        try {
+            final Future<?> first = executor.submit(() -> awaitQuietly(release));
+            final Future<?> second = executor.submit(() -> {
+            });
+            assertThat(executor.getQueueSize()).isEqualTo(1);
+
+            // Fails to start the waiting task on completion of the first task
+            failingStarts.set(1);
+            release.countDown();
+            first.get(10, TimeUnit.SECONDS);
+            awaitCondition(() -> failingStarts.get() == 0 && executor.getCompletedTaskCount() == 1 && executor.getActiveCount() == 0);
+            assertThat(executor.getQueueSize()).isEqualTo(1);
+            assertThat(second).isNotDone();
+
+            // Starts the waiting task before the newly submitted one
+            final Future<?> third = executor.submit(() -> {
+            });
+            second.get(10, TimeUnit.SECONDS);
+            third.get(10, TimeUnit.SECONDS);
+            assertThat(uncaughtExceptions).isEmpty();
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(executor.getCompletedTaskCount()).isEqualTo(3);
+    }
+
+    private static void awaitCondition(final BooleanSupplier condition) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+
+    private static void awaitQuietly(final CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}